@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018 IBM Corporation and others.
+ * Copyright (c) 2018, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -29,13 +29,15 @@ import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 
+import org.eclipse.jdt.internal.core.manipulation.ASTCache;
 import org.eclipse.jdt.internal.core.manipulation.JavaManipulationPlugin;
 import org.eclipse.jdt.internal.corext.dom.ASTNodes;
 import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
 
 /**
  * The {@link CoreASTProvider} provides access to the {@link CompilationUnit AST root} used by
- * the current active Java editor.
+ * the current active Java editor. ASTs of other recently used Java elements are kept in a
+ * bounded cache and shared as well.
  *
  * The {@link CoreASTProvider} contains all methods/functionality that are
  * not dependent on the UI, from org.eclipse.jdt.internal.ui.javaeditor.ASTProvider
@@ -58,9 +60,12 @@ public final class CoreASTProvider {
 	private volatile ITypeRoot fReconcilingJavaElement;
 	private ITypeRoot fActiveJavaElement;
 	private CompilationUnit fAST;
+	/** The {@link ASTCache#getGeneration() generation} of the AST cache when fAST was set */
+	private long fASTGeneration;
 	private Object fReconcileLock= new Object();
 	private Object fWaitLock= new Object();
 	private volatile boolean fIsReconciling;
+	private final ASTCache fASTCache= ASTCache.getDefault();
 
 	/**
 	 * Wait flag class.
@@ -133,23 +138,34 @@ public final class CoreASTProvider {
 		boolean isActiveElement;
 		synchronized (this) {
 			isActiveElement= input.equals(fActiveJavaElement);
-			if (isActiveElement) {
-				if (fAST != null) {
-					if (JavaManipulationPlugin.DEBUG_AST_PROVIDER)
-						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning cached AST:" + toString(fAST) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-
-					return fAST;
-				}
-				if (waitFlag == CoreASTProvider.WAIT_NO) {
-					if (JavaManipulationPlugin.DEBUG_AST_PROVIDER)
-						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning null (WAIT_NO) for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+			if (isActiveElement && fAST != null) {
+				if (JavaManipulationPlugin.DEBUG_AST_PROVIDER)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning cached AST:" + toString(fAST) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
-					return null;
+				return fAST;
+			}
+		}
 
+		CompilationUnit cachedAST= fASTCache.get(input);
+		if (cachedAST != null) {
+			if (!isActiveElement)
+				return cachedAST;
+			synchronized (fReconcileLock) {
+				// an AST being reconciled is newer
+				if (!isReconciling(input)) {
+					cache(cachedAST, input);
+					return cachedAST;
 				}
 			}
 		}
 
+		if (isActiveElement && waitFlag == CoreASTProvider.WAIT_NO) {
+			if (JavaManipulationPlugin.DEBUG_AST_PROVIDER)
+				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning null (WAIT_NO) for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+
+			return null;
+		}
+
 		final boolean canReturnNull= waitFlag == CoreASTProvider.WAIT_NO || (waitFlag == CoreASTProvider.WAIT_ACTIVE_ONLY && !(isActiveElement && fAST == null));
 		boolean isReconciling= false;
 		final ITypeRoot activeElement;
@@ -192,6 +208,7 @@ public final class CoreASTProvider {
 
 
 		CompilationUnit ast= null;
+		long generation= fASTCache.getGeneration();
 		try {
 			ast= createAST(input, progressMonitor);
 			if (progressMonitor != null && progressMonitor.isCanceled()) {
@@ -209,11 +226,46 @@ public final class CoreASTProvider {
 					return fAST;
 				} else
 					reconciled(ast, input, null);
+			} else if (ast != null) {
+				fASTCache.put(input, ast, generation);
 			}
 		}
 		return ast;
 	}
 
+	/**
+	 * Returns a shared compilation unit AST for the given Java element. If the AST is kept in the
+	 * cache of recently used ASTs, it is not evicted until it is released by
+	 * {@link #releaseAST(CompilationUnit)}.
+	 * <p>
+	 * Clients are not allowed to modify the AST and must synchronize all access to its nodes.
+	 * </p>
+	 *
+	 * @param input the Java element, must not be <code>null</code>
+	 * @param waitFlag {@link #WAIT_YES}, {@link #WAIT_NO} or {@link #WAIT_ACTIVE_ONLY}
+	 * @param progressMonitor the progress monitor or <code>null</code>
+	 * @return the AST or <code>null</code> if the AST is not available
+	 * @see #getAST(ITypeRoot, WAIT_FLAG, IProgressMonitor)
+	 * @since 1.12
+	 */
+	public CompilationUnit acquireAST(ITypeRoot input, WAIT_FLAG waitFlag, IProgressMonitor progressMonitor) {
+		CompilationUnit ast= getAST(input, waitFlag, progressMonitor);
+		if (ast != null)
+			fASTCache.acquire(input, ast);
+		return ast;
+	}
+
+	/**
+	 * Releases an AST returned by {@link #acquireAST(ITypeRoot, WAIT_FLAG, IProgressMonitor)}.
+	 *
+	 * @param ast the AST, may be <code>null</code>
+	 * @since 1.12
+	 */
+	public void releaseAST(CompilationUnit ast) {
+		if (ast != null)
+			fASTCache.release(ast);
+	}
+
 	/**
 	 * Informs that reconciling for the given element is about to be started.
 	 *
@@ -348,6 +400,7 @@ public final class CoreASTProvider {
 			disposeAST();
 
 		fAST= ast;
+		fASTGeneration= fASTCache.getGeneration();
 
 		// Signal AST change
 		synchronized (fWaitLock) {
@@ -471,7 +524,20 @@ public final class CoreASTProvider {
 	 * @param activeJavaElement the java element.
 	 */
 	public void setActiveJavaElement (ITypeRoot activeJavaElement) {
-		fActiveJavaElement = activeJavaElement;
+		ITypeRoot previousElement= null;
+		CompilationUnit previousAST= null;
+		long generation;
+		synchronized (this) {
+			// keep the AST of the previously active element for reuse
+			if (fAST != null && fActiveJavaElement != null && !fActiveJavaElement.equals(activeJavaElement) && !isReconciling(fActiveJavaElement)) {
+				previousElement= fActiveJavaElement;
+				previousAST= fAST;
+			}
+			generation= fASTGeneration;
+			fActiveJavaElement = activeJavaElement;
+		}
+		if (previousAST != null)
+			fASTCache.put(previousElement, previousAST, generation);
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -91,6 +92,85 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 		TypeNameMatch[] chooseImports(TypeNameMatch[][] openChoices, ISourceRange[] ranges);
 	}
 
+	/**
+	 * Caches the types found for unresolved simple type names, such that organizing the imports of
+	 * many compilation units does not search the same names again. Each project is searched once for
+	 * all names of a compilation unit that have not been searched before; the found types are
+	 * shared by all compilation units of the project and remain in the order reported by the search
+	 * engine, so the imports are the same as without a cache.
+	 * <p>
+	 * The cache may be used by several operations concurrently. It does not track changes of the
+	 * Java model and is meant to live as long as one batch of operations.
+	 * </p>
+	 *
+	 * @since 1.12
+	 */
+	public static final class TypeNameMatchCache {
+
+		private static final TypeNameMatch[] NO_MATCHES= new TypeNameMatch[0];
+
+		/** The found types by simple name, per project and test code visibility */
+		private final Map<String, Map<String, TypeNameMatch[]>> fMatches= new ConcurrentHashMap<>();
+
+		/**
+		 * Finds the types with the given simple names.
+		 *
+		 * @param project the project to search
+		 * @param excludeTestCode whether to exclude test code from the search
+		 * @param simpleNames the simple type names
+		 * @param monitor the progress monitor
+		 * @return the found types, in the order of the search engine for each name
+		 * @throws JavaModelException if the search failed
+		 */
+		List<TypeNameMatch> findTypes(IJavaProject project, boolean excludeTestCode, Collection<String> simpleNames, IProgressMonitor monitor) throws JavaModelException {
+			String scopeKey= project.getHandleIdentifier() + (excludeTestCode ? "/main" : "/test"); //$NON-NLS-1$ //$NON-NLS-2$
+			Map<String, TypeNameMatch[]> matches= fMatches.computeIfAbsent(scopeKey, k -> new ConcurrentHashMap<>());
+			if (!matches.keySet().containsAll(simpleNames)) {
+				// one search at a time per scope, waiting units reuse its result
+				synchronized (matches) {
+					List<String> missing= new ArrayList<>();
+					for (Iterator<String> iter= simpleNames.iterator(); iter.hasNext();) {
+						String name= iter.next();
+						if (!matches.containsKey(name))
+							missing.add(name);
+					}
+					if (!missing.isEmpty())
+						search(project, excludeTestCode, missing, matches, monitor);
+				}
+			}
+			List<TypeNameMatch> result= new ArrayList<>();
+			for (Iterator<String> iter= simpleNames.iterator(); iter.hasNext();) {
+				result.addAll(Arrays.asList(matches.get(iter.next())));
+			}
+			return result;
+		}
+
+		private static void search(IJavaProject project, boolean excludeTestCode, List<String> names, Map<String, TypeNameMatch[]> matches, IProgressMonitor monitor) throws JavaModelException {
+			char[][] allTypes= new char[names.size()][];
+			for (int i= 0; i < allTypes.length; i++) {
+				allTypes[i]= names.get(i).toCharArray();
+			}
+			ArrayList<TypeNameMatch> typesFound= new ArrayList<>();
+			IJavaSearchScope scope= SearchEngine.createJavaSearchScope(excludeTestCode, new IJavaElement[] { project }, true);
+			new SearchEngine().searchAllTypeNames(null, allTypes, scope, new TypeNameMatchCollector(typesFound), IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+
+			Map<String, List<TypeNameMatch>> byName= new HashMap<>();
+			for (int i= 0; i < typesFound.size(); i++) {
+				TypeNameMatch curr= typesFound.get(i);
+				List<TypeNameMatch> list= byName.get(curr.getSimpleTypeName());
+				if (list == null) {
+					list= new ArrayList<>(2);
+					byName.put(curr.getSimpleTypeName(), list);
+				}
+				list.add(curr);
+			}
+			for (int i= 0; i < names.size(); i++) {
+				List<TypeNameMatch> list= byName.get(names.get(i));
+				matches.put(names.get(i), list != null ? list.toArray(new TypeNameMatch[list.size()]) : NO_MATCHES);
+			}
+		}
+	}
+
 	/**
 	 * Matches unresolvable import declarations (those having associated
 	 * {@link IProblem#ImportNotFound} problems) to unresolved simple names.
@@ -226,6 +306,8 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 
 		private final UnresolvableImportMatcher fUnresolvableImportMatcher;
 
+		private final TypeNameMatchCache fTypeNameMatchCache;
+
 		private IPackageFragment fCurrPackage;
 
 		private ScopeAnalyzer fAnalyzer;
@@ -237,12 +319,13 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 		private SourceRange[] fSourceRanges;
 
 
-		public TypeReferenceProcessor(Set<String> oldSingleImports, Set<String> oldDemandImports, CompilationUnit root, ImportRewrite impStructure, boolean ignoreLowerCaseNames, UnresolvableImportMatcher unresolvableImportMatcher) {
+		public TypeReferenceProcessor(Set<String> oldSingleImports, Set<String> oldDemandImports, CompilationUnit root, ImportRewrite impStructure, boolean ignoreLowerCaseNames, UnresolvableImportMatcher unresolvableImportMatcher, TypeNameMatchCache typeNameMatchCache) {
 			fOldSingleImports= oldSingleImports;
 			fOldDemandImports= oldDemandImports;
 			fImpStructure= impStructure;
 			fDoIgnoreLowerCaseNames= ignoreLowerCaseNames;
 			fUnresolvableImportMatcher= unresolvableImportMatcher;
+			fTypeNameMatchCache= typeNameMatchCache;
 
 			ICompilationUnit cu= impStructure.getCompilationUnit();
 
@@ -348,21 +431,26 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 				if (nUnresolved == 0) {
 					return false;
 				}
-				char[][] allTypes= new char[nUnresolved][];
-				int i= 0;
-				for (Iterator<String> iter= fUnresolvedTypes.keySet().iterator(); iter.hasNext();) {
-					allTypes[i++]= iter.next().toCharArray();
-				}
-				final ArrayList<TypeNameMatch> typesFound= new ArrayList<>();
 				final IJavaProject project= fCurrPackage.getJavaProject();
 				boolean excludeTestCode= !((IPackageFragmentRoot)fCurrPackage.getParent()).getResolvedClasspathEntry().isTest();
-				IJavaSearchScope scope= SearchEngine.createJavaSearchScope(excludeTestCode, new IJavaElement[] { project }, true);
-				TypeNameMatchCollector collector= new TypeNameMatchCollector(typesFound);
-				new SearchEngine().searchAllTypeNames(null, allTypes, scope, collector, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+				List<TypeNameMatch> typesFound;
+				if (fTypeNameMatchCache != null) {
+					typesFound= fTypeNameMatchCache.findTypes(project, excludeTestCode, fUnresolvedTypes.keySet(), monitor);
+				} else {
+					char[][] allTypes= new char[nUnresolved][];
+					int i= 0;
+					for (Iterator<String> iter= fUnresolvedTypes.keySet().iterator(); iter.hasNext();) {
+						allTypes[i++]= iter.next().toCharArray();
+					}
+					typesFound= new ArrayList<>();
+					IJavaSearchScope scope= SearchEngine.createJavaSearchScope(excludeTestCode, new IJavaElement[] { project }, true);
+					TypeNameMatchCollector collector= new TypeNameMatchCollector(typesFound);
+					new SearchEngine().searchAllTypeNames(null, allTypes, scope, collector, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+				}
 
 				boolean is50OrHigher= JavaModelUtil.is50OrHigher(project);
 
-				for (i= 0; i < typesFound.size(); i++) {
+				for (int i= 0; i < typesFound.size(); i++) {
 					TypeNameMatch curr= typesFound.get(i);
 					UnresolvedTypeData data= fUnresolvedTypes.get(curr.getSimpleTypeName());
 					if (data != null && isVisible(curr) && isOfKind(curr, data.typeKinds, is50OrHigher)) {
@@ -511,6 +599,8 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 
 	private final boolean fAllowSyntaxErrors;
 
+	private final TypeNameMatchCache fTypeNameMatchCache;
+
 	/**
 	 * Creates a new OrganizeImportsOperation operation.
 	 *
@@ -522,6 +612,23 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 	 * @param chooseImportQuery Query element to be used for UI interaction or <code>null</code> to not select anything
 	 */
 	public OrganizeImportsOperation(ICompilationUnit cu, CompilationUnit astRoot, boolean ignoreLowerCaseNames, boolean save, boolean allowSyntaxErrors, IChooseImportQuery chooseImportQuery) {
+		this(cu, astRoot, ignoreLowerCaseNames, save, allowSyntaxErrors, chooseImportQuery, null);
+	}
+
+	/**
+	 * Creates a new OrganizeImportsOperation operation that shares the types found for unresolved
+	 * type names with other operations.
+	 *
+	 * @param cu The compilation unit
+	 * @param astRoot the compilation unit AST node
+	 * @param ignoreLowerCaseNames when true, type names starting with a lower case are ignored
+	 * @param save If set, the result will be saved
+	 * @param allowSyntaxErrors If set, the operation will only proceed when the compilation unit has no syntax errors
+	 * @param chooseImportQuery Query element to be used for UI interaction or <code>null</code> to not select anything
+	 * @param typeNameMatchCache the cache of found types, or <code>null</code> to search the types of this compilation unit only
+	 * @since 1.12
+	 */
+	public OrganizeImportsOperation(ICompilationUnit cu, CompilationUnit astRoot, boolean ignoreLowerCaseNames, boolean save, boolean allowSyntaxErrors, IChooseImportQuery chooseImportQuery, TypeNameMatchCache typeNameMatchCache) {
 		fCompilationUnit= cu;
 		fASTRoot= astRoot;
 
@@ -529,6 +636,7 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 		fIgnoreLowerCaseNames= ignoreLowerCaseNames;
 		fAllowSyntaxErrors= allowSyntaxErrors;
 		fChooseImportQuery= chooseImportQuery;
+		fTypeNameMatchCache= typeNameMatchCache;
 
 		fNumberOfImportsAdded= 0;
 		fNumberOfImportsRemoved= 0;
@@ -586,7 +694,8 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 				astRoot,
 				importsRewrite,
 				fIgnoreLowerCaseNames,
-				unresolvableImportMatcher);
+				unresolvableImportMatcher,
+				fTypeNameMatchCache);
 
 		Iterator<SimpleName> refIterator= typeReferences.iterator();
 		while (refIterator.hasNext()) {
@@ -0,0 +1,463 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.manipulation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jdt.core.BufferChangedEvent;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.IBufferChangedListener;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.core.manipulation.CoreASTProvider;
+
+/**
+ * Bounded cache of shared ASTs of recently used Java elements, complementing the AST of the
+ * active editor held by {@link CoreASTProvider}.
+ * <p>
+ * Entries are validated against the modification stamp of the underlying resource. An entry of
+ * a working copy is only accepted while the working copy is consistent with its buffer, and it
+ * becomes invalid with the first change of the buffer. Java element deltas evict the entry of a
+ * compilation unit whose body changed, and all entries on changes which may affect bindings of
+ * other elements. An AST is only cached if no such change happened since the caller read the
+ * {@link #getGeneration() generation} before creating the AST. Least recently used entries are
+ * evicted when the number of entries or the estimated memory exceeds its limit, unless they are
+ * acquired by a client.
+ * </p>
+ *
+ * @since 1.12
+ */
+public final class ASTCache {
+
+	/**
+	 * A cached AST. The entry of a working copy listens to changes of the buffer.
+	 */
+	private static final class Entry implements IBufferChangedListener {
+
+		private final CompilationUnit fAST;
+
+		private final long fStamp;
+
+		private final long fWeight;
+
+		/** The buffer of a working copy, or <code>null</code> */
+		private final IBuffer fBuffer;
+
+		/** Tells whether the buffer changed since the entry has been created */
+		private volatile boolean fIsStale= false;
+
+		/** The number of clients which use the AST */
+		private int fReferences= 0;
+
+		Entry(CompilationUnit ast, long stamp, IBuffer buffer) {
+			fAST= ast;
+			fStamp= stamp;
+			fWeight= (long) ast.getLength() * BYTES_PER_SOURCE_CHAR;
+			fBuffer= buffer;
+			if (buffer != null)
+				buffer.addBufferChangedListener(this);
+		}
+
+		@Override
+		public void bufferChanged(BufferChangedEvent event) {
+			fIsStale= true;
+		}
+
+		void dispose() {
+			if (fBuffer != null)
+				fBuffer.removeBufferChangedListener(this);
+		}
+	}
+
+	/**
+	 * Invalidates cached ASTs on Java element changes.
+	 */
+	private final class ElementChangedListener implements IElementChangedListener {
+
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			synchronized (ASTCache.this) {
+				if (processDelta(event.getDelta()))
+					fGeneration++;
+			}
+		}
+	}
+
+	/** The maximal number of cached ASTs */
+	private static final int MAX_ENTRIES= 10;
+
+	/** Estimated heap size of an AST with resolved bindings, per character of source */
+	private static final int BYTES_PER_SOURCE_CHAR= 100;
+
+	/** The maximal estimated heap size of all cached ASTs */
+	private static final long MAX_WEIGHT= Runtime.getRuntime().maxMemory() / 16;
+
+	/** Flags of a delta which do not affect bindings of other elements */
+	private static final int LOCAL_DELTA_FLAGS= IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_FINE_GRAINED | IJavaElementDelta.F_AST_AFFECTED | IJavaElementDelta.F_PRIMARY_WORKING_COPY;
+
+	private static final ASTCache fgDefault= new ASTCache();
+
+	/**
+	 * Returns the shared AST cache.
+	 *
+	 * @return the shared AST cache
+	 */
+	public static ASTCache getDefault() {
+		return fgDefault;
+	}
+
+	/** The cached ASTs, in access order */
+	private final LinkedHashMap<ITypeRoot, Entry> fEntries= new LinkedHashMap<>(16, 0.75f, true);
+
+	/** The element changed listener, or <code>null</code> if not registered */
+	private ElementChangedListener fListener;
+
+	/** Incremented on every Java element change that may change an AST */
+	private long fGeneration= 0;
+
+	/** The estimated heap size of all cached ASTs */
+	private long fWeight= 0;
+
+	private long fHits= 0;
+
+	private long fMisses= 0;
+
+	private long fEvictions= 0;
+
+	private long fInvalidations= 0;
+
+	private ASTCache() {
+		// Singleton
+	}
+
+	/**
+	 * Returns the generation of the Java model as seen by the cache. Clients read the generation
+	 * before they create an AST and pass it to {@link #put(ITypeRoot, CompilationUnit, long)}.
+	 *
+	 * @return the current generation
+	 */
+	public synchronized long getGeneration() {
+		addListener();
+		return fGeneration;
+	}
+
+	/**
+	 * Returns the cached AST for the given element.
+	 *
+	 * @param element the Java element
+	 * @return the AST, or <code>null</code> if no valid AST is cached
+	 */
+	public CompilationUnit get(ITypeRoot element) {
+		Entry entry;
+		synchronized (this) {
+			entry= fEntries.get(element);
+		}
+		// validate outside of the lock, the Java model may have to be accessed
+		boolean isValid= entry != null && isValid(element, entry);
+		synchronized (this) {
+			if (!isValid) {
+				if (entry != null && fEntries.get(element) == entry) {
+					remove(element, entry);
+					fInvalidations++;
+				}
+				fMisses++;
+				return null;
+			}
+			fHits++;
+		}
+		if (JavaManipulationPlugin.DEBUG_AST_PROVIDER)
+			System.out.println(CoreASTProvider.getThreadName() + " - " + CoreASTProvider.DEBUG_PREFIX + "returning AST from cache for: " + element.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+		return entry.fAST;
+	}
+
+	/**
+	 * Caches the AST for the given element, unless the element has changed since the given
+	 * generation or the working copy is not consistent with its buffer.
+	 *
+	 * @param element the Java element
+	 * @param ast the AST
+	 * @param generation the {@link #getGeneration() generation} read before the AST was created
+	 */
+	public void put(ITypeRoot element, CompilationUnit ast, long generation) {
+		synchronized (this) {
+			Entry entry= fEntries.get(element);
+			if (entry != null && entry.fAST == ast)
+				return;
+			if (entry != null)
+				remove(element, entry);
+			if (generation != fGeneration)
+				return;
+		}
+		// access the Java model outside of the lock
+		IBuffer buffer= null;
+		if (element instanceof ICompilationUnit && ((ICompilationUnit) element).isWorkingCopy()) {
+			buffer= getBuffer(element);
+			if (buffer == null)
+				return;
+		}
+		Entry entry= new Entry(ast, getModificationStamp(element), buffer);
+		// the entry listens to the buffer now, an edit which has not been reconciled yet is detected
+		if (buffer != null && !isConsistent(element)) {
+			entry.dispose();
+			return;
+		}
+		synchronized (this) {
+			if (generation != fGeneration || fEntries.containsKey(element)) {
+				entry.dispose();
+				return;
+			}
+			fEntries.put(element, entry);
+			fWeight+= entry.fWeight;
+			evict();
+		}
+	}
+
+	/**
+	 * Protects the cached AST of the given element from eviction until
+	 * {@link #release(CompilationUnit)} has been called. Nothing happens if the AST is not cached.
+	 *
+	 * @param element the Java element
+	 * @param ast the AST
+	 * @return <code>true</code> if the AST is cached and has been acquired
+	 */
+	public synchronized boolean acquire(ITypeRoot element, CompilationUnit ast) {
+		Entry entry= fEntries.get(element);
+		if (entry == null || entry.fAST != ast)
+			return false;
+		entry.fReferences++;
+		return true;
+	}
+
+	/**
+	 * Releases an AST acquired by {@link #acquire(ITypeRoot, CompilationUnit)}.
+	 *
+	 * @param ast the AST
+	 */
+	public synchronized void release(CompilationUnit ast) {
+		for (Iterator<Entry> iterator= fEntries.values().iterator(); iterator.hasNext();) {
+			Entry entry= iterator.next();
+			if (entry.fAST == ast) {
+				if (entry.fReferences > 0)
+					entry.fReferences--;
+				break;
+			}
+		}
+		evict();
+	}
+
+	/**
+	 * Tells whether the given AST is cached.
+	 *
+	 * @param ast the AST
+	 * @return <code>true</code> if the AST is cached
+	 */
+	public synchronized boolean isCached(CompilationUnit ast) {
+		for (Iterator<Entry> iterator= fEntries.values().iterator(); iterator.hasNext();) {
+			if (iterator.next().fAST == ast)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the cached AST of the given element.
+	 *
+	 * @param element the Java element
+	 */
+	public synchronized void remove(ITypeRoot element) {
+		Entry entry= fEntries.get(element);
+		if (entry != null)
+			remove(element, entry);
+	}
+
+	/**
+	 * Removes all cached ASTs and stops listening to Java element changes.
+	 */
+	public synchronized void clear() {
+		for (Iterator<Entry> iterator= fEntries.values().iterator(); iterator.hasNext();)
+			iterator.next().dispose();
+		fEntries.clear();
+		fWeight= 0;
+		if (fListener != null) {
+			JavaCore.removeElementChangedListener(fListener);
+			fListener= null;
+			// changes are not tracked from now on
+			fGeneration++;
+		}
+	}
+
+	/**
+	 * @return the number of requests answered from the cache
+	 */
+	public synchronized long getHitCount() {
+		return fHits;
+	}
+
+	/**
+	 * @return the number of requests not answered from the cache
+	 */
+	public synchronized long getMissCount() {
+		return fMisses;
+	}
+
+	/**
+	 * @return the ratio of requests answered from the cache, between 0 and 1
+	 */
+	public synchronized double getHitRate() {
+		long requests= fHits + fMisses;
+		return requests == 0 ? 0 : (double) fHits / requests;
+	}
+
+	/**
+	 * @return the number of ASTs evicted to stay within the cache limits
+	 */
+	public synchronized long getEvictionCount() {
+		return fEvictions;
+	}
+
+	/**
+	 * @return the number of ASTs removed because their element changed
+	 */
+	public synchronized long getInvalidationCount() {
+		return fInvalidations;
+	}
+
+	/**
+	 * @return the number of cached ASTs
+	 */
+	public synchronized int getSize() {
+		return fEntries.size();
+	}
+
+	/**
+	 * @return the estimated heap size of the cached ASTs in bytes
+	 */
+	public synchronized long getWeight() {
+		return fWeight;
+	}
+
+	private void addListener() {
+		if (fListener == null) {
+			fListener= new ElementChangedListener();
+			JavaCore.addElementChangedListener(fListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		}
+	}
+
+	private void remove(ITypeRoot element, Entry entry) {
+		fEntries.remove(element);
+		fWeight-= entry.fWeight;
+		entry.dispose();
+	}
+
+	private void removeAll() {
+		if (JavaManipulationPlugin.DEBUG_AST_PROVIDER)
+			System.out.println(CoreASTProvider.getThreadName() + " - " + CoreASTProvider.DEBUG_PREFIX + "invalidating AST cache"); //$NON-NLS-1$ //$NON-NLS-2$
+		for (Iterator<Entry> iterator= fEntries.values().iterator(); iterator.hasNext();)
+			iterator.next().dispose();
+		fInvalidations+= fEntries.size();
+		fEntries.clear();
+		fWeight= 0;
+	}
+
+	/**
+	 * Evicts least recently used entries which are not acquired until the cache is within its
+	 * limits.
+	 */
+	private void evict() {
+		for (Iterator<Entry> iterator= fEntries.values().iterator(); iterator.hasNext() && (fEntries.size() > MAX_ENTRIES || fWeight > MAX_WEIGHT);) {
+			Entry entry= iterator.next();
+			if (entry.fReferences == 0) {
+				iterator.remove();
+				fWeight-= entry.fWeight;
+				entry.dispose();
+				fEvictions++;
+			}
+		}
+	}
+
+	/**
+	 * Removes the entries affected by the given delta.
+	 *
+	 * @param delta the delta
+	 * @return <code>true</code> if the delta may change an AST
+	 */
+	private boolean processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		int flags= delta.getFlags();
+		if (delta.getKind() != IJavaElementDelta.CHANGED || (flags & ~LOCAL_DELTA_FLAGS) != 0) {
+			removeAll();
+			return true;
+		}
+		if (element.getElementType() == IJavaElement.COMPILATION_UNIT) {
+			if ((flags & IJavaElementDelta.F_CONTENT) == 0)
+				return false;
+			if ((flags & IJavaElementDelta.F_FINE_GRAINED) == 0 || delta.getAffectedChildren().length > 0) {
+				// the structure may have changed
+				removeAll();
+				return true;
+			}
+			Entry entry= fEntries.get(element);
+			if (entry != null) {
+				remove((ITypeRoot) element, entry);
+				fInvalidations++;
+			}
+			return true;
+		}
+		boolean changed= false;
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++)
+			changed|= processDelta(children[i]);
+		return changed;
+	}
+
+	private static boolean isValid(ITypeRoot element, Entry entry) {
+		if (entry.fStamp != getModificationStamp(element))
+			return false;
+		if (entry.fBuffer != null)
+			return !entry.fIsStale && isConsistent(element);
+		return true;
+	}
+
+	private static boolean isConsistent(ITypeRoot element) {
+		try {
+			return element.isConsistent();
+		} catch (JavaModelException e) {
+			return false;
+		}
+	}
+
+	private static IBuffer getBuffer(ITypeRoot element) {
+		try {
+			return element.getBuffer();
+		} catch (JavaModelException e) {
+			return null;
+		}
+	}
+
+	private static long getModificationStamp(ITypeRoot element) {
+		IResource resource= element.getResource();
+		return resource != null ? resource.getModificationStamp() : IResource.NULL_STAMP;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018 IBM Corporation and others.
+ * Copyright (c) 2018, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -278,6 +278,38 @@ public class SemanticHighlightingPresenterCore {
 		}
 	}
 
+	/**
+	 * Adds the current positions completely contained in the given range to the given list.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 *
+	 * @param list The list
+	 * @param offset The range offset
+	 * @param length The range length
+	 */
+	public void addAllPositions(List<Position> list, int offset, int length) {
+		int end= offset + length;
+		synchronized (fPositionLock) {
+			int i= -1;
+			int j= fPositions.size();
+			while (j - i > 1) {
+				int k= (i + j) >> 1;
+				if (fPositions.get(k).getOffset() >= offset)
+					j= k;
+				else
+					i= k;
+			}
+			for (int n= fPositions.size(); j < n; j++) {
+				Position position= fPositions.get(j);
+				if (position.getOffset() >= end)
+					break;
+				if (position.getOffset() + position.getLength() <= end)
+					list.add(position);
+			}
+		}
+	}
+
 	/**
 	 * Create a runnable for updating the presentation.
 	 * <p>
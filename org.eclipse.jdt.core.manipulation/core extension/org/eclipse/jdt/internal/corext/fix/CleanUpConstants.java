@@ -1134,6 +1134,17 @@ public class CleanUpConstants {
 	 */
 	public static final String CLEANUP_ON_SAVE_PROFILE= "cleanup.on_save_profile_id"; //$NON-NLS-1$
 
+	/**
+	 * The number of worker threads that parse the compilation units of a project when executing
+	 * clean up.<br>
+	 * <br>
+	 * Possible values: Integer value, <code><b>1</b></code> parses on the calling thread<br>
+	 * Default value: <code><b>1</b></code><br>
+	 * 
+	 * @since 3.18
+	 */
+	public static final String CLEANUP_PARALLELISM= "cleanup.parallelism"; //$NON-NLS-1$
+
 	/**
 	 * A key to the version of the profile stored in the preferences.<br>
 	 * <br>
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -2315,6 +2315,8 @@ public final class RefactoringCoreMessages extends NLS {
 
 	public static String TargetProvider_method_declaration_not_unique;
 
+	public static String TextMatchUpdater_scanning;
+
 	public static String TextMatchUpdater_searching;
 
 	public static String TextMatchUpdater_textualMatches_description;
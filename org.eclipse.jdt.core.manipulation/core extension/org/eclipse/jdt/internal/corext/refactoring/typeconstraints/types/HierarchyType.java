@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,7 +13,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types;
 
-import java.util.Map;
+import java.util.BitSet;
 
 import org.eclipse.core.runtime.Assert;
 
@@ -22,9 +22,88 @@ import org.eclipse.jdt.core.dom.ITypeBinding;
 
 
 public abstract class HierarchyType extends TType {
+
+	/**
+	 * The ids of the proper supertypes of a hierarchy type.
+	 */
+	private static final class SuperTypeIds {
+		/** The ids of all proper supertypes */
+		private final BitSet fTypes= new BitSet();
+		/** The ids of the erasures of all generic, raw and parameterized proper supertypes */
+		private final BitSet fErasures= new BitSet();
+		/** The ids of the erasures of all generic and raw proper supertypes */
+		private final BitSet fGenericOrRawErasures= new BitSet();
+
+		/**
+		 * Computes the ids of the proper supertypes of the given type.
+		 *
+		 * @param type the type
+		 * @return the ids, or <code>null</code> if a supertype is still being created
+		 */
+		static SuperTypeIds compute(HierarchyType type) {
+			SuperTypeIds result= new SuperTypeIds();
+			return result.addSuperTypes(type) ? result : null;
+		}
+
+		private boolean addSuperTypes(HierarchyType type) {
+			if (type.fSuperclass != null && !addType(type.fSuperclass))
+				return false;
+			for (int i= 0; i < type.fInterfaces.length; i++) {
+				if (!addType(type.fInterfaces[i]))
+					return false;
+			}
+			return true;
+		}
+
+		private boolean addType(HierarchyType type) {
+			int id= type.getTypeId();
+			if (id < 0)
+				return false;
+			if (fTypes.get(id))
+				return true;
+			fTypes.set(id);
+			int kind= type.getKind();
+			if (kind == GENERIC_TYPE || kind == RAW_TYPE || kind == PARAMETERIZED_TYPE) {
+				int erasureId= type.getErasure().getTypeId();
+				if (erasureId < 0)
+					return false;
+				fErasures.set(erasureId);
+				if (kind != PARAMETERIZED_TYPE)
+					fGenericOrRawErasures.set(erasureId);
+			}
+			return addSuperTypes(type);
+		}
+
+		/**
+		 * Tells whether a proper supertype is type equivalent to the given type.
+		 *
+		 * @param other the type with a valid id, and a valid erasure id for generic, raw and
+		 *            parameterized types
+		 * @return <code>true</code> iff the type is equivalent to a proper supertype
+		 * @see TType#isTypeEquivalentTo(TType)
+		 */
+		boolean contains(HierarchyType other) {
+			if (fTypes.get(other.getTypeId()))
+				return true;
+			switch (other.getKind()) {
+				case GENERIC_TYPE:
+				case RAW_TYPE:
+					return fErasures.get(other.getErasure().getTypeId());
+				case PARAMETERIZED_TYPE:
+					return fGenericOrRawErasures.get(other.getErasure().getTypeId());
+				default:
+					return false;
+			}
+		}
+	}
+
 	private HierarchyType fSuperclass;
 	private HierarchyType[] fInterfaces;
 	private IType fJavaElementType;
+	/**
+	 * The ids of the proper supertypes, or <code>null</code> if not computed yet.
+	 */
+	private volatile SuperTypeIds fSuperTypeIds;
 
 	protected HierarchyType(TypeEnvironment environment) {
 		super(environment);
@@ -61,20 +140,28 @@ public abstract class HierarchyType extends TType {
 	}
 
 	public boolean isSubType(HierarchyType other) {
-		if (getEnvironment() == other.getEnvironment()) {
-			Map<TypeTuple, Boolean> cache= getEnvironment().getSubTypeCache();
-			TypeTuple key= new TypeTuple(this, other);
-			Boolean value= cache.get(key);
-			if (value != null)
-				return value.booleanValue();
-			boolean isSub= doIsSubType(other);
-			value= Boolean.valueOf(isSub);
-			cache.put(key, value);
-			return isSub;
+		if (getEnvironment() == other.getEnvironment() && hasTypeIds(other)) {
+			SuperTypeIds superTypeIds= fSuperTypeIds;
+			if (superTypeIds == null) {
+				// the supertypes are immutable, so concurrent computations yield the same result
+				superTypeIds= SuperTypeIds.compute(this);
+				fSuperTypeIds= superTypeIds;
+			}
+			if (superTypeIds != null)
+				return superTypeIds.contains(other);
 		}
 		return doIsSubType(other);
 	}
 
+	private static boolean hasTypeIds(HierarchyType type) {
+		if (type.getTypeId() < 0)
+			return false;
+		int kind= type.getKind();
+		if (kind == GENERIC_TYPE || kind == RAW_TYPE || kind == PARAMETERIZED_TYPE)
+			return type.getErasure().getTypeId() >= 0;
+		return true;
+	}
+
 	private boolean doIsSubType(HierarchyType other) {
 		if (fSuperclass != null && (other.isTypeEquivalentTo(fSuperclass) || fSuperclass.doIsSubType(other)))
 			return true;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,10 +13,6 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-
 import org.eclipse.core.runtime.Assert;
 
 import org.eclipse.jdt.core.dom.ITypeBinding;
@@ -74,6 +70,10 @@ public abstract class TType {
 	private String fBindingKey;
 	private int fModifiers;
 	private int fFlags;
+	/**
+	 * The id of this type in its environment, or <code>-1</code> while the type is being created.
+	 */
+	private volatile int fTypeId= -1;
 
 	/**
 	 * Creates a new type with the given environment as an owner.
@@ -142,6 +142,21 @@ public abstract class TType {
 		return fEnvironment;
 	}
 
+	/**
+	 * Returns the id of this type in its environment. Equal types of the same environment have
+	 * the same id, and ids are dense, i.e. they can be used as indices into bit sets.
+	 *
+	 * @return the id of this type, or <code>-1</code> if the type is still being created
+	 * @see TypeEnvironment#getType(int)
+	 */
+	public final int getTypeId() {
+		return fTypeId;
+	}
+
+	final void setTypeId(int typeId) {
+		fTypeId= typeId;
+	}
+
 	/**
 	 * Returns the key of the binding from which this type
 	 * got constructed.
@@ -517,14 +532,10 @@ public abstract class TType {
 	 * 		was not created with rememberSubtypes == true
 	 */
 	public TType[] getSubTypes() throws IllegalStateException {
-		Map<TType, ArrayList<TType>> subTypes= fEnvironment.getSubTypes();
-		if (subTypes == null)
-			throw new IllegalStateException("This TypeEnvironment does not remember subtypes"); //$NON-NLS-1$
-		List<TType> subtypes= subTypes.get(this);
+		TType[] subtypes= fEnvironment.getSubTypes(this);
 		if (subtypes == null)
-			return EMPTY_TYPE_ARRAY;
-		else
-			return subtypes.toArray(new TType[subtypes.size()]);
+			throw new IllegalStateException("This TypeEnvironment does not remember subtypes"); //$NON-NLS-1$
+		return subtypes;
 	}
 
 	/**
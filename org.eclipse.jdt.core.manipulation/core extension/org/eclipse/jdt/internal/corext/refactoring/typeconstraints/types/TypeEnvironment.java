@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,7 +16,6 @@ package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -40,6 +39,10 @@ import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
  * A type environment comprises a set of {@link TType}s that stand for Java {@link ITypeBinding}s.
  * In contrast to type bindings, TTypes of the same type environment also work across project boundaries and
  * across compiler environments, i.e. a type environment can handle bindings from multiple {@link ASTParser} sessions.
+ * <p>
+ * Types are hash-consed: every type is created only once per environment, and equal types have the same
+ * {@link TType#getTypeId() id}. Type environments are thread-safe.
+ * </p>
  * 
  * @see TType
  */
@@ -70,6 +73,16 @@ public class TypeEnvironment {
 		}
 	}
 
+	/**
+	 * The types of this environment, indexed by their id.
+	 */
+	private final List<TType> fTypes= new ArrayList<>();
+
+	/**
+	 * The canonical type for each type, which determines the type id.
+	 */
+	private final Map<TType, TType> fCanonicalTypes= new HashMap<>();
+
 	/** Type code for the primitive type "int". */
 	public final PrimitiveType INT= new PrimitiveType(this, PrimitiveType.INT, BindingKey.createTypeBindingKey("int")); //$NON-NLS-1$
 	/** Type code for the primitive type "char". */
@@ -104,7 +117,7 @@ public class TypeEnvironment {
 		"java.lang.Double",  //$NON-NLS-1$
 		"java.lang.Byte"};  //$NON-NLS-1$
 
-	private TType OBJECT_TYPE= null;
+	private volatile TType OBJECT_TYPE= null;
 
 	private List<Map<TType, ArrayType>>      fArrayTypes= new ArrayList<>();
 	private Map<IJavaElement, StandardType>  fStandardTypes= new HashMap<>();
@@ -117,15 +130,6 @@ public class TypeEnvironment {
 	private Map<TType, SuperWildcardType>    fSuperWildcardTypes= new HashMap<>();
 	private UnboundWildcardType fUnboundWildcardType= null;
 
-	private static final int MAX_ENTRIES= 1024;
-	private Map<TypeTuple, Boolean> fSubTypeCache= new LinkedHashMap<TypeTuple, Boolean>(50, 0.75f, true) {
-		private static final long serialVersionUID= 1L;
-		@Override
-		protected boolean removeEldestEntry(Map.Entry<TypeTuple, Boolean> eldest) {
-			return size() > MAX_ENTRIES;
-		}
-	};
-
 	/**
 	 * Map from TType to its known subtypes, or <code>null</code> iff subtype
 	 * information was not requested in the constructor.
@@ -181,13 +185,51 @@ public class TypeEnvironment {
 			fSubTypes= new HashMap<>();
 		}
 		fRemoveCapures= removeCapures;
+		for (int i= 0; i < PRIMITIVE_TYPES.length; i++) {
+			register(PRIMITIVE_TYPES[i]);
+		}
+		register(NULL);
+		register(VOID);
 	}
 
-	Map<TypeTuple, Boolean> getSubTypeCache() {
-		return fSubTypeCache;
+	/**
+	 * Returns the type with the given id.
+	 *
+	 * @param typeId the id of the type
+	 * @return the type
+	 * @see TType#getTypeId()
+	 */
+	public synchronized TType getType(int typeId) {
+		return fTypes.get(typeId);
 	}
 
-	public TType create(ITypeBinding binding) {
+	/**
+	 * Returns the number of type ids of this environment. All type ids are smaller than this number.
+	 *
+	 * @return the number of type ids
+	 */
+	public synchronized int getTypeCount() {
+		return fTypes.size();
+	}
+
+	/**
+	 * Assigns the id of the canonical type to a new type. Must be called after the type has been
+	 * initialized, since equality of types depends on their initialization.
+	 *
+	 * @param type the new type
+	 */
+	private void register(TType type) {
+		TType canonical= fCanonicalTypes.get(type);
+		if (canonical != null) {
+			type.setTypeId(canonical.getTypeId());
+		} else {
+			fCanonicalTypes.put(type, type);
+			type.setTypeId(fTypes.size());
+			fTypes.add(type);
+		}
+	}
+
+	public synchronized TType create(ITypeBinding binding) {
 		if (binding.isPrimitive()) {
 			return createPrimitiveType(binding);
 		} else if (binding.isArray()) {
@@ -220,7 +262,7 @@ public class TypeEnvironment {
 		return createStandardType(binding);
 	}
 
-	public TType[] create(ITypeBinding[] bindings) {
+	public synchronized TType[] create(ITypeBinding[] bindings) {
 		TType[] result= new TType[bindings.length];
 		for (int i= 0; i < bindings.length; i++) {
 			result[i]= create(bindings[i]);
@@ -242,7 +284,7 @@ public class TypeEnvironment {
 		return OBJECT_TYPE;
 	}
 
-	public void initializeJavaLangObject(IJavaProject project) {
+	public synchronized void initializeJavaLangObject(IJavaProject project) {
 		if (OBJECT_TYPE != null)
 			return;
 		
@@ -250,7 +292,7 @@ public class TypeEnvironment {
 		Assert.isTrue(objectType.isJavaLangObject());
 	}
 	
-	void initializeJavaLangObject(ITypeBinding object) {
+	synchronized void initializeJavaLangObject(ITypeBinding object) {
 		if (OBJECT_TYPE != null)
 			return;
 
@@ -267,7 +309,7 @@ public class TypeEnvironment {
 		return null;
 	}
 
-	StandardType createBoxed(PrimitiveType type, IJavaProject focus) {
+	synchronized StandardType createBoxed(PrimitiveType type, IJavaProject focus) {
 		String fullyQualifiedName= BOXED_PRIMITIVE_NAMES[type.getId()];
 		return createStandardType(fullyQualifiedName, focus);
 	}
@@ -288,8 +330,19 @@ public class TypeEnvironment {
 		return null;
 	}
 
-	Map<TType, ArrayList<TType>> getSubTypes() {
-		return fSubTypes;
+	/**
+	 * Returns the known direct subtypes of the given type.
+	 *
+	 * @param type the type
+	 * @return the subtypes, or <code>null</code> iff subtype information was not requested in the constructor
+	 */
+	synchronized TType[] getSubTypes(TType type) {
+		if (fSubTypes == null)
+			return null;
+		List<TType> subtypes= fSubTypes.get(type);
+		if (subtypes == null)
+			return TType.EMPTY_TYPE_ARRAY;
+		return subtypes.toArray(new TType[subtypes.size()]);
 	}
 
 	private void cacheSubType(TType supertype, TType result) {
@@ -336,10 +389,11 @@ public class TypeEnvironment {
 		result= new ArrayType(this);
 		arrayTypes.put(elementType, result);
 		result.initialize(binding, elementType);
+		register(result);
 		return result;
 	}
 
-	public ArrayType createArrayType(TType elementType, int dimensions) {
+	public synchronized ArrayType createArrayType(TType elementType, int dimensions) {
 		Assert.isTrue(! elementType.isArrayType());
 		Assert.isTrue(! elementType.isAnonymous());
 		Assert.isTrue(dimensions > 0);
@@ -352,6 +406,7 @@ public class TypeEnvironment {
 		result= new ArrayType(this, BindingKey.createArrayTypeBindingKey(elementType.getBindingKey(), dimensions));
 		arrayTypes.put(elementType, result);
 		result.initialize(elementType, dimensions);
+		register(result);
 		return result;
 	}
 
@@ -376,6 +431,7 @@ public class TypeEnvironment {
 		result= new StandardType(this);
 		fStandardTypes.put(javaElement, result);
 		result.initialize(binding, (IType)javaElement);
+		register(result);
 		if (OBJECT_TYPE == null && result.isJavaLangObject())
 			OBJECT_TYPE= result;
 		return result;
@@ -389,6 +445,7 @@ public class TypeEnvironment {
 		result= new GenericType(this);
 		fGenericTypes.put(javaElement, result);
 		result.initialize(binding, (IType)javaElement);
+		register(result);
 		cacheSubType(result.getSuperclass(), result);
 		cacheSubTypes(result.getInterfaces(), result);
 		return result;
@@ -404,6 +461,7 @@ public class TypeEnvironment {
 		result= new ParameterizedType(this);
 		fParameterizedTypes.put(pair, result);
 		result.initialize(binding, (IType)binding.getJavaElement());
+		register(result);
 		cacheSubType(result.getSuperclass(), result);
 		cacheSubTypes(result.getInterfaces(), result);
 		return result;
@@ -417,6 +475,7 @@ public class TypeEnvironment {
 		result= new RawType(this);
 		fRawTypes.put(javaElement, result);
 		result.initialize(binding, (IType)javaElement);
+		register(result);
 		cacheSubType(result.getSuperclass(), result);
 		cacheSubTypes(result.getInterfaces(), result);
 		return result;
@@ -426,6 +485,7 @@ public class TypeEnvironment {
 		if (fUnboundWildcardType == null) {
 			fUnboundWildcardType= new UnboundWildcardType(this);
 			fUnboundWildcardType.initialize(binding);
+			register(fUnboundWildcardType);
 		}
 		return fUnboundWildcardType;
 	}
@@ -438,6 +498,7 @@ public class TypeEnvironment {
 		result= new ExtendsWildcardType(this);
 		fExtendsWildcardTypes.put(bound, result);
 		result.initialize(binding);
+		register(result);
 		return result;
 	}
 
@@ -449,6 +510,7 @@ public class TypeEnvironment {
 		result= new SuperWildcardType(this);
 		fSuperWildcardTypes.put(bound, result);
 		result.initialize(binding);
+		register(result);
 		return result;
 	}
 
@@ -460,6 +522,7 @@ public class TypeEnvironment {
 		result= new TypeVariable(this);
 		fTypeVariables.put(javaElement, result);
 		result.initialize(binding, (ITypeParameter)javaElement);
+		register(result);
 		return result;
 	}
 
@@ -473,6 +536,7 @@ public class TypeEnvironment {
 		result= new CaptureType(this);
 		fCaptureTypes.put(pair, result);
 		result.initialize(binding, javaProject);
+		register(result);
 		return result;
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,10 +14,19 @@
 package org.eclipse.jdt.internal.corext.util;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeHierarchy;
@@ -26,17 +35,27 @@ import org.eclipse.jdt.core.JavaModelException;
 
 /**
  * A thread-safe cache for super type hierarchies.
+ * <p>
+ * The cache is bounded by the total number of types contained in the cached hierarchies.
+ * Lookups go through a concurrent index from every contained type to its hierarchy and do not
+ * block. Structural changes are serialized. A hierarchy for a given type is only built once
+ * at a time: concurrent requests for the same type wait for the result of the first one.
+ * </p>
  */
 // @see JDTUIHelperClasses
 public class SuperTypeHierarchyCache {
 
 	private static class HierarchyCacheEntry implements ITypeHierarchyChangedListener {
 
-		private ITypeHierarchy fTypeHierarchy;
-		private long fLastAccess;
+		private volatile ITypeHierarchy fTypeHierarchy;
+		private final IType[] fTypes;
+		private final Map<IType, MethodOverrideTester> fMethodOverrideTesters;
+		private volatile long fLastAccess;
 
 		public HierarchyCacheEntry(ITypeHierarchy hierarchy) {
 			fTypeHierarchy= hierarchy;
+			fTypes= hierarchy.getAllTypes();
+			fMethodOverrideTesters= new ConcurrentHashMap<>();
 			fTypeHierarchy.addTypeHierarchyChangedListener(this);
 			markAsAccessed();
 		}
@@ -50,8 +69,20 @@ public class SuperTypeHierarchyCache {
 			return fTypeHierarchy;
 		}
 
+		public IType[] getTypes() {
+			return fTypes;
+		}
+
+		public int getWeight() {
+			return Math.max(1, fTypes.length);
+		}
+
+		public MethodOverrideTester getMethodOverrideTester(IType type, ITypeHierarchy hierarchy) {
+			return fMethodOverrideTesters.computeIfAbsent(type, t -> new MethodOverrideTester(t, hierarchy));
+		}
+
 		public void markAsAccessed() {
-			fLastAccess= System.currentTimeMillis();
+			fLastAccess= fgAccessClock.incrementAndGet();
 		}
 
 		public long getLastAccess() {
@@ -59,27 +90,53 @@ public class SuperTypeHierarchyCache {
 		}
 
 		public void dispose() {
-			if (fTypeHierarchy != null) {
-				fTypeHierarchy.removeTypeHierarchyChangedListener(this);
+			ITypeHierarchy hierarchy= fTypeHierarchy;
+			if (hierarchy != null) {
+				hierarchy.removeTypeHierarchyChangedListener(this);
 				fTypeHierarchy= null;
 			}
+			fMethodOverrideTesters.clear();
 		}
 
 		@Override
 		public String toString() {
-			return "Super hierarchy of: " + fTypeHierarchy.getType().getElementName(); //$NON-NLS-1$
+			ITypeHierarchy hierarchy= fTypeHierarchy;
+			if (hierarchy == null)
+				return "Disposed super hierarchy"; //$NON-NLS-1$
+			return "Super hierarchy of: " + hierarchy.getType().getElementName(); //$NON-NLS-1$
 		}
 
 	}
 
 
-	private static final int CACHE_SIZE= 8;
+	/**
+	 * The default maximal total number of types in all cached hierarchies.
+	 */
+	private static final int MAX_CACHE_WEIGHT= 20000;
+
+	/**
+	 * Interval in which a thread waiting for a hierarchy built by another thread checks for cancellation.
+	 */
+	private static final long WAIT_INTERVAL= 100;
+
+	private static final Object fgLock= new Object();
+
+	// all fields below that are not concurrent are guarded by fgLock
+	private static final List<HierarchyCacheEntry> fgHierarchyCache= new ArrayList<>();
+	private static int fgCacheWeight= 0;
+	/**
+	 * The maximal total number of types in all cached hierarchies. The most recently
+	 * built hierarchy is always kept, even if it is bigger.
+	 */
+	private static int fgMaxCacheWeight= MAX_CACHE_WEIGHT;
+
+	private static final Map<IType, HierarchyCacheEntry> fgTypeIndex= new ConcurrentHashMap<>();
+	private static final Map<IType, FutureTask<ITypeHierarchy>> fgPendingHierarchies= new ConcurrentHashMap<>();
 
-	private static ArrayList<HierarchyCacheEntry> fgHierarchyCache= new ArrayList<>(CACHE_SIZE);
-	private static Map<IType, MethodOverrideTester> fgMethodOverrideTesterCache= new LRUMap<>(CACHE_SIZE);
+	private static final AtomicLong fgAccessClock= new AtomicLong();
 
-	private static int fgCacheHits= 0;
-	private static int fgCacheMisses= 0;
+	private static final AtomicInteger fgCacheHits= new AtomicInteger();
+	private static final AtomicInteger fgCacheMisses= new AtomicInteger();
 
 	/**
 	 * Returns a super type hierarchy that contains the given type.
@@ -97,32 +154,13 @@ public class SuperTypeHierarchyCache {
 	}
 
 	public static MethodOverrideTester getMethodOverrideTester(IType type) throws JavaModelException {
-		MethodOverrideTester test= null;
-		synchronized (fgMethodOverrideTesterCache) {
-			test= fgMethodOverrideTesterCache.get(type);
-		}
-		if (test == null) {
-			ITypeHierarchy hierarchy= getTypeHierarchy(type); // don't nest the locks
-			synchronized (fgMethodOverrideTesterCache) {
-				test= fgMethodOverrideTesterCache.get(type); // test again after waiting a long time for 'getTypeHierarchy'
-				if (test == null) {
-					test= new MethodOverrideTester(type, hierarchy);
-					fgMethodOverrideTesterCache.put(type, test);
-				}
-			}
-		}
-		return test;
-	}
-
-	private static void removeMethodOverrideTester(ITypeHierarchy hierarchy) {
-		synchronized (fgMethodOverrideTesterCache) {
-			for (Iterator<MethodOverrideTester> iter= fgMethodOverrideTesterCache.values().iterator(); iter.hasNext();) {
-				MethodOverrideTester curr= iter.next();
-				if (curr.getTypeHierarchy().equals(hierarchy)) {
-					iter.remove();
-				}
-			}
+		ITypeHierarchy hierarchy= getTypeHierarchy(type);
+		HierarchyCacheEntry entry= fgTypeIndex.get(type);
+		if (entry != null && entry.getTypeHierarchy() == hierarchy) {
+			return entry.getMethodOverrideTester(type, hierarchy);
 		}
+		// the hierarchy has been evicted in the meantime
+		return new MethodOverrideTester(type, hierarchy);
 	}
 
 	/**
@@ -139,44 +177,89 @@ public class SuperTypeHierarchyCache {
 	 */
 	public static ITypeHierarchy getTypeHierarchy(IType type, IProgressMonitor progressMonitor) throws JavaModelException {
 		ITypeHierarchy hierarchy= findTypeHierarchyInCache(type);
-		if (hierarchy == null) {
-			fgCacheMisses++;
-			hierarchy= type.newSupertypeHierarchy(progressMonitor);
-			addTypeHierarchyToCache(hierarchy);
-		} else {
-			fgCacheHits++;
+		if (hierarchy != null) {
+			fgCacheHits.incrementAndGet();
+			return hierarchy;
+		}
+
+		while (true) {
+			FutureTask<ITypeHierarchy> task= new FutureTask<>(() -> type.newSupertypeHierarchy(progressMonitor));
+			FutureTask<ITypeHierarchy> pending= fgPendingHierarchies.putIfAbsent(type, task);
+			if (pending == null) {
+				fgCacheMisses.incrementAndGet();
+				try {
+					task.run();
+					hierarchy= getResult(task, progressMonitor);
+					addTypeHierarchyToCache(hierarchy);
+					return hierarchy;
+				} finally {
+					fgPendingHierarchies.remove(type, task);
+				}
+			}
+
+			try {
+				return getResult(pending, progressMonitor);
+			} catch (OperationCanceledException e) {
+				if (progressMonitor != null && progressMonitor.isCanceled())
+					throw e;
+				// the thread building the hierarchy has been canceled, try again
+			}
+		}
+	}
+
+	private static ITypeHierarchy getResult(Future<ITypeHierarchy> task, IProgressMonitor progressMonitor) throws JavaModelException {
+		while (true) {
+			try {
+				return task.get(WAIT_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				if (progressMonitor != null && progressMonitor.isCanceled())
+					throw new OperationCanceledException();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			} catch (ExecutionException e) {
+				Throwable cause= e.getCause();
+				if (cause instanceof JavaModelException)
+					throw (JavaModelException) cause;
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new IllegalStateException(cause);
+			}
 		}
-		return hierarchy;
 	}
 
 	private static void addTypeHierarchyToCache(ITypeHierarchy hierarchy) {
-		synchronized (fgHierarchyCache) {
-			int nEntries= fgHierarchyCache.size();
-			if (nEntries >= CACHE_SIZE) {
-				// find obsolete entries or remove entry that was least recently accessed
+		HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
+		synchronized (fgLock) {
+			// remove obsolete entries and entries superseded by the new hierarchy
+			HierarchyCacheEntry[] entries= fgHierarchyCache.toArray(new HierarchyCacheEntry[fgHierarchyCache.size()]);
+			for (int i= 0; i < entries.length; i++) {
+				ITypeHierarchy curr= entries[i].getTypeHierarchy();
+				if (curr == null || !curr.exists() || hierarchy.contains(curr.getType())) {
+					removeHierarchyEntryFromCache(entries[i]);
+				}
+			}
+
+			fgHierarchyCache.add(newEntry);
+			fgCacheWeight+= newEntry.getWeight();
+			IType[] types= newEntry.getTypes();
+			for (int i= 0; i < types.length; i++) {
+				fgTypeIndex.put(types[i], newEntry);
+			}
+
+			// remove entries that were least recently accessed
+			while (fgCacheWeight > fgMaxCacheWeight && fgHierarchyCache.size() > 1) {
 				HierarchyCacheEntry oldest= null;
-				ArrayList<HierarchyCacheEntry> obsoleteHierarchies= new ArrayList<>(CACHE_SIZE);
-				for (int i= 0; i < nEntries; i++) {
+				for (int i= 0; i < fgHierarchyCache.size(); i++) {
 					HierarchyCacheEntry entry= fgHierarchyCache.get(i);
-					ITypeHierarchy curr= entry.getTypeHierarchy();
-					if (!curr.exists() || hierarchy.contains(curr.getType())) {
-						obsoleteHierarchies.add(entry);
-					} else {
-						if (oldest == null || entry.getLastAccess() < oldest.getLastAccess()) {
-							oldest= entry;
-						}
-					}
-				}
-				if (!obsoleteHierarchies.isEmpty()) {
-					for (int i= 0; i < obsoleteHierarchies.size(); i++) {
-						removeHierarchyEntryFromCache(obsoleteHierarchies.get(i));
+					if (entry != newEntry && (oldest == null || entry.getLastAccess() < oldest.getLastAccess())) {
+						oldest= entry;
 					}
-				} else if (oldest != null) {
-					removeHierarchyEntryFromCache(oldest);
 				}
+				removeHierarchyEntryFromCache(oldest);
 			}
-			HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
-			fgHierarchyCache.add(newEntry);
 		}
 	}
 
@@ -192,28 +275,30 @@ public class SuperTypeHierarchyCache {
 
 
 	private static ITypeHierarchy findTypeHierarchyInCache(IType type) {
-		synchronized (fgHierarchyCache) {
-			for (int i= fgHierarchyCache.size() - 1; i>= 0; i--) {
-				HierarchyCacheEntry curr= fgHierarchyCache.get(i);
-				ITypeHierarchy hierarchy= curr.getTypeHierarchy();
-				if (!hierarchy.exists()) {
-					removeHierarchyEntryFromCache(curr);
-				} else {
-					if (hierarchy.contains(type)) {
-						curr.markAsAccessed();
-						return hierarchy;
-					}
-				}
-			}
+		HierarchyCacheEntry entry= fgTypeIndex.get(type);
+		if (entry == null)
+			return null;
+
+		ITypeHierarchy hierarchy= entry.getTypeHierarchy();
+		if (hierarchy == null || !hierarchy.exists()) {
+			removeHierarchyEntryFromCache(entry);
+			return null;
 		}
-		return null;
+		entry.markAsAccessed();
+		return hierarchy;
 	}
 
 	private static void removeHierarchyEntryFromCache(HierarchyCacheEntry entry) {
-		synchronized (fgHierarchyCache) {
-			removeMethodOverrideTester(entry.getTypeHierarchy());
+		synchronized (fgLock) {
+			if (!fgHierarchyCache.remove(entry))
+				return;
+
+			fgCacheWeight-= entry.getWeight();
+			IType[] types= entry.getTypes();
+			for (int i= 0; i < types.length; i++) {
+				fgTypeIndex.remove(types[i], entry);
+			}
 			entry.dispose();
-			fgHierarchyCache.remove(entry);
 		}
 	}
 
@@ -223,7 +308,7 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheHits() {
-		return fgCacheHits;
+		return fgCacheHits.get();
 	}
 
 	/**
@@ -231,6 +316,20 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheMisses() {
-		return fgCacheMisses;
+		return fgCacheMisses.get();
+	}
+
+	/**
+	 * Sets the maximal total number of types in all cached hierarchies. Hierarchies that
+	 * exceed the new maximum are removed when the next hierarchy is added. Used for testing.
+	 * @param weight the maximal weight
+	 * @return the previous maximal weight
+	 */
+	public static int setMaxCacheWeight(int weight) {
+		synchronized (fgLock) {
+			int previous= fgMaxCacheWeight;
+			fgMaxCacheWeight= weight;
+			return previous;
+		}
 	}
 }
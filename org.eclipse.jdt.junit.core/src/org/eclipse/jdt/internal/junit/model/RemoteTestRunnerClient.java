@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,8 +15,13 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.junit.model;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -25,6 +30,8 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.SafeRunner;
@@ -228,6 +235,14 @@ public class RemoteTestRunnerClient {
 	private int fPort= -1;
 	private PrintWriter fWriter;
 	private PushbackReader fPushbackReader;
+	/**
+	 * The input stream if the RemoteTestRunner uses the binary protocol
+	 */
+	private DataInputStream fBinaryInput;
+	/**
+	 * Map from test id to <code>testId + "," + testName</code> for the binary protocol
+	 */
+	private final Map<Integer, String> fBinaryTestNames= new HashMap<>();
 	private String fLastLineDelimiter;
 	/**
 	 * The protocol version
@@ -266,11 +281,17 @@ public class RemoteTestRunnerClient {
 					System.out.println("Creating server socket "+fServerPort); //$NON-NLS-1$
 				fServerSocket= new ServerSocket(fServerPort);
 				fSocket= fServerSocket.accept();
-				fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream(), StandardCharsets.UTF_8)));
 				fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream(), StandardCharsets.UTF_8), true);
-				String message;
-				while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
-					receiveMessage(message);
+				InputStream input= new BufferedInputStream(fSocket.getInputStream(), 64 * 1024);
+				if (isBinaryProtocol(input)) {
+					fBinaryInput= new DataInputStream(input);
+					readBinaryMessages();
+				} else {
+					fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+					String message;
+					while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
+						receiveMessage(message);
+				}
 			} catch (SocketException e) {
 				notifyTestRunTerminated();
 			} catch (IOException e) {
@@ -326,6 +347,13 @@ public class RemoteTestRunnerClient {
 			}
 		} catch(IOException e) {
 		}
+		try {
+			if (fBinaryInput != null) {
+				fBinaryInput.close();
+				fBinaryInput= null;
+			}
+		} catch(IOException e) {
+		}
 		try {
 			if (fSocket != null) {
 				fSocket.close();
@@ -372,6 +400,89 @@ public class RemoteTestRunnerClient {
 		return buf.toString();
 	}
 
+	/**
+	 * Checks whether the RemoteTestRunner has announced the binary protocol. Consumes the
+	 * protocol header if it did, otherwise leaves the stream unchanged.
+	 *
+	 * @param input the input stream, must support mark and reset
+	 * @return <code>true</code> if the binary protocol is used
+	 * @throws IOException if reading fails
+	 */
+	private static boolean isBinaryProtocol(InputStream input) throws IOException {
+		byte[] magic= MessageIds.BINARY_PROTOCOL_MAGIC;
+		input.mark(magic.length + 1);
+		for (int i= 0; i < magic.length; i++) {
+			if (input.read() != magic[i]) {
+				input.reset();
+				return false;
+			}
+		}
+		int version= input.read();
+		if (version != MessageIds.BINARY_PROTOCOL_VERSION)
+			throw new IOException("Unsupported binary protocol version: " + version); //$NON-NLS-1$
+		return true;
+	}
+
+	/**
+	 * Reads frames of the binary protocol and passes the contained messages to the
+	 * processing states until the stream ends or the client is shut down.
+	 *
+	 * @throws IOException if reading fails
+	 * @see MessageIds#BINARY_PROTOCOL_MAGIC
+	 */
+	private void readBinaryMessages() throws IOException {
+		// complete messages are transmitted, appending states separate them by a line delimiter
+		fLastLineDelimiter= "\n"; //$NON-NLS-1$
+		while (fBinaryInput != null) {
+			int length;
+			try {
+				length= fBinaryInput.readInt();
+			} catch (EOFException e) {
+				return;
+			}
+			byte[] frame= new byte[length];
+			fBinaryInput.readFully(frame);
+
+			DataInputStream records= new DataInputStream(new ByteArrayInputStream(frame));
+			while (records.available() > 0) {
+				int kind= records.readUnsignedByte();
+				switch (kind) {
+					case MessageIds.BINARY_RECORD_TEXT:
+						receiveMessage(readBinaryString(records));
+						break;
+					case MessageIds.BINARY_RECORD_DEFINE_TEST:
+						int id= records.readInt();
+						fBinaryTestNames.put(Integer.valueOf(id), id + "," + readBinaryString(records)); //$NON-NLS-1$
+						break;
+					case MessageIds.BINARY_RECORD_TEST_START:
+						receiveMessage(MessageIds.TEST_START + getBinaryTestName(records.readInt()));
+						break;
+					case MessageIds.BINARY_RECORD_TEST_END:
+						receiveMessage(MessageIds.TEST_END + getBinaryTestName(records.readInt()));
+						break;
+					default:
+						throw new IOException("Unknown binary record: " + kind); //$NON-NLS-1$
+				}
+				if (fBinaryInput == null) // shut down while processing the frame
+					return;
+			}
+		}
+	}
+
+	private String getBinaryTestName(int id) throws IOException {
+		String test= fBinaryTestNames.get(Integer.valueOf(id));
+		if (test == null)
+			throw new IOException("Undefined test id: " + id); //$NON-NLS-1$
+		return test;
+	}
+
+	private static String readBinaryString(DataInputStream in) throws IOException {
+		int length= in.readInt();
+		byte[] bytes= new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
 	private void receiveMessage(String message) {
 	    fCurrentState= fCurrentState.readMessage(message);
 	}
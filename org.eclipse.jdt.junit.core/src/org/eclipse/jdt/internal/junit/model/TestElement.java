@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -186,15 +186,24 @@ public abstract class TestElement implements ITestElement {
 
 	/**
 	 * The unique ID of the test element which can be <code>null</code> as it is applicable to JUnit 5
-	 * and above.
+	 * and above. If {@link #fHasRelativeUniqueId} is set, only the part following the unique ID of
+	 * the parent is stored, since the unique IDs of nested tests share long prefixes.
 	 */
 	private String fUniqueId;
 
+	private boolean fHasRelativeUniqueId;
+
 	private Status fStatus;
 	private String fTrace;
 	private String fExpected;
 	private String fActual;
 
+	/**
+	 * The failure trace in the swap file of the session, or <code>null</code> if the failure trace
+	 * is not stored or has already been read.
+	 */
+	private TestRunSessionStore.TraceReference fTraceReference;
+
 	private boolean fAssumptionFailed;
 
 	/**
@@ -227,7 +236,13 @@ public abstract class TestElement implements ITestElement {
 		fTestName= testName;
 		fDisplayName= displayName;
 		fParameterTypes= parameterTypes;
-		fUniqueId= uniqueId;
+		String parentUniqueId= parent != null ? parent.getUniqueId() : null;
+		if (uniqueId != null && parentUniqueId != null && uniqueId.startsWith(parentUniqueId)) {
+			fUniqueId= uniqueId.substring(parentUniqueId.length());
+			fHasRelativeUniqueId= true;
+		} else {
+			fUniqueId= uniqueId;
+		}
 		fStatus= Status.NOT_RUN;
 		if (parent != null)
 			parent.addChild(this);
@@ -261,9 +276,10 @@ public abstract class TestElement implements ITestElement {
 
 	@Override
 	public FailureTrace getFailureTrace() {
+		resolveTrace();
 		Result testResult= getTestResult(false);
 		if (testResult == Result.ERROR || testResult == Result.FAILURE
-				|| (testResult == Result.IGNORED && fTrace != null)) {
+				|| (testResult == Result.IGNORED && getTrace() != null)) {
 			return new FailureTrace(fTrace, fExpected, fActual);
 		}
 		return null;
@@ -305,6 +321,7 @@ public abstract class TestElement implements ITestElement {
 	}
 
 	public void setStatus(Status status, String trace, String expected, String actual) {
+		resolveTrace();
 		if (trace != null && fTrace != null) {
 			//don't overwrite first trace if same test run logs multiple errors
 			fTrace= fTrace + trace;
@@ -321,21 +338,44 @@ public abstract class TestElement implements ITestElement {
 	}
 
 	public String getTrace() {
+		resolveTrace();
 		return fTrace;
 	}
 
 	public String getExpected() {
+		resolveTrace();
 		return fExpected;
 	}
 
 	public String getActual() {
+		resolveTrace();
 		return fActual;
 	}
 
 	public boolean isComparisonFailure() {
+		resolveTrace();
 		return fExpected != null && fActual != null;
 	}
 
+	/**
+	 * Sets the failure trace to be read from the swap file when it is requested.
+	 *
+	 * @param traceReference the failure trace in the swap file
+	 */
+	void setTraceReference(TestRunSessionStore.TraceReference traceReference) {
+		fTraceReference= traceReference;
+	}
+
+	private synchronized void resolveTrace() {
+		if (fTraceReference == null)
+			return;
+		String[] trace= fTraceReference.load();
+		fTraceReference= null;
+		fTrace= trace[0];
+		fExpected= trace[1];
+		fActual= trace[2];
+	}
+
 	/**
 	 * @return return the class name
 	 * @see org.eclipse.jdt.internal.junit.runner.ITestIdentifier#getName()
@@ -420,6 +460,8 @@ public abstract class TestElement implements ITestElement {
 	 * @return the unique ID of the test, can be <code>null</code>
 	 */
 	public String getUniqueId() {
+		if (fHasRelativeUniqueId)
+			return fParent.getUniqueId() + fUniqueId;
 		return fUniqueId;
 	}
 
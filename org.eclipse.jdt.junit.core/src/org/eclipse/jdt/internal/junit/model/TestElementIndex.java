@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Maps test ids to test elements.
+ * <p>
+ * The test runners number the tests consecutively, so ids in canonical decimal notation are
+ * stored in an array indexed by their value. Other ids, and numbers far beyond the number of
+ * stored elements, are kept in a hash map.
+ * </p>
+ */
+public final class TestElementIndex {
+
+	/** The number of array slots allowed beyond twice the number of elements */
+	private static final int DENSE_SLACK= 1024;
+
+	private TestElement[] fDense= new TestElement[64];
+
+	/** The elements with ids not stored in {@link #fDense}, or <code>null</code> if there are none */
+	private HashMap<String, TestElement> fSparse;
+
+	private int fSize= 0;
+
+	/**
+	 * Stores the given element, replacing an element with the same id.
+	 *
+	 * @param id the test id
+	 * @param element the test element
+	 */
+	public void put(String id, TestElement element) {
+		int index= toIndex(id);
+		if (index >= 0 && index <= 2 * fSize + DENSE_SLACK) {
+			if (index >= fDense.length)
+				fDense= Arrays.copyOf(fDense, Math.max(index + 1, 2 * fDense.length));
+			// the id may have been stored in the map while it was far beyond the number of elements
+			if (fDense[index] == null && (fSparse == null || fSparse.remove(id) == null))
+				fSize++;
+			fDense[index]= element;
+			return;
+		}
+		if (fSparse == null)
+			fSparse= new HashMap<>();
+		if (fSparse.put(id, element) == null)
+			fSize++;
+	}
+
+	/**
+	 * Returns the element with the given id.
+	 *
+	 * @param id the test id
+	 * @return the test element, or <code>null</code> if none is stored
+	 */
+	public TestElement get(String id) {
+		int index= toIndex(id);
+		if (index >= 0 && index < fDense.length) {
+			TestElement element= fDense[index];
+			if (element != null)
+				return element;
+		}
+		return fSparse != null ? fSparse.get(id) : null;
+	}
+
+	/**
+	 * @return the number of stored elements
+	 */
+	public int size() {
+		return fSize;
+	}
+
+	/**
+	 * Returns the value of an id in canonical decimal notation, i.e. without sign and leading zeros.
+	 *
+	 * @param id the test id
+	 * @return the value, or -1 if the id is not a canonical decimal number
+	 */
+	private static int toIndex(String id) {
+		int length= id.length();
+		if (length == 0 || length > 9 || length > 1 && id.charAt(0) == '0')
+			return -1;
+		int value= 0;
+		for (int i= 0; i < length; i++) {
+			char c= id.charAt(i);
+			if (c < '0' || c > '9')
+				return -1;
+			value= value * 10 + c - '0';
+		}
+		return value;
+	}
+}
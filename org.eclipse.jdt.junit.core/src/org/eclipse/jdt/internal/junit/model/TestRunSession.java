@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,12 +16,12 @@
 package org.eclipse.jdt.internal.junit.model;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 
 import org.eclipse.jdt.junit.model.ITestElement;
@@ -86,7 +86,12 @@ public class TestRunSession implements ITestRunSession {
 	/**
 	 * Map from testId to testElement.
 	 */
-	private HashMap<String, TestElement> fIdToTest;
+	private TestElementIndex fIdToTest;
+
+	/**
+	 * <code>true</code> iff the swap file contains the current state of this session.
+	 */
+	private volatile boolean fSwapFileUpToDate;
 
 	/**
 	 * The TestSuites for which additional children are expected.
@@ -167,7 +172,7 @@ public class TestRunSession implements ITestRunSession {
 		fTestRunnerKind= ITestKind.NULL; //TODO
 
 		fTestRoot= new TestRoot(this);
-		fIdToTest= new HashMap<>();
+		fIdToTest= new TestElementIndex();
 
 		fTestRunnerClient= null;
 
@@ -191,7 +196,7 @@ public class TestRunSession implements ITestRunSession {
 		}
 
 		fTestRoot= new TestRoot(this);
-		fIdToTest= new HashMap<>();
+		fIdToTest= new TestElementIndex();
 
 		fTestRunnerClient= new RemoteTestRunnerClient();
 		fTestRunnerClient.startListening(new ITestRunListener2[] { new TestSessionNotifier() }, port);
@@ -238,7 +243,8 @@ public class TestRunSession implements ITestRunSession {
 
 		fTestRoot= new TestRoot(this);
 		fTestResult= null;
-		fIdToTest= new HashMap<>();
+		fIdToTest= new TestElementIndex();
+		fSwapFileUpToDate= false;
 	}
 
 	@Override
@@ -370,18 +376,22 @@ public class TestRunSession implements ITestRunSession {
 		try {
 			File swapFile= getSwapFile();
 
-			JUnitModel.exportTestRunSession(this, swapFile);
+			// a session that has been swapped in and not changed since does not have to be written again
+			if (! fSwapFileUpToDate || ! swapFile.isFile()) {
+				TestRunSessionStore.write(this, swapFile);
+				fSwapFileUpToDate= true;
+			}
 			fTestResult= fTestRoot.getTestResult(true);
 			fTestRoot= null;
 			fTestRunnerClient= null;
-			fIdToTest= new HashMap<>();
+			fIdToTest= new TestElementIndex();
 			fIncompleteTestSuites= null;
 			fFactoryTestSuites= null;
 			fUnrootedSuite= null;
 
 		} catch (IllegalStateException e) {
 			JUnitCorePlugin.log(e);
-		} catch (CoreException e) {
+		} catch (IOException e) {
 			JUnitCorePlugin.log(e);
 		}
 	}
@@ -391,16 +401,29 @@ public class TestRunSession implements ITestRunSession {
 	}
 
 
-	public void removeSwapFile() {
+	public synchronized void removeSwapFile() {
+		fSwapFileUpToDate= false;
+		// the failure traces of a swapped in test tree are read from the swap file
+		if (fTestRoot != null)
+			loadFailureTraces(fTestRoot);
 		File swapFile= getSwapFile();
 		if (swapFile.exists())
 			swapFile.delete();
 	}
 
+	private static void loadFailureTraces(TestElement element) {
+		element.getTrace();
+		if (element instanceof TestSuiteElement) {
+			ITestElement[] children= ((TestSuiteElement) element).getChildren();
+			for (int i= 0; i < children.length; i++)
+				loadFailureTraces((TestElement) children[i]);
+		}
+	}
+
 	private File getSwapFile() throws IllegalStateException {
 		File historyDir= JUnitCorePlugin.getHistoryDirectory();
 		String isoTime= new SimpleDateFormat("yyyyMMdd-HHmmss.SSS").format(new Date(getStartTime())); //$NON-NLS-1$
-		String swapFileName= isoTime + ".xml"; //$NON-NLS-1$
+		String swapFileName= isoTime + ".bin"; //$NON-NLS-1$
 		return new File(historyDir, swapFileName);
 	}
 
@@ -410,12 +433,13 @@ public class TestRunSession implements ITestRunSession {
 			return;
 
 		try {
-			JUnitModel.importIntoTestRunSession(getSwapFile(), this);
+			TestRunSessionStore.read(getSwapFile(), this);
+			fSwapFileUpToDate= true;
 		} catch (IllegalStateException e) {
 			JUnitCorePlugin.log(e);
 			fTestRoot= new TestRoot(this);
 			fTestResult= null;
-		} catch (CoreException e) {
+		} catch (IOException e) {
 			JUnitCorePlugin.log(e);
 			fTestRoot= new TestRoot(this);
 			fTestResult= null;
@@ -586,6 +610,7 @@ public class TestRunSession implements ITestRunSession {
 			testElement= new TestCaseElement(parent, id, testName, displayName, isDynamicTest, parameterTypes, uniqueId);
 		}
 		fIdToTest.put(id, testElement);
+		fSwapFileUpToDate= false;
 		return testElement;
 	}
 
@@ -749,6 +774,7 @@ public class TestRunSession implements ITestRunSession {
 			if (isIgnored) {
 				testCaseElement.setIgnored(true);
 				fIgnoredCount++;
+				fSwapFileUpToDate= false;
 			}
 
 			if (testCaseElement.getStatus() == Status.RUNNING)
@@ -820,6 +846,7 @@ public class TestRunSession implements ITestRunSession {
 
 	public void registerTestFailureStatus(TestElement testElement, Status status, String trace, String expected, String actual) {
 		testElement.setStatus(status, trace, expected, actual);
+		fSwapFileUpToDate= false;
 		if (!testElement.isAssumptionFailure()) {
 			if (status.isError()) {
 				fErrorCount++;
@@ -830,6 +857,7 @@ public class TestRunSession implements ITestRunSession {
 	}
 
 	public void registerTestEnded(TestElement testElement, boolean completed) {
+		fSwapFileUpToDate= false;
 		if (testElement instanceof TestCaseElement) {
 			fTotalCount++;
 			if (! completed) {
@@ -850,6 +878,7 @@ public class TestRunSession implements ITestRunSession {
 
 	private void setStatus(TestElement testElement, Status status) {
 		testElement.setStatus(status);
+		fSwapFileUpToDate= false;
 	}
 
 	public TestElement[] getAllFailedTestElements() {
@@ -873,13 +902,26 @@ public class TestRunSession implements ITestRunSession {
 	}
 
 	@Override
-	public double getElapsedTimeInSeconds() {
+	public synchronized double getElapsedTimeInSeconds() {
 		if (fTestRoot == null)
-			return Double.NaN;
+			return getSwappedElapsedTimeInSeconds();
 
 		return fTestRoot.getElapsedTimeInSeconds();
 	}
 
+	private double getSwappedElapsedTimeInSeconds() {
+		try {
+			File swapFile= getSwapFile();
+			if (swapFile.isFile())
+				return TestRunSessionStore.readElapsedTimeInSeconds(swapFile);
+		} catch (IllegalStateException e) {
+			JUnitCorePlugin.log(e);
+		} catch (IOException e) {
+			JUnitCorePlugin.log(e);
+		}
+		return Double.NaN;
+	}
+
 	public String getIncludeTags() {
 		if (fLaunch != null) {
 			try {
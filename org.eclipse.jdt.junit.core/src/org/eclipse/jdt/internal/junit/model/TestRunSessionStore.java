@@ -0,0 +1,358 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.junit.model.ITestElement;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+
+/**
+ * Reads and writes the binary swap files of test run sessions.
+ * <p>
+ * File format: magic (int), version (int), the start time of the session (long), the elapsed time
+ * of its test root in seconds (double), the counters of the session (6 ints), include and exclude
+ * tags (strings), the number of top-level suites (int) and the suites with their subtrees in
+ * preorder, the failure traces, and the index: the number and offsets (long) of the failure traces.
+ * The file ends with the offset (long) of the index.
+ * </p>
+ * <p>
+ * An element consists of its kind (byte), id, test name, display name (strings), parameter types
+ * (int count, -1 for none, and strings), unique id (string), elapsed time (double), status (byte),
+ * flags (byte), the index of its failure trace (int, -1 for none) and, for suites, the number of
+ * children (int). A failure trace consists of trace, expected and actual value (strings). Strings
+ * are stored as the length (int, -1 for <code>null</code>) and bytes of their UTF-8 encoding.
+ * </p>
+ * <p>
+ * The test tree is read in one pass. Failure traces are only read when they are requested from
+ * the test element, so the swap file must not be deleted while the elements of a swapped in tree
+ * refer to it. The header can be read without the test tree, see
+ * {@link #readElapsedTimeInSeconds(File)}.
+ * </p>
+ */
+final class TestRunSessionStore {
+
+	/**
+	 * Reads a failure trace on demand.
+	 */
+	static final class TraceReference {
+
+		private final File fFile;
+
+		private final long fOffset;
+
+		TraceReference(File file, long offset) {
+			fFile= file;
+			fOffset= offset;
+		}
+
+		/**
+		 * @return the trace, expected and actual value, which can be <code>null</code>
+		 */
+		String[] load() {
+			try (RandomAccessFile input= new RandomAccessFile(fFile, "r")) { //$NON-NLS-1$
+				input.seek(fOffset);
+				return new String[] { readString(input), readString(input), readString(input) };
+			} catch (IOException e) {
+				JUnitCorePlugin.log(e);
+				return new String[3];
+			}
+		}
+	}
+
+	/** The magic number of the swap file */
+	private static final int MAGIC= 0x4A545253;
+
+	/** The version of the swap file format */
+	private static final int VERSION= 2;
+
+	private static final byte KIND_SUITE= 0;
+
+	private static final byte KIND_CASE= 1;
+
+	private static final int FLAG_IGNORED= 1;
+
+	private static final int FLAG_DYNAMIC= 2;
+
+	private static final int FLAG_ASSUMPTION_FAILED= 4;
+
+	/** The status codes, by index */
+	private static final Status[] STATUSES= { Status.NOT_RUN, Status.OK, Status.FAILURE, Status.ERROR, Status.RUNNING, Status.RUNNING_FAILURE, Status.RUNNING_ERROR };
+
+	private TestRunSessionStore() {
+		// no instances
+	}
+
+	/**
+	 * Writes the given session to the given file.
+	 *
+	 * @param session the test run session
+	 * @param file the swap file
+	 * @throws IOException if the file cannot be written
+	 */
+	static void write(TestRunSession session, File file) throws IOException {
+		File temporary= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		try (DataOutputStream output= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+			TestRoot root= session.getTestRoot();
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(session.getStartTime());
+			output.writeDouble(root.getElapsedTimeInSeconds());
+			output.writeInt(session.getTotalCount());
+			output.writeInt(session.getStartedCount());
+			output.writeInt(session.getFailureCount());
+			output.writeInt(session.getErrorCount());
+			output.writeInt(session.getIgnoredCount());
+			output.writeInt(session.getAssumptionFailureCount());
+			writeString(output, session.getIncludeTags());
+			writeString(output, session.getExcludeTags());
+
+			ITestElement[] suites= root.getChildren();
+			List<TestElement> failures= new ArrayList<>();
+			output.writeInt(suites.length);
+			for (int i= 0; i < suites.length; i++)
+				writeElement(output, (TestElement) suites[i], failures);
+
+			long[] traceOffsets= new long[failures.size()];
+			for (int i= 0; i < traceOffsets.length; i++) {
+				traceOffsets[i]= getPosition(output);
+				TestElement failure= failures.get(i);
+				writeString(output, failure.getTrace());
+				writeString(output, failure.getExpected());
+				writeString(output, failure.getActual());
+			}
+
+			long index= getPosition(output);
+			output.writeInt(traceOffsets.length);
+			for (int i= 0; i < traceOffsets.length; i++)
+				output.writeLong(traceOffsets[i]);
+			output.writeLong(index);
+		} catch (IOException e) {
+			temporary.delete();
+			throw e;
+		}
+		if (file.exists() && !file.delete() || !temporary.renameTo(file)) {
+			temporary.delete();
+			throw new IOException("Cannot replace " + file); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Replaces the test tree and counters of the given session with the ones stored in the given file.
+	 * Failure traces are read when they are requested.
+	 *
+	 * @param file the swap file
+	 * @param session the test run session
+	 * @throws IOException if the file cannot be read
+	 */
+	static void read(File file, TestRunSession session) throws IOException {
+		try (RandomAccessFile input= new RandomAccessFile(file, "r")) { //$NON-NLS-1$
+			readMagic(input, file);
+			if (input.readLong() != session.getStartTime())
+				throw new IOException("Swap file of another test run: " + file); //$NON-NLS-1$
+			double elapsedTime= input.readDouble();
+			int totalCount= input.readInt();
+			int startedCount= input.readInt();
+			int failureCount= input.readInt();
+			int errorCount= input.readInt();
+			int ignoredCount= input.readInt();
+			int assumptionFailureCount= input.readInt();
+			String includeTags= readString(input);
+			String excludeTags= readString(input);
+			long suites= input.getFilePointer();
+
+			input.seek(input.length() - 8);
+			input.seek(input.readLong());
+			TraceReference[] traces= new TraceReference[input.readInt()];
+			for (int i= 0; i < traces.length; i++)
+				traces[i]= new TraceReference(file, input.readLong());
+
+			session.reset();
+			TestRoot root= session.getTestRoot();
+			input.seek(suites);
+			DataInputStream suiteInput= new DataInputStream(new BufferedInputStream(Channels.newInputStream(input.getChannel())));
+			int suiteCount= suiteInput.readInt();
+			for (int i= 0; i < suiteCount; i++)
+				readElement(suiteInput, session, root, traces);
+			root.setElapsedTimeInSeconds(elapsedTime);
+
+			session.fTotalCount= totalCount;
+			session.fStartedCount= startedCount;
+			session.fFailureCount= failureCount;
+			session.fErrorCount= errorCount;
+			session.fIgnoredCount= ignoredCount;
+			session.fAssumptionFailureCount= assumptionFailureCount;
+			if (includeTags != null)
+				session.setIncludeTags(includeTags);
+			if (excludeTags != null)
+				session.setExcludeTags(excludeTags);
+		}
+	}
+
+	/**
+	 * Returns the elapsed time of the session stored in the given file without reading the test
+	 * tree.
+	 *
+	 * @param file the swap file
+	 * @return the elapsed time in seconds, or {@link Double#NaN} if unknown
+	 * @throws IOException if the file cannot be read
+	 */
+	static double readElapsedTimeInSeconds(File file) throws IOException {
+		try (DataInputStream input= new DataInputStream(new FileInputStream(file))) {
+			readMagic(input, file);
+			input.readLong();
+			return input.readDouble();
+		}
+	}
+
+	private static void readMagic(DataInput input, File file) throws IOException {
+		if (input.readInt() != MAGIC || input.readInt() != VERSION)
+			throw new IOException("Not a test run swap file: " + file); //$NON-NLS-1$
+	}
+
+	private static void writeElement(DataOutputStream output, TestElement element, List<TestElement> failures) throws IOException {
+		boolean isSuite= element instanceof TestSuiteElement;
+		output.writeByte(isSuite ? KIND_SUITE : KIND_CASE);
+		writeString(output, element.getId());
+		writeString(output, element.getTestName());
+		writeString(output, element.getDisplayName());
+		String[] parameterTypes= element.getParameterTypes();
+		if (parameterTypes == null) {
+			output.writeInt(-1);
+		} else {
+			output.writeInt(parameterTypes.length);
+			for (int i= 0; i < parameterTypes.length; i++)
+				writeString(output, parameterTypes[i]);
+		}
+		writeString(output, element.getUniqueId());
+		output.writeDouble(element.getElapsedTimeInSeconds());
+		Status status= isSuite ? ((TestSuiteElement) element).getSuiteStatus() : element.getStatus();
+		output.writeByte(getStatusCode(status));
+		int flags= 0;
+		if (element instanceof TestCaseElement) {
+			TestCaseElement testCase= (TestCaseElement) element;
+			if (testCase.isIgnored())
+				flags|= FLAG_IGNORED;
+			if (testCase.isDynamicTest())
+				flags|= FLAG_DYNAMIC;
+		}
+		if (element.isAssumptionFailure())
+			flags|= FLAG_ASSUMPTION_FAILED;
+		output.writeByte(flags);
+		if (element.getTrace() != null || element.getExpected() != null || element.getActual() != null) {
+			output.writeInt(failures.size());
+			failures.add(element);
+		} else {
+			output.writeInt(-1);
+		}
+		if (isSuite) {
+			ITestElement[] children= ((TestSuiteElement) element).getChildren();
+			output.writeInt(children.length);
+			for (int i= 0; i < children.length; i++)
+				writeElement(output, (TestElement) children[i], failures);
+		}
+	}
+
+	private static void readElement(DataInputStream input, TestRunSession session, TestSuiteElement parent, TraceReference[] traces) throws IOException {
+		boolean isSuite= input.readByte() == KIND_SUITE;
+		String id= readString(input);
+		String testName= readString(input);
+		String displayName= readString(input);
+		int parameterCount= input.readInt();
+		String[] parameterTypes= null;
+		if (parameterCount >= 0) {
+			parameterTypes= new String[parameterCount];
+			for (int i= 0; i < parameterCount; i++)
+				parameterTypes[i]= readString(input);
+		}
+		String uniqueId= readString(input);
+		double time= input.readDouble();
+		int statusCode= input.readByte();
+		int flags= input.readByte();
+		int trace= input.readInt();
+		if (statusCode < 0 || statusCode >= STATUSES.length || trace >= traces.length)
+			throw new IOException("Corrupt test run swap file"); //$NON-NLS-1$
+
+		boolean isDynamicTest= (flags & FLAG_DYNAMIC) != 0;
+		TestElement element= session.createTestElement(parent, id, testName, isSuite, 0, isDynamicTest, displayName, parameterTypes, uniqueId);
+		if (element instanceof TestCaseElement)
+			((TestCaseElement) element).setIgnored((flags & FLAG_IGNORED) != 0);
+		element.setAssumptionFailed((flags & FLAG_ASSUMPTION_FAILED) != 0);
+		if (trace >= 0)
+			element.setTraceReference(traces[trace]);
+		if (isSuite) {
+			int childCount= input.readInt();
+			for (int i= 0; i < childCount; i++)
+				readElement(input, session, (TestSuiteElement) element, traces);
+		}
+		// like the XML import, restore tests that were still running as not run, but keep their failures
+		Status status= STATUSES[statusCode];
+		if (status == Status.RUNNING_FAILURE)
+			status= Status.FAILURE;
+		else if (status == Status.RUNNING_ERROR)
+			status= Status.ERROR;
+		if (status != Status.NOT_RUN && status != Status.RUNNING)
+			element.setStatus(status);
+		element.setElapsedTimeInSeconds(time);
+	}
+
+	private static int getStatusCode(Status status) {
+		for (int i= 0; i < STATUSES.length; i++) {
+			if (STATUSES[i] == status)
+				return i;
+		}
+		return 0;
+	}
+
+	private static long getPosition(DataOutputStream output) throws IOException {
+		int size= output.size();
+		if (size == Integer.MAX_VALUE)
+			throw new IOException("Test run too large to swap"); //$NON-NLS-1$
+		return size;
+	}
+
+	private static void writeString(DataOutputStream output, String string) throws IOException {
+		if (string == null) {
+			output.writeInt(-1);
+			return;
+		}
+		byte[] bytes= string.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static String readString(DataInput input) throws IOException {
+		int length= input.readInt();
+		if (length < 0)
+			return null;
+		byte[] bytes= new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
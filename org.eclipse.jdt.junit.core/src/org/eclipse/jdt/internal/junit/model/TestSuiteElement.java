@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -93,8 +93,13 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	public void childChangedStatus(TestElement child, Status childStatus) {
 		int childCount= fChildren.size();
 		if (child == fChildren.get(0) && childStatus.isRunning()) {
-			// is first child, and is running -> copy status
-			internalSetChildrenStatus(childStatus);
+			if (fChildrenStatus == null || ! fChildrenStatus.isErrorOrFailure()) {
+				// is first child, and is running -> copy status
+				internalSetChildrenStatus(childStatus);
+			} else {
+				// children executed in parallel have already failed, don't hide their failures
+				internalSetChildrenStatus(getCumulatedStatus());
+			}
 			return;
 		}
 		TestElement lastChild= fChildren.get(childCount - 1);
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes messages of the RemoteTestRunner in the binary protocol.
+ * <p>
+ * Messages are collected in frames. A frame is sent when it is full, when
+ * {@link #flushFrame()} is called, or with the first message that is sent
+ * {@link #FLUSH_INTERVAL} milliseconds after the previous frame. Frames are
+ * written by the thread that sends the messages. Test start and end messages
+ * are sent as test ids, the test names are only sent when they change.
+ * </p>
+ *
+ * @see MessageIds#BINARY_PROTOCOL_MAGIC
+ */
+public class BinaryMessageWriter {
+
+	/**
+	 * Frames are sent when they reach this size.
+	 */
+	private static final int FRAME_SIZE= 32 * 1024;
+
+	/**
+	 * Minimal time in milliseconds between two frames that are not full.
+	 */
+	private static final long FLUSH_INTERVAL= 50;
+
+	private final DataOutputStream fOut;
+	private final ByteArrayOutputStream fFrame;
+	private final DataOutputStream fFrameOut;
+	/**
+	 * Map from test id (String) to the last test name (String) sent for it
+	 */
+	private final CustomHashtable fTestNames;
+	/**
+	 * The time in milliseconds when the last frame has been sent
+	 */
+	private long fLastFrameTime;
+	private boolean fError;
+
+	public BinaryMessageWriter(OutputStream out) throws IOException {
+		fOut= new DataOutputStream(new BufferedOutputStream(out, 2 * FRAME_SIZE));
+		fFrame= new ByteArrayOutputStream(2 * FRAME_SIZE);
+		fFrameOut= new DataOutputStream(fFrame);
+		fTestNames= new CustomHashtable();
+
+		fOut.write(MessageIds.BINARY_PROTOCOL_MAGIC);
+		fOut.writeByte(MessageIds.BINARY_PROTOCOL_VERSION);
+		fOut.flush();
+	}
+
+	/**
+	 * Adds a message of the text protocol to the current frame.
+	 *
+	 * @param msg the message
+	 */
+	public synchronized void sendMessage(String msg) {
+		if (fError)
+			return;
+		try {
+			if (msg.startsWith(MessageIds.TEST_START)) {
+				writeTestEvent(MessageIds.BINARY_RECORD_TEST_START, msg);
+			} else if (msg.startsWith(MessageIds.TEST_END)) {
+				writeTestEvent(MessageIds.BINARY_RECORD_TEST_END, msg);
+			} else {
+				writeText(msg);
+			}
+			if (fFrame.size() >= FRAME_SIZE || System.currentTimeMillis() - fLastFrameTime >= FLUSH_INTERVAL)
+				writeFrame();
+		} catch (IOException e) {
+			fError= true;
+		}
+	}
+
+	private void writeTestEvent(int kind, String msg) throws IOException {
+		// format: testId "," testName
+		String arg= msg.substring(MessageIds.MSG_HEADER_LENGTH);
+		int comma= arg.indexOf(',');
+		if (comma <= 0) {
+			writeText(msg);
+			return;
+		}
+		String id= arg.substring(0, comma);
+		int numericId;
+		try {
+			numericId= Integer.parseInt(id);
+		} catch (NumberFormatException e) {
+			writeText(msg);
+			return;
+		}
+		String name= arg.substring(comma + 1);
+		if (!name.equals(fTestNames.get(id))) {
+			fFrameOut.writeByte(MessageIds.BINARY_RECORD_DEFINE_TEST);
+			fFrameOut.writeInt(numericId);
+			writeString(name);
+			fTestNames.put(id, name);
+		}
+		fFrameOut.writeByte(kind);
+		fFrameOut.writeInt(numericId);
+	}
+
+	private void writeText(String msg) throws IOException {
+		fFrameOut.writeByte(MessageIds.BINARY_RECORD_TEXT);
+		writeString(msg);
+	}
+
+	private void writeString(String s) throws IOException {
+		byte[] bytes= s.getBytes("UTF-8"); //$NON-NLS-1$
+		fFrameOut.writeInt(bytes.length);
+		fFrameOut.write(bytes);
+	}
+
+	private void writeFrame() throws IOException {
+		if (fFrame.size() > 0) {
+			fOut.writeInt(fFrame.size());
+			fFrame.writeTo(fOut);
+			fFrame.reset();
+		}
+		fOut.flush();
+		fLastFrameTime= System.currentTimeMillis();
+	}
+
+	/**
+	 * Sends the current frame.
+	 */
+	public synchronized void flushFrame() {
+		if (fError)
+			return;
+		try {
+			writeFrame();
+		} catch (IOException e) {
+			fError= true;
+		}
+	}
+
+	/**
+	 * Sends the current frame and closes the underlying stream.
+	 */
+	public synchronized void close() {
+		flushFrame();
+		try {
+			fOut.close();
+		} catch (IOException e) {
+			// ignore, like PrintWriter
+		}
+	}
+}
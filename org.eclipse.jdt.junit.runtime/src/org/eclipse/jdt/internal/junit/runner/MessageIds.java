@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -134,6 +134,47 @@ public class MessageIds {
 	 */
 	public static final String TEST_RERUN=	">RERUN  "; //$NON-NLS-1$
 
+	/**
+	 * Program argument that asks the RemoteTestRunner to use the binary protocol.
+	 * Runners that don't know the argument ignore it and use the text protocol.
+	 */
+	public static final String BINARY_PROTOCOL_ARGUMENT= "-binaryprotocol"; //$NON-NLS-1$
+
+	/**
+	 * Program argument that asks the RemoteTestRunner to execute the tests concurrently, if
+	 * the test loader supports it. Runners that don't know the argument ignore it.
+	 */
+	public static final String PARALLEL_EXECUTION_ARGUMENT= "-parallel"; //$NON-NLS-1$
+
+	/**
+	 * The first bytes sent by a RemoteTestRunner that uses the binary protocol. Messages of
+	 * the text protocol always start with '%', so the client can tell the protocols apart.
+	 * <p>
+	 * The magic is followed by a version byte and a sequence of frames. A frame consists of
+	 * the length of its payload (int) and the payload, which is a sequence of records. Each
+	 * record starts with its kind (byte):
+	 * </p>
+	 * <ul>
+	 * <li>{@link #BINARY_RECORD_TEXT} + string: a message of the text protocol</li>
+	 * <li>{@link #BINARY_RECORD_DEFINE_TEST} + testId (int) + string: the test name used by
+	 * subsequent records for the given test id</li>
+	 * <li>{@link #BINARY_RECORD_TEST_START} + testId (int): equivalent to {@link #TEST_START}</li>
+	 * <li>{@link #BINARY_RECORD_TEST_END} + testId (int): equivalent to {@link #TEST_END}</li>
+	 * </ul>
+	 * Strings are encoded as their length in bytes (int) followed by their UTF-8 bytes.
+	 */
+	public static final byte[] BINARY_PROTOCOL_MAGIC= { 0, 'J', 'U', 'B' };
+
+	/**
+	 * The version of the binary protocol.
+	 */
+	public static final int BINARY_PROTOCOL_VERSION= 1;
+
+	public static final int BINARY_RECORD_TEXT= 1;
+	public static final int BINARY_RECORD_DEFINE_TEST= 2;
+	public static final int BINARY_RECORD_TEST_START= 3;
+	public static final int BINARY_RECORD_TEST_END= 4;
+
 	/**
 	 * MessageFormat to encode test method identifiers:
 	 * testMethod(testClass)
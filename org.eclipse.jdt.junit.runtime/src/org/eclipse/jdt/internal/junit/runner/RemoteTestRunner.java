@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -90,6 +90,19 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * Print writer for sending messages
 	 */
 	private PrintWriter fWriter;
+	/**
+	 * Writer for sending messages in the binary protocol, or <code>null</code>
+	 * if the text protocol is used
+	 */
+	private BinaryMessageWriter fBinaryWriter;
+	/**
+	 * Use the binary protocol if connected through a socket
+	 */
+	private boolean fBinaryProtocol= false;
+	/**
+	 * Execute the tests concurrently, if the test loader supports it
+	 */
+	private boolean fParallelExecution= false;
 	/**
 	 * Reader for incoming messages
 	 */
@@ -304,6 +317,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 
 			} else if (args[i].toLowerCase().equals("-junitconsole")) { //$NON-NLS-1$
 			    fConsoleMode  = true;
+			} else if (args[i].toLowerCase().equals(MessageIds.BINARY_PROTOCOL_ARGUMENT)) {
+				fBinaryProtocol= true;
+			} else if (args[i].toLowerCase().equals(MessageIds.PARALLEL_EXECUTION_ARGUMENT)) {
+				fParallelExecution= true;
 			} else if (args[i].toLowerCase().equals("-testloaderclass")) { //$NON-NLS-1$
 				String className = args[i + 1];
 				createLoader(className);
@@ -653,11 +670,15 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 		for (int i= 1; i < 20; i++) {
 			try{
 				fClientSocket= new Socket(fHost, fPort);
-				try {
-				    fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fClientSocket.getOutputStream(), "UTF-8")), false/*true*/); //$NON-NLS-1$
-	            } catch (UnsupportedEncodingException e1) {
-	                fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fClientSocket.getOutputStream())), false/*true*/);
-	            }
+				if (fBinaryProtocol) {
+					fBinaryWriter= new BinaryMessageWriter(fClientSocket.getOutputStream());
+				} else {
+					try {
+						fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fClientSocket.getOutputStream(), "UTF-8")), false/*true*/); //$NON-NLS-1$
+					} catch (UnsupportedEncodingException e1) {
+						fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(fClientSocket.getOutputStream())), false/*true*/);
+					}
+				}
 				try {
 				    fReader= new BufferedReader(new InputStreamReader(fClientSocket.getInputStream(), "UTF-8")); //$NON-NLS-1$
                 } catch (UnsupportedEncodingException e1) {
@@ -682,6 +703,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * Shutsdown the connection to the remote test listener.
 	 */
 	private void shutDown() {
+		if (fBinaryWriter != null) {
+			fBinaryWriter.close();
+			fBinaryWriter= null;
+		}
 		if (fWriter != null) {
 			fWriter.close();
 			fWriter= null;
@@ -717,6 +742,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * @see org.eclipse.jdt.internal.junit.runner.MessageSender#sendMessage(java.lang.String)
 	 */
 	public void sendMessage(String msg) {
+		if (fBinaryWriter != null) {
+			fBinaryWriter.sendMessage(msg);
+			return;
+		}
 		if(fWriter == null)
 			return;
 		fWriter.println(msg);
@@ -731,12 +760,14 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	private void notifyTestRunEnded(long elapsedTime) {
 		fSender.sendMessage(MessageIds.TEST_RUN_END + elapsedTime);
 		fSender.flush();
+		flushFrame();
 		//shutDown();
 	}
 
 	protected void notifyTestRunStopped(long elapsedTime) {
 		fSender.sendMessage(MessageIds.TEST_STOPPED + elapsedTime);
 		fSender.flush();
+		flushFrame();
 		//shutDown();
 	}
 
@@ -752,17 +783,37 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 		if (fPort != -1) {
 			fSender.sendMessage(MessageIds.TEST_RERAN + r.fRerunTestId + " " + r.fRerunClassName + " " + r.fRerunTestName + " " + status); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 			fSender.flush();
+			flushFrame();
 		}
 	}
 
 	public void flush() {
+		if (fBinaryWriter != null) {
+			// frames are sent when they are full or after the flush interval, don't send a frame per message
+			return;
+		}
 	    fWriter.flush();
 	}
 
+	/**
+	 * Sends the pending messages of the binary protocol immediately.
+	 */
+	private void flushFrame() {
+		if (fBinaryWriter != null)
+			fBinaryWriter.flushFrame();
+	}
+
 	public void runTests(TestExecution execution) {
 		runTests(fTestClassNames, fTestName, execution);
 	}
 
+	/**
+	 * @return <code>true</code> if the test loader should execute the tests concurrently
+	 */
+	public boolean isParallelExecution() {
+		return fParallelExecution;
+	}
+
 	public ITestLoader getTestLoader() {
 		return fLoader;
 	}
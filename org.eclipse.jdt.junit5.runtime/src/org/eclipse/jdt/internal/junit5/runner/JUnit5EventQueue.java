@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit5.runner;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.eclipse.jdt.internal.junit.runner.IListensToTestExecutions;
+import org.eclipse.jdt.internal.junit.runner.ITestIdentifier;
+import org.eclipse.jdt.internal.junit.runner.IVisitsTestTrees;
+import org.eclipse.jdt.internal.junit.runner.TestReferenceFailure;
+
+/**
+ * Serializes the notifications of tests that are executed concurrently.
+ * <p>
+ * Notifications are queued by the test threads and passed on by a single dispatcher thread, in the
+ * order in which they were queued. The notifications of one test thread therefore keep their order,
+ * and the messages of a notification (e.g. a failure with its trace) are never interleaved with the
+ * messages of another test. The test threads don't wait for the messages to be sent.
+ * </p>
+ */
+class JUnit5EventQueue implements IListensToTestExecutions, IVisitsTestTrees {
+
+	/** Marks the end of the queue */
+	private static final Runnable END= () -> {
+		// no notification
+	};
+
+	private final IListensToTestExecutions fNotified;
+
+	private final IVisitsTestTrees fTreeVisitor;
+
+	private final BlockingQueue<Runnable> fQueue= new LinkedBlockingQueue<>();
+
+	private final Thread fDispatcher;
+
+	/**
+	 * @param notified the listener that receives the notifications
+	 * @param treeVisitor the visitor that receives the tree entries of dynamic tests
+	 */
+	JUnit5EventQueue(IListensToTestExecutions notified, IVisitsTestTrees treeVisitor) {
+		fNotified= notified;
+		fTreeVisitor= treeVisitor;
+		fDispatcher= new Thread(this::dispatch, "JUnit 5 event dispatcher"); //$NON-NLS-1$
+		fDispatcher.setDaemon(true);
+		fDispatcher.start();
+	}
+
+	@Override
+	public void notifyTestStarted(ITestIdentifier test) {
+		fQueue.add(() -> fNotified.notifyTestStarted(test));
+	}
+
+	@Override
+	public void notifyTestEnded(ITestIdentifier test) {
+		fQueue.add(() -> fNotified.notifyTestEnded(test));
+	}
+
+	@Override
+	public void notifyTestFailed(TestReferenceFailure failure) {
+		fQueue.add(() -> fNotified.notifyTestFailed(failure));
+	}
+
+	@Override
+	public void visitTreeEntry(ITestIdentifier identifier, boolean hasChildren, int testCount, boolean isDynamicTest, String parentId) {
+		fQueue.add(() -> fTreeVisitor.visitTreeEntry(identifier, hasChildren, testCount, isDynamicTest, parentId));
+	}
+
+	/**
+	 * Returns after all queued notifications have been passed on. No notifications may be queued
+	 * afterwards.
+	 */
+	void close() {
+		fQueue.add(END);
+		boolean interrupted= false;
+		while (fDispatcher.isAlive()) {
+			try {
+				fDispatcher.join();
+			} catch (InterruptedException e) {
+				interrupted= true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	private void dispatch() {
+		while (true) {
+			Runnable notification;
+			try {
+				notification= fQueue.take();
+			} catch (InterruptedException e) {
+				continue;
+			}
+			if (notification == END)
+				return;
+			try {
+				notification.run();
+			} catch (RuntimeException e) {
+				// keep passing on the notifications of the other tests
+				e.printStackTrace();
+			}
+		}
+	}
+}
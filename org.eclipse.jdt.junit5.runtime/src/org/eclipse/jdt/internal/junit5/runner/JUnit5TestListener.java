@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2016, 2018 IBM Corporation and others.
+ * Copyright (c) 2016, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -31,6 +31,7 @@ import org.opentest4j.ValueWrapper;
 import org.eclipse.jdt.internal.junit.runner.FailedComparison;
 import org.eclipse.jdt.internal.junit.runner.IListensToTestExecutions;
 import org.eclipse.jdt.internal.junit.runner.ITestIdentifier;
+import org.eclipse.jdt.internal.junit.runner.IVisitsTestTrees;
 import org.eclipse.jdt.internal.junit.runner.MessageIds;
 import org.eclipse.jdt.internal.junit.runner.RemoteTestRunner;
 import org.eclipse.jdt.internal.junit.runner.TestIdMap;
@@ -42,11 +43,27 @@ public class JUnit5TestListener implements TestExecutionListener {
 
 	private RemoteTestRunner fRemoteTestRunner;
 
-	private TestPlan fTestPlan;
+	private final IVisitsTestTrees fTreeVisitor;
+
+	/**
+	 * The test plan being executed. Volatile, since the tests may be executed by other threads
+	 * than the one that starts the execution.
+	 */
+	private volatile TestPlan fTestPlan;
 
 	public JUnit5TestListener(IListensToTestExecutions notified, RemoteTestRunner remoteTestRunner) {
+		this(notified, remoteTestRunner, remoteTestRunner);
+	}
+
+	/**
+	 * @param notified the listener that receives the test notifications
+	 * @param remoteTestRunner the test runner
+	 * @param treeVisitor the visitor that receives the tree entries of dynamic tests
+	 */
+	public JUnit5TestListener(IListensToTestExecutions notified, RemoteTestRunner remoteTestRunner, IVisitsTestTrees treeVisitor) {
 		fNotified= notified;
 		fRemoteTestRunner= remoteTestRunner;
+		fTreeVisitor= treeVisitor;
 	}
 
 	@Override
@@ -150,8 +167,9 @@ public class JUnit5TestListener implements TestExecutionListener {
 
 	@Override
 	public void executionSkipped(TestIdentifier testIdentifier, String reason) {
-		if (testIdentifier.isContainer() && fTestPlan != null) {
-			fTestPlan.getDescendants(testIdentifier).stream().filter(t -> t.isTest()).forEachOrdered(t -> notifySkipped(t));
+		TestPlan testPlan= fTestPlan;
+		if (testIdentifier.isContainer() && testPlan != null) {
+			testPlan.getDescendants(testIdentifier).stream().filter(t -> t.isTest()).forEachOrdered(t -> notifySkipped(t));
 		} else {
 			notifySkipped(testIdentifier);
 		}
@@ -167,19 +185,20 @@ public class JUnit5TestListener implements TestExecutionListener {
 
 	@Override
 	public void dynamicTestRegistered(TestIdentifier testIdentifier) {
-		if (fTestPlan != null) {
+		TestPlan testPlan= fTestPlan;
+		if (testPlan != null) {
 			JUnit5Identifier dynamicTestIdentifier= new JUnit5Identifier(testIdentifier);
 			boolean hasChildren;
 			int testCount;
 			if (testIdentifier.isContainer()) {
 				hasChildren= true;
-				testCount= fTestPlan.getChildren(testIdentifier).size();
+				testCount= testPlan.getChildren(testIdentifier).size();
 			} else {
 				hasChildren= false;
 				testCount= 1;
 			}
-			String parentId= getParentId(testIdentifier, fTestPlan);
-			fRemoteTestRunner.visitTreeEntry(dynamicTestIdentifier, hasChildren, testCount, true, parentId);
+			String parentId= getParentId(testIdentifier, testPlan);
+			fTreeVisitor.visitTreeEntry(dynamicTestIdentifier, hasChildren, testCount, true, parentId);
 		}
 	}
 
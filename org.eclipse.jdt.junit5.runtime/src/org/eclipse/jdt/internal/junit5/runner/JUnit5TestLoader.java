@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2016, 2017 IBM Corporation and others.
+ * Copyright (c) 2016, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -31,6 +31,10 @@ import org.eclipse.jdt.internal.junit.runner.RemoteTestRunner;
 
 public class JUnit5TestLoader implements ITestLoader {
 
+	private static final String PARALLEL_ENABLED= "junit.jupiter.execution.parallel.enabled"; //$NON-NLS-1$
+
+	private static final String PARALLEL_MODE_CLASSES= "junit.jupiter.execution.parallel.mode.classes.default"; //$NON-NLS-1$
+
 	private Launcher fLauncher= LauncherFactory.create();
 
 	private RemoteTestRunner fRemoteTestRunner;
@@ -67,12 +71,12 @@ public class JUnit5TestLoader implements ITestLoader {
 	}
 
 	private ITestReference createFilteredTest(Class<?> clazz, String testName, String[][] includeExcludeTags) {
-		LauncherDiscoveryRequest request= LauncherDiscoveryRequestBuilder.request().selectors(DiscoverySelectors.selectMethod(clazz.getName() + "#" + testName)).filters(getTagFilters(includeExcludeTags)).build(); //$NON-NLS-1$
+		LauncherDiscoveryRequest request= createRequestBuilder().selectors(DiscoverySelectors.selectMethod(clazz.getName() + "#" + testName)).filters(getTagFilters(includeExcludeTags)).build(); //$NON-NLS-1$
 		return new JUnit5TestReference(request, fLauncher, fRemoteTestRunner);
 	}
 
 	private ITestReference createUnfilteredTest(Class<?> clazz, String[][] includeExcludeTags) {
-		LauncherDiscoveryRequest request= LauncherDiscoveryRequestBuilder.request().selectors(DiscoverySelectors.selectClass(clazz)).filters(getTagFilters(includeExcludeTags)).build();
+		LauncherDiscoveryRequest request= createRequestBuilder().selectors(DiscoverySelectors.selectClass(clazz)).filters(getTagFilters(includeExcludeTags)).build();
 		return new JUnit5TestReference(request, fLauncher, fRemoteTestRunner);
 	}
 
@@ -87,7 +91,7 @@ public class JUnit5TestLoader implements ITestLoader {
 		} else {
 			pattern= "^" + pkg + "\\.[^.]+$"; //$NON-NLS-1$//$NON-NLS-2$
 		}
-		LauncherDiscoveryRequest request= LauncherDiscoveryRequestBuilder.request()
+		LauncherDiscoveryRequest request= createRequestBuilder()
 				.selectors(DiscoverySelectors.selectPackage(pkg))
 				.filters(ClassNameFilter.includeClassNamePatterns(pattern))
 				.filters(getTagFilters(includeExcludeTags))
@@ -97,10 +101,20 @@ public class JUnit5TestLoader implements ITestLoader {
 	}
 
 	private ITestReference createUniqueIdTest(String uniqueId, String[][] includeExcludeTags) {
-		LauncherDiscoveryRequest request= LauncherDiscoveryRequestBuilder.request().selectors(DiscoverySelectors.selectUniqueId(uniqueId)).filters(getTagFilters(includeExcludeTags)).build();
+		LauncherDiscoveryRequest request= createRequestBuilder().selectors(DiscoverySelectors.selectUniqueId(uniqueId)).filters(getTagFilters(includeExcludeTags)).build();
 		return new JUnit5TestReference(request, fLauncher, fRemoteTestRunner);
 	}
 
+	private LauncherDiscoveryRequestBuilder createRequestBuilder() {
+		LauncherDiscoveryRequestBuilder builder= LauncherDiscoveryRequestBuilder.request();
+		if (fRemoteTestRunner.isParallelExecution()) {
+			// run test classes concurrently, methods keep the default unless annotated with @Execution
+			builder.configurationParameter(PARALLEL_ENABLED, "true"); //$NON-NLS-1$
+			builder.configurationParameter(PARALLEL_MODE_CLASSES, "concurrent"); //$NON-NLS-1$
+		}
+		return builder;
+	}
+
 	private Filter<?>[] getTagFilters(String[][] includeExcludeTags) {
 		String[] includeTags= includeExcludeTags[0];
 		String[] excludeTags= includeExcludeTags[1];
@@ -86,7 +86,17 @@ public class JUnit5TestReference implements ITestReference {
 
 	@Override
 	public void run(TestExecution execution) {
-		fLauncher.execute(fTestPlan, new JUnit5TestListener(execution.getListener(), fRemoteTestRunner));
+		if (!fRemoteTestRunner.isParallelExecution()) {
+			fLauncher.execute(fTestPlan, new JUnit5TestListener(execution.getListener(), fRemoteTestRunner));
+			return;
+		}
+		// tests of different classes run concurrently, the queue serializes their notifications
+		JUnit5EventQueue queue= new JUnit5EventQueue(execution.getListener(), fRemoteTestRunner);
+		try {
+			fLauncher.execute(fTestPlan, new JUnit5TestListener(queue, fRemoteTestRunner, queue));
+		} finally {
+			queue.close();
+		}
 	}
 
 	@Override
@@ -40,6 +40,7 @@ import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
 import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlighting;
 import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightingManager;
 import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightingPresenter;
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightingReconciler;
 import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightings;
 
 
@@ -135,6 +136,19 @@ public class AbstractSemanticHighlightingTest extends TestCase {
 		return buf.toString();
 	}
 
+	protected static JavaEditor getEditor() {
+		return fEditor;
+	}
+
+	protected static SourceViewer getSourceViewer() {
+		return fSourceViewer;
+	}
+
+	protected SemanticHighlightingReconciler getSemanticHighlightingReconciler() {
+		SemanticHighlightingManager manager= (SemanticHighlightingManager) new Accessor(fEditor, JavaEditor.class).get("fSemanticManager");
+		return (SemanticHighlightingReconciler) new Accessor(manager, manager.getClass()).get("fReconciler");
+	}
+
 	protected Position[] getSemanticHighlightingPositions() throws BadPositionCategoryException {
 		SemanticHighlightingManager manager= (SemanticHighlightingManager) new Accessor(fEditor, JavaEditor.class).get("fSemanticManager");
 		SemanticHighlightingPresenter presenter= (SemanticHighlightingPresenter) new Accessor(manager, manager.getClass()).get("fPresenter");
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.text.tests.performance.EditorTestHelper;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.BadPositionCategoryException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightingReconciler;
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightings;
+
+/**
+ * Compares the positions of reconciles limited to the edited bodies with the positions of a
+ * full reconcile.
+ */
+public class IncrementalSemanticHighlightingTest extends AbstractSemanticHighlightingTest {
+
+	private static final Class<IncrementalSemanticHighlightingTest> THIS= IncrementalSemanticHighlightingTest.class;
+
+	public static Test suite() {
+		return new SemanticHighlightingTestSetup(new TestSuite(THIS), "/SHTest/src/Autoboxing.java");
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		setUpSemanticHighlighting(SemanticHighlightings.AUTOBOXING);
+		setUpSemanticHighlighting(SemanticHighlightings.LOCAL_VARIABLE_DECLARATION);
+		setUpSemanticHighlighting(SemanticHighlightings.LOCAL_VARIABLE);
+		setUpSemanticHighlighting(SemanticHighlightings.PARAMETER_VARIABLE);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		EditorTestHelper.revertEditor(getEditor(), true);
+		waitForReconcile();
+		super.tearDown();
+	}
+
+	private static void waitForReconcile() {
+		assertTrue(EditorTestHelper.joinReconciler(getSourceViewer(), 0, 10000, 100));
+		EditorTestHelper.runEventQueue(100);
+	}
+
+	private static void insertBefore(String marker, String text) throws BadLocationException {
+		IDocument document= getSourceViewer().getDocument();
+		int offset= document.get().indexOf(marker);
+		assertTrue(offset != -1);
+		document.replace(offset, 0, text);
+	}
+
+	private static void replace(String marker, String text) throws BadLocationException {
+		IDocument document= getSourceViewer().getDocument();
+		int offset= document.get().indexOf(marker);
+		assertTrue(offset != -1);
+		document.replace(offset, marker.length(), text);
+	}
+
+	private Position[] getPositionsCopy() throws BadPositionCategoryException {
+		Position[] positions= getSemanticHighlightingPositions();
+		Position[] copy= new Position[positions.length];
+		for (int i= 0; i < positions.length; i++) {
+			copy[i]= new Position(positions[i].getOffset(), positions[i].getLength());
+			if (positions[i].isDeleted())
+				copy[i].delete();
+		}
+		return copy;
+	}
+
+	/**
+	 * Reconciles the edits and compares the positions with the ones of a following full reconcile.
+	 *
+	 * @param isIncremental <code>true</code> if the edits are expected to be reconciled incrementally
+	 * @throws BadPositionCategoryException if the positions cannot be read
+	 */
+	private void assertPositionsOfFullReconcile(boolean isIncremental) throws BadPositionCategoryException {
+		SemanticHighlightingReconciler reconciler= getSemanticHighlightingReconciler();
+		waitForReconcile();
+		assertEquals(isIncremental, reconciler.isLastReconcileIncremental());
+		Position[] positions= getPositionsCopy();
+
+		EditorTestHelper.forceReconcile(getSourceViewer());
+		waitForReconcile();
+		assertFalse(reconciler.isLastReconcileIncremental());
+		assertEqualPositions(getPositionsCopy(), positions);
+	}
+
+	public void testBodyEdit() throws Exception {
+		insertBefore("        Integer bigI= null;", "        Integer k= i + pi;\n        m(k, pBigI);\n");
+		assertPositionsOfFullReconcile(true);
+	}
+
+	public void testEditsInSeveralBodies() throws Exception {
+		replace("return 0;", "int zero= 0;\n        return zero;");
+		replace("int bar= bigI, foo= pBigI;", "int bar= foo(), baz= bigI;");
+		assertPositionsOfFullReconcile(true);
+	}
+
+	public void testRemovalInBody() throws Exception {
+		replace("        m(bigI, foo()); // method return value\n", "");
+		replace("        i= ~bigI;\n", "");
+		assertPositionsOfFullReconcile(true);
+	}
+
+	public void testMemberEdit() throws Exception {
+		insertBefore("    int foo() {", "    Integer fField= Integer.valueOf(1);\n    int fOther= fField;\n\n");
+		assertPositionsOfFullReconcile(false);
+	}
+
+	public void testSignatureEdit() throws Exception {
+		replace("void m(int pi, Integer pBigI)", "void m(Integer pi, int pBigI)");
+		assertPositionsOfFullReconcile(false);
+	}
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.internal.ui.javaeditor.codemining.JavaReferenceCounter;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the reference counts of the references code minings.
+ */
+public class JavaReferenceCounterTest extends TestCase {
+
+	/** The time in seconds to wait for a count */
+	private static final long TIMEOUT= 30;
+
+	public static Test suite() {
+		return new TestSuite(JavaReferenceCounterTest.class);
+	}
+
+	private IJavaProject fJavaProject;
+
+	private IPackageFragment fPackage;
+
+	private IMethod fMethod;
+
+	@Override
+	protected void setUp() throws Exception {
+		// start with an empty cache
+		JavaReferenceCounter.shutdown();
+
+		fJavaProject= JavaProjectHelper.createJavaProject(getClass().getName(), "bin");
+		JavaProjectHelper.addRTJar(fJavaProject);
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJavaProject, "src");
+		fPackage= root.createPackageFragment("counter", true, null);
+		ICompilationUnit cu= fPackage.createCompilationUnit("A.java", "package counter;\npublic class A {\n	public void counted() {\n	}\n}\n", true, null);
+		createReference("B");
+		fMethod= cu.getType("A").getMethod("counted", new String[0]);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaReferenceCounter.shutdown();
+		JavaProjectHelper.delete(fJavaProject);
+	}
+
+	private void createReference(String name) throws Exception {
+		String contents= "package counter;\npublic class " + name + " {\n	void foo(A a) {\n		a.counted();\n	}\n}\n";
+		fPackage.createCompilationUnit(name + ".java", contents, true, null);
+	}
+
+	private long count() throws Exception {
+		return JavaReferenceCounter.getDefault().countReferences(fMethod, true, null).get(TIMEOUT, TimeUnit.SECONDS).longValue();
+	}
+
+	public void testCountIsCached() throws Exception {
+		assertEquals(1, count());
+		CompletableFuture<Long> cached= JavaReferenceCounter.getDefault().countReferences(fMethod, true, null);
+		assertTrue(cached.isDone());
+		assertEquals(1, cached.get().longValue());
+	}
+
+	public void testChangeInvalidatesCount() throws Exception {
+		assertEquals(1, count());
+		createReference("C");
+		assertEquals(2, count());
+	}
+
+	public void testChangeDuringSearchWithEmptyCache() throws Exception {
+		final CountDownLatch started= new CountDownLatch(1);
+		final CountDownLatch release= new CountDownLatch(1);
+		// the monitor of the code mining is asked whether the search is cancelled once it has started
+		NullProgressMonitor monitor= new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				if (started.getCount() > 0) {
+					started.countDown();
+					try {
+						release.await(TIMEOUT, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return false;
+			}
+		};
+		CompletableFuture<Long> first= JavaReferenceCounter.getDefault().countReferences(fMethod, true, monitor);
+		try {
+			assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+			createReference("C");
+		} finally {
+			release.countDown();
+		}
+		first.get(TIMEOUT, TimeUnit.SECONDS);
+
+		// the result of the search that started before the change has not been cached
+		assertEquals(2, count());
+	}
+}
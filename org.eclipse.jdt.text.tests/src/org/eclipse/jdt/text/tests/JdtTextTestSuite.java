@@ -15,6 +15,7 @@
 package org.eclipse.jdt.text.tests;
 
 import org.eclipse.jdt.text.tests.contentassist.ContentAssistTestSuite;
+import org.eclipse.jdt.text.tests.spelling.PhoneticHashIndexTest;
 import org.eclipse.jdt.text.tests.spelling.SpellCheckEngineTestCase;
 import org.eclipse.jdt.text.tests.templates.TemplatesTestSuite;
 
@@ -60,8 +61,10 @@ public class JdtTextTestSuite {
 				});
 		suite.addTest(BracketInserterTest.suite());
 		suite.addTest(new JUnit4TestAdapter(SpellCheckEngineTestCase.class));
+		suite.addTest(new JUnit4TestAdapter(PhoneticHashIndexTest.class));
 		suite.addTest(SemanticHighlightingTest.suite());
 		suite.addTest(AutoboxingSemanticHighlightingTest.suite());
+		suite.addTest(IncrementalSemanticHighlightingTest.suite());
 		suite.addTest(NewForLoopJavaContextTest.suite());
 		suite.addTest(IteratorForLoopJavaContextTest.suite());
 		suite.addTest(ArrayWithTempVarForLoopJavaContextTest.suite());
@@ -72,6 +75,7 @@ public class JdtTextTestSuite {
 		suite.addTest(TemplatesTestSuite.suite());
 		suite.addTest(JavaElementPrefixPatternMatcherTest.suite());
 		suite.addTest(CodeMiningTest.suite());
+		suite.addTest(JavaReferenceCounterTest.suite());
 		//$JUnit-END$
 
 		return suite;
@@ -42,6 +42,7 @@ public class ContentAssistTestSuite {
 		suite.addTest(CodeCompletionTest.suite());
 		suite.addTest(CodeCompletionTest18.suite());
 		suite.addTest(ContinuousTypingCompletionTest.suite());
+		suite.addTest(LatencyBudgetCompletionTest.suite());
 		//$JUnit-END$
 
 		return suite;
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.contentassist;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.text.tests.performance.EditorTestHelper;
+
+import org.eclipse.swt.widgets.Display;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.contentassist.CompletionProposal;
+import org.eclipse.jface.text.contentassist.ContentAssistant;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.IContextInformation;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+
+import org.eclipse.jdt.ui.PreferenceConstants;
+import org.eclipse.jdt.ui.text.IJavaPartitions;
+import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
+import org.eclipse.jdt.ui.text.java.IJavaCompletionProposalComputer;
+import org.eclipse.jdt.ui.text.java.JavaContentAssistInvocationContext;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.javaeditor.EditorUtility;
+import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
+import org.eclipse.jdt.internal.ui.text.java.ContentAssistProcessor;
+import org.eclipse.jdt.internal.ui.text.java.JavaCompletionProcessor;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the latency budget for the content assist categories of other plug-ins. The test category
+ * and its computer are contributed by this plug-in.
+ */
+public class LatencyBudgetCompletionTest extends TestCase {
+
+	private static final Class<LatencyBudgetCompletionTest> THIS= LatencyBudgetCompletionTest.class;
+
+	private static final String PROPOSAL= "latencyBudgetProposal";
+
+	/** The latency budget in milliseconds */
+	private static final int BUDGET= 200;
+
+	/** The time in milliseconds that a slow computer takes, below the delay reported to the user */
+	private static final long SLOW= 3000;
+
+	public static class TestProposalComputer implements IJavaCompletionProposalComputer {
+		static volatile boolean isOn= false;
+
+		/** The time in milliseconds the computer takes unless its monitor is cancelled */
+		static volatile long delay= 0;
+
+		/** If not <code>null</code>, the computer waits for this latch and ignores cancellation */
+		static volatile CountDownLatch release= null;
+
+		static volatile CountDownLatch finished= new CountDownLatch(1);
+
+		static final AtomicInteger calls= new AtomicInteger();
+
+		static volatile boolean inUIThread;
+
+		static volatile boolean hasCoreContext;
+
+		static volatile boolean wasCancelled;
+
+		static void reset() {
+			delay= 0;
+			release= null;
+			finished= new CountDownLatch(1);
+			calls.set(0);
+			inUIThread= false;
+			hasCoreContext= false;
+			wasCancelled= false;
+		}
+
+		@Override
+		public void sessionStarted() {
+			// nothing
+		}
+
+		@Override
+		public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+			if (!isOn)
+				return Collections.emptyList();
+
+			calls.incrementAndGet();
+			inUIThread= Display.getCurrent() != null;
+			if (context instanceof JavaContentAssistInvocationContext)
+				hasCoreContext= ((JavaContentAssistInvocationContext) context).getCoreContext() != null;
+			try {
+				long end= System.currentTimeMillis() + delay;
+				while (System.currentTimeMillis() < end) {
+					if (monitor.isCanceled()) {
+						wasCancelled= true;
+						break;
+					}
+					Thread.sleep(10);
+				}
+				CountDownLatch latch= release;
+				if (latch != null)
+					latch.await(SLOW, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				finished.countDown();
+			}
+			ICompletionProposal proposal= new CompletionProposal(PROPOSAL, context.getInvocationOffset(), 0, PROPOSAL.length());
+			return Collections.singletonList(proposal);
+		}
+
+		@Override
+		public List<IContextInformation> computeContextInformation(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public String getErrorMessage() {
+			return null;
+		}
+
+		@Override
+		public void sessionEnded() {
+			// nothing
+		}
+	}
+
+	private ICompilationUnit fCU;
+
+	private JavaEditor fEditor;
+
+	private int fOffset;
+
+	public LatencyBudgetCompletionTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new CompletionTestSetup(new TestSuite(THIS));
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		String contents= "package test1;\n" +
+				"public class Completion_" + getName() + " {\n" +
+				"	void foo() {\n" +
+				"		Str\n" +
+				"	}\n" +
+				"}\n";
+		fOffset= contents.indexOf("Str") + 3;
+		fCU= CompletionTestSetup.getAnonymousTestPackage().createCompilationUnit("Completion_" + getName() + ".java", contents, false, null);
+		fEditor= (JavaEditor) EditorUtility.openInEditor(fCU);
+		getJDTUIPrefs().setValue(PreferenceConstants.CODEASSIST_LATENCY_BUDGET, BUDGET);
+		TestProposalComputer.reset();
+		TestProposalComputer.isOn= true;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		TestProposalComputer.isOn= false;
+		CountDownLatch release= TestProposalComputer.release;
+		if (release != null)
+			release.countDown();
+		TestProposalComputer.finished.await(SLOW, TimeUnit.MILLISECONDS);
+		getJDTUIPrefs().setToDefault(PreferenceConstants.CODEASSIST_LATENCY_BUDGET);
+
+		if (fEditor != null) {
+			EditorTestHelper.closeEditor(fEditor);
+			fEditor= null;
+		}
+		if (fCU != null) {
+			JavaProjectHelper.delete(fCU);
+			fCU= null;
+		}
+		JavaProjectHelper.emptyDisplayLoop();
+	}
+
+	private IPreferenceStore getJDTUIPrefs() {
+		return JavaPlugin.getDefault().getPreferenceStore();
+	}
+
+	private boolean hasTestProposal() {
+		ContentAssistant assistant= new ContentAssistant();
+		assistant.setDocumentPartitioning(IJavaPartitions.JAVA_PARTITIONING);
+		JavaCompletionProcessor javaProcessor= new JavaCompletionProcessor(fEditor, assistant, IDocument.DEFAULT_CONTENT_TYPE);
+
+		// Must ensure same setup of the processor as when using via UI
+		Accessor accessor= new Accessor(javaProcessor, ContentAssistProcessor.class);
+		accessor.invoke("setCategoryIteration", new Object[0]);
+		accessor.set("fRepetition", 0);
+
+		ICompletionProposal[] proposals= javaProcessor.computeCompletionProposals(fEditor.getViewer(), fOffset);
+		for (int i= 0; i < proposals.length; i++) {
+			if (PROPOSAL.equals(proposals[i].getDisplayString()))
+				return true;
+		}
+		return false;
+	}
+
+	public void testSequentialWithoutBudget() throws Exception {
+		getJDTUIPrefs().setValue(PreferenceConstants.CODEASSIST_LATENCY_BUDGET, 0);
+		assertTrue(hasTestProposal());
+		assertEquals(1, TestProposalComputer.calls.get());
+		assertTrue(TestProposalComputer.inUIThread);
+	}
+
+	public void testBackgroundWithinBudget() throws Exception {
+		assertTrue(hasTestProposal());
+		assertEquals(1, TestProposalComputer.calls.get());
+		assertFalse(TestProposalComputer.inUIThread);
+		// the core context has been computed before the category was started
+		assertTrue(TestProposalComputer.hasCoreContext);
+	}
+
+	public void testLateCategoryIsDropped() throws Exception {
+		TestProposalComputer.delay= SLOW;
+		long start= System.currentTimeMillis();
+		assertFalse(hasTestProposal());
+		assertTrue(System.currentTimeMillis() - start < SLOW);
+
+		assertTrue(TestProposalComputer.finished.await(SLOW, TimeUnit.MILLISECONDS));
+		assertTrue(TestProposalComputer.wasCancelled);
+	}
+
+	public void testRunningCategoryIsNotStartedAgain() throws Exception {
+		CountDownLatch release= new CountDownLatch(1);
+		TestProposalComputer.release= release;
+		assertFalse(hasTestProposal());
+		assertFalse(hasTestProposal());
+		assertEquals(1, TestProposalComputer.calls.get());
+
+		TestProposalComputer.release= null;
+		release.countDown();
+		assertTrue(TestProposalComputer.finished.await(SLOW, TimeUnit.MILLISECONDS));
+		long end= System.currentTimeMillis() + SLOW;
+		boolean found= hasTestProposal();
+		while (!found && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+			found= hasTestProposal();
+		}
+		assertTrue(found);
+		assertEquals(2, TestProposalComputer.calls.get());
+	}
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.spelling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.jdt.internal.ui.text.spelling.engine.AbstractSpellDictionary;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.DefaultPhoneticHashProvider;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.RankedWordProposal;
+
+/**
+ * Tests the memory-mapped index of the word list of a dictionary.
+ */
+public class PhoneticHashIndexTest {
+
+	/** The magic number of the index file */
+	private static final int MAGIC= 0x4A535044;
+
+	private static final String[] WORDS= { "Truck", "Lorry", "Global", "sentence", "alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "theta" };
+
+	private class IndexedDictionary extends AbstractSpellDictionary {
+
+		@Override
+		public void addWord(String word) {
+			hashWord(word);
+		}
+
+		@Override
+		protected URL getURL() throws MalformedURLException {
+			return fWordList.toURI().toURL();
+		}
+
+		@Override
+		protected File getIndexFile() {
+			return fIndex;
+		}
+
+		@Override
+		protected String getEncoding() {
+			return StandardCharsets.UTF_8.name();
+		}
+	}
+
+	private File fFolder;
+
+	private File fWordList;
+
+	private File fIndex;
+
+	@Before
+	public void setUp() throws Exception {
+		fFolder= File.createTempFile("dictionary", "");
+		fFolder.delete();
+		fFolder.mkdirs();
+		fWordList= new File(fFolder, "words.txt");
+		fIndex= new File(new File(fFolder, "index"), "words.index");
+		writeWordList(WORDS);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		delete(fFolder);
+	}
+
+	private static void delete(File file) {
+		File[] children= file.listFiles();
+		if (children != null) {
+			for (int i= 0; i < children.length; i++)
+				delete(children[i]);
+		}
+		file.delete();
+	}
+
+	private void writeWordList(String... words) throws IOException {
+		StringBuilder buffer= new StringBuilder();
+		for (int i= 0; i < words.length; i++)
+			buffer.append(words[i]).append('\n');
+		Files.write(fWordList.toPath(), buffer.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void assertValidIndex() throws IOException {
+		try (DataInputStream input= new DataInputStream(new FileInputStream(fIndex))) {
+			assertEquals(MAGIC, input.readInt());
+		}
+	}
+
+	private static void assertContainsAll(AbstractSpellDictionary dictionary, String... words) {
+		for (int i= 0; i < words.length; i++)
+			assertTrue(words[i], dictionary.isCorrect(words[i]));
+	}
+
+	private static boolean contains(Set<RankedWordProposal> proposals, String word) {
+		for (Iterator<RankedWordProposal> iterator= proposals.iterator(); iterator.hasNext();) {
+			if (iterator.next().getText().equals(word))
+				return true;
+		}
+		return false;
+	}
+
+	@Test
+	public void testIndexIsBuilt() throws Exception {
+		assertFalse(fIndex.exists());
+		IndexedDictionary dictionary= new IndexedDictionary();
+		assertContainsAll(dictionary, WORDS);
+		assertFalse(dictionary.isCorrect("Lastwagen"));
+		assertTrue(fIndex.exists());
+		assertValidIndex();
+		dictionary.unload();
+	}
+
+	@Test
+	public void testIndexIsUsed() throws Exception {
+		new IndexedDictionary().isCorrect(WORDS[0]);
+		assertTrue(fIndex.setLastModified(1000));
+
+		IndexedDictionary dictionary= new IndexedDictionary();
+		assertContainsAll(dictionary, WORDS);
+		assertFalse(dictionary.isCorrect("Lastwagen"));
+		// the index has been mapped instead of being rebuilt
+		assertEquals(1000, fIndex.lastModified());
+
+		DefaultPhoneticHashProvider provider= new DefaultPhoneticHashProvider();
+		assertEquals(provider.getHash("Lorry"), provider.getHash("Lory"));
+		assertTrue(contains(dictionary.getProposals("Lory", false), "Lorry"));
+		dictionary.unload();
+	}
+
+	@Test
+	public void testAddedWordsAreFound() throws Exception {
+		new IndexedDictionary().isCorrect(WORDS[0]);
+
+		IndexedDictionary dictionary= new IndexedDictionary();
+		assertFalse(dictionary.isCorrect("Lastwagen"));
+		dictionary.addWord("Lastwagen");
+		assertTrue(dictionary.isCorrect("Lastwagen"));
+		assertContainsAll(dictionary, WORDS);
+		dictionary.unload();
+	}
+
+	@Test
+	public void testChangedWordListRebuildsIndex() throws Exception {
+		new IndexedDictionary().isCorrect(WORDS[0]);
+		writeWordList("Truck", "Lastwagen", "Camion");
+
+		IndexedDictionary dictionary= new IndexedDictionary();
+		assertContainsAll(dictionary, "Truck", "Lastwagen", "Camion");
+		assertFalse(dictionary.isCorrect("Lorry"));
+		dictionary.unload();
+
+		dictionary= new IndexedDictionary();
+		assertContainsAll(dictionary, "Truck", "Lastwagen", "Camion");
+		assertFalse(dictionary.isCorrect("Lorry"));
+		dictionary.unload();
+	}
+
+	@Test
+	public void testInvalidIndexFallsBack() throws Exception {
+		fIndex.getParentFile().mkdirs();
+		Files.write(fIndex.toPath(), "not an index".getBytes(StandardCharsets.UTF_8));
+
+		IndexedDictionary dictionary= new IndexedDictionary();
+		assertContainsAll(dictionary, WORDS);
+		assertValidIndex();
+		dictionary.unload();
+	}
+
+	@Test
+	public void testTruncatedIndexFallsBack() throws Exception {
+		new IndexedDictionary().isCorrect(WORDS[0]);
+		long length= fIndex.length();
+		try (RandomAccessFile file= new RandomAccessFile(fIndex, "rw")) {
+			file.setLength(length - 3);
+		}
+
+		IndexedDictionary dictionary= new IndexedDictionary();
+		assertContainsAll(dictionary, WORDS);
+		// the index has been rebuilt from the word list
+		assertEquals(length, fIndex.length());
+		dictionary.unload();
+
+		dictionary= new IndexedDictionary();
+		assertContainsAll(dictionary, WORDS);
+		dictionary.unload();
+	}
+}
@@ -0,0 +1,28 @@
+package p;
+interface I1 {
+	void /*target*/m();
+}
+interface I2 {
+	void /*ripple*/m();
+}
+interface I3 {
+	void /*ripple*/m();
+}
+interface I4 {
+	void /*ripple*/m();
+}
+interface I5 {
+	void m();
+}
+class C1 implements I1, I2 {
+	public void /*ripple*/m() {}
+}
+class C2 implements I2, I3 {
+	public void /*ripple*/m() {}
+}
+class C3 implements I3, I4 {
+	public void /*ripple*/m() {}
+}
+class D implements I5 {
+	public void m() {}
+}
@@ -0,0 +1,19 @@
+package p;
+interface I1 {
+	void /*ripple*/m();
+}
+interface I2 {
+	void /*ripple*/m();
+}
+class A implements I1 {
+	public void /*ripple*/m() {}
+}
+class B extends A implements I2 {
+	public void /*target*/m() {}
+}
+class C extends A {
+	public void /*ripple*/m() {}
+}
+class E {
+	public void m() {}
+}
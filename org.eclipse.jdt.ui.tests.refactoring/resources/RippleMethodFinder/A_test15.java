@@ -0,0 +1,25 @@
+package p;
+interface I1 {
+	void /*target*/m();
+}
+interface I2 {
+	void /*ripple*/m();
+}
+interface J1 {
+	void /*ripple*/m();
+}
+interface J2 {
+	void /*ripple*/m();
+}
+class A implements J1, J2 {
+	public void /*ripple*/m() {}
+}
+class B implements I2, J2 {
+	public void /*ripple*/m() {}
+}
+class C implements I1, I2 {
+	public void /*ripple*/m() {}
+}
+class D {
+	public void m() {}
+}
@@ -102,6 +102,8 @@ public class AllRefactoringTests {
 
 		//--binaries
 		suite.addTest(BinaryReferencesTests.suite());
+		suite.addTest(RefactoringSearchEngineTests.suite());
+		suite.addTest(TextMatchUpdaterTests.suite());
 
 		// validate edit
 //		suite.addTest(ValidateEditTests.suite());
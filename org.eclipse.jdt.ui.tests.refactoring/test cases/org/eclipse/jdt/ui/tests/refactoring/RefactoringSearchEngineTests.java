@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+
+import org.eclipse.jdt.internal.corext.refactoring.CollectingSearchRequestor;
+import org.eclipse.jdt.internal.corext.refactoring.RefactoringSearchEngine;
+import org.eclipse.jdt.internal.corext.refactoring.RefactoringSearchEngine.ISearchResultGroupCollector;
+import org.eclipse.jdt.internal.corext.refactoring.SearchResultGroup;
+
+/**
+ * Tests the streaming search of {@link RefactoringSearchEngine}.
+ */
+public class RefactoringSearchEngineTests extends RefactoringTest {
+
+	private static final Class<RefactoringSearchEngineTests> clazz= RefactoringSearchEngineTests.class;
+
+	/** More referencing compilation units than groups buffered by the streaming search */
+	private static final int REFERENCES= 40;
+
+	public RefactoringSearchEngineTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new RefactoringTestSetup(new TestSuite(clazz));
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new RefactoringTestSetup(someTest);
+	}
+
+	private IType createReferencedType() throws Exception {
+		ICompilationUnit cu= createCU(getPackageP(), "A.java", "package p;\npublic class A {\n}\n");
+		for (int i= 0; i < REFERENCES; i++) {
+			String name= "B" + i;
+			createCU(getPackageP(), name + ".java", "package p;\npublic class " + name + " {\n	A fA;\n	A foo(A a) {\n		return a;\n	}\n}\n");
+		}
+		return cu.getType("A");
+	}
+
+	private IJavaSearchScope createScope() {
+		return SearchEngine.createJavaSearchScope(new IJavaElement[] { getPackageP() });
+	}
+
+	private static Map<IResource, Integer> getMatchCounts(SearchResultGroup[] groups) {
+		Map<IResource, Integer> counts= new HashMap<>();
+		for (int i= 0; i < groups.length; i++) {
+			Integer count= counts.get(groups[i].getResource());
+			counts.put(groups[i].getResource(), Integer.valueOf((count != null ? count.intValue() : 0) + groups[i].getSearchResults().length));
+		}
+		return counts;
+	}
+
+	public void testStreamedGroupsMatchSearch() throws Exception {
+		IType type= createReferencedType();
+		SearchPattern pattern= SearchPattern.createPattern(type, IJavaSearchConstants.REFERENCES);
+
+		RefactoringStatus status= new RefactoringStatus();
+		SearchResultGroup[] expected= RefactoringSearchEngine.search(pattern, createScope(), new NullProgressMonitor(), status);
+		assertEquals(REFERENCES, expected.length);
+
+		final List<SearchResultGroup> groups= new ArrayList<>();
+		final Thread searchThread= Thread.currentThread();
+		final boolean[] inSearchThread= new boolean[1];
+		RefactoringStatus streamStatus= new RefactoringStatus();
+		RefactoringSearchEngine.search(pattern, null, createScope(), new CollectingSearchRequestor(), new NullProgressMonitor(), streamStatus,
+			new ISearchResultGroupCollector() {
+				@Override
+				public void accept(SearchResultGroup group) {
+					if (Thread.currentThread() == searchThread)
+						inSearchThread[0]= true;
+					assertNotNull(group.getCompilationUnit());
+					groups.add(group);
+				}
+			});
+		assertFalse(inSearchThread[0]);
+		assertEquals(status.getSeverity(), streamStatus.getSeverity());
+		assertEquals(getMatchCounts(expected), getMatchCounts(groups.toArray(new SearchResultGroup[groups.size()])));
+	}
+
+	public void testCollectorFailureAbortsSearch() throws Exception {
+		IType type= createReferencedType();
+		SearchPattern pattern= SearchPattern.createPattern(type, IJavaSearchConstants.REFERENCES);
+
+		final CoreException failure= new CoreException(new Status(IStatus.ERROR, "org.eclipse.jdt.ui.tests.refactoring", "collector failed"));
+		final int[] accepted= new int[1];
+		try {
+			RefactoringSearchEngine.search(pattern, null, createScope(), new CollectingSearchRequestor(), new NullProgressMonitor(), new RefactoringStatus(),
+				new ISearchResultGroupCollector() {
+					@Override
+					public void accept(SearchResultGroup group) throws CoreException {
+						accepted[0]++;
+						throw failure;
+					}
+				});
+			fail("the failure of the collector must abort the search");
+		} catch (CoreException e) {
+			assertSame(failure, e);
+		}
+		assertEquals(1, accepted[0]);
+
+		// the shared consumer threads are still usable
+		final int[] count= new int[1];
+		RefactoringSearchEngine.search(pattern, null, createScope(), new CollectingSearchRequestor(), new NullProgressMonitor(), new RefactoringStatus(),
+			new ISearchResultGroupCollector() {
+				@Override
+				public void accept(SearchResultGroup group) {
+					count[0]++;
+				}
+			});
+		assertEquals(REFERENCES, count[0]);
+	}
+}
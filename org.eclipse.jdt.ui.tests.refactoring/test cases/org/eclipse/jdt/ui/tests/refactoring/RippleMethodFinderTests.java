@@ -132,5 +132,16 @@ public class RippleMethodFinderTests extends AbstractCUTestCase {
 	public void test12() throws Exception {
 		perform();
 	}
+	public void test13() throws Exception {
+		// married types join several interfaces one after the other
+		perform();
+	}
+	public void test14() throws Exception {
+		perform();
+	}
+	public void test15() throws Exception {
+		// a group of types is joined with the group of the target by a later union
+		perform();
+	}
 
 }
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.ltk.core.refactoring.Refactoring;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.refactoring.IJavaRefactorings;
+import org.eclipse.jdt.core.refactoring.descriptors.RenameJavaElementDescriptor;
+
+import org.eclipse.jdt.internal.core.refactoring.descriptors.RefactoringSignatureDescriptorFactory;
+
+/**
+ * Tests the parallel scan for textual matches of a rename.
+ */
+public class TextMatchUpdaterTests extends RefactoringTest {
+
+	private static final Class<TextMatchUpdaterTests> clazz= TextMatchUpdaterTests.class;
+
+	/** Enough compilation units to be scanned by several workers */
+	private static final int UNITS= 200;
+
+	/** The time in seconds to wait for other threads */
+	private static final long TIMEOUT= 30;
+
+	public TextMatchUpdaterTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new RefactoringTestSetup(new TestSuite(clazz));
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new RefactoringTestSetup(someTest);
+	}
+
+	private static boolean isScannedInParallel() {
+		return Runtime.getRuntime().availableProcessors() > 1;
+	}
+
+	private IType createType() throws Exception {
+		ICompilationUnit cu= createCU(getPackageP(), "A.java", "package p;\npublic class A {\n}\n");
+		for (int i= 0; i < UNITS; i++) {
+			String name= "B" + i;
+			createCU(getPackageP(), name + ".java", "package p;\n// see A for details\npublic class " + name + " {\n	A fA;\n}\n");
+		}
+		return cu.getType("A");
+	}
+
+	private Refactoring createRenameRefactoring(IType type) throws Exception {
+		RenameJavaElementDescriptor descriptor= RefactoringSignatureDescriptorFactory.createRenameJavaElementDescriptor(IJavaRefactorings.RENAME_TYPE);
+		descriptor.setJavaElement(type);
+		descriptor.setNewName("Renamed");
+		descriptor.setUpdateReferences(true);
+		descriptor.setUpdateTextualOccurrences(true);
+		return createRefactoring(descriptor);
+	}
+
+	private void assertRenamed() throws Exception {
+		for (int i= 0; i < UNITS; i++) {
+			String name= "B" + i;
+			String expected= "package p;\n// see Renamed for details\npublic class " + name + " {\n	Renamed fA;\n}\n";
+			assertEqualLines(name, expected, getPackageP().getCompilationUnit(name + ".java").getSource());
+		}
+	}
+
+	public void testTextMatchesAreUpdated() throws Exception {
+		IType type= createType();
+		assertEquals("was supposed to pass", null, performRefactoring(createRenameRefactoring(type)));
+		assertRenamed();
+	}
+
+	public void testCancelInWorker() throws Exception {
+		if (!isScannedInParallel())
+			return; // the units are scanned by the calling thread
+
+		IType type= createType();
+		final Thread testThread= Thread.currentThread();
+		try {
+			createRenameRefactoring(type).checkAllConditions(new NullProgressMonitor() {
+				@Override
+				public boolean isCanceled() {
+					return Thread.currentThread() != testThread || super.isCanceled();
+				}
+			});
+			fail("the cancellation of a worker must abort the scan");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+
+		// the shared worker threads are still usable
+		assertEquals("was supposed to pass", null, performRefactoring(createRenameRefactoring(type)));
+		assertRenamed();
+	}
+
+	public void testInterruptCancelsScan() throws Exception {
+		if (!isScannedInParallel())
+			return; // the units are scanned by the calling thread
+
+		IType type= createType();
+		final Thread testThread= Thread.currentThread();
+		final CountDownLatch blocked= new CountDownLatch(1);
+		final CountDownLatch release= new CountDownLatch(1);
+		try {
+			createRenameRefactoring(type).checkAllConditions(new NullProgressMonitor() {
+				@Override
+				public boolean isCanceled() {
+					if (Thread.currentThread() != testThread) {
+						blocked.countDown();
+						try {
+							release.await(TIMEOUT, TimeUnit.SECONDS);
+						} catch (InterruptedException e) {
+							// the scan has been abandoned
+							return true;
+						}
+					}
+					return super.isCanceled();
+				}
+
+				@Override
+				public void subTask(String name) {
+					// the progress is updated while the calling thread waits for the blocked workers
+					if (Thread.currentThread() == testThread && blocked.getCount() == 0)
+						testThread.interrupt();
+				}
+			});
+			fail("the interrupt must abort the scan");
+		} catch (OperationCanceledException e) {
+			// the interrupt is kept for the caller
+			assertTrue(Thread.interrupted());
+		} finally {
+			Thread.interrupted();
+			release.countDown();
+		}
+
+		assertEquals("was supposed to pass", null, performRefactoring(createRenameRefactoring(type)));
+		assertRenamed();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -258,11 +258,14 @@ public class TypeEnvironmentTests extends AbstractCUTestCase {
 			assertTrue("Not same erasure", types[i].getErasure().isEqualTo(bindings[i].getErasure()));
 			assertTrue("Not same type declaration", types[i].getTypeDeclaration().isEqualTo(bindings[i].getTypeDeclaration()));
 			assertTrue("Not same type", types[i] == environment.create(bindings[i]));
+			assertTrue("No type id", types[i].getTypeId() >= 0 && types[i].getTypeId() < environment.getTypeCount());
+			assertEquals("Not same type for id", types[i], environment.getType(types[i].getTypeId()));
 
 		}
 		for (int o= 0; o < bindings.length; o++) {
 			for (int i= 0; i < bindings.length; i++) {
 				checkCanAssignTo(bindings[o], bindings[i], types[o], types[i]);
+				assertEquals("Type ids inconsistent with equals", types[o].equals(types[i]), types[o].getTypeId() == types[i].getTypeId());
 			}
 		}
 		TypeEnvironment secondEnvironment= new TypeEnvironment();
@@ -110,6 +110,24 @@ public class AbstractTestRunSessionSerializationTests extends TestCase {
 			// due to lingering TestRunnerViewPart$TestSessionListeners
 			serializationResult.fTestRunSession.swapOut();
 			assertEqualSessions(serializationResult.fTestRunSession, imported);
+
+			// the failure traces of a session read back from the swap file are loaded on demand
+			TestRunSession session= serializationResult.fTestRunSession;
+			double elapsedTime= session.getTestRoot().getElapsedTimeInSeconds();
+			session.swapOut();
+			// the elapsed time is read from the header of the swap file
+			assertEquals(Double.valueOf(elapsedTime), Double.valueOf(session.getElapsedTimeInSeconds()));
+			ByteArrayOutputStream out= new ByteArrayOutputStream();
+			JUnitModel.exportTestRunSession(session, out);
+			assertEqualXML(expectedXML, out.toString("UTF-8"));
+
+			// the failure traces are loaded before the swap file is removed
+			session.swapOut();
+			session.getTestRoot();
+			session.removeSwapFile();
+			out= new ByteArrayOutputStream();
+			JUnitModel.exportTestRunSession(session, out);
+			assertEqualXML(expectedXML, out.toString("UTF-8"));
 		} finally {
 			if (resultFile.exists())
 				try {
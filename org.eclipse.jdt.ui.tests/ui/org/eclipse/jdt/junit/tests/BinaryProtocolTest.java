@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.internal.junit.model.ITestRunListener2;
+import org.eclipse.jdt.internal.junit.model.RemoteTestRunnerClient;
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageWriter;
+import org.eclipse.jdt.internal.junit.runner.MessageIds;
+
+import junit.framework.TestCase;
+
+/**
+ * Sends messages with the {@link BinaryMessageWriter} of the RemoteTestRunner and checks the
+ * events reported by the {@link RemoteTestRunnerClient}.
+ */
+public class BinaryProtocolTest extends TestCase {
+
+	/** The time in seconds to wait for the client */
+	private static final long TIMEOUT= 30;
+
+	private static class RecordingListener implements ITestRunListener2 {
+		final List<String> fEvents= new ArrayList<>();
+		final CountDownLatch fStarted= new CountDownLatch(1);
+		final CountDownLatch fEnded= new CountDownLatch(1);
+
+		private synchronized void record(String event) {
+			fEvents.add(event);
+		}
+
+		synchronized List<String> getEvents() {
+			return new ArrayList<>(fEvents);
+		}
+
+		@Override
+		public void testRunStarted(int testCount) {
+			record("runStarted " + testCount);
+			fStarted.countDown();
+		}
+
+		@Override
+		public void testRunEnded(long elapsedTime) {
+			record("runEnded " + elapsedTime);
+			fEnded.countDown();
+		}
+
+		@Override
+		public void testRunStopped(long elapsedTime) {
+			record("runStopped " + elapsedTime);
+		}
+
+		@Override
+		public void testStarted(String testId, String testName) {
+			record("started " + testId + " " + testName);
+		}
+
+		@Override
+		public void testEnded(String testId, String testName) {
+			record("ended " + testId + " " + testName);
+		}
+
+		@Override
+		public void testRunTerminated() {
+			record("terminated");
+		}
+
+		@Override
+		public void testTreeEntry(String description) {
+			record("tree " + description);
+		}
+
+		@Override
+		public void testFailed(int status, String testId, String testName, String trace, String expected, String actual) {
+			record("failed " + status + " " + testId + " " + testName + " " + trace);
+		}
+
+		@Override
+		public void testReran(String testId, String testClass, String testName, int status, String trace, String expected, String actual) {
+			record("reran " + testId + " " + testClass + " " + testName + " " + status);
+		}
+	}
+
+	private RecordingListener fListener;
+
+	private Socket fSocket;
+
+	private BinaryMessageWriter fWriter;
+
+	@Override
+	protected void setUp() throws Exception {
+		int port;
+		try (ServerSocket socket= new ServerSocket(0)) {
+			port= socket.getLocalPort();
+		}
+		fListener= new RecordingListener();
+		new RemoteTestRunnerClient().startListening(new ITestRunListener2[] { fListener }, port);
+		fSocket= connect(port);
+		fWriter= new BinaryMessageWriter(fSocket.getOutputStream());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fWriter.close();
+		fSocket.close();
+	}
+
+	private static Socket connect(int port) throws Exception {
+		long end= System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+		while (true) {
+			try {
+				return new Socket("127.0.0.1", port);
+			} catch (IOException e) {
+				// the client has not opened its server socket yet
+				if (System.currentTimeMillis() > end)
+					throw e;
+				Thread.sleep(50);
+			}
+		}
+	}
+
+	public void testRoundTrip() throws Exception {
+		List<String> expected= new ArrayList<>();
+		int count= 2000; // more than a frame
+		fWriter.sendMessage(MessageIds.TEST_RUN_START + count + " v2");
+		expected.add("runStarted " + count);
+		for (int i= 0; i < count; i++) {
+			String entry= i + ",testMethod" + i + "(p.SomeTestClass),false,1,false,-1,testMethod" + i + "(p.SomeTestClass),,";
+			fWriter.sendMessage(MessageIds.TEST_TREE + entry);
+			expected.add("tree " + entry);
+		}
+		for (int i= 0; i < count; i++) {
+			String test= i + ",testMethod" + i + "(p.SomeTestClass)";
+			fWriter.sendMessage(MessageIds.TEST_START + test);
+			expected.add("started " + i + " testMethod" + i + "(p.SomeTestClass)");
+			if (i == 7) {
+				fWriter.sendMessage(MessageIds.TEST_FAILED + test);
+				fWriter.sendMessage(MessageIds.TRACE_START);
+				fWriter.sendMessage("junit.framework.AssertionFailedError: \u00e4\u00f6\u00fc \u4e2d");
+				fWriter.sendMessage("\tat p.SomeTestClass.testMethod7(SomeTestClass.java:7)");
+				fWriter.sendMessage(MessageIds.TRACE_END);
+				expected.add("failed " + ITestRunListener2.STATUS_FAILURE + " 7 testMethod7(p.SomeTestClass) "
+						+ "junit.framework.AssertionFailedError: \u00e4\u00f6\u00fc \u4e2d\n\tat p.SomeTestClass.testMethod7(SomeTestClass.java:7)\n");
+			}
+			fWriter.sendMessage(MessageIds.TEST_END + test);
+			expected.add("ended " + i + " testMethod" + i + "(p.SomeTestClass)");
+		}
+		// the name of a test id can change, e.g. for dynamic tests
+		fWriter.sendMessage(MessageIds.TEST_START + "3,renamed");
+		fWriter.sendMessage(MessageIds.TEST_END + "3,renamed");
+		expected.add("started 3 renamed");
+		expected.add("ended 3 renamed");
+		// ids that are not numbers are sent as text
+		fWriter.sendMessage(MessageIds.TEST_START + "a1,other");
+		fWriter.sendMessage(MessageIds.TEST_END + "a1,other");
+		expected.add("started a1 other");
+		expected.add("ended a1 other");
+		fWriter.sendMessage(MessageIds.TEST_RUN_END + 1234);
+		expected.add("runEnded 1234");
+		fWriter.flushFrame();
+
+		assertTrue(fListener.fEnded.await(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(expected, fListener.getEvents());
+	}
+
+	public void testMessageIsSentWithoutFlush() throws Exception {
+		// the first message after a quiet period is sent by the sending thread
+		fWriter.sendMessage(MessageIds.TEST_RUN_START + 1 + " v2");
+		assertTrue(fListener.fStarted.await(TIMEOUT, TimeUnit.SECONDS));
+
+		fWriter.sendMessage(MessageIds.TEST_START + "1,testMethod(p.SomeTestClass)");
+		Thread.sleep(100);
+		fWriter.sendMessage(MessageIds.TEST_END + "1,testMethod(p.SomeTestClass)");
+		fWriter.sendMessage(MessageIds.TEST_RUN_END + 1);
+		Thread.sleep(100);
+		fWriter.sendMessage(MessageIds.TEST_TREE + "2,testOther(p.SomeTestClass),false,1,false,-1,testOther(p.SomeTestClass),,");
+		assertTrue(fListener.fEnded.await(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals("runEnded 1", fListener.getEvents().get(3));
+	}
+}
@@ -45,6 +45,8 @@ public class JUnitJUnitTests {
 
 		suite.addTestSuite(JUnit3TestFinderTest.class);
 		suite.addTestSuite(JUnit4TestFinderTest.class);
+		suite.addTestSuite(TestElementIndexTest.class);
+		suite.addTestSuite(BinaryProtocolTest.class);
 		//$JUnit-END$
 		return suite;
 	}
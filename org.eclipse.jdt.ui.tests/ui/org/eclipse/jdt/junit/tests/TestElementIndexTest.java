@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.junit.tests;
+
+import org.eclipse.jdt.internal.junit.model.TestElement;
+import org.eclipse.jdt.internal.junit.model.TestElementIndex;
+import org.eclipse.jdt.internal.junit.model.TestSuiteElement;
+
+import junit.framework.TestCase;
+
+public class TestElementIndexTest extends TestCase {
+
+	private static TestElement createElement(String id) {
+		return new TestSuiteElement(null, id, "test" + id, 0, null, null, null); //$NON-NLS-1$
+	}
+
+	public void testConsecutiveIds() throws Exception {
+		TestElementIndex index= new TestElementIndex();
+		TestElement[] elements= new TestElement[200];
+		for (int i= 0; i < elements.length; i++) {
+			elements[i]= createElement(String.valueOf(i));
+			index.put(String.valueOf(i), elements[i]);
+		}
+		assertEquals(elements.length, index.size());
+		for (int i= 0; i < elements.length; i++)
+			assertSame(elements[i], index.get(String.valueOf(i)));
+		assertNull(index.get(String.valueOf(elements.length)));
+	}
+
+	public void testNonCanonicalIds() throws Exception {
+		TestElementIndex index= new TestElementIndex();
+		TestElement seven= createElement("7"); //$NON-NLS-1$
+		TestElement zeroSeven= createElement("007"); //$NON-NLS-1$
+		TestElement negative= createElement("-7"); //$NON-NLS-1$
+		TestElement name= createElement("seven"); //$NON-NLS-1$
+		index.put("7", seven); //$NON-NLS-1$
+		index.put("007", zeroSeven); //$NON-NLS-1$
+		index.put("-7", negative); //$NON-NLS-1$
+		index.put("seven", name); //$NON-NLS-1$
+		assertEquals(4, index.size());
+		assertSame(seven, index.get("7")); //$NON-NLS-1$
+		assertSame(zeroSeven, index.get("007")); //$NON-NLS-1$
+		assertSame(negative, index.get("-7")); //$NON-NLS-1$
+		assertSame(name, index.get("seven")); //$NON-NLS-1$
+		assertNull(index.get("")); //$NON-NLS-1$
+	}
+
+	public void testReplace() throws Exception {
+		TestElementIndex index= new TestElementIndex();
+		index.put("1", createElement("1")); //$NON-NLS-1$ //$NON-NLS-2$
+		index.put("x", createElement("x")); //$NON-NLS-1$ //$NON-NLS-2$
+		TestElement one= createElement("1"); //$NON-NLS-1$
+		TestElement x= createElement("x"); //$NON-NLS-1$
+		index.put("1", one); //$NON-NLS-1$
+		index.put("x", x); //$NON-NLS-1$
+		assertEquals(2, index.size());
+		assertSame(one, index.get("1")); //$NON-NLS-1$
+		assertSame(x, index.get("x")); //$NON-NLS-1$
+	}
+
+	public void testLargeIdMovesIntoArray() throws Exception {
+		TestElementIndex index= new TestElementIndex();
+		String largeId= "5000"; //$NON-NLS-1$
+		// stored in the map while there are few elements
+		index.put(largeId, createElement(largeId));
+		for (int i= 0; i < 3000; i++)
+			index.put(String.valueOf(i), createElement(String.valueOf(i)));
+		assertEquals(3001, index.size());
+
+		// now within the array bounds, replacing must not count the element twice
+		TestElement large= createElement(largeId);
+		index.put(largeId, large);
+		assertEquals(3001, index.size());
+		assertSame(large, index.get(largeId));
+
+		index.put("5001", createElement("5001")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(3002, index.size());
+	}
+}
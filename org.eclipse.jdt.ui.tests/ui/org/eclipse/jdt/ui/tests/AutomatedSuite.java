@@ -25,9 +25,11 @@ import org.eclipse.jdt.ui.tests.browsing.PackagesViewContentProviderTests2;
 import org.eclipse.jdt.ui.tests.browsing.PackagesViewDeltaTests;
 import org.eclipse.jdt.ui.tests.buildpath.BuildpathTestSuite;
 import org.eclipse.jdt.ui.tests.callhierarchy.CallHierarchyContentProviderTest;
+import org.eclipse.jdt.ui.tests.callhierarchy.CallerSearchTest;
 import org.eclipse.jdt.ui.tests.core.CoreTests;
 import org.eclipse.jdt.ui.tests.jarexport.JarExportTests;
 import org.eclipse.jdt.ui.tests.model.ContentProviderTests;
+import org.eclipse.jdt.ui.tests.packageHover.AttachedJavadocIndexTest;
 import org.eclipse.jdt.ui.tests.packageHover.PackageJavadocTests;
 import org.eclipse.jdt.ui.tests.packageview.PackageExplorerTests;
 import org.eclipse.jdt.ui.tests.quickfix.QuickFixTest;
@@ -72,6 +74,7 @@ public class AutomatedSuite extends TestSuite {
 		addTest(ContentProviderTests.suite());
 
 		addTest(CallHierarchyContentProviderTest.suite());
+		addTest(CallerSearchTest.suite());
 
 		addTest(RefactoringTests.suite());
 
@@ -82,6 +85,7 @@ public class AutomatedSuite extends TestSuite {
 
 		addTest(JarExportTests.suite());
 		addTest(PackageJavadocTests.suite());
+		addTest(AttachedJavadocIndexTest.suite());
 	}
 }
 
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.callhierarchy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+
+import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchy;
+import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
+
+/**
+ * Tests the streamed caller search and the invalidation of memoized caller searches.
+ */
+public class CallerSearchTest extends TestCase {
+
+    private static final Class<CallerSearchTest> THIS= CallerSearchTest.class;
+
+    private CallHierarchyTestHelper helper;
+
+    public CallerSearchTest(String name) {
+        super(name);
+    }
+
+    public static Test suite() {
+        return new TestSuite(THIS);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        helper= new CallHierarchyTestHelper();
+        helper.setUp();
+        helper.createSimpleClasses();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        helper.tearDown();
+        helper= null;
+    }
+
+    private static MethodWrapper getCallerRoot(IMember member) {
+        return CallHierarchy.getDefault().getCallerRoots(new IMember[] { member })[0];
+    }
+
+    private static MethodWrapper[] getCallers(IMember member) {
+        return getCallerRoot(member).getCalls(new NullProgressMonitor());
+    }
+
+    private ICompilationUnit createCaller(String name, String body) throws Exception {
+        String contents= "package pack1;\n\npublic class " + name + " {\n    public void other() {\n" + body + "    }\n}\n";
+        return helper.getPackage1().createCompilationUnit(name + ".java", contents, true, null);
+    }
+
+    private static void setBody(ICompilationUnit workingCopy, String body) throws Exception {
+        IBuffer buffer= workingCopy.getBuffer();
+        String contents= buffer.getContents();
+        int start= contents.indexOf("other() {\n") + "other() {\n".length();
+        int end= contents.lastIndexOf("    }\n}");
+        buffer.replace(start, end - start, body);
+    }
+
+    public void testCallsAreStreamed() throws Exception {
+        final List<MethodWrapper> collected= new ArrayList<>();
+        final int[] batches= new int[1];
+        MethodWrapper[] calls= getCallerRoot(helper.getMethod1()).getCalls(new NullProgressMonitor(), new MethodWrapper.ICallCollector() {
+            @Override
+            public void add(MethodWrapper[] wrappers) {
+                batches[0]++;
+                collected.addAll(Arrays.asList(wrappers));
+            }
+        });
+
+        helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, calls);
+        assertTrue(batches[0] > 0);
+        // every call is added exactly once
+        helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, collected.toArray());
+        assertEquals(new HashSet<>(Arrays.asList(calls)), new HashSet<>(collected));
+    }
+
+    public void testCachedCallsAreStreamed() throws Exception {
+        MethodWrapper[] calls= getCallers(helper.getMethod1());
+        final List<MethodWrapper> collected= new ArrayList<>();
+        MethodWrapper[] cached= getCallerRoot(helper.getMethod1()).getCalls(new NullProgressMonitor(), new MethodWrapper.ICallCollector() {
+            @Override
+            public void add(MethodWrapper[] wrappers) {
+                collected.addAll(Arrays.asList(wrappers));
+            }
+        });
+        helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, cached);
+        assertEquals(calls.length, collected.size());
+        assertEquals(new HashSet<>(Arrays.asList(cached)), new HashSet<>(collected));
+    }
+
+    public void testBodyEditInvalidatesCallers() throws Exception {
+        ICompilationUnit cu= createCaller("C", "");
+        IMethod other= cu.getType("C").getMethod("other", new String[0]);
+        helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, getCallers(helper.getMethod1()));
+
+        cu.becomeWorkingCopy(null);
+        try {
+            setBody(cu, "        new A().method1();\n");
+            // the search is memoized until the working copy is reconciled
+            helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, getCallers(helper.getMethod1()));
+
+            cu.reconcile(ICompilationUnit.NO_AST, false, null, null);
+            helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3(), other }, getCallers(helper.getMethod1()));
+        } finally {
+            cu.discardWorkingCopy();
+        }
+    }
+
+    public void testUnrelatedBodyEditKeepsCallers() throws Exception {
+        ICompilationUnit caller= createCaller("C", "");
+        ICompilationUnit unrelated= createCaller("D", "");
+        helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, getCallers(helper.getMethod1()));
+
+        caller.becomeWorkingCopy(null);
+        unrelated.becomeWorkingCopy(null);
+        try {
+            setBody(caller, "        new A().method1();\n");
+            setBody(unrelated, "        toString();\n");
+            unrelated.reconcile(ICompilationUnit.NO_AST, false, null, null);
+            // the edit of D cannot change the callers, the unreconciled edit of C is not seen
+            helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, getCallers(helper.getMethod1()));
+        } finally {
+            unrelated.discardWorkingCopy();
+            caller.discardWorkingCopy();
+        }
+    }
+
+    public void testStructuralChangeClearsCallers() throws Exception {
+        helper.assertCalls(new IMember[] { helper.getMethod2(), helper.getMethod3() }, getCallers(helper.getMethod1()));
+
+        ICompilationUnit cu= createCaller("C", "        new A().method1();\n");
+        IType type= cu.getType("C");
+        Set<IMember> expected= new HashSet<>(Arrays.asList(helper.getMethod2(), helper.getMethod3(), type.getMethod("other", new String[0])));
+        helper.assertCalls(expected, getCallers(helper.getMethod1()));
+    }
+}
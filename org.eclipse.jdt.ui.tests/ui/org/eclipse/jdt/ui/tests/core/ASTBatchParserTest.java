@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.internal.corext.dom.ASTBatchParser;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+
+/**
+ * Tests the batches of the {@link ASTBatchParser}.
+ */
+public class ASTBatchParserTest extends CoreTests {
+
+	private static final Class<ASTBatchParserTest> THIS= ASTBatchParserTest.class;
+
+	/** The number of units in the first adaptive batch and the growth of the following batches */
+	private static final int FIRST_ADAPTIVE_AT_ONCE= 16;
+	private static final int ADAPTIVE_GROWTH= 4;
+
+	private IJavaProject fJProject1;
+	private IPackageFragment fPack1;
+
+	public ASTBatchParserTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		fPack1= sourceFolder.createPackageFragment("test1", false, null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private ICompilationUnit[] createUnits(int count) throws Exception {
+		ICompilationUnit[] units= new ICompilationUnit[count];
+		for (int i= 0; i < count; i++) {
+			String name= "E" + i;
+			String contents= "package test1;\npublic class " + name + " {\n    public int foo() {\n        return " + i + ";\n    }\n}\n";
+			units[i]= fPack1.createCompilationUnit(name + ".java", contents, false, null);
+		}
+		return units;
+	}
+
+	private static Set<ICompilationUnit> parse(ASTBatchParser parser, ICompilationUnit[] units) {
+		final Set<ICompilationUnit> accepted= new HashSet<>();
+		parser.createASTs(units, new String[0], new ASTRequestor() {
+			@Override
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				assertNotNull(ast.getAST());
+				assertTrue(accepted.add(source));
+			}
+		}, null);
+		return accepted;
+	}
+
+	public void testAdaptiveBatches() throws Exception {
+		ICompilationUnit[] units= createUnits(100);
+		ASTBatchParser parser= new ASTBatchParser(true);
+		Set<ICompilationUnit> accepted= parse(parser, units);
+		assertEquals(units.length, accepted.size());
+
+		ASTBatchParser.BatchStatistics[] statistics= parser.getBatchStatistics();
+		assertTrue(statistics.length > 1);
+		int total= 0;
+		int maxAtOnce= FIRST_ADAPTIVE_AT_ONCE;
+		for (int i= 0; i < statistics.length; i++) {
+			// the first batch is small, the following batches grow
+			assertTrue(statistics[i].getUnits() > 0);
+			assertTrue(statistics[i].getUnits() <= maxAtOnce);
+			assertTrue(statistics[i].getSourceLength() > 0);
+			assertTrue(statistics[i].getUsedHeap() > 0);
+			total+= statistics[i].getUnits();
+			maxAtOnce*= ADAPTIVE_GROWTH;
+		}
+		assertEquals(units.length, total);
+	}
+
+	public void testFixedBatches() throws Exception {
+		ICompilationUnit[] units= createUnits(20);
+		ASTBatchParser parser= new ASTBatchParser();
+		assertEquals(units.length, parse(parser, units).size());
+		assertEquals(0, parser.getBatchStatistics().length);
+	}
+
+	public void testHeapIsReservedWhileParsing() throws Exception {
+		final ICompilationUnit[] units= createUnits(10);
+		final long initial= ASTBatchParser.getReservedHeap();
+		final List<Long> reserved= new ArrayList<>();
+		new ASTBatchParser(true).createASTs(units, new String[0], new ASTRequestor() {
+			@Override
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				if (!reserved.isEmpty())
+					return;
+				long outer= ASTBatchParser.getReservedHeap();
+				reserved.add(Long.valueOf(outer));
+				// a nested parser shares the budget with the running batch
+				new ASTBatchParser(true).createASTs(new ICompilationUnit[] { source }, new String[0], new ASTRequestor() {
+					@Override
+					public void acceptAST(ICompilationUnit nestedSource, CompilationUnit nestedAst) {
+						reserved.add(Long.valueOf(ASTBatchParser.getReservedHeap()));
+					}
+				}, null);
+				reserved.add(Long.valueOf(ASTBatchParser.getReservedHeap()));
+			}
+		}, null);
+
+		assertEquals(3, reserved.size());
+		long outer= reserved.get(0).longValue();
+		assertTrue(outer > initial);
+		assertTrue(reserved.get(1).longValue() > outer);
+		assertEquals(outer, reserved.get(2).longValue());
+		assertEquals(initial, ASTBatchParser.getReservedHeap());
+	}
+}
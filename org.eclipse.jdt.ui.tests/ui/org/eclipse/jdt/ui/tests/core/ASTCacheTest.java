@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.internal.core.manipulation.ASTCache;
+import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+
+/**
+ * Tests the cache of recently used ASTs.
+ */
+public class ASTCacheTest extends CoreTests {
+
+	private static final Class<ASTCacheTest> THIS= ASTCacheTest.class;
+
+	/** The maximal number of cached ASTs */
+	private static final int MAX_ENTRIES= 10;
+
+	private IJavaProject fJProject1;
+	private IPackageFragment fPack1;
+	private ASTCache fCache;
+
+	public ASTCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		fPack1= sourceFolder.createPackageFragment("test1", false, null);
+		fCache= ASTCache.getDefault();
+		fCache.clear();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fCache.clear();
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private ICompilationUnit createCU(String name) throws Exception {
+		String contents= "package test1;\npublic class " + name + " {\n	int fField= 1;\n}\n";
+		return fPack1.createCompilationUnit(name + ".java", contents, false, null);
+	}
+
+	private static CompilationUnit createAST(ICompilationUnit cu) {
+		ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		parser.setSource(cu);
+		parser.setResolveBindings(true);
+		return (CompilationUnit) parser.createAST(null);
+	}
+
+	/**
+	 * Creates compilation units before ASTs are cached, adding a unit clears the cache.
+	 *
+	 * @param count the number of compilation units
+	 * @return the compilation units
+	 * @throws Exception if a compilation unit cannot be created
+	 */
+	private ICompilationUnit[] createCUs(int count) throws Exception {
+		ICompilationUnit[] cus= new ICompilationUnit[count];
+		for (int i= 0; i < count; i++)
+			cus[i]= createCU("E" + i);
+		return cus;
+	}
+
+	private ICompilationUnit createWorkingCopy(String name) throws Exception {
+		ICompilationUnit cu= createCU(name);
+		cu.becomeWorkingCopy(null);
+		return cu;
+	}
+
+	private CompilationUnit put(ICompilationUnit cu) {
+		long generation= fCache.getGeneration();
+		CompilationUnit ast= createAST(cu);
+		fCache.put(cu, ast, generation);
+		return ast;
+	}
+
+	public void testGet() throws Exception {
+		ICompilationUnit cu= createCU("E1");
+		CompilationUnit ast= put(cu);
+		assertSame(ast, fCache.get(cu));
+		assertTrue(fCache.isCached(ast));
+		assertEquals(1, fCache.getSize());
+		assertTrue(fCache.getWeight() > 0);
+	}
+
+	public void testWorkingCopyEditOfSameLength() throws Exception {
+		ICompilationUnit wc= createWorkingCopy("E1");
+		try {
+			CompilationUnit ast= put(wc);
+			assertSame(ast, fCache.get(wc));
+
+			// the edit is not reconciled, no delta has been sent
+			String contents= wc.getBuffer().getContents();
+			wc.getBuffer().replace(contents.indexOf("1;"), 1, "2");
+			assertNull(fCache.get(wc));
+			assertFalse(fCache.isCached(ast));
+		} finally {
+			wc.discardWorkingCopy();
+		}
+	}
+
+	public void testInconsistentWorkingCopyIsNotCached() throws Exception {
+		ICompilationUnit wc= createWorkingCopy("E1");
+		try {
+			long generation= fCache.getGeneration();
+			CompilationUnit ast= createAST(wc);
+			String contents= wc.getBuffer().getContents();
+			wc.getBuffer().replace(contents.indexOf("1;"), 1, "2");
+			fCache.put(wc, ast, generation);
+			assertNull(fCache.get(wc));
+
+			wc.reconcile(ICompilationUnit.NO_AST, false, null, null);
+			ast= put(wc);
+			assertSame(ast, fCache.get(wc));
+		} finally {
+			wc.discardWorkingCopy();
+		}
+	}
+
+	public void testChangeWhileCreating() throws Exception {
+		ICompilationUnit cu= createCU("E1");
+		long generation= fCache.getGeneration();
+		CompilationUnit ast= createAST(cu);
+		createCU("E2");
+		fCache.put(cu, ast, generation);
+		assertNull(fCache.get(cu));
+	}
+
+	public void testReconcileEvicts() throws Exception {
+		ICompilationUnit wc= createWorkingCopy("E1");
+		try {
+			CompilationUnit ast= put(wc);
+			String contents= wc.getBuffer().getContents();
+			wc.getBuffer().replace(contents.indexOf("1;"), 1, "2");
+			wc.reconcile(ICompilationUnit.NO_AST, false, null, null);
+			assertFalse(fCache.isCached(ast));
+			assertEquals(0, fCache.getSize());
+		} finally {
+			wc.discardWorkingCopy();
+		}
+	}
+
+	public void testEvictLeastRecentlyUsed() throws Exception {
+		ICompilationUnit[] cus= createCUs(MAX_ENTRIES + 1);
+		CompilationUnit[] asts= new CompilationUnit[cus.length];
+		long evictions= fCache.getEvictionCount();
+		for (int i= 0; i < cus.length; i++) {
+			asts[i]= put(cus[i]);
+			if (i == 1)
+				assertSame(asts[0], fCache.get(cus[0]));
+		}
+		assertEquals(MAX_ENTRIES, fCache.getSize());
+		assertSame(asts[0], fCache.get(cus[0]));
+		assertNull(fCache.get(cus[1]));
+		assertEquals(evictions + 1, fCache.getEvictionCount());
+	}
+
+	public void testAcquiredIsNotEvicted() throws Exception {
+		ICompilationUnit[] cus= createCUs(MAX_ENTRIES + 2);
+		CompilationUnit[] asts= new CompilationUnit[cus.length];
+		asts[0]= put(cus[0]);
+		assertTrue(fCache.acquire(cus[0], asts[0]));
+		for (int i= 1; i <= MAX_ENTRIES; i++)
+			asts[i]= put(cus[i]);
+		// the least recently used entry is acquired, the next one is evicted
+		assertTrue(fCache.isCached(asts[0]));
+		assertFalse(fCache.isCached(asts[1]));
+
+		fCache.release(asts[0]);
+		assertTrue(fCache.isCached(asts[0]));
+		assertEquals(MAX_ENTRIES, fCache.getSize());
+
+		put(cus[MAX_ENTRIES + 1]);
+		assertFalse(fCache.isCached(asts[0]));
+	}
+
+	public void testAcquireUncachedAST() throws Exception {
+		ICompilationUnit cu= createCU("E1");
+		CompilationUnit ast= createAST(cu);
+		assertFalse(fCache.acquire(cu, ast));
+		fCache.release(ast);
+		assertEquals(0, fCache.getSize());
+	}
+}
@@ -66,10 +66,15 @@ public class CoreTests extends TestCase {
 		suite.addTest(TypeHierarchyTest.suite());
 		suite.addTest(TypeRulesTest.suite());
 		suite.addTest(TypeInfoTest.suite());
+		suite.addTest(TypeNameIndexTest.suite());
 		suite.addTest(StringsTest.suite());
 		suite.addTest(IndentManipulationTest.suite());
 		suite.addTest(SelectionHistoryTest.suite());
+		suite.addTest(HistoryJournalTest.suite());
 		suite.addTest(ASTProviderTest.suite());
+		suite.addTest(ASTCacheTest.suite());
+		suite.addTest(ASTBatchParserTest.suite());
+		suite.addTest(SuperTypeHierarchyCacheTest.suite());
 		suite.addTest(JDTFlagsTest18.suite());
 
 		return new ProjectTestSetup(suite);
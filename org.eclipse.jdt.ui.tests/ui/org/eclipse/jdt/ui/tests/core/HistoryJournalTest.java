@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.internal.corext.util.HistoryJournal;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the binary journal of the histories.
+ */
+public class HistoryJournalTest extends TestCase {
+
+	private static final Class<HistoryJournalTest> THIS= HistoryJournalTest.class;
+
+	private static final byte ADDED= 1;
+
+	private static final byte REMOVED= 2;
+
+	private File fFile;
+
+	public HistoryJournalTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fFile= File.createTempFile("history", ".bin");
+		fFile.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fFile.delete();
+		new File(fFile.getPath() + ".tmp").delete();
+	}
+
+	private static void write(HistoryJournal journal, boolean snapshot, byte kind, String... values) throws IOException {
+		HistoryJournal.Output output= journal.createOutput(snapshot);
+		for (int i= 0; i < values.length; i++) {
+			output.begin(kind);
+			output.writeString(values[i]);
+			output.writeInt(i);
+			output.writeLong(values[i] == null ? -1 : values[i].length());
+			output.end();
+		}
+		journal.write(output);
+	}
+
+	private static List<String> read(HistoryJournal journal) throws IOException {
+		final List<String> records= new ArrayList<>();
+		assertTrue(journal.read(new HistoryJournal.RecordReader() {
+			@Override
+			public void read(byte kind, HistoryJournal.Input input) throws IOException {
+				String value= input.readString();
+				int index= input.readInt();
+				assertEquals(value == null ? -1 : value.length(), input.readLong());
+				records.add(kind + " " + value + " " + index);
+			}
+		}));
+		return records;
+	}
+
+	public void testReplay() throws Exception {
+		HistoryJournal journal= new HistoryJournal(fFile);
+		assertFalse(journal.exists());
+		write(journal, true, ADDED, "a", "b", null);
+		write(journal, false, REMOVED, "b");
+		write(journal, false, ADDED, "c", "a");
+		assertTrue(journal.exists());
+
+		List<String> expected= Arrays.asList("1 a 0", "1 b 1", "1 null 2", "2 b 0", "1 c 0", "1 a 1");
+		assertEquals(expected, read(new HistoryJournal(fFile)));
+		// reading again starts over
+		assertEquals(expected, read(journal));
+	}
+
+	public void testStringsAreStoredOnce() throws Exception {
+		HistoryJournal journal= new HistoryJournal(fFile);
+		String value= "org.example.SomeTypeWithALongName";
+		write(journal, true, ADDED, value);
+		long length= fFile.length();
+		write(journal, false, REMOVED, value);
+		long removedLength= fFile.length() - length;
+		assertTrue(removedLength < value.length());
+
+		// a replayed journal continues the string table
+		journal= new HistoryJournal(fFile);
+		read(journal);
+		length= fFile.length();
+		write(journal, false, ADDED, value);
+		assertEquals(removedLength, fFile.length() - length);
+		assertEquals(Arrays.asList("1 " + value + " 0", "2 " + value + " 0", "1 " + value + " 0"), read(new HistoryJournal(fFile)));
+	}
+
+	public void testCompaction() throws Exception {
+		HistoryJournal journal= new HistoryJournal(fFile);
+		// the file has not been read or written
+		assertTrue(journal.needsCompaction(0, 0));
+
+		write(journal, true, ADDED, "a", "b");
+		assertFalse(journal.needsCompaction(2, 10));
+		String[] values= new String[71];
+		for (int i= 0; i < values.length; i++)
+			values[i]= "v" + i;
+		write(journal, false, ADDED, values);
+		// 73 records of a history with 2 elements
+		assertTrue(journal.needsCompaction(2, 0));
+		assertFalse(journal.needsCompaction(20, 0));
+		long length= fFile.length();
+
+		write(journal, true, ADDED, "a", "b");
+		assertTrue(fFile.length() < length);
+		assertFalse(journal.needsCompaction(2, 0));
+		assertEquals(Arrays.asList("1 a 0", "1 b 1"), read(new HistoryJournal(fFile)));
+		assertFalse(new File(fFile.getPath() + ".tmp").exists());
+	}
+
+	public void testTornRecordIsTruncated() throws Exception {
+		HistoryJournal journal= new HistoryJournal(fFile);
+		write(journal, true, ADDED, "a", "b");
+		write(journal, false, ADDED, "c");
+		// a crash while the last record was written
+		try (RandomAccessFile file= new RandomAccessFile(fFile, "rw")) {
+			file.setLength(file.length() - 3);
+		}
+
+		journal= new HistoryJournal(fFile);
+		assertEquals(Arrays.asList("1 a 0", "1 b 1"), read(journal));
+		write(journal, false, REMOVED, "a");
+		assertEquals(Arrays.asList("1 a 0", "1 b 1", "2 a 0"), read(new HistoryJournal(fFile)));
+	}
+
+	public void testForeignFileIsNotRead() throws Exception {
+		Files.write(fFile.toPath(), "<?xml version=\"1.0\"?>".getBytes(StandardCharsets.UTF_8));
+		HistoryJournal journal= new HistoryJournal(fFile);
+		assertFalse(journal.read(new HistoryJournal.RecordReader() {
+			@Override
+			public void read(byte kind, HistoryJournal.Input input) {
+				fail();
+			}
+		}));
+		assertTrue(journal.needsCompaction(1, 0));
+		try {
+			journal.createOutput(false);
+			fail();
+		} catch (IllegalStateException e) {
+			// a snapshot must replace the file
+		}
+		write(journal, true, ADDED, "a");
+		assertEquals(Arrays.asList("1 a 0"), read(new HistoryJournal(fFile)));
+	}
+}
@@ -15,7 +15,9 @@
 package org.eclipse.jdt.ui.tests.core;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 
 import org.eclipse.jdt.testplugin.JavaProjectHelper;
 import org.eclipse.jdt.testplugin.JavaTestPlugin;
@@ -29,6 +31,7 @@ import org.eclipse.core.resources.ProjectScope;
 import org.eclipse.jdt.core.IClasspathAttribute;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IImportDeclaration;
+import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
@@ -38,6 +41,7 @@ import org.eclipse.jdt.core.Signature;
 import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
 import org.eclipse.jdt.core.manipulation.OrganizeImportsOperation;
 import org.eclipse.jdt.core.manipulation.OrganizeImportsOperation.IChooseImportQuery;
+import org.eclipse.jdt.core.manipulation.OrganizeImportsOperation.TypeNameMatchCache;
 import org.eclipse.jdt.core.search.TypeNameMatch;
 
 import org.eclipse.jdt.ui.JavaUI;
@@ -3512,6 +3516,64 @@ public class ImportOrganizeTest extends CoreTests {
 		assertEqualString(cu1.getSource(), buf1.toString());
 	}
 
+	public void testTypeNameMatchCache() throws Exception {
+		File junitSrcArchive= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.JUNIT_SRC_381);
+		assertTrue("junit src not found", junitSrcArchive != null && junitSrcArchive.exists());
+
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainerWithImport(fJProject1, "src", junitSrcArchive, JavaProjectHelper.JUNIT_SRC_ENCODING);
+
+		// a second TestListener, so some names have several matches
+		IPackageFragment pack= root.createPackageFragment("mytest", true, null);
+		pack.getCompilationUnit("TestListener.java").createType("public abstract class TestListener {\n}\n", null, true, null);
+
+		List<ICompilationUnit> cus= new ArrayList<>();
+		IJavaElement[] packages= root.getChildren();
+		for (int i= 0; i < packages.length; i++) {
+			ICompilationUnit[] units= ((IPackageFragment) packages[i]).getCompilationUnits();
+			for (int k= 0; k < units.length; k++)
+				cus.add(units[k]);
+		}
+		assertTrue(cus.size() > 10);
+
+		// without imports, so every unit searches its referenced types
+		String[] sources= new String[cus.size()];
+		for (int i= 0; i < sources.length; i++) {
+			ICompilationUnit cu= cus.get(i);
+			IImportDeclaration[] imports= cu.getImports();
+			for (int k= 0; k < imports.length; k++)
+				imports[k].delete(true, null);
+			sources[i]= cu.getSource();
+		}
+
+		// chooses the first match, so the order of the matches is compared as well
+		IChooseImportQuery query= new IChooseImportQuery() {
+			@Override
+			public TypeNameMatch[] chooseImports(TypeNameMatch[][] openChoices, ISourceRange[] ranges) {
+				TypeNameMatch[] res= new TypeNameMatch[openChoices.length];
+				for (int i= 0; i < openChoices.length; i++)
+					res[i]= openChoices[i][0];
+				return res;
+			}
+		};
+		String[] order= new String[0];
+
+		String[] expected= new String[sources.length];
+		for (int i= 0; i < sources.length; i++) {
+			ICompilationUnit cu= cus.get(i);
+			createOperation(cu, order, 99, false, true, true, query).run(null);
+			expected[i]= cu.getSource();
+			cu.getBuffer().setContents(sources[i]);
+			cu.save(null, true);
+		}
+
+		TypeNameMatchCache cache= new TypeNameMatchCache();
+		for (int i= 0; i < sources.length; i++) {
+			ICompilationUnit cu= cus.get(i);
+			new OrganizeImportsOperation(cu, null, false, true, true, query, cache).run(null);
+			assertEqualString(cu.getSource(), expected[i]);
+		}
+	}
+
 	protected OrganizeImportsOperation createOperation(ICompilationUnit cu, String[] order, int threshold, boolean ignoreLowerCaseNames, boolean save, boolean allowSyntaxErrors, IChooseImportQuery chooseImportQuery) {
 		setOrganizeImportSettings(order, threshold, threshold, cu.getJavaProject());
 		return new OrganizeImportsOperation(cu, null, ignoreLowerCaseNames, save, allowSyntaxErrors, chooseImportQuery);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -20,6 +20,7 @@ import java.util.Comparator;
 import org.w3c.dom.Element;
 
 import org.eclipse.jdt.internal.corext.util.History;
+import org.eclipse.jdt.internal.corext.util.HistoryJournal;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -126,7 +127,9 @@ public class SelectionHistoryTest extends TestCase {
 			super("");
 		}
 		@Override
-		protected void setAttributes(Object object, Element element) {}
+		protected void writeValue(String object, HistoryJournal.Output output) {}
+		@Override
+		protected String readValue(HistoryJournal.Input input, boolean removed) {return null;}
 		@Override
 		protected String createFromElement(Element type) {return null;}
 		@Override
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+
+import org.eclipse.jdt.internal.corext.util.SuperTypeHierarchyCache;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+
+/**
+ * Tests the cache of super type hierarchies.
+ */
+public class SuperTypeHierarchyCacheTest extends CoreTests {
+
+	private static final Class<SuperTypeHierarchyCacheTest> THIS= SuperTypeHierarchyCacheTest.class;
+
+	/** The time in seconds to wait for other threads */
+	private static final long TIMEOUT= 30;
+
+	private IJavaProject fJProject1;
+	private IPackageFragment fPack1;
+	private int fMaxWeight;
+
+	public SuperTypeHierarchyCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		fPack1= sourceFolder.createPackageFragment("test1", false, null);
+		fMaxWeight= SuperTypeHierarchyCache.setMaxCacheWeight(Integer.MAX_VALUE);
+		SuperTypeHierarchyCache.setMaxCacheWeight(fMaxWeight);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		SuperTypeHierarchyCache.setMaxCacheWeight(fMaxWeight);
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private IType[] createTypes(String... names) throws Exception {
+		IType[] types= new IType[names.length];
+		for (int i= 0; i < names.length; i++) {
+			String contents= "package test1;\npublic class " + names[i] + " {\n}\n";
+			types[i]= fPack1.createCompilationUnit(names[i] + ".java", contents, false, null).getType(names[i]);
+		}
+		return types;
+	}
+
+	public void testHierarchyIsCached() throws Exception {
+		IType type= createTypes("A")[0];
+		int misses= SuperTypeHierarchyCache.getCacheMisses();
+		int hits= SuperTypeHierarchyCache.getCacheHits();
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(type);
+		assertTrue(SuperTypeHierarchyCache.hasInCache(type));
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(type));
+		assertEquals(misses + 1, SuperTypeHierarchyCache.getCacheMisses());
+		assertEquals(hits + 1, SuperTypeHierarchyCache.getCacheHits());
+	}
+
+	public void testWeightBound() throws Exception {
+		IType[] types= createTypes("A", "B", "C");
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(types[0]);
+		int weight= hierarchy.getAllTypes().length;
+		assertEquals(2, weight); // A and Object
+
+		// room for two hierarchies
+		SuperTypeHierarchyCache.setMaxCacheWeight(2 * weight + 1);
+		SuperTypeHierarchyCache.getTypeHierarchy(types[1]);
+		assertTrue(SuperTypeHierarchyCache.hasInCache(types[0]));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(types[1]));
+
+		// access A, so that B is the least recently used hierarchy
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(types[0]));
+		SuperTypeHierarchyCache.getTypeHierarchy(types[2]);
+		assertFalse(SuperTypeHierarchyCache.hasInCache(types[1]));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(types[0]));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(types[2]));
+	}
+
+	public void testNewestHierarchyIsKept() throws Exception {
+		IType[] types= createTypes("A", "B");
+		SuperTypeHierarchyCache.getTypeHierarchy(types[0]);
+		SuperTypeHierarchyCache.setMaxCacheWeight(1);
+		SuperTypeHierarchyCache.getTypeHierarchy(types[1]);
+		assertFalse(SuperTypeHierarchyCache.hasInCache(types[0]));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(types[1]));
+	}
+
+	public void testConcurrentRequestsShareBuild() throws Exception {
+		final IType type= createTypes("A")[0];
+		final CountDownLatch building= new CountDownLatch(1);
+		final CountDownLatch waiting= new CountDownLatch(1);
+		final CountDownLatch release= new CountDownLatch(1);
+		final ITypeHierarchy[] results= new ITypeHierarchy[2];
+		final Throwable[] failures= new Throwable[2];
+		int misses= SuperTypeHierarchyCache.getCacheMisses();
+
+		Thread builder= new Thread("SuperTypeHierarchyCacheTest builder") {
+			@Override
+			public void run() {
+				try {
+					results[0]= SuperTypeHierarchyCache.getTypeHierarchy(type, new NullProgressMonitor() {
+						@Override
+						public void beginTask(String name, int totalWork) {
+							if (building.getCount() > 0) {
+								building.countDown();
+								try {
+									release.await(TIMEOUT, TimeUnit.SECONDS);
+								} catch (InterruptedException e) {
+									Thread.currentThread().interrupt();
+								}
+							}
+						}
+					});
+				} catch (Throwable e) {
+					failures[0]= e;
+				}
+			}
+		};
+		Thread waiter= new Thread("SuperTypeHierarchyCacheTest waiter") {
+			@Override
+			public void run() {
+				try {
+					results[1]= SuperTypeHierarchyCache.getTypeHierarchy(type, new NullProgressMonitor() {
+						@Override
+						public boolean isCanceled() {
+							// polled while waiting for the hierarchy built by the other thread
+							waiting.countDown();
+							return false;
+						}
+					});
+				} catch (Throwable e) {
+					failures[1]= e;
+				}
+			}
+		};
+		try {
+			builder.start();
+			assertTrue(building.await(TIMEOUT, TimeUnit.SECONDS));
+			waiter.start();
+			assertTrue(waiting.await(TIMEOUT, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+		}
+		builder.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+		waiter.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+
+		assertNull(failures[0]);
+		assertNull(failures[1]);
+		assertNotNull(results[0]);
+		assertSame(results[0], results[1]);
+		assertEquals(misses + 1, SuperTypeHierarchyCache.getCacheMisses());
+	}
+
+	public void testCanceledWaiterDoesNotCancelBuild() throws Exception {
+		final IType type= createTypes("A")[0];
+		final CountDownLatch building= new CountDownLatch(1);
+		final CountDownLatch release= new CountDownLatch(1);
+		final ITypeHierarchy[] result= new ITypeHierarchy[1];
+
+		Thread builder= new Thread("SuperTypeHierarchyCacheTest builder") {
+			@Override
+			public void run() {
+				try {
+					result[0]= SuperTypeHierarchyCache.getTypeHierarchy(type, new NullProgressMonitor() {
+						@Override
+						public void beginTask(String name, int totalWork) {
+							if (building.getCount() > 0) {
+								building.countDown();
+								try {
+									release.await(TIMEOUT, TimeUnit.SECONDS);
+								} catch (InterruptedException e) {
+									Thread.currentThread().interrupt();
+								}
+							}
+						}
+					});
+				} catch (Throwable e) {
+					// checked below
+				}
+			}
+		};
+		try {
+			builder.start();
+			assertTrue(building.await(TIMEOUT, TimeUnit.SECONDS));
+			NullProgressMonitor canceled= new NullProgressMonitor();
+			canceled.setCanceled(true);
+			try {
+				SuperTypeHierarchyCache.getTypeHierarchy(type, canceled);
+				fail();
+			} catch (OperationCanceledException e) {
+				// expected
+			}
+		} finally {
+			release.countDown();
+		}
+		builder.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+		assertNotNull(result[0]);
+		assertTrue(SuperTypeHierarchyCache.hasInCache(type));
+	}
+}
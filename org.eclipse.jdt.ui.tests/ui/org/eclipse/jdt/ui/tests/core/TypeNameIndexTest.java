@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.JavaTestPlugin;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
+
+public class TypeNameIndexTest extends TestCase {
+
+	private static final Class<TypeNameIndexTest> THIS= TypeNameIndexTest.class;
+
+	/** The magic number of the index file */
+	private static final int MAGIC= 0x4A544E49;
+
+	private IJavaProject fJProject1;
+
+	private File fDirectory;
+
+	public TypeNameIndexTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+		assertNotNull("jre is null", JavaProjectHelper.addRTJar(fJProject1));
+
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		IPackageFragment pack= root.createPackageFragment("com.oti", true, null);
+		ICompilationUnit cu= pack.getCompilationUnit("V.java");
+		cu.createType("public class V {\n static class VInner {\n}\n}\n", null, true, null);
+
+		fDirectory= new File(JavaTestPlugin.getDefault().getStateLocation().toFile(), "TypeNameIndexTest");
+		deleteFiles();
+		fDirectory.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.delete(fJProject1);
+		deleteFiles();
+	}
+
+	private void deleteFiles() {
+		File[] files= fDirectory.listFiles();
+		if (files != null) {
+			for (int i= 0; i < files.length; i++)
+				files[i].delete();
+		}
+		fDirectory.delete();
+	}
+
+	private static List<String> search(TypeNameIndex index, String pattern) throws JavaModelException {
+		final List<String> result= new ArrayList<>();
+		TypeInfoFilter filter= new TypeInfoFilter(pattern, SearchEngine.createWorkspaceScope(), IJavaSearchConstants.TYPE, null);
+		index.search(filter, new TypeNameMatchRequestor() {
+			@Override
+			public void acceptTypeNameMatch(TypeNameMatch match) {
+				result.add(match.getFullyQualifiedName());
+			}
+		}, null);
+		return result;
+	}
+
+	private static void assertTypes(List<String> result) {
+		assertTrue(result.toString(), result.contains("com.oti.V"));
+		assertTrue(result.toString(), result.contains("com.oti.V.VInner"));
+		assertTrue(result.toString(), result.contains("java.util.Vector"));
+		assertFalse(result.toString(), result.contains("java.lang.Object"));
+	}
+
+	/**
+	 * @return the index file with the highest generation, or <code>null</code> if there is none
+	 */
+	private File getNewestFile() {
+		File newest= null;
+		long newestGeneration= 0;
+		String[] names= fDirectory.list();
+		for (int i= 0; i < names.length; i++) {
+			String name= names[i];
+			if (!name.startsWith("TypeNameIndex.") || !name.endsWith(".bin"))
+				continue;
+			long generation= Long.parseLong(name.substring("TypeNameIndex.".length(), name.length() - ".bin".length()));
+			if (generation > newestGeneration) {
+				newestGeneration= generation;
+				newest= new File(fDirectory, name);
+			}
+		}
+		return newest;
+	}
+
+	private File createStoredIndex() throws JavaModelException {
+		TypeNameIndex index= new TypeNameIndex(fDirectory);
+		try {
+			assertTypes(search(index, "V"));
+		} finally {
+			index.dispose();
+		}
+		File file= getNewestFile();
+		assertNotNull(file);
+		return file;
+	}
+
+	public void testSearch() throws Exception {
+		TypeNameIndex index= new TypeNameIndex(fDirectory);
+		try {
+			assertTypes(search(index, "V"));
+			assertTypes(search(index, "v"));
+			List<String> result= search(index, "VInn");
+			assertTrue(result.toString(), result.contains("com.oti.V.VInner"));
+			assertFalse(result.toString(), result.contains("com.oti.V"));
+		} finally {
+			index.dispose();
+		}
+	}
+
+	public void testFileFormat() throws Exception {
+		File file= createStoredIndex();
+		try (DataInputStream in= new DataInputStream(new FileInputStream(file))) {
+			assertEquals(MAGIC, in.readInt());
+			assertEquals(1, in.readInt());
+			int rootCount= in.readInt();
+			boolean hasSourceFolder= false;
+			for (int i= 0; i < rootCount; i++) {
+				String key= in.readUTF();
+				in.readUTF();
+				long stamp= in.readLong();
+				if (key.startsWith("/TestProject1/src!")) {
+					hasSourceFolder= true;
+					// changes of source folders are not detected from outside the workbench
+					assertEquals(-1, stamp);
+				}
+			}
+			assertTrue(hasSourceFolder);
+			int packageCount= in.readInt();
+			List<String> packages= new ArrayList<>();
+			for (int i= 0; i < packageCount; i++)
+				packages.add(in.readUTF());
+			assertTrue(packages.toString(), packages.contains("com.oti"));
+			assertTrue(packages.toString(), packages.contains("java.util"));
+			int count= in.readInt();
+			int characters= in.readInt();
+			assertTrue(count > 0);
+			// the table of types and the character area fill the rest of the file
+			assertEquals((long) count * 24 + characters, in.available());
+		}
+	}
+
+	public void testReload() throws Exception {
+		createStoredIndex();
+
+		TypeNameIndex index= new TypeNameIndex(fDirectory);
+		try {
+			assertTypes(search(index, "V"));
+		} finally {
+			index.dispose();
+		}
+	}
+
+	public void testNewGeneration() throws Exception {
+		File first= createStoredIndex();
+
+		TypeNameIndex index= new TypeNameIndex(fDirectory);
+		try {
+			// re-indexes the source folder
+			assertTypes(search(index, "V"));
+		} finally {
+			index.dispose();
+		}
+		File second= getNewestFile();
+		assertFalse(first.getName().equals(second.getName()));
+
+		index= new TypeNameIndex(fDirectory);
+		try {
+			assertTypes(search(index, "V"));
+		} finally {
+			index.dispose();
+		}
+	}
+
+	public void testRecoverFromTruncatedFile() throws Exception {
+		File stored= createStoredIndex();
+		// the stored file may still be mapped, write the truncated copy as the next generation
+		byte[] bytes= new byte[(int) stored.length() / 2];
+		try (DataInputStream in= new DataInputStream(new FileInputStream(stored))) {
+			in.readFully(bytes);
+		}
+		File file= new File(fDirectory, "TypeNameIndex.2.bin");
+		try (FileOutputStream out= new FileOutputStream(file)) {
+			out.write(bytes);
+		}
+
+		TypeNameIndex index= new TypeNameIndex(fDirectory);
+		try {
+			assertTypes(search(index, "V"));
+		} finally {
+			index.dispose();
+		}
+		File recovered= getNewestFile();
+		assertFalse(file.getName().equals(recovered.getName()));
+		try (DataInputStream in= new DataInputStream(new FileInputStream(recovered))) {
+			assertEquals(MAGIC, in.readInt());
+		}
+	}
+
+	public void testRecoverFromCorruptFile() throws Exception {
+		File file= new File(fDirectory, "TypeNameIndex.1.bin");
+		try (FileOutputStream out= new FileOutputStream(file)) {
+			out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+		}
+
+		TypeNameIndex index= new TypeNameIndex(fDirectory);
+		try {
+			assertTypes(search(index, "V"));
+		} finally {
+			index.dispose();
+		}
+		assertEquals("TypeNameIndex.2.bin", getNewestFile().getName());
+	}
+
+	public void testDeletesTemporaryFiles() throws IOException, JavaModelException {
+		File temporary= new File(fDirectory, "TypeNameIndex.5.tmp");
+		try (FileOutputStream out= new FileOutputStream(temporary)) {
+			out.write(new byte[] { 1, 2, 3 });
+		}
+		createStoredIndex();
+		assertFalse(temporary.exists());
+		assertEquals("TypeNameIndex.1.bin", getNewestFile().getName());
+	}
+}
@@ -23,6 +23,7 @@ package org.eclipse.jdt.ui.tests.jarexport;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -805,6 +806,25 @@ public class FatJarExportTests extends TestCase {
 		}
 	}
 
+	public void testJarInJarStoresLibraries() throws Exception {
+		File lib= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.MYLIB_STDOUT);
+		IPackageFragmentRoot root= JavaProjectHelper.addLibrary(fProject, Path.fromOSString(lib.getPath()));
+
+		try {
+			// the nested archives are stored even if the JAR is compressed
+			JarPackageData data= createAndRunFatJar(fProject, getName(), true, new PackageLibraryHandler());
+			ZipFile jar= JarPackagerUtil.getArchiveFile(data.getJarLocation());
+			try {
+				PlainJarExportTests.assertStoredEntry(jar, "mylib_stdout.jar", Files.readAllBytes(lib.toPath())); //$NON-NLS-1$
+				assertEquals(ZipEntry.DEFLATED, jar.getEntry("org/eclipse/jdt/ui/test/Main.class").getMethod()); //$NON-NLS-1$
+			} finally {
+				jar.close();
+			}
+		} finally {
+			JavaProjectHelper.removeFromClasspath(fProject, root.getPath());
+		}
+	}
+
 	public void testExportInternalLib() throws Exception {
 		File lib= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.MYLIB_STDOUT);
 		IPackageFragmentRoot root= JavaProjectHelper.addLibraryWithImport(fProject, Path.fromOSString(lib.getPath()), null, null);
@@ -13,13 +13,23 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.jarexport;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarInputStream;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -30,6 +40,8 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.resources.ResourcesPlugin;
 
 import org.eclipse.ui.IWorkbenchWindow;
@@ -47,6 +59,7 @@ import org.eclipse.jdt.ui.jarpackager.IJarExportRunnable;
 import org.eclipse.jdt.ui.jarpackager.JarPackageData;
 import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
 
+import org.eclipse.jdt.internal.ui.jarpackager.JarExportIndex;
 import org.eclipse.jdt.internal.ui.jarpackager.JarPackagerUtil;
 
 import junit.framework.Test;
@@ -160,6 +173,184 @@ public class PlainJarExportTests extends TestCase {
 		assertEquals(expected.toString(), entries.toString());
 	}
 
+	public void testIncrementalExport() throws Exception {
+		checkIncrementalExport(false);
+	}
+
+	public void testIncrementalExportWithDirectoryEntries() throws Exception {
+		checkIncrementalExport(true);
+	}
+
+	/**
+	 * Re-exports a JAR file incrementally after a type has been changed, a package has been added
+	 * and another one removed, and compares the JAR file with a complete export.
+	 *
+	 * @param directoryEntries whether directory entries are included
+	 * @throws Exception if the export fails
+	 */
+	private void checkIncrementalExport(boolean directoryEntries) throws Exception {
+		IPackageFragment removed= fMainRoot.createPackageFragment("org.eclipse.jdt.ui.test.removed", true, null);
+		removed.createCompilationUnit("Removed.java", "package org.eclipse.jdt.ui.test.removed;\npublic class Removed {\n}\n", true, null);
+		buildWorkspace();
+
+		JarPackageData data= createJarPackageData();
+		data.setElements(new Object[] { fMainRoot });
+		data.setIncludeDirectoryEntries(directoryEntries);
+		data.setIncrementalExport(true);
+		createArchive(data).close();
+		File jarFile= data.getAbsoluteJarLocation().toFile();
+		assertTrue(JarExportIndex.getIndexFile(jarFile).isFile());
+
+		StringBuffer buf= new StringBuffer();
+		buf.append("package org.eclipse.jdt.ui.test;\n");
+		buf.append("public class Main {\n");
+		buf.append("    public static void main(String[] args) {\n");
+		buf.append("        System.out.println(new Main());\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		fCU= fMainRoot.getPackageFragment("org.eclipse.jdt.ui.test").createCompilationUnit("Main.java", buf.toString(), true, null);
+		IPackageFragment added= fMainRoot.createPackageFragment("org.eclipse.jdt.ui.test.added", true, null);
+		added.createCompilationUnit("Added.java", "package org.eclipse.jdt.ui.test.added;\npublic class Added {\n}\n", true, null);
+		removed.delete(true, null);
+		buildWorkspace();
+
+		ZipFile jar= createArchive(data);
+		Map<String, String> incremental= getEntryContents(jar);
+		jar.close();
+		assertTrue(JarExportIndex.getIndexFile(jarFile).isFile());
+
+		data.setIncrementalExport(false);
+		data.setJarLocation(data.getJarLocation().removeLastSegments(1).append(getName() + "_full.jar"));
+		jar= createArchive(data);
+		Map<String, String> full= getEntryContents(jar);
+		jar.close();
+
+		assertTrue(incremental.toString(), incremental.containsKey("org/eclipse/jdt/ui/test/added/Added.class"));
+		assertFalse(incremental.toString(), incremental.containsKey("org/eclipse/jdt/ui/test/removed/Removed.class"));
+		assertFalse(incremental.toString(), incremental.containsKey("org/eclipse/jdt/ui/test/Main$MainInner.class"));
+		if (!directoryEntries) {
+			// the zip file system adds directory entries for new packages
+			removeDirectories(incremental);
+			assertEquals(full.size(), removeDirectories(new TreeMap<>(full)).size());
+		}
+		assertEquals(full, incremental);
+		assertManifestFirst(jarFile);
+	}
+
+	public void testStoredEntries() throws Exception {
+		byte[] small= "small resource\n".getBytes(StandardCharsets.US_ASCII);
+		// too large to be read into memory, the CRC is calculated in a first pass
+		byte[] large= new byte[JarPackagerUtil.MAX_BUFFERED_CONTENT_SIZE + 1];
+		for (int i= 0; i < large.length; i++)
+			large[i]= (byte) (i * 31 + i / 7);
+		IFile smallFile= fProject.getProject().getFile("small.txt");
+		smallFile.create(new ByteArrayInputStream(small), true, null);
+		IFile largeFile= fProject.getProject().getFile("large.bin");
+		largeFile.create(new ByteArrayInputStream(large), true, null);
+		try {
+			JarPackageData data= createJarPackageData();
+			data.setElements(new Object[] { fCU.getResource(), smallFile, largeFile });
+			data.setExportClassFiles(true);
+			data.setCompress(false);
+
+			ZipFile jar= createArchive(data);
+			try {
+				assertStoredEntry(jar, "small.txt", small);
+				assertStoredEntry(jar, "large.bin", large);
+				ZipEntry classEntry= jar.getEntry("org/eclipse/jdt/ui/test/Main.class");
+				assertNotNull(classEntry);
+				File classFile= ResourcesPlugin.getWorkspace().getRoot().getFile(fProject.getOutputLocation().append("org/eclipse/jdt/ui/test/Main.class")).getLocation().toFile();
+				assertStoredEntry(jar, classEntry.getName(), Files.readAllBytes(classFile.toPath()));
+			} finally {
+				jar.close();
+			}
+		} finally {
+			smallFile.delete(true, null);
+			largeFile.delete(true, null);
+		}
+	}
+
+	/**
+	 * Asserts that an entry is stored uncompressed with the size and CRC of its content.
+	 *
+	 * @param jar the JAR file
+	 * @param name the name of the entry
+	 * @param expected the expected content
+	 * @throws IOException if the entry cannot be read
+	 */
+	static void assertStoredEntry(ZipFile jar, String name, byte[] expected) throws IOException {
+		ZipEntry entry= jar.getEntry(name);
+		assertNotNull(name, entry);
+		assertEquals(name, ZipEntry.STORED, entry.getMethod());
+		assertEquals(name, expected.length, entry.getSize());
+		assertEquals(name, expected.length, entry.getCompressedSize());
+		CRC32 crc= new CRC32();
+		crc.update(expected);
+		assertEquals(name, crc.getValue(), entry.getCrc());
+
+		byte[] content= new byte[expected.length];
+		try (InputStream in= jar.getInputStream(entry)) {
+			int offset= 0;
+			int count;
+			while (offset < content.length && (count= in.read(content, offset, content.length - offset)) != -1)
+				offset+= count;
+			assertEquals(name, content.length, offset);
+			assertEquals(name, -1, in.read());
+		}
+		assertTrue(name, Arrays.equals(expected, content));
+	}
+
+	public void testIncrementalExportAddsManifest() throws Exception {
+		JarPackageData data= createJarPackageData();
+		data.setElements(new Object[] { fCU });
+		data.setUsesManifest(false);
+		data.setIncrementalExport(true);
+		ZipFile jar= createArchive(data);
+		assertFalse(getEntryContents(jar).containsKey("META-INF/MANIFEST.MF"));
+		jar.close();
+
+		data.setUsesManifest(true);
+		jar= createArchive(data);
+		assertTrue(getEntryContents(jar).containsKey("META-INF/MANIFEST.MF"));
+		jar.close();
+		assertManifestFirst(data.getAbsoluteJarLocation().toFile());
+	}
+
+	private static void buildWorkspace() throws CoreException {
+		ResourcesPlugin.getWorkspace().build(IncrementalProjectBuilder.INCREMENTAL_BUILD, null);
+	}
+
+	private static void assertManifestFirst(File jarFile) throws IOException {
+		try (JarInputStream in= new JarInputStream(new FileInputStream(jarFile))) {
+			// only found at the beginning of the JAR file
+			assertNotNull(in.getManifest());
+		}
+	}
+
+	private static Map<String, String> getEntryContents(ZipFile jar) throws IOException {
+		Map<String, String> contents= new TreeMap<>();
+		for (Enumeration<? extends ZipEntry> entriesEnum= jar.entries(); entriesEnum.hasMoreElements(); ) {
+			ZipEntry entry= entriesEnum.nextElement();
+			StringBuffer content= new StringBuffer();
+			try (InputStream in= jar.getInputStream(entry)) {
+				byte[] buffer= new byte[4096];
+				int count;
+				while ((count= in.read(buffer)) != -1)
+					content.append(new String(buffer, 0, count, StandardCharsets.ISO_8859_1));
+			}
+			contents.put(entry.getName(), content.toString());
+		}
+		return contents;
+	}
+
+	private static Map<String, String> removeDirectories(Map<String, String> contents) {
+		for (Iterator<String> iter= contents.keySet().iterator(); iter.hasNext();) {
+			if (iter.next().endsWith("/"))
+				iter.remove();
+		}
+		return contents;
+	}
+
 	private JarPackageData createJarPackageData() {
 		JarPackageData data= new JarPackageData();
 		data.setJarLocation(ResourcesPlugin.getWorkspace().getRoot().getLocation().append(getName() + ".jar"));
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.packageHover;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaTestPlugin;
+
+import org.eclipse.jdt.core.IJavaElement;
+
+import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
+
+import org.eclipse.jdt.internal.ui.text.javadoc.AttachedJavadocIndex;
+
+/**
+ * Tests the index file of {@link AttachedJavadocIndex}.
+ */
+public class AttachedJavadocIndexTest extends TestCase {
+
+	private static final Class<AttachedJavadocIndexTest> THIS= AttachedJavadocIndexTest.class;
+
+	/** The magic number of the index file */
+	private static final int MAGIC= 0x4A444958;
+
+	private static final String ID= "/lib.jar\nfile:/doc/";
+
+	private static final String OBJECT_KEY= "Ljava/lang/Object;";
+
+	private static final String STRING_KEY= "Ljava/lang/String;";
+
+	private static final String INTEGER_KEY= "Ljava/lang/Integer;";
+
+	private File fDirectory;
+
+	private File fIndexFile;
+
+	private File fJavadoc;
+
+	/** An element without attached Javadoc */
+	private IJavaElement fElement;
+
+	public AttachedJavadocIndexTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fDirectory= new File(JavaTestPlugin.getDefault().getStateLocation().toFile(), "AttachedJavadocIndexTest");
+		deleteFiles();
+		fJavadoc= new File(fDirectory, "doc");
+		fJavadoc.mkdirs();
+		fIndexFile= new File(fDirectory, "lib.idx");
+		fElement= ProjectTestSetup.getProject().findType("java.lang.Object");
+		assertNotNull(fElement);
+		assertNull(fElement.getAttachedJavadoc(null));
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		deleteFiles();
+	}
+
+	private void deleteFiles() {
+		File[] files= fDirectory.listFiles();
+		if (files != null) {
+			for (int i= 0; i < files.length; i++)
+				files[i].delete();
+		}
+		fDirectory.delete();
+	}
+
+	private AttachedJavadocIndex.Library createLibrary() {
+		return new AttachedJavadocIndex.Library(ID, fIndexFile, fJavadoc);
+	}
+
+	private static void writeRecord(DataOutputStream out, String key, String javadoc) throws IOException {
+		byte[] keyBytes= key.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(keyBytes.length);
+		out.write(keyBytes);
+		if (javadoc != null) {
+			byte[] javadocBytes= javadoc.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(javadocBytes.length);
+			out.write(javadocBytes);
+		} else {
+			out.writeInt(-1);
+		}
+	}
+
+	private static void assertRecord(DataInputStream in, String key, String javadoc) throws IOException {
+		byte[] keyBytes= new byte[in.readInt()];
+		in.readFully(keyBytes);
+		assertEquals(key, new String(keyBytes, StandardCharsets.UTF_8));
+		int length= in.readInt();
+		if (javadoc != null) {
+			byte[] javadocBytes= new byte[length];
+			in.readFully(javadocBytes);
+			assertEquals(javadoc, new String(javadocBytes, StandardCharsets.UTF_8));
+		} else {
+			assertEquals(-1, length);
+		}
+	}
+
+	/**
+	 * @return the length of the header of the index file
+	 */
+	private static int getHeaderLength() {
+		return 20 + ID.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	public void testRecordFormat() throws Exception {
+		assertNull(createLibrary().getJavadoc(OBJECT_KEY, fElement));
+
+		try (DataInputStream in= new DataInputStream(new FileInputStream(fIndexFile))) {
+			assertEquals(MAGIC, in.readInt());
+			assertEquals(1, in.readInt());
+			byte[] id= new byte[in.readInt()];
+			in.readFully(id);
+			assertEquals(ID, new String(id, StandardCharsets.UTF_8));
+			in.readLong(); // the stamp of the Javadoc folder
+			assertRecord(in, OBJECT_KEY, null);
+			assertEquals(0, in.available());
+		}
+
+		try (DataOutputStream out= new DataOutputStream(new FileOutputStream(fIndexFile, true))) {
+			writeRecord(out, STRING_KEY, "<p>The String class</p>");
+		}
+		// read from the index, the element has no attached Javadoc
+		AttachedJavadocIndex.Library library= createLibrary();
+		assertEquals("<p>The String class</p>", library.getJavadoc(STRING_KEY, fElement));
+		assertNull(library.getJavadoc(OBJECT_KEY, fElement));
+	}
+
+	public void testRecoverFromTruncatedRecord() throws Exception {
+		assertNull(createLibrary().getJavadoc(OBJECT_KEY, fElement));
+		try (DataOutputStream out= new DataOutputStream(new FileOutputStream(fIndexFile, true))) {
+			writeRecord(out, STRING_KEY, "<p>The String class</p>");
+		}
+		long completeLength= fIndexFile.length();
+		try (DataOutputStream out= new DataOutputStream(new FileOutputStream(fIndexFile, true))) {
+			byte[] keyBytes= INTEGER_KEY.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(keyBytes.length);
+			out.write(keyBytes);
+			out.writeInt(100);
+			out.write(new byte[10]);
+		}
+
+		AttachedJavadocIndex.Library library= createLibrary();
+		assertEquals("<p>The String class</p>", library.getJavadoc(STRING_KEY, fElement));
+		// the incomplete record is replaced while the file is mapped
+		assertNull(library.getJavadoc(INTEGER_KEY, fElement));
+
+		byte[] integerKey= INTEGER_KEY.getBytes(StandardCharsets.UTF_8);
+		assertEquals(completeLength + 8 + integerKey.length, fIndexFile.length());
+		try (DataInputStream in= new DataInputStream(new FileInputStream(fIndexFile))) {
+			assertEquals(getHeaderLength(), in.skipBytes(getHeaderLength()));
+			assertRecord(in, OBJECT_KEY, null);
+			assertRecord(in, STRING_KEY, "<p>The String class</p>");
+			assertRecord(in, INTEGER_KEY, null);
+			assertEquals(0, in.available());
+		}
+
+		library= createLibrary();
+		assertEquals("<p>The String class</p>", library.getJavadoc(STRING_KEY, fElement));
+		assertNull(library.getJavadoc(INTEGER_KEY, fElement));
+		assertEquals(completeLength + 8 + integerKey.length, fIndexFile.length());
+	}
+
+	public void testAppendedRecordsAreNotRemappedEachTime() throws Exception {
+		assertNull(createLibrary().getJavadoc(OBJECT_KEY, fElement));
+		try (DataOutputStream out= new DataOutputStream(new FileOutputStream(fIndexFile, true))) {
+			writeRecord(out, STRING_KEY, "<p>The String class</p>");
+		}
+		AttachedJavadocIndex.Library library= createLibrary();
+		assertEquals("<p>The String class</p>", library.getJavadoc(STRING_KEY, fElement));
+		int mappedLength= library.getMappedLength();
+		assertEquals(fIndexFile.length(), mappedLength);
+
+		StringBuilder padding= new StringBuilder();
+		for (int i= 0; i < 200; i++)
+			padding.append('x');
+		int remaps= 0;
+		int records= 500; // about 100 KiB
+		for (int i= 0; i < records; i++) {
+			String key= "Lp/T" + i + padding + ";";
+			assertNull(library.getJavadoc(key, fElement)); // appended
+			assertNull(library.getJavadoc(key, fElement)); // read from the index
+			if (library.getMappedLength() != mappedLength) {
+				mappedLength= library.getMappedLength();
+				remaps++;
+			}
+		}
+		assertTrue(remaps > 0);
+		assertTrue(remaps <= 2);
+		assertEquals("<p>The String class</p>", library.getJavadoc(STRING_KEY, fElement));
+
+		// all records are read from the index in the next session
+		library= createLibrary();
+		assertEquals("<p>The String class</p>", library.getJavadoc(STRING_KEY, fElement));
+		long length= fIndexFile.length();
+		for (int i= 0; i < records; i++)
+			assertNull(library.getJavadoc("Lp/T" + i + padding + ";", fElement));
+		assertEquals(length, fIndexFile.length());
+	}
+}
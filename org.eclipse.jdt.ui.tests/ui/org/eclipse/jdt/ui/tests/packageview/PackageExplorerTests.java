@@ -33,6 +33,7 @@ public class PackageExplorerTests {
 		suite.addTestSuite(WorkingSetDropAdapterTest.class);
 		suite.addTest(HierarchicalContentProviderTests.suite());
 		suite.addTestSuite(PackageCacheTest.class);
+		suite.addTestSuite(ProblemMarkerManagerTest.class);
 		//$JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.packageview;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jdt.testplugin.util.DisplayHelper;
+
+import org.eclipse.swt.widgets.Display;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.internal.ui.viewsupport.IProblemChangedListener;
+import org.eclipse.jdt.internal.ui.viewsupport.ProblemMarkerManager;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the notifications of {@link ProblemMarkerManager}.
+ */
+public class ProblemMarkerManagerTest extends TestCase {
+
+	/** The maximal number of resources passed to the listeners at a time */
+	private static final int SLICE_SIZE= 500;
+
+	/** The time in milliseconds to wait for notifications */
+	private static final long TIMEOUT= 10000;
+
+	private final List<IResource[]> fNotifications= new ArrayList<>();
+
+	private final IProblemChangedListener fListener= new IProblemChangedListener() {
+		@Override
+		public void problemsChanged(IResource[] changedResources, boolean isMarkerChange) {
+			if (isMarkerChange)
+				fNotifications.add(changedResources);
+		}
+	};
+
+	private ProblemMarkerManager fManager;
+
+	private IProject fProject;
+
+	private IFolder fFolder;
+
+	@Override
+	protected void setUp() throws Exception {
+		fProject= ResourcesPlugin.getWorkspace().getRoot().getProject(getClass().getSimpleName());
+		fProject.create(null);
+		fProject.open(null);
+		fFolder= fProject.getFolder("folder");
+		fFolder.create(true, true, null);
+		fManager= new ProblemMarkerManager();
+		fManager.addListener(fListener);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fManager.removeListener(fListener);
+		fProject.delete(true, true, null);
+	}
+
+	private IFile createFile(IFolder folder, String name) throws CoreException {
+		IFile file= folder.getFile(name);
+		file.create(new ByteArrayInputStream(new byte[0]), true, null);
+		return file;
+	}
+
+	private static IMarker createProblem(IResource resource, int severity) throws CoreException {
+		IMarker marker= resource.createMarker(IMarker.PROBLEM);
+		marker.setAttribute(IMarker.SEVERITY, severity);
+		return marker;
+	}
+
+	private Set<IResource> getNotifiedResources() {
+		Set<IResource> resources= new HashSet<>();
+		for (int i= 0; i < fNotifications.size(); i++)
+			resources.addAll(Arrays.asList(fNotifications.get(i)));
+		return resources;
+	}
+
+	private void waitForNotification(final IResource resource) {
+		boolean notified= new DisplayHelper() {
+			@Override
+			protected boolean condition() {
+				return getNotifiedResources().contains(resource);
+			}
+		}.waitForCondition(Display.getDefault(), TIMEOUT);
+		assertTrue("no notification for " + resource, notified);
+		// notifications of the same aggregation may still be queued
+		DisplayHelper.sleep(Display.getDefault(), 300);
+	}
+
+	public void testContainersAreReportedWhenTheirSeverityChanges() throws Exception {
+		IFile a= createFile(fFolder, "a.txt");
+		IFile b= createFile(fFolder, "b.txt");
+		waitForNotification(b);
+
+		fNotifications.clear();
+		IMarker error= createProblem(a, IMarker.SEVERITY_ERROR);
+		waitForNotification(a);
+		Set<IResource> resources= getNotifiedResources();
+		assertTrue(resources.contains(fFolder));
+		assertTrue(resources.contains(fProject));
+
+		// the folder still has an error
+		fNotifications.clear();
+		createProblem(b, IMarker.SEVERITY_WARNING);
+		waitForNotification(b);
+		resources= getNotifiedResources();
+		assertFalse(resources.contains(fFolder));
+		assertFalse(resources.contains(fProject));
+
+		fNotifications.clear();
+		error.delete();
+		waitForNotification(a);
+		resources= getNotifiedResources();
+		assertTrue(resources.contains(fFolder));
+		assertTrue(resources.contains(fProject));
+	}
+
+	public void testDirectMemberSeverity() throws Exception {
+		IFolder sub= fFolder.getFolder("sub");
+		sub.create(true, true, null);
+		IFile nested= createFile(sub, "nested.txt");
+		IFile direct= createFile(fFolder, "direct.txt");
+		waitForNotification(direct);
+
+		fNotifications.clear();
+		createProblem(nested, IMarker.SEVERITY_ERROR);
+		waitForNotification(nested);
+		assertTrue(getNotifiedResources().contains(fFolder));
+
+		// the maximal severity of the direct members of the folder changes, which is shown in the flat layout
+		fNotifications.clear();
+		createProblem(direct, IMarker.SEVERITY_ERROR);
+		waitForNotification(direct);
+		Set<IResource> resources= getNotifiedResources();
+		assertTrue(resources.contains(fFolder));
+		assertFalse(resources.contains(sub));
+		assertFalse(resources.contains(fProject));
+	}
+
+	public void testChangesAreCoalesced() throws Exception {
+		IFile file= createFile(fFolder, "a.txt");
+		waitForNotification(file);
+
+		fNotifications.clear();
+		int changes= 20;
+		for (int i= 0; i < changes; i++)
+			createProblem(file, IMarker.SEVERITY_WARNING);
+		waitForNotification(file);
+		int notifications= 0;
+		for (int i= 0; i < fNotifications.size(); i++) {
+			if (Arrays.asList(fNotifications.get(i)).contains(file))
+				notifications++;
+		}
+		assertTrue(notifications < changes);
+	}
+
+	public void testNotificationsAreSliced() throws Exception {
+		final int count= 2 * SLICE_SIZE + 100;
+		final IFile[] files= new IFile[count];
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			@Override
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (int i= 0; i < count; i++) {
+					files[i]= createFile(fFolder, "file" + i + ".txt");
+					createProblem(files[i], IMarker.SEVERITY_WARNING);
+				}
+			}
+		}, null);
+
+		boolean notified= new DisplayHelper() {
+			@Override
+			protected boolean condition() {
+				return getNotifiedResources().containsAll(Arrays.asList(files));
+			}
+		}.waitForCondition(Display.getDefault(), TIMEOUT);
+		assertTrue(notified);
+		assertTrue(fNotifications.size() >= 3);
+		for (int i= 0; i < fNotifications.size(); i++)
+			assertTrue(fNotifications.get(i).length <= SLICE_SIZE);
+	}
+}
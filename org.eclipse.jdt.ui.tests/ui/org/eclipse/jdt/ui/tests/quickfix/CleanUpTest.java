@@ -43,6 +43,7 @@ import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
 
 import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
 import org.eclipse.jdt.internal.corext.fix.CleanUpConstants;
+import org.eclipse.jdt.internal.corext.fix.CleanUpRefactoring;
 import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
 
 import org.eclipse.jdt.ui.PreferenceConstants;
@@ -9245,4 +9246,46 @@ public class CleanUpTest extends CleanUpTestCase {
 
 	}
 
+	public void testParallelExecution() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E {\n");
+		buf.append("    public void foo() {}\n");
+		buf.append("}\n");
+		pack1.createCompilationUnit("E.java", buf.toString(), false, null);
+
+		ICompilationUnit[] cus= new ICompilationUnit[80];
+		String[] expected= new String[cus.length];
+		for (int i= 0; i < cus.length; i++) {
+			buf= new StringBuffer();
+			buf.append("package test1;\n");
+			buf.append("public class E" + i + " extends E {\n");
+			buf.append("    public void foo() {}\n");
+			buf.append("}\n");
+			cus[i]= pack1.createCompilationUnit("E" + i + ".java", buf.toString(), false, null);
+
+			buf= new StringBuffer();
+			buf.append("package test1;\n");
+			buf.append("public class E" + i + " extends E {\n");
+			buf.append("    @Override\n");
+			buf.append("    public void foo() {}\n");
+			buf.append("}\n");
+			expected[i]= buf.toString();
+		}
+
+		enable(CleanUpConstants.ADD_MISSING_ANNOTATIONS);
+		enable(CleanUpConstants.ADD_MISSING_ANNOTATIONS_OVERRIDE);
+
+		CleanUpRefactoring ref= new CleanUpRefactoring();
+		ref.setUseOptionsFromProfile(true);
+		// the fixes need the bindings of the ASTs created on the worker threads
+		ref.setParallelism(3);
+		performRefactoring(ref, cus, JavaPlugin.getDefault().getCleanUpRegistry().createCleanUps());
+
+		for (int i= 0; i < cus.length; i++) {
+			assertEqualString(cus[i].getBuffer().getContents(), expected[i]);
+		}
+	}
+
 }
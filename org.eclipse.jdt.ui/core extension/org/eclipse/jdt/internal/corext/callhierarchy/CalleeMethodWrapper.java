@@ -49,15 +49,12 @@ class CalleeMethodWrapper extends MethodWrapper {
         super(parent, methodCall);
     }
 
-	/* Returns the calls sorted after the call location
-	 * @see org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper#getCalls()
+	/* Sorts the calls after the call location, also when they are streamed to a collector
+	 * @see org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper#sortCalls(MethodWrapper[])
      */
     @Override
-	public MethodWrapper[] getCalls(IProgressMonitor progressMonitor) {
-        MethodWrapper[] result = super.getCalls(progressMonitor);
-        Arrays.sort(result, fMethodWrapperComparator);
-
-        return result;
+	protected void sortCalls(MethodWrapper[] calls) {
+        Arrays.sort(calls, fMethodWrapperComparator);
     }
 
     @Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,7 @@ package org.eclipse.jdt.internal.corext.callhierarchy;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -98,9 +99,17 @@ public class CallerMethodWrapper extends MethodWrapper {
 	 */
 	@Override
 	protected Map<String, MethodCall> findChildren(IProgressMonitor progressMonitor) {
+		return findChildren(progressMonitor, null);
+	}
+
+	/*
+	 * @see org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper#findChildren(org.eclipse.core.runtime.IProgressMonitor, org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper.CallStream)
+	 */
+	@Override
+	Map<String, MethodCall> findChildren(IProgressMonitor progressMonitor, final CallStream stream) {
 		try {
 
-			IProgressMonitor monitor= new SubProgressMonitor(progressMonitor, 95, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL);
+			final IProgressMonitor monitor= new SubProgressMonitor(progressMonitor, 95, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL);
 
 			checkCanceled(progressMonitor);
 
@@ -137,8 +146,8 @@ public class CallerMethodWrapper extends MethodWrapper {
 							SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
 				}
 			}
+			int limitTo= IJavaSearchConstants.REFERENCES;
 			if (pattern == null) {
-				int limitTo= IJavaSearchConstants.REFERENCES;
 				if (member.getElementType() == IJavaElement.FIELD)
 					limitTo= getFieldSearchMode();
 				pattern= SearchPattern.createPattern(member, limitTo, SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
@@ -147,14 +156,23 @@ public class CallerMethodWrapper extends MethodWrapper {
 				return new HashMap<>(0);
 			}
 
-			SearchEngine searchEngine= new SearchEngine();
-			MethodReferencesSearchRequestor searchRequestor= new MethodReferencesSearchRequestor();
+			final SearchPattern searchPattern= pattern;
 			IJavaSearchScope defaultSearchScope= getSearchScope();
 			boolean isWorkspaceScope= SearchEngine.createWorkspaceScope().equals(defaultSearchScope);
-			IJavaSearchScope searchScope= isWorkspaceScope ? getAccurateSearchScope(defaultSearchScope, member) : defaultSearchScope;
-			searchEngine.search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() }, searchScope, searchRequestor,
-					monitor);
-			return searchRequestor.getCallers();
+			final IJavaSearchScope searchScope= isWorkspaceScope ? getAccurateSearchScope(defaultSearchScope, member) : defaultSearchScope;
+
+			// searches for the same member, e.g. from different branches of the hierarchy, are only performed once
+			CallerSearchCache.Key key= new CallerSearchCache.Key(member, limitTo, defaultSearchScope);
+			return CallerSearchCache.getDefault().get(key, new Callable<Map<String, MethodCall>>() {
+				@Override
+				public Map<String, MethodCall> call() throws CoreException {
+					SearchEngine searchEngine= new SearchEngine();
+					MethodReferencesSearchRequestor searchRequestor= new MethodReferencesSearchRequestor(stream);
+					searchEngine.search(searchPattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() }, searchScope, searchRequestor,
+							monitor);
+					return searchRequestor.getCallers();
+				}
+			}, progressMonitor);
 
 		} catch (CoreException e) {
 			JavaPlugin.log(e);
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Memoizes the results of caller searches across all call hierarchies.
+ * <p>
+ * Concurrent requests for the same search are answered by a single search: the first requester
+ * performs it, the others wait for its result. Results are kept until the Java model changes in
+ * a way which may add or remove call sites, or the call hierarchy filters are modified.
+ * </p>
+ * <p>
+ * An edit confined to the bodies of a compilation unit only removes the results which contain a
+ * caller in that unit, or whose member is mentioned by name in that unit. Any other change
+ * removes all results.
+ * </p>
+ *
+ * @since 3.18
+ */
+final class CallerSearchCache {
+
+	/**
+	 * Identifies a caller search.
+	 */
+	static final class Key {
+
+		private final String fHandleIdentifier;
+
+		/** The simple name of the member, used to find units which may call it */
+		private final String fName;
+
+		private final int fLimitTo;
+
+		private final IJavaSearchScope fScope;
+
+		Key(IMember member, int limitTo, IJavaSearchScope scope) {
+			fHandleIdentifier= member.getHandleIdentifier();
+			fName= member.getElementName();
+			fLimitTo= limitTo;
+			fScope= scope;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other= (Key) obj;
+			return fLimitTo == other.fLimitTo && fHandleIdentifier.equals(other.fHandleIdentifier) && fScope.equals(other.fScope);
+		}
+
+		@Override
+		public int hashCode() {
+			return fHandleIdentifier.hashCode() * 31 + fLimitTo;
+		}
+	}
+
+	/** The maximal number of memoized searches */
+	private static final int MAX_ENTRIES= 1000;
+
+	/** Flags of a compilation unit delta which do not change its contents */
+	private static final int NO_CONTENT_DELTA_FLAGS= IJavaElementDelta.F_PRIMARY_WORKING_COPY | IJavaElementDelta.F_PRIMARY_RESOURCE;
+
+	/** Flags of a compilation unit delta which only change bodies if no children are affected */
+	private static final int BODY_DELTA_FLAGS= IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_FINE_GRAINED | IJavaElementDelta.F_AST_AFFECTED | NO_CONTENT_DELTA_FLAGS;
+
+	/** The interval in milliseconds in which waiting requesters check for cancellation */
+	private static final long POLL_INTERVAL= 100;
+
+	private static final CallerSearchCache fgDefault= new CallerSearchCache();
+
+	/**
+	 * Returns the shared caller search cache.
+	 *
+	 * @return the shared caller search cache
+	 */
+	static CallerSearchCache getDefault() {
+		return fgDefault;
+	}
+
+	/** The running and completed searches */
+	private final Map<Key, FutureTask<Map<String, MethodCall>>> fSearches= new ConcurrentHashMap<>();
+
+	/** The element changed listener, or <code>null</code> if not registered */
+	private IElementChangedListener fListener;
+
+	private CallerSearchCache() {
+		// Singleton
+	}
+
+	/**
+	 * Returns the result of the given search. If the search is neither memoized nor running, it
+	 * is performed in the calling thread.
+	 *
+	 * @param key the key of the search
+	 * @param search performs the search
+	 * @param monitor the progress monitor of the caller, can be <code>null</code>
+	 * @return a map from handle identifier ({@link String}) to {@link MethodCall}, must not be
+	 *         modified
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	Map<String, MethodCall> get(Key key, Callable<Map<String, MethodCall>> search, IProgressMonitor monitor) {
+		while (true) {
+			FutureTask<Map<String, MethodCall>> task= fSearches.get(key);
+			boolean isOwner= false;
+			if (task == null) {
+				FutureTask<Map<String, MethodCall>> newTask= new FutureTask<>(search);
+				task= putIfAbsent(key, newTask);
+				if (task == null) {
+					task= newTask;
+					isOwner= true;
+				}
+			}
+			if (isOwner)
+				task.run();
+			try {
+				return waitFor(task, monitor);
+			} catch (ExecutionException e) {
+				fSearches.remove(key, task);
+				Throwable cause= e.getCause();
+				if (cause instanceof OperationCanceledException) {
+					if (isOwner)
+						throw (OperationCanceledException) cause;
+					// the search of another requester has been canceled, retry
+					continue;
+				}
+				JavaPlugin.log(cause);
+				return Collections.emptyMap();
+			}
+		}
+	}
+
+	/**
+	 * Removes the memoized searches for the callers of the given member.
+	 *
+	 * @param handleIdentifier the handle identifier of the member
+	 */
+	void remove(String handleIdentifier) {
+		for (Iterator<Key> iter= fSearches.keySet().iterator(); iter.hasNext();) {
+			if (iter.next().fHandleIdentifier.equals(handleIdentifier))
+				iter.remove();
+		}
+	}
+
+	/**
+	 * Removes all memoized searches. Running searches complete for their current requesters.
+	 */
+	synchronized void clear() {
+		fSearches.clear();
+		if (fListener != null) {
+			JavaCore.removeElementChangedListener(fListener);
+			fListener= null;
+		}
+	}
+
+	private synchronized FutureTask<Map<String, MethodCall>> putIfAbsent(Key key, FutureTask<Map<String, MethodCall>> task) {
+		if (fSearches.size() >= MAX_ENTRIES)
+			removeCompleted();
+		FutureTask<Map<String, MethodCall>> existing= fSearches.get(key);
+		if (existing != null)
+			return existing;
+		fSearches.put(key, task);
+		if (fListener == null) {
+			fListener= new IElementChangedListener() {
+				@Override
+				public void elementChanged(ElementChangedEvent event) {
+					processDelta(event.getDelta());
+				}
+			};
+			JavaCore.addElementChangedListener(fListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		}
+		return null;
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		int flags= delta.getFlags();
+		if (element.getElementType() == IJavaElement.COMPILATION_UNIT && delta.getKind() == IJavaElementDelta.CHANGED) {
+			if ((flags & ~NO_CONTENT_DELTA_FLAGS) == 0)
+				return;
+			if ((flags & ~BODY_DELTA_FLAGS) == 0 && (flags & IJavaElementDelta.F_FINE_GRAINED) != 0 && delta.getAffectedChildren().length == 0) {
+				removeAffected((ICompilationUnit) element);
+				return;
+			}
+		} else if (element.getElementType() < IJavaElement.COMPILATION_UNIT && delta.getKind() == IJavaElementDelta.CHANGED && (flags & ~IJavaElementDelta.F_CHILDREN) == 0) {
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length && !fSearches.isEmpty(); i++)
+				processDelta(children[i]);
+			return;
+		}
+		// the change may affect bindings of other units
+		clear();
+	}
+
+	/**
+	 * Removes the results which may have changed by an edit of the bodies of the given unit:
+	 * results with a caller in the unit, and results for members whose name occurs in the unit.
+	 *
+	 * @param unit the changed compilation unit
+	 */
+	private void removeAffected(ICompilationUnit unit) {
+		String source;
+		try {
+			source= unit.getSource();
+		} catch (JavaModelException e) {
+			source= null;
+		}
+		ICompilationUnit primary= unit.getPrimary();
+		for (Iterator<Map.Entry<Key, FutureTask<Map<String, MethodCall>>>> iter= fSearches.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<Key, FutureTask<Map<String, MethodCall>>> entry= iter.next();
+			FutureTask<Map<String, MethodCall>> task= entry.getValue();
+			if (!task.isDone() || source == null || source.indexOf(entry.getKey().fName) != -1 || hasCallerIn(task, primary))
+				iter.remove();
+		}
+	}
+
+	private static boolean hasCallerIn(FutureTask<Map<String, MethodCall>> task, ICompilationUnit unit) {
+		Map<String, MethodCall> callers;
+		try {
+			callers= task.get();
+		} catch (InterruptedException | ExecutionException e) {
+			return true;
+		}
+		for (Iterator<MethodCall> iter= callers.values().iterator(); iter.hasNext();) {
+			ICompilationUnit callerUnit= iter.next().getMember().getCompilationUnit();
+			if (callerUnit != null && unit.equals(callerUnit.getPrimary()))
+				return true;
+		}
+		return false;
+	}
+
+	private void removeCompleted() {
+		for (Iterator<FutureTask<Map<String, MethodCall>>> iter= fSearches.values().iterator(); iter.hasNext();) {
+			if (iter.next().isDone())
+				iter.remove();
+		}
+	}
+
+	private static Map<String, MethodCall> waitFor(FutureTask<Map<String, MethodCall>> task, IProgressMonitor monitor) throws ExecutionException {
+		boolean interrupted= false;
+		try {
+			while (true) {
+				if (monitor != null && monitor.isCanceled())
+					throw new OperationCanceledException();
+				try {
+					return Collections.unmodifiableMap(task.get(POLL_INTERVAL, TimeUnit.MILLISECONDS));
+				} catch (TimeoutException e) {
+					// check for cancellation
+				} catch (InterruptedException e) {
+					interrupted= true;
+				}
+			}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+}
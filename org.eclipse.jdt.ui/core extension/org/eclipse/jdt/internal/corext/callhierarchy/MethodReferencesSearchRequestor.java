@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,19 +14,48 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.callhierarchy;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import org.eclipse.core.resources.IResource;
+
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.search.SearchMatch;
 import org.eclipse.jdt.core.search.SearchRequestor;
 
 class MethodReferencesSearchRequestor extends SearchRequestor {
+    /**
+     * The minimal interval in milliseconds between additions to the stream, which avoids
+     * flooding the viewer with updates.
+     */
+    private static final long STREAM_INTERVAL= 200;
+
     private CallSearchResultCollector fSearchResults;
     private boolean fRequireExactMatch = true;
 
+    private final MethodWrapper.CallStream fStream;
+    /**
+     * The callers found in the current resource, which are streamed once all matches in the
+     * resource have been reported and their call locations are complete.
+     */
+    private final List<MethodCall> fPendingCallers= new ArrayList<>();
+    private final List<MethodCall> fCompleteCallers= new ArrayList<>();
+    private IResource fCurrentResource;
+    private long fLastStreamTime;
+
     MethodReferencesSearchRequestor() {
+        this(null);
+    }
+
+    /**
+     * @param stream the stream receiving the callers while they are found, or <code>null</code>
+     */
+    MethodReferencesSearchRequestor(MethodWrapper.CallStream stream) {
         fSearchResults = new CallSearchResultCollector();
+        fStream= stream;
+        fLastStreamTime= System.currentTimeMillis();
     }
 
     public Map<String, MethodCall> getCallers() {
@@ -50,9 +79,41 @@ class MethodReferencesSearchRequestor extends SearchRequestor {
                 case IJavaElement.TYPE:
                 case IJavaElement.FIELD:
                 case IJavaElement.INITIALIZER:
-                    fSearchResults.addMember(member, member, match.getOffset(), match.getOffset()+match.getLength());
+                    if (fStream != null) {
+                        if (match.getResource() == null || !match.getResource().equals(fCurrentResource)) {
+                            fCompleteCallers.addAll(fPendingCallers);
+                            fPendingCallers.clear();
+                            fCurrentResource= match.getResource();
+                            streamCompleteCallers(false);
+                        }
+                        boolean isNew= !getCallers().containsKey(member.getHandleIdentifier());
+                        fSearchResults.addMember(member, member, match.getOffset(), match.getOffset()+match.getLength());
+                        MethodCall methodCall= getCallers().get(member.getHandleIdentifier());
+                        if (isNew && methodCall != null)
+                            fPendingCallers.add(methodCall);
+                    } else {
+                        fSearchResults.addMember(member, member, match.getOffset(), match.getOffset()+match.getLength());
+                    }
                     break;
             }
         }
     }
+
+    @Override
+	public void endReporting() {
+        if (fStream != null) {
+            fCompleteCallers.addAll(fPendingCallers);
+            fPendingCallers.clear();
+            streamCompleteCallers(true);
+        }
+    }
+
+    private void streamCompleteCallers(boolean force) {
+        long time= System.currentTimeMillis();
+        if (!fCompleteCallers.isEmpty() && (force || time - fLastStreamTime >= STREAM_INTERVAL)) {
+            fStream.add(fCompleteCallers);
+            fCompleteCallers.clear();
+            fLastStreamTime= time;
+        }
+    }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,9 +16,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.callhierarchy;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -39,7 +41,65 @@ import org.eclipse.jdt.internal.ui.callhierarchy.MethodWrapperWorkbenchAdapter;
  *
  */
 public abstract class MethodWrapper extends PlatformObject {
-    private Map<String, MethodCall> fElements = null;
+
+	/**
+	 * Receives the calls of a method wrapper while they are being searched.
+	 *
+	 * @since 3.18
+	 */
+	public interface ICallCollector {
+
+		/**
+		 * Adds calls which have been found. Every call is added exactly once.
+		 *
+		 * @param calls the method wrappers of the calls
+		 */
+		void add(MethodWrapper[] calls);
+	}
+
+	/**
+	 * Forwards the calls found by a search to an {@link ICallCollector}.
+	 *
+	 * @since 3.18
+	 */
+	final class CallStream {
+		private final ICallCollector fCollector;
+		private final Map<String, MethodWrapper> fWrappers= new HashMap<>();
+
+		CallStream(ICallCollector collector) {
+			fCollector= collector;
+		}
+
+		/**
+		 * Adds the calls which have not been added yet to the collector.
+		 *
+		 * @param calls the calls
+		 */
+		void add(Collection<MethodCall> calls) {
+			MethodWrapper[] added= new MethodWrapper[calls.size()];
+			int count= 0;
+			for (Iterator<MethodCall> iter= calls.iterator(); iter.hasNext();) {
+				MethodCall methodCall= iter.next();
+				if (!fWrappers.containsKey(methodCall.getKey())) {
+					MethodWrapper wrapper= createMethodWrapper(methodCall);
+					fWrappers.put(methodCall.getKey(), wrapper);
+					added[count++]= wrapper;
+				}
+			}
+			if (count > 0) {
+				MethodWrapper[] result= new MethodWrapper[count];
+				System.arraycopy(added, 0, result, 0, count);
+				sortCalls(result);
+				fCollector.add(result);
+			}
+		}
+
+		MethodWrapper getWrapper(MethodCall methodCall) {
+			return fWrappers.get(methodCall.getKey());
+		}
+	}
+
+    private volatile Map<String, MethodCall> fElements = null;
 
     /*
      * A cache of previously found methods. This cache should be searched
@@ -60,7 +120,7 @@ public abstract class MethodWrapper extends PlatformObject {
         Assert.isNotNull(methodCall);
 
         if (parent == null) {
-            setMethodCache(new HashMap<String, Map<String, MethodCall>>());
+            setMethodCache(new ConcurrentHashMap<String, Map<String, MethodCall>>());
             fLevel = 1;
         } else {
             setMethodCache(parent.getMethodCache());
@@ -84,21 +144,55 @@ public abstract class MethodWrapper extends PlatformObject {
 	}
 
     public MethodWrapper[] getCalls(IProgressMonitor progressMonitor) {
-        if (fElements == null) {
-            doFindChildren(progressMonitor);
+        return getCalls(progressMonitor, null);
+    }
+
+	/**
+	 * Returns the calls of this method wrapper. If the calls are not known yet, they are
+	 * searched and added to the given collector as they are found.
+	 *
+	 * @param progressMonitor the progress monitor, can be <code>null</code>
+	 * @param collector the collector receiving the calls, or <code>null</code>. When this method
+	 *            returns normally, all returned calls have been added to the collector.
+	 * @return the calls
+	 * @since 3.18
+	 */
+    public MethodWrapper[] getCalls(IProgressMonitor progressMonitor, ICallCollector collector) {
+        CallStream stream= collector != null ? new CallStream(collector) : null;
+        Map<String, MethodCall> elements= fElements;
+        if (elements == null) {
+            elements= doFindChildren(progressMonitor, stream);
+        }
+        if (stream != null) {
+            stream.add(elements.values());
         }
 
-        MethodWrapper[] result = new MethodWrapper[fElements.size()];
+        MethodWrapper[] result = new MethodWrapper[elements.size()];
         int i = 0;
 
-        for (Iterator<String> iter = fElements.keySet().iterator(); iter.hasNext();) {
-            MethodCall methodCall = getMethodCallFromMap(fElements, iter.next());
-            result[i++] = createMethodWrapper(methodCall);
+        for (Iterator<MethodCall> iter = elements.values().iterator(); iter.hasNext();) {
+            MethodCall methodCall = iter.next();
+            result[i++] = stream != null ? stream.getWrapper(methodCall) : createMethodWrapper(methodCall);
         }
+        sortCalls(result);
 
         return result;
     }
 
+	/**
+	 * Sorts the calls returned by {@link #getCalls(IProgressMonitor, ICallCollector)} and added
+	 * to its collector. The default implementation keeps the order in which they were found.
+	 * <p>
+	 * Subclasses may override
+	 * </p>
+	 *
+	 * @param calls the calls to sort in place
+	 * @since 3.18
+	 */
+    protected void sortCalls(MethodWrapper[] calls) {
+    	// keep the order
+    }
+
     public int getLevel() {
         return fLevel;
     }
@@ -206,11 +300,6 @@ public abstract class MethodWrapper extends PlatformObject {
 
     protected abstract String getTaskName();
 
-    private void addCallToCache(MethodCall methodCall) {
-        Map<String, MethodCall> cachedCalls = lookupMethod(this.getMethodCall());
-        cachedCalls.put(methodCall.getKey(), methodCall);
-    }
-
 	/**
 	 * Creates a method wrapper for the child of the receiver.
 	 * 
@@ -219,21 +308,21 @@ public abstract class MethodWrapper extends PlatformObject {
 	 */
     protected abstract MethodWrapper createMethodWrapper(MethodCall methodCall);
 
-    private void doFindChildren(IProgressMonitor progressMonitor) {
+    private Map<String, MethodCall> doFindChildren(IProgressMonitor progressMonitor, CallStream stream) {
         Map<String, MethodCall> existingResults = lookupMethod(getMethodCall());
 
         if (existingResults != null && !existingResults.isEmpty()) {
-            fElements = new HashMap<>();
-            fElements.putAll(existingResults);
+            // the cached result is shared by all method wrappers of the same method
+            Map<String, MethodCall> elements = new HashMap<>(existingResults);
+            fElements = elements;
+            return elements;
         } else {
-            initCalls();
-
             if (progressMonitor != null) {
                 progressMonitor.beginTask(getTaskName(), 100);
             }
 
             try {
-                performSearch(progressMonitor);
+                return performSearch(progressMonitor, stream);
             } catch (OperationCanceledException e){
             	fElements= null;
             	throw e;
@@ -282,14 +371,22 @@ public abstract class MethodWrapper extends PlatformObject {
      */
     protected abstract Map<String, MethodCall> findChildren(IProgressMonitor progressMonitor);
 
-    private Map<String, Map<String, MethodCall>> getMethodCache() {
-        return fMethodCache;
+	/**
+	 * Finds the children of the current IMember and adds them to the given stream while they are
+	 * found. The default implementation does not stream the children.
+	 *
+	 * @param progressMonitor a progress monitor
+	 * @param stream the stream receiving the children, or <code>null</code>
+	 * @return a map from handle identifier ({@link String}) to {@link MethodCall}, must not be
+	 *         modified
+	 * @since 3.18
+	 */
+    Map<String, MethodCall> findChildren(IProgressMonitor progressMonitor, CallStream stream) {
+        return findChildren(progressMonitor);
     }
 
-    private void initCalls() {
-        this.fElements = new HashMap<>();
-
-        initCacheForMethod();
+    private Map<String, Map<String, MethodCall>> getMethodCache() {
+        return fMethodCache;
     }
 
     /**
@@ -301,24 +398,14 @@ public abstract class MethodWrapper extends PlatformObject {
         return getMethodCache().get(methodCall.getKey());
     }
 
-    private void performSearch(IProgressMonitor progressMonitor) {
-        fElements = findChildren(progressMonitor);
-
-        for (Iterator<String> iter = fElements.keySet().iterator(); iter.hasNext();) {
-            checkCanceled(progressMonitor);
-
-            MethodCall methodCall = getMethodCallFromMap(fElements, iter.next());
-            addCallToCache(methodCall);
-        }
-    }
-
-    private MethodCall getMethodCallFromMap(Map<String, MethodCall> elements, String key) {
-        return elements.get(key);
-    }
+    private Map<String, MethodCall> performSearch(IProgressMonitor progressMonitor, CallStream stream) {
+        Map<String, MethodCall> elements = findChildren(progressMonitor, stream);
+        checkCanceled(progressMonitor);
 
-    private void initCacheForMethod() {
-        Map<String, MethodCall> cachedCalls = new HashMap<>();
-        getMethodCache().put(this.getMethodCall().getKey(), cachedCalls);
+        // the found calls are shared by all method wrappers of the same method
+        getMethodCache().put(getMethodCall().getKey(), elements);
+        fElements = elements;
+        return elements;
     }
 
     /**
@@ -371,5 +458,6 @@ public abstract class MethodWrapper extends PlatformObject {
 	public void removeFromCache() {
 		fElements= null;
 		fMethodCache.remove(getMethodCall().getKey());
+		CallerSearchCache.getDefault().remove(getMethodCall().getKey());
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,10 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.dom;
 
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -20,10 +24,16 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 
+import org.eclipse.core.filesystem.EFS;
+
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jdt.core.IBuffer;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.dom.ASTParser;
@@ -34,11 +44,71 @@ import org.eclipse.jdt.core.dom.IBinding;
  * Creates AST from a set of compilation units. Uses the
  * batch parser. Splits the set of compilation units in subsets
  * such that it is unlikely that a out of memory exception will occur.
+ * <p>
+ * In adaptive mode the size of each subset is computed from the length
+ * of the sources and the free heap space, and is adjusted after each
+ * batch depending on the observed heap occupancy and garbage collection
+ * time. The first subset is small and is used to measure the heap needed
+ * per source character. The free heap space is shared by all adaptive
+ * parsers that run at the same time. Otherwise a fixed number of units
+ * derived from the maximal heap size is parsed at once.
+ * </p>
  *
  * @since 3.4
  */
 public class ASTBatchParser {
 
+	/**
+	 * Statistics of a single call to {@link ASTParser#createASTs(ICompilationUnit[], String[], ASTRequestor, IProgressMonitor)}.
+	 */
+	public static final class BatchStatistics {
+
+		private final int fUnits;
+		private final long fSourceLength;
+		private final long fParseTime;
+		private final long fUsedHeap;
+
+		BatchStatistics(int units, long sourceLength, long parseTime, long usedHeap) {
+			fUnits= units;
+			fSourceLength= sourceLength;
+			fParseTime= parseTime;
+			fUsedHeap= usedHeap;
+		}
+
+		/**
+		 * @return the number of compilation units in the batch
+		 */
+		public int getUnits() {
+			return fUnits;
+		}
+
+		/**
+		 * @return the estimated source length of the batch, in characters
+		 */
+		public long getSourceLength() {
+			return fSourceLength;
+		}
+
+		/**
+		 * @return the time spent to create and process the ASTs of the batch, in milliseconds
+		 */
+		public long getParseTime() {
+			return fParseTime;
+		}
+
+		/**
+		 * @return the used heap after the batch was processed, in bytes
+		 */
+		public long getUsedHeap() {
+			return fUsedHeap;
+		}
+
+		@Override
+		public String toString() {
+			return fUnits + " units, " + fSourceLength + " chars, " + fParseTime + " ms, " + (fUsedHeap >> 20) + " MiB used"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+	}
+
 	private static final int MAX_AT_ONCE;
 	static {
 		long maxMemory= Runtime.getRuntime().maxMemory() / (1 << 20); // in MiB
@@ -50,6 +120,77 @@ public class ASTBatchParser {
 		else                        MAX_AT_ONCE=  25;
 	}
 
+	/**
+	 * Upper bound for the number of units in an adaptive batch.
+	 */
+	private static final int MAX_ADAPTIVE_AT_ONCE= 2000;
+
+	/**
+	 * Upper bound for the number of units in the first adaptive batch, which is used to measure
+	 * the heap needed per source character. The bound grows by {@link #ADAPTIVE_GROWTH} per batch.
+	 */
+	private static final int FIRST_ADAPTIVE_AT_ONCE= 16;
+	private static final int ADAPTIVE_GROWTH= 4;
+
+	/**
+	 * Source length assumed for units whose length cannot be determined cheaply.
+	 */
+	private static final long DEFAULT_SOURCE_LENGTH= 16 * 1024;
+
+	/**
+	 * Initial estimate of the heap needed per source character for the AST and the bindings.
+	 */
+	private static final double INITIAL_HEAP_PER_CHAR= 64;
+	private static final double MIN_HEAP_PER_CHAR= 16;
+	private static final double MAX_HEAP_PER_CHAR= 4096;
+
+	/**
+	 * The batches shrink if more heap is used after a batch, and grow if less is used.
+	 */
+	private static final double HIGH_HEAP_OCCUPANCY= 0.75;
+	private static final double LOW_HEAP_OCCUPANCY= 0.4;
+
+	/**
+	 * The batches shrink if more than this fraction of the parse time was spent in garbage collection.
+	 */
+	private static final double HIGH_GC_TIME_RATIO= 0.25;
+
+	/**
+	 * Lock for the heap reserved by the batches of all adaptive parsers that are currently parsing.
+	 */
+	private static final Object fgBudgetLock= new Object();
+	private static long fgReservedHeap= 0;
+
+	/**
+	 * The heap per source character measured by the last adaptive parser, used as the initial
+	 * estimate of new parsers.
+	 */
+	private static volatile double fgHeapPerChar= INITIAL_HEAP_PER_CHAR;
+
+	private final boolean fAdaptive;
+	private final List<BatchStatistics> fStatistics;
+	private double fHeapPerChar;
+
+	/**
+	 * Creates a batch parser which parses a fixed number of units at once.
+	 */
+	public ASTBatchParser() {
+		this(false);
+	}
+
+	/**
+	 * Creates a batch parser.
+	 *
+	 * @param adaptive <code>true</code> to size the batches from the source length and the
+	 *        available heap, <code>false</code> to parse a fixed number of units at once
+	 * @since 3.18
+	 */
+	public ASTBatchParser(boolean adaptive) {
+		fAdaptive= adaptive;
+		fStatistics= new ArrayList<>();
+		fHeapPerChar= fgHeapPerChar;
+	}
+
 	/**
 	 * Creates ASTs for each compilation unit in <code>units</code>.
 	 * <p>
@@ -82,7 +223,9 @@ public class ASTBatchParser {
 			for (int i= 0; i < splited.length; i++) {
 				ICompilationUnit[] units= splited[i];
 
-				if (units.length <= MAX_AT_ONCE) {
+				if (fAdaptive) {
+					createASTsAdaptive(units, bindingKeys, requestor, monitor);
+				} else if (units.length <= MAX_AT_ONCE) {
 					createParser(units[0].getJavaProject()).createASTs(units, bindingKeys, requestor, new SubProgressMonitor(monitor, units.length));
 				} else {
 					List<ICompilationUnit> list= Arrays.asList(units);
@@ -103,6 +246,160 @@ public class ASTBatchParser {
 		}
 	}
 
+	private void createASTsAdaptive(ICompilationUnit[] units, String[] bindingKeys, ASTRequestor requestor, IProgressMonitor monitor) {
+		long[] lengths= new long[units.length];
+		for (int i= 0; i < units.length; i++) {
+			lengths[i]= getSourceLength(units[i]);
+		}
+
+		int cursor= 0;
+		int maxAtOnce= FIRST_ADAPTIVE_AT_ONCE;
+		boolean measured= false;
+		while (cursor < units.length) {
+			long budget;
+			int end;
+			long length;
+			long reserved;
+			synchronized (fgBudgetLock) {
+				budget= getSourceBudget();
+				end= cursor + 1;
+				length= lengths[cursor];
+				while (end < units.length && end - cursor < maxAtOnce && length + lengths[end] <= budget) {
+					length+= lengths[end];
+					end++;
+				}
+				reserved= (long) (length * getHeapPerChar());
+				fgReservedHeap+= reserved;
+			}
+
+			try {
+				ICompilationUnit[] toParse= Arrays.copyOfRange(units, cursor, end);
+				long usedBefore= getUsedHeap();
+				long gcTimeBefore= getCollectionTime();
+				long start= System.currentTimeMillis();
+				createParser(units[0].getJavaProject()).createASTs(toParse, bindingKeys, requestor, new SubProgressMonitor(monitor, toParse.length));
+				long parseTime= System.currentTimeMillis() - start;
+				long gcTime= getCollectionTime() - gcTimeBefore;
+
+				if (!measured) {
+					measure(length, getUsedHeap() - usedBefore, gcTime);
+					measured= true;
+				}
+				adapt(toParse.length, length, parseTime, gcTime);
+			} finally {
+				synchronized (fgBudgetLock) {
+					fgReservedHeap-= reserved;
+				}
+			}
+			cursor= end;
+			maxAtOnce= Math.min(MAX_ADAPTIVE_AT_ONCE, maxAtOnce * ADAPTIVE_GROWTH);
+		}
+	}
+
+	/**
+	 * Returns the number of source characters that can be parsed in the next batch. Half of the
+	 * free heap is shared by the batches of all adaptive parsers, the other half is left to the
+	 * requestors and to other threads. Must be called while holding {@link #fgBudgetLock}.
+	 *
+	 * @return the source budget, in characters
+	 */
+	private long getSourceBudget() {
+		MemoryUsage heap= ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		long max= heap.getMax() > 0 ? heap.getMax() : Runtime.getRuntime().maxMemory();
+		long headroom= Math.max(0, max - heap.getUsed()) / 2 - fgReservedHeap;
+		return (long) (Math.max(0, headroom) / getHeapPerChar());
+	}
+
+	private static long getUsedHeap() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private synchronized double getHeapPerChar() {
+		return fHeapPerChar;
+	}
+
+	/**
+	 * Derives the heap needed per source character from the first batch. The measurement is
+	 * only meaningful if no garbage collection happened while the batch was parsed.
+	 *
+	 * @param sourceLength the source length of the batch, in characters
+	 * @param usedHeap the heap that was allocated while the batch was parsed, in bytes
+	 * @param gcTime the time spent in garbage collection while the batch was parsed
+	 */
+	private synchronized void measure(long sourceLength, long usedHeap, long gcTime) {
+		if (gcTime > 0 || usedHeap <= 0 || sourceLength <= 0)
+			return;
+		fHeapPerChar= Math.max(MIN_HEAP_PER_CHAR, Math.min(MAX_HEAP_PER_CHAR, (double) usedHeap / sourceLength));
+	}
+
+	private synchronized void adapt(int units, long sourceLength, long parseTime, long gcTime) {
+		MemoryUsage heap= ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		long max= heap.getMax() > 0 ? heap.getMax() : Runtime.getRuntime().maxMemory();
+		double occupancy= (double) heap.getUsed() / max;
+
+		if (occupancy > HIGH_HEAP_OCCUPANCY || (parseTime > 0 && (double) gcTime / parseTime > HIGH_GC_TIME_RATIO)) {
+			fHeapPerChar= Math.min(MAX_HEAP_PER_CHAR, fHeapPerChar * 2);
+		} else if (occupancy < LOW_HEAP_OCCUPANCY) {
+			fHeapPerChar= Math.max(MIN_HEAP_PER_CHAR, fHeapPerChar * 0.75);
+		}
+		fgHeapPerChar= fHeapPerChar;
+		fStatistics.add(new BatchStatistics(units, sourceLength, parseTime, heap.getUsed()));
+	}
+
+	/**
+	 * Returns the statistics of the batches parsed in adaptive mode so far.
+	 *
+	 * @return the batch statistics, in the order the batches finished
+	 * @since 3.18
+	 */
+	public synchronized BatchStatistics[] getBatchStatistics() {
+		return fStatistics.toArray(new BatchStatistics[fStatistics.size()]);
+	}
+
+	/**
+	 * Returns the heap reserved by the batches of all adaptive parsers that are currently
+	 * parsing. Used for testing.
+	 *
+	 * @return the reserved heap, in bytes
+	 */
+	public static long getReservedHeap() {
+		synchronized (fgBudgetLock) {
+			return fgReservedHeap;
+		}
+	}
+
+	private static long getCollectionTime() {
+		long result= 0;
+		for (Iterator<GarbageCollectorMXBean> iter= ManagementFactory.getGarbageCollectorMXBeans().iterator(); iter.hasNext();) {
+			long time= iter.next().getCollectionTime();
+			if (time > 0)
+				result+= time;
+		}
+		return result;
+	}
+
+	private static long getSourceLength(ICompilationUnit unit) {
+		try {
+			if (unit.isOpen()) {
+				IBuffer buffer= unit.getBuffer();
+				if (buffer != null)
+					return buffer.getLength();
+			}
+			IResource resource= unit.getResource();
+			if (resource != null) {
+				URI location= resource.getLocationURI();
+				if (location != null) {
+					long length= EFS.getStore(location).fetchInfo().getLength();
+					if (length > 0)
+						return length;
+				}
+			}
+		} catch (CoreException e) {
+			// use the default length
+		}
+		return DEFAULT_SOURCE_LENGTH;
+	}
+
 	/**
 	 * Creates a new parser which can be used to create ASTs
 	 * for compilation units in <code>project</code>
@@ -218,6 +218,7 @@ public class CleanUpConstantsOptions extends CleanUpConstants {
 		store.setDefault(SHOW_CLEAN_UP_WIZARD, true);
 		store.setDefault(CLEANUP_PROFILE, DEFAULT_PROFILE);
 		store.setDefault(CLEANUP_ON_SAVE_PROFILE, DEFAULT_SAVE_PARTICIPANT_PROFILE);
+		store.setDefault(CLEANUP_PARALLELISM, 1);
 	}
 
 	public static void setDefaultOptions(int kind, CleanUpOptions options) {
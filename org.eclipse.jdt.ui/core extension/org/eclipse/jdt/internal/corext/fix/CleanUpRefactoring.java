@@ -14,12 +14,19 @@
 package org.eclipse.jdt.internal.corext.fix;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.swt.widgets.Display;
 
@@ -212,39 +219,79 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		private int fFlushCount;
 		private final int fSize;
 		private final int fIndex;
+		private final long fStartTime;
 
-		private CleanUpRefactoringProgressMonitor(IProgressMonitor monitor, int ticks, int size, int index) {
+		private CleanUpRefactoringProgressMonitor(IProgressMonitor monitor, int ticks, int size, int index, long startTime) {
 			super(monitor, ticks);
 			fFlushCount= 0;
 			fSize= size;
 			fIndex= index;
+			fStartTime= startTime;
 		}
 
 		@Override
-		public void internalWorked(double work) {
+		public synchronized void internalWorked(double work) {
 			fRealWork+= work;
 		}
 
-		public void flush() {
+		public synchronized void flush() {
 			super.internalWorked(fRealWork);
 			reset();
 			fFlushCount++;
 		}
 
-		public void reset() {
+		public synchronized void reset() {
 			fRealWork= 0.0;
 		}
 
+		/**
+		 * Reports one fully processed compilation unit. Used by the parallel
+		 * execution mode where the parsers on the worker threads do not report
+		 * work to this monitor.
+		 */
+		public synchronized void unitDone() {
+			fRealWork+= 1;
+			flush();
+		}
+
 		@Override
 		public void done() {}
 
-		public int getIndex() {
+		public synchronized int getIndex() {
 			return fIndex + fFlushCount;
 		}
 
+		public synchronized void subTask(ICompilationUnit source) {
+			subTask(getSubTaskMessage(source));
+		}
+
 		public String getSubTaskMessage(ICompilationUnit source) {
 			String typeName= BasicElementLabels.getFileName(source);
-			return Messages.format(FixMessages.CleanUpRefactoring_ProcessingCompilationUnit_message, new Object[] {Integer.valueOf(getIndex()), Integer.valueOf(fSize), typeName});
+			int index= getIndex();
+			long elapsed= System.currentTimeMillis() - fStartTime;
+			if (elapsed < 1000)
+				return Messages.format(FixMessages.CleanUpRefactoring_ProcessingCompilationUnit_message, new Object[] {Integer.valueOf(index), Integer.valueOf(fSize), typeName});
+
+			String throughput= String.valueOf(Math.round((index - 1) * 1000.0 / elapsed));
+			return Messages.format(FixMessages.CleanUpRefactoring_ProcessingCompilationUnit_throughput_message, new Object[] {Integer.valueOf(index), Integer.valueOf(fSize), typeName, throughput});
+		}
+	}
+
+	/**
+	 * Progress monitor handed to the parsers running on worker threads. Progress is reported
+	 * through {@link CleanUpRefactoringProgressMonitor#unitDone()}, only cancellation is forwarded.
+	 */
+	private static final class WorkerProgressMonitor extends NullProgressMonitor {
+
+		private final IProgressMonitor fParent;
+
+		public WorkerProgressMonitor(IProgressMonitor parent) {
+			fParent= parent;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return fParent.isCanceled();
 		}
 	}
 
@@ -254,10 +301,12 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		private final Hashtable<ICompilationUnit, List<CleanUpChange>> fSolutions;
 		private final Hashtable<ICompilationUnit, ParseListElement> fCompilationUnitParseElementMap;
 		private final CleanUpRefactoringProgressMonitor fMonitor;
+		private boolean fReportUnits;
 
 		public CleanUpASTRequestor(List<ParseListElement> parseList, Hashtable<ICompilationUnit, List<CleanUpChange>> solutions, CleanUpRefactoringProgressMonitor monitor) {
 			fSolutions= solutions;
 			fMonitor= monitor;
+			fReportUnits= false;
 			fUndoneElements= new ArrayList<>();
 			fCompilationUnitParseElementMap= new Hashtable<>(parseList.size());
 			for (Iterator<ParseListElement> iter= parseList.iterator(); iter.hasNext();) {
@@ -266,10 +315,20 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			}
 		}
 
+		/**
+		 * Sets whether each accepted compilation unit is reported to the progress monitor. Required
+		 * when the ASTs are created by parsers that do not report their work to the monitor.
+		 *
+		 * @param reportUnits <code>true</code> to report each accepted unit
+		 */
+		public void setReportUnits(boolean reportUnits) {
+			fReportUnits= reportUnits;
+		}
+
 		@Override
 		public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
 
-			fMonitor.subTask(fMonitor.getSubTaskMessage(source));
+			fMonitor.subTask(source);
 
 			ICompilationUnit primary= (ICompilationUnit)source.getPrimaryElement();
 			ParseListElement element= fCompilationUnitParseElementMap.get(primary);
@@ -285,7 +344,10 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 			if (rejectedCleanUps.length > 0) {
 				fUndoneElements.add(new ParseListElement(target, rejectedCleanUps));
-				fMonitor.reset();
+				if (!fReportUnits)
+					fMonitor.reset();
+			} else if (fReportUnits) {
+				fMonitor.unitDone();
 			} else {
 				fMonitor.flush();
 			}
@@ -333,7 +395,9 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		private final Hashtable<ICompilationUnit, List<CleanUpChange>> fSolutions;
 		private final Hashtable<ICompilationUnit, ICompilationUnit> fWorkingCopies; // map from primary to working copy
 		private final Map<String, String> fCleanUpOptions;
+		private final List<ICompilationUnit> fTargetOrder;
 		private final int fSize;
+		private final long fStartTime;
 		private int fIndex;
 
 		public CleanUpFixpointIterator(CleanUpTarget[] targets, ICleanUp[] cleanUps) {
@@ -341,8 +405,10 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			fWorkingCopies= new Hashtable<>();
 
 			fParseList= new ArrayList<>(targets.length);
+			fTargetOrder= new ArrayList<>(targets.length);
 			for (int i= 0; i < targets.length; i++) {
 				fParseList.add(new ParseListElement(targets[i], cleanUps));
+				fTargetOrder.add(targets[i].getCompilationUnit());
 			}
 
 			fCleanUpOptions= new Hashtable<>();
@@ -355,6 +421,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 			fSize= targets.length;
 			fIndex= 1;
+			fStartTime= System.currentTimeMillis();
 		}
 
 		public boolean hasNext() {
@@ -387,26 +454,19 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 					}
 				}
 
-				CleanUpRefactoringProgressMonitor cuMonitor= new CleanUpRefactoringProgressMonitor(monitor, parseList.size() + sourceList.size(), fSize, fIndex);
+				CleanUpRefactoringProgressMonitor cuMonitor= new CleanUpRefactoringProgressMonitor(monitor, parseList.size() + sourceList.size(), fSize, fIndex, fStartTime);
 				CleanUpASTRequestor requestor= new CleanUpASTRequestor(fParseList, fSolutions, cuMonitor);
 				if (parseList.size() > 0) {
-					ASTBatchParser parser= new ASTBatchParser() {
-						@Override
-						protected ASTParser createParser(IJavaProject project) {
-							ASTParser result= createCleanUpASTParser();
-							result.setProject(project);
-
-							Map<String, String> options= RefactoringASTParser.getCompilerOptions(project);
-							options.putAll(fCleanUpOptions);
-							result.setCompilerOptions(options);
-							return result;
+					int workers= getWorkerCount(parseList.size());
+					if (workers > 1) {
+						parseInParallel(parseList, workers, requestor, cuMonitor);
+					} else {
+						try {
+							ICompilationUnit[] units= parseList.toArray(new ICompilationUnit[parseList.size()]);
+							createBatchParser().createASTs(units, new String[0], requestor, cuMonitor);
+						} catch (FixCalculationException e) {
+							throw e.getException();
 						}
-					};
-					try {
-						ICompilationUnit[] units= parseList.toArray(new ICompilationUnit[parseList.size()]);
-						parser.createASTs(units, new String[0], requestor, cuMonitor);
-					} catch (FixCalculationException e) {
-						throw e.getException();
 					}
 				}
 
@@ -427,6 +487,101 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			}
 		}
 
+		private ASTBatchParser createBatchParser() {
+			return new ASTBatchParser(true) {
+				@Override
+				protected ASTParser createParser(IJavaProject project) {
+					ASTParser result= createCleanUpASTParser();
+					result.setProject(project);
+
+					Map<String, String> options= RefactoringASTParser.getCompilerOptions(project);
+					options.putAll(fCleanUpOptions);
+					result.setCompilerOptions(options);
+					return result;
+				}
+			};
+		}
+
+		/**
+		 * Splits <code>parseList</code> into <code>workers</code> consecutive batches and parses each
+		 * batch with its own AST parser on a bounded pool of worker threads.
+		 * <p>
+		 * The bindings of an AST are only valid while its parser reports it, hence the fixes are
+		 * created in the callback of the worker that parsed the unit. Clean ups are not required to
+		 * be thread safe, so the fixes are created one at a time while the other workers continue
+		 * parsing. The undone elements are sorted back into the order of the targets such that the
+		 * result does not depend on thread scheduling.
+		 * </p>
+		 *
+		 * @param parseList the compilation units to parse
+		 * @param workers the number of worker threads, at least 2
+		 * @param requestor the requestor computing the fixes
+		 * @param cuMonitor the progress monitor
+		 * @throws CoreException if a clean up failed
+		 */
+		private void parseInParallel(List<ICompilationUnit> parseList, int workers, final CleanUpASTRequestor requestor, final CleanUpRefactoringProgressMonitor cuMonitor) throws CoreException {
+			cuMonitor.beginTask("", parseList.size()); //$NON-NLS-1$
+
+			int batchSize= (parseList.size() + workers - 1) / workers;
+			ExecutorService executor= Executors.newFixedThreadPool(workers);
+			requestor.setReportUnits(true);
+			try {
+				List<Future<?>> futures= new ArrayList<>(workers);
+				for (int start= 0; start < parseList.size(); start+= batchSize) {
+					List<ICompilationUnit> batch= parseList.subList(start, Math.min(start + batchSize, parseList.size()));
+					final ICompilationUnit[] units= batch.toArray(new ICompilationUnit[batch.size()]);
+					futures.add(executor.submit(() -> {
+						createBatchParser().createASTs(units, new String[0], new ASTRequestor() {
+							@Override
+							public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+								if (cuMonitor.isCanceled())
+									throw new OperationCanceledException();
+								synchronized (requestor) {
+									requestor.acceptAST(source, ast);
+								}
+							}
+						}, new WorkerProgressMonitor(cuMonitor));
+						return null;
+					}));
+				}
+
+				for (Iterator<Future<?>> iter= futures.iterator(); iter.hasNext();) {
+					iter.next().get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			} catch (ExecutionException e) {
+				Throwable cause= e.getCause();
+				if (cause instanceof FixCalculationException)
+					throw ((FixCalculationException)cause).getException();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException)cause;
+				if (cause instanceof Error)
+					throw (Error)cause;
+				throw new CoreException(new Status(IStatus.ERROR, JavaPlugin.getPluginId(), IJavaStatusConstants.INTERNAL_ERROR, cause.getMessage(), cause));
+			} finally {
+				requestor.setReportUnits(false);
+				executor.shutdownNow();
+			}
+
+			sortByTargetOrder(requestor.getUndoneElements());
+		}
+
+		private void sortByTargetOrder(List<ParseListElement> elements) {
+			final Map<ICompilationUnit, Integer> positions= new HashMap<>(fTargetOrder.size());
+			for (int i= 0; i < fTargetOrder.size(); i++) {
+				positions.put(fTargetOrder.get(i), Integer.valueOf(i));
+			}
+			Collections.sort(elements, (e1, e2) -> positions.get(e1.getTarget().getCompilationUnit()).compareTo(positions.get(e2.getTarget().getCompilationUnit())));
+		}
+
+		private int getWorkerCount(int units) {
+			if (fParallelism <= 1)
+				return 1;
+			return Math.max(1, Math.min(fParallelism, units / MIN_UNITS_PER_WORKER));
+		}
+
 		public void dispose() {
 			for (Iterator<ICompilationUnit> iterator= fWorkingCopies.values().iterator(); iterator.hasNext();) {
 				ICompilationUnit cu= iterator.next();
@@ -449,9 +604,19 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 		public Change[] getResult() {
 
-			Change[] result= new Change[fSolutions.size()];
+			// report the changes in the order of the targets, independent of the order they were computed in
+			Map<ICompilationUnit, List<CleanUpChange>> solutions= new LinkedHashMap<>(fSolutions.size());
+			for (Iterator<ICompilationUnit> iterator= fTargetOrder.iterator(); iterator.hasNext();) {
+				ICompilationUnit unit= iterator.next();
+				List<CleanUpChange> changes= fSolutions.get(unit);
+				if (changes != null)
+					solutions.put(unit, changes);
+			}
+			solutions.putAll(fSolutions);
+
+			Change[] result= new Change[solutions.size()];
 			int i=0;
-			for (Iterator<Entry<ICompilationUnit, List<CleanUpChange>>> iterator= fSolutions.entrySet().iterator(); iterator.hasNext();) {
+			for (Iterator<Entry<ICompilationUnit, List<CleanUpChange>>> iterator= solutions.entrySet().iterator(); iterator.hasNext();) {
 				Entry<ICompilationUnit, List<CleanUpChange>>  entry= iterator.next();
 
 				List<CleanUpChange> changes= entry.getValue();
@@ -516,6 +681,12 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	 */
 	private static final int SLOW_CLEAN_UP_THRESHOLD= 2000;
 
+	/**
+	 * The minimal number of compilation units a worker thread has to process. Smaller
+	 * batches do not pay off the cost of an additional parser and lookup environment.
+	 */
+	private static final int MIN_UNITS_PER_WORKER= 25;
+
 	private final List<ICleanUp> fCleanUps;
 	private final Hashtable<IJavaProject, List<CleanUpTarget>> fProjects;
 	private Change fChange;
@@ -523,6 +694,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	private final String fName;
 
 	private boolean fUseOptionsFromProfile;
+	private int fParallelism;
 
 	public CleanUpRefactoring() {
 		this(FixMessages.CleanUpRefactoring_Refactoring_name);
@@ -533,12 +705,35 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		fCleanUps= new ArrayList<>();
 		fProjects= new Hashtable<>();
 		fUseOptionsFromProfile= false;
+		fParallelism= getDefaultParallelism();
 	}
 
 	public void setUseOptionsFromProfile(boolean enabled) {
 		fUseOptionsFromProfile= enabled;
 	}
 
+	/**
+	 * Sets the number of worker threads used to parse the compilation units of a project.
+	 * The fixes are created one at a time, clean ups do not need to be thread safe.
+	 *
+	 * @param parallelism the number of worker threads, <code>1</code> to parse all
+	 *        compilation units on the calling thread
+	 */
+	public void setParallelism(int parallelism) {
+		fParallelism= parallelism;
+	}
+
+	public int getParallelism() {
+		return fParallelism;
+	}
+
+	public static int getDefaultParallelism() {
+		JavaPlugin plugin= JavaPlugin.getDefault();
+		if (plugin == null)
+			return 1;
+		return Math.max(1, plugin.getPreferenceStore().getInt(CleanUpConstants.CLEANUP_PARALLELISM));
+	}
+
 	public void addCompilationUnit(ICompilationUnit unit) {
 		addCleanUpTarget(new CleanUpTarget(unit));
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,33 +15,25 @@ package org.eclipse.jdt.internal.corext.util;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -62,7 +54,10 @@ import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
  * MAX_HISTORY_SIZE. If the list exceeds this size the eldest element is removed
  * from the list. An element can be added/renewed with a call to <code>accessed(Object)</code>.
  *
- * The history can be stored to/loaded from an xml file.
+ * The history is stored in a binary {@link HistoryJournal}: a save appends the elements that
+ * have been accessed, removed or {@linkplain #changed(Object) changed} since the last save. A
+ * history that has been stored in the former xml file is loaded from that file until the first
+ * save.
  * 
  * @param <K> key type
  * @param <V> value type
@@ -73,6 +68,25 @@ public abstract class History<K, V> {
 	private static final String DEFAULT_INFO_NODE_NAME= "infoNode"; //$NON-NLS-1$
 	private static final int MAX_HISTORY_SIZE= 60;
 
+	/** Journal record of an accessed element */
+	private static final byte RECORD_ACCESSED= 1;
+	/** Journal record of a removed element */
+	private static final byte RECORD_REMOVED= 2;
+	/** Journal record of a changed element, see {@link #changed(Object)} */
+	private static final byte RECORD_CHANGED= 3;
+	/** The number of unsaved changes after which the next save writes a snapshot */
+	private static final int MAX_CHANGES= 4 * MAX_HISTORY_SIZE;
+
+	private static final class Change<V> {
+		final byte fKind;
+		final V fValue;
+
+		Change(byte kind, V value) {
+			fKind= kind;
+			fValue= value;
+		}
+	}
+
 	private static JavaUIException createException(Throwable t, String message) {
 		return new JavaUIException(JavaUIStatus.createError(IStatus.ERROR, message, t));
 	}
@@ -82,6 +96,11 @@ public abstract class History<K, V> {
 	private final String fFileName;
 	private final String fRootNodeName;
 	private final String fInfoNodeName;
+	/** The changes since the last save */
+	private final List<Change<V>> fChanges= new ArrayList<>();
+	/** Tells whether the next save must write all elements */
+	private boolean fNeedsSnapshot= false;
+	private HistoryJournal fJournal;
 
 	public History(String fileName, String rootNodeName, String infoNodeName) {
 		fHistory= new LinkedHashMap<K, V>(80, 0.75f, true) {
@@ -104,6 +123,7 @@ public abstract class History<K, V> {
 	public synchronized void accessed(V object) {
 		fHistory.put(getKey(object), object);
 		rebuildPositions();
+		recordChange(RECORD_ACCESSED, object);
 	}
 
 	public synchronized boolean contains(V object) {
@@ -119,17 +139,33 @@ public abstract class History<K, V> {
 	}
 
 	public synchronized Object remove(V object) {
-		Object removed= fHistory.remove(getKey(object));
+		V removed= fHistory.remove(getKey(object));
 		rebuildPositions();
+		if (removed != null)
+			recordChange(RECORD_REMOVED, removed);
 		return removed;
 	}
 
 	public synchronized Object removeKey(Object key) {
-		Object removed= fHistory.remove(key);
+		V removed= fHistory.remove(key);
 		rebuildPositions();
+		if (removed != null)
+			recordChange(RECORD_REMOVED, removed);
 		return removed;
 	}
 
+	/**
+	 * Records that data stored with an element of the history has changed, without accessing the
+	 * element.
+	 *
+	 * @param object the changed element
+	 * @since 3.18
+	 */
+	protected synchronized void changed(V object) {
+		if (contains(object))
+			recordChange(RECORD_CHANGED, object);
+	}
+
 	/**
 	 * Normalized position in history of object denoted by key.
 	 * The position is a value between zero and one where zero
@@ -164,14 +200,57 @@ public abstract class History<K, V> {
 		return fPositions.get(key).intValue();
 	}
 
-	public synchronized void load() {
-		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
-		File file= stateLocation.toFile();
+	public void load() {
+		HistoryJournal journal= getJournal();
+		if (journal.exists()) {
+			try {
+				if (readJournal(journal))
+					return;
+			} catch (IOException e) {
+				JavaPlugin.log(e);
+			}
+			synchronized (this) {
+				fHistory.clear();
+				rebuildPositions();
+			}
+		}
+		loadXML();
+	}
+
+	private boolean readJournal(HistoryJournal journal) throws IOException {
+		return journal.read(new HistoryJournal.RecordReader() {
+			@Override
+			public void read(byte kind, HistoryJournal.Input input) throws IOException {
+				V object= readValue(input, kind == RECORD_REMOVED);
+				if (object == null)
+					return;
+				synchronized (History.this) {
+					switch (kind) {
+						case RECORD_ACCESSED:
+							fHistory.put(getKey(object), object);
+							rebuildPositions();
+							break;
+						case RECORD_REMOVED:
+							fHistory.remove(getKey(object));
+							rebuildPositions();
+							break;
+						default:
+							// changed data has been read with the element
+							break;
+					}
+				}
+			}
+		});
+	}
+
+	private synchronized void loadXML() {
+		File file= getFile(fFileName);
 		if (file.exists()) {
 			InputStreamReader reader= null;
 	        try {
 				reader = new InputStreamReader(new FileInputStream(file), "utf-8");//$NON-NLS-1$
 				load(new InputSource(reader));
+				fNeedsSnapshot= true;
 			} catch (IOException e) {
 				JavaPlugin.log(e);
 			} catch (CoreException e) {
@@ -187,32 +266,81 @@ public abstract class History<K, V> {
 		}
 	}
 
-	public synchronized void save() {
-		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
-		File file= stateLocation.toFile();
-		OutputStream out= null;
-		try {
-			out= new FileOutputStream(file);
-			save(out);
-		} catch (IOException e) {
-			JavaPlugin.log(e);
-		} catch (CoreException e) {
-			JavaPlugin.log(e);
-		} catch (TransformerFactoryConfigurationError e) {
-			// The XML library can be misconficgured (e.g. via
-			// -Djava.endorsed.dirs=C:\notExisting\xerces-2_7_1)
-			JavaPlugin.log(e);
-		} finally {
+	/**
+	 * Saves the changes since the last save. Only the encoding of the changes blocks the
+	 * history, the file is written afterwards.
+	 */
+	public void save() {
+		HistoryJournal journal= getJournal();
+		synchronized (journal) {
+			boolean snapshot;
 			try {
-				if (out != null) {
-					out.close();
+				HistoryJournal.Output output;
+				synchronized (this) {
+					snapshot= fNeedsSnapshot || journal.needsCompaction(fHistory.size(), fChanges.size());
+					if (!snapshot && fChanges.isEmpty())
+						return;
+					output= journal.createOutput(snapshot);
+					if (snapshot) {
+						for (Iterator<V> iter= fHistory.values().iterator(); iter.hasNext();)
+							writeRecord(output, RECORD_ACCESSED, iter.next());
+					} else {
+						for (Iterator<Change<V>> iter= fChanges.iterator(); iter.hasNext();) {
+							Change<V> change= iter.next();
+							writeRecord(output, change.fKind, change.fValue);
+						}
+					}
+					fChanges.clear();
+					fNeedsSnapshot= false;
 				}
+				journal.write(output);
 			} catch (IOException e) {
 				JavaPlugin.log(e);
+				synchronized (this) {
+					fNeedsSnapshot= true;
+				}
+				return;
+			}
+			if (snapshot) {
+				File xmlFile= getFile(fFileName);
+				if (xmlFile.exists())
+					xmlFile.delete();
 			}
 		}
 	}
 
+	private void writeRecord(HistoryJournal.Output output, byte kind, V object) throws IOException {
+		output.begin(kind);
+		writeValue(object, output);
+		output.end();
+	}
+
+	private void recordChange(byte kind, V object) {
+		if (fNeedsSnapshot)
+			return;
+		if (fChanges.size() >= MAX_CHANGES) {
+			fChanges.clear();
+			fNeedsSnapshot= true;
+			return;
+		}
+		fChanges.add(new Change<>(kind, object));
+	}
+
+	private synchronized HistoryJournal getJournal() {
+		if (fJournal == null) {
+			String name= fFileName;
+			if (name.endsWith(".xml")) //$NON-NLS-1$
+				name= name.substring(0, name.length() - 4);
+			fJournal= new HistoryJournal(getFile(name + ".bin")); //$NON-NLS-1$
+		}
+		return fJournal;
+	}
+
+	private static File getFile(String fileName) {
+		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fileName);
+		return stateLocation.toFile();
+	}
+
 	protected Set<K> getKeys() {
 		return fHistory.keySet();
 	}
@@ -222,15 +350,30 @@ public abstract class History<K, V> {
 	}
 
 	/**
-	 * Store <code>Object</code> in <code>Element</code>
+	 * Write <code>object</code> to a journal record
 	 *
 	 * @param object The object to store
-	 * @param element The Element to store to
+	 * @param output The record to write to
+	 * @throws IOException if the object cannot be written
+	 * @since 3.18
 	 */
-	protected abstract void setAttributes(Object object, Element element);
+	protected abstract void writeValue(V object, HistoryJournal.Output output) throws IOException;
 
 	/**
-	 * Return a new instance of an Object given <code>element</code>
+	 * Return a new instance of an Object given a journal record written by
+	 * {@link #writeValue(Object, HistoryJournal.Output)}
+	 *
+	 * @param input The record containing required information to create the Object
+	 * @param removed <code>true</code> if the record removes the Object from the history, data
+	 *            read from the record must not be kept
+	 * @return return a new instance of an Object, or <code>null</code> if it no longer exists
+	 * @throws IOException if the record is malformed
+	 * @since 3.18
+	 */
+	protected abstract V readValue(HistoryJournal.Input input, boolean removed) throws IOException;
+
+	/**
+	 * Return a new instance of an Object given <code>element</code> of the former xml file
 	 *
 	 * @param element The element containing required information to create the Object
 	 * @return return a new instance of an Object given <code>element</code>
@@ -291,36 +434,4 @@ public abstract class History<K, V> {
 		rebuildPositions();
 	}
 
-	private void save(OutputStream stream) throws CoreException {
-		try {
-			DocumentBuilderFactory factory= DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder= factory.newDocumentBuilder();
-			Document document= builder.newDocument();
-
-			Element rootElement = document.createElement(fRootNodeName);
-			document.appendChild(rootElement);
-
-			Iterator<V> values= getValues().iterator();
-			while (values.hasNext()) {
-				Object object= values.next();
-				Element element= document.createElement(fInfoNodeName);
-				setAttributes(object, element);
-				rootElement.appendChild(element);
-			}
-
-			Transformer transformer=TransformerFactory.newInstance().newTransformer();
-			transformer.setOutputProperty(OutputKeys.METHOD, "xml"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //$NON-NLS-1$
-			DOMSource source = new DOMSource(document);
-			StreamResult result = new StreamResult(stream);
-
-			transformer.transform(source, result);
-		} catch (TransformerException e) {
-			throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
-		} catch (ParserConfigurationException e) {
-			throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
-		}
-	}
-
 }
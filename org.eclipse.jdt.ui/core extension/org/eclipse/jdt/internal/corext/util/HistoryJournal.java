@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only binary journal of history changes.
+ * <p>
+ * The journal starts with a magic number and a version, followed by records. Each record consists
+ * of a kind byte, the length of its payload and the payload. The record kinds are defined by the
+ * client, except for kind 0 which defines the next string of the string table: strings are stored
+ * once and referenced by their index afterwards.
+ * </p>
+ * <p>
+ * Clients replay the journal with {@link #read(RecordReader)} and either append the changes since
+ * the last write or, once the journal has grown too long compared to the state it describes,
+ * replace it with a snapshot of the state (see {@link #needsCompaction(int, int)}). A record that
+ * has not been written completely, e.g. because of a crash, ends the journal; it is cut off when
+ * the next records are appended.
+ * </p>
+ *
+ * @since 3.18
+ */
+public final class HistoryJournal {
+
+	/**
+	 * Receives the records of a journal.
+	 */
+	public interface RecordReader {
+
+		/**
+		 * Reads a record.
+		 *
+		 * @param kind the record kind
+		 * @param input the payload of the record
+		 * @throws IOException if the payload is malformed
+		 */
+		void read(byte kind, Input input) throws IOException;
+	}
+
+	/**
+	 * The payload of a record.
+	 */
+	public static final class Input {
+
+		private final DataInputStream fData;
+
+		private final List<String> fStrings;
+
+		Input(DataInputStream data, List<String> strings) {
+			fData= data;
+			fStrings= strings;
+		}
+
+		public String readString() throws IOException {
+			int index= fData.readInt();
+			if (index == -1)
+				return null;
+			if (index < 0 || index >= fStrings.size())
+				throw new IOException("Undefined string " + index); //$NON-NLS-1$
+			return fStrings.get(index);
+		}
+
+		public int readInt() throws IOException {
+			return fData.readInt();
+		}
+
+		public long readLong() throws IOException {
+			return fData.readLong();
+		}
+	}
+
+	/**
+	 * A batch of records to be written to the journal.
+	 */
+	public static final class Output {
+
+		private final boolean fSnapshot;
+
+		private final Map<String, Integer> fStringIndices;
+
+		private final ByteArrayOutputStream fBytes= new ByteArrayOutputStream();
+
+		private final DataOutputStream fBatch= new DataOutputStream(fBytes);
+
+		private final ByteArrayOutputStream fRecordBytes= new ByteArrayOutputStream();
+
+		private final DataOutputStream fRecord= new DataOutputStream(fRecordBytes);
+
+		private byte fKind= -1;
+
+		private int fRecordCount= 0;
+
+		Output(boolean snapshot, Map<String, Integer> stringIndices) {
+			fSnapshot= snapshot;
+			fStringIndices= stringIndices;
+		}
+
+		/**
+		 * Tells whether this batch replaces the journal.
+		 *
+		 * @return <code>true</code> if the records must describe the complete state
+		 */
+		public boolean isSnapshot() {
+			return fSnapshot;
+		}
+
+		/**
+		 * Starts a record.
+		 *
+		 * @param kind the record kind, greater than 0
+		 */
+		public void begin(byte kind) {
+			if (kind <= STRING || fKind != -1)
+				throw new IllegalStateException();
+			fKind= kind;
+		}
+
+		public void writeString(String string) throws IOException {
+			if (string == null) {
+				fRecord.writeInt(-1);
+				return;
+			}
+			Integer index= fStringIndices.get(string);
+			if (index == null) {
+				index= Integer.valueOf(fStringIndices.size());
+				fStringIndices.put(string, index);
+				ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+				new DataOutputStream(bytes).writeUTF(string);
+				fBatch.writeByte(STRING);
+				fBatch.writeInt(bytes.size());
+				bytes.writeTo(fBatch);
+			}
+			fRecord.writeInt(index.intValue());
+		}
+
+		public void writeInt(int value) throws IOException {
+			fRecord.writeInt(value);
+		}
+
+		public void writeLong(long value) throws IOException {
+			fRecord.writeLong(value);
+		}
+
+		/**
+		 * Ends the current record.
+		 *
+		 * @throws IOException if the record cannot be written
+		 */
+		public void end() throws IOException {
+			if (fKind == -1)
+				throw new IllegalStateException();
+			fRecord.flush();
+			fBatch.writeByte(fKind);
+			fBatch.writeInt(fRecordBytes.size());
+			fRecordBytes.writeTo(fBatch);
+			fRecordBytes.reset();
+			fKind= -1;
+			fRecordCount++;
+		}
+	}
+
+	private static final int MAGIC= 0x4A484A4E;
+
+	private static final int VERSION= 1;
+
+	/** The length of the magic number and the version */
+	private static final int HEADER_LENGTH= 8;
+
+	/** The record kind that defines a string */
+	private static final byte STRING= 0;
+
+	/** The number of records that a journal may always contain */
+	private static final int MIN_RECORDS= 64;
+
+	/** The factor by which the records may outnumber the records of a snapshot */
+	private static final int COMPACTION_FACTOR= 4;
+
+	private final File fFile;
+
+	/** The indices of the strings in the journal file */
+	private Map<String, Integer> fStringIndices= new HashMap<>();
+
+	/** The number of records in the journal file, or -1 if the file must be replaced */
+	private int fRecordCount= -1;
+
+	/** The length of the complete records in the journal file */
+	private long fLength;
+
+	/**
+	 * Creates a journal stored in the given file.
+	 *
+	 * @param file the journal file
+	 */
+	public HistoryJournal(File file) {
+		fFile= file;
+	}
+
+	/**
+	 * @return <code>true</code> if the journal file exists
+	 */
+	public boolean exists() {
+		return fFile.exists();
+	}
+
+	/**
+	 * Replays the records of the journal.
+	 *
+	 * @param reader the reader that receives the records
+	 * @return <code>false</code> if the file is not a journal of this version
+	 * @throws IOException if the file cannot be read or a record is malformed
+	 */
+	public synchronized boolean read(RecordReader reader) throws IOException {
+		fRecordCount= -1;
+		fStringIndices= new HashMap<>();
+		List<String> strings= new ArrayList<>();
+		try (DataInputStream input= new DataInputStream(new BufferedInputStream(new FileInputStream(fFile)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION)
+				return false;
+			long fileLength= fFile.length();
+			long length= HEADER_LENGTH;
+			int count= 0;
+			while (true) {
+				byte kind;
+				byte[] payload;
+				try {
+					kind= input.readByte();
+					int payloadLength= input.readInt();
+					if (payloadLength < 0 || length + 5 + payloadLength > fileLength)
+						break; // incomplete record
+					payload= new byte[payloadLength];
+					input.readFully(payload);
+				} catch (EOFException e) {
+					break;
+				}
+				DataInputStream data= new DataInputStream(new ByteArrayInputStream(payload));
+				if (kind == STRING) {
+					String string= data.readUTF();
+					fStringIndices.put(string, Integer.valueOf(strings.size()));
+					strings.add(string);
+				} else {
+					reader.read(kind, new Input(data, strings));
+					count++;
+				}
+				length+= 5 + payload.length;
+			}
+			fLength= length;
+			fRecordCount= count;
+			return true;
+		} catch (EOFException e) {
+			return false; // no header
+		}
+	}
+
+	/**
+	 * Tells whether the changes should be written as a snapshot that replaces the journal.
+	 *
+	 * @param snapshotRecords the number of records of a snapshot of the current state
+	 * @param changeRecords the number of records to append
+	 * @return <code>true</code> if a snapshot should be written
+	 */
+	public synchronized boolean needsCompaction(int snapshotRecords, int changeRecords) {
+		if (fRecordCount == -1)
+			return true;
+		return fRecordCount + changeRecords > COMPACTION_FACTOR * snapshotRecords + MIN_RECORDS;
+	}
+
+	/**
+	 * Creates a batch of records for this journal. Only one batch may be pending.
+	 *
+	 * @param snapshot <code>true</code> if the batch replaces the journal
+	 * @return the new batch
+	 */
+	public synchronized Output createOutput(boolean snapshot) {
+		if (!snapshot && fRecordCount == -1)
+			throw new IllegalStateException();
+		return new Output(snapshot, snapshot ? new HashMap<String, Integer>() : new HashMap<>(fStringIndices));
+	}
+
+	/**
+	 * Writes a batch of records. If the batch cannot be written, the next batch must be a
+	 * snapshot.
+	 *
+	 * @param output the batch created by {@link #createOutput(boolean)}
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void write(Output output) throws IOException {
+		int recordCount= fRecordCount;
+		fRecordCount= -1;
+		output.fBatch.flush();
+		if (output.fSnapshot) {
+			File temporary= new File(fFile.getPath() + ".tmp"); //$NON-NLS-1$
+			try (DataOutputStream file= new DataOutputStream(new FileOutputStream(temporary))) {
+				file.writeInt(MAGIC);
+				file.writeInt(VERSION);
+				output.fBytes.writeTo(file);
+			} catch (IOException e) {
+				temporary.delete();
+				throw e;
+			}
+			if (fFile.exists() && !fFile.delete() || !temporary.renameTo(fFile)) {
+				temporary.delete();
+				throw new IOException("Cannot replace " + fFile); //$NON-NLS-1$
+			}
+			fLength= HEADER_LENGTH + output.fBytes.size();
+			recordCount= 0;
+		} else if (output.fBytes.size() > 0) {
+			try (RandomAccessFile file= new RandomAccessFile(fFile, "rw")) { //$NON-NLS-1$
+				file.setLength(fLength);
+				file.seek(fLength);
+				file.write(output.fBytes.toByteArray());
+			}
+			fLength+= output.fBytes.size();
+		}
+		fStringIndices= output.fStringIndices;
+		fRecordCount= recordCount + output.fRecordCount;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,7 @@
  *******************************************************************************/
  package org.eclipse.jdt.internal.corext.util;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -324,6 +325,7 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 						replace(type, SearchEngine.createTypeNameMatch(jType, modifiers));
 					} else {
 						fTimestampMapping.put(type, Long.valueOf(currentTimestamp));
+						changed(type);
 					}
 				}
 			} catch (JavaModelException e) {
@@ -395,17 +397,12 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 		if (handle == null )
 			return null;
 
-		IJavaElement element= JavaCore.create(handle);
-		if (!(element instanceof IType))
-			return null;
-
 		int modifiers= 0;
 		try {
 			modifiers= Integer.parseInt(type.getAttribute(NODE_MODIFIERS));
 		} catch (NumberFormatException e) {
 			// take zero
 		}
-		TypeNameMatch info= SearchEngine.createTypeNameMatch((IType) element, modifiers);
 		long timestamp= IResource.NULL_STAMP;
 		String timestampValue= type.getAttribute(NODE_TIMESTAMP);
 		if (timestampValue != null && timestampValue.length() > 0) {
@@ -415,6 +412,31 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 				// take null stamp
 			}
 		}
+		return createTypeNameMatch(handle, modifiers, timestamp);
+	}
+
+	@Override
+	protected TypeNameMatch readValue(HistoryJournal.Input input, boolean removed) throws IOException {
+		String handle= input.readString();
+		int modifiers= input.readInt();
+		long timestamp= input.readLong();
+		if (handle == null)
+			return null;
+		if (!removed)
+			return createTypeNameMatch(handle, modifiers, timestamp);
+		// like remove(TypeNameMatch), the time stamp of a removed type is not kept
+		TypeNameMatch info= createTypeNameMatch(handle, modifiers, IResource.NULL_STAMP);
+		if (info != null)
+			fTimestampMapping.remove(info);
+		return info;
+	}
+
+	private TypeNameMatch createTypeNameMatch(String handle, int modifiers, long timestamp) {
+		IJavaElement element= JavaCore.create(handle);
+		if (!(element instanceof IType))
+			return null;
+
+		TypeNameMatch info= SearchEngine.createTypeNameMatch((IType) element, modifiers);
 		if (timestamp != IResource.NULL_STAMP) {
 			fTimestampMapping.put(info, Long.valueOf(timestamp));
 		}
@@ -422,17 +444,11 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 	}
 
 	@Override
-	protected void setAttributes(Object object, Element typeElement) {
-		TypeNameMatch type= (TypeNameMatch) object;
-		String handleId= type.getType().getHandleIdentifier();
-		typeElement.setAttribute(NODE_HANDLE, handleId);
-		typeElement.setAttribute(NODE_MODIFIERS, Integer.toString(type.getModifiers()));
+	protected void writeValue(TypeNameMatch type, HistoryJournal.Output output) throws IOException {
+		output.writeString(type.getType().getHandleIdentifier());
+		output.writeInt(type.getModifiers());
 		Long timestamp= fTimestampMapping.get(type);
-		if (timestamp == null) {
-			typeElement.setAttribute(NODE_TIMESTAMP, Long.toString(IResource.NULL_STAMP));
-		} else {
-			typeElement.setAttribute(NODE_TIMESTAMP, timestamp.toString());
-		}
+		output.writeLong(timestamp == null ? IResource.NULL_STAMP : timestamp.longValue());
 	}
 
 }
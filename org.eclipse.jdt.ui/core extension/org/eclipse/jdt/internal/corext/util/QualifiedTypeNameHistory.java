@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.util;
 
+import java.io.IOException;
+
 import org.w3c.dom.Element;
 
 public class QualifiedTypeNameHistory extends History<String, String> {
@@ -37,8 +39,13 @@ public class QualifiedTypeNameHistory extends History<String, String> {
 	}
 
 	@Override
-	protected void setAttributes(Object object, Element element) {
-		element.setAttribute(NODE_NAME, (String)object);
+	protected void writeValue(String object, HistoryJournal.Output output) throws IOException {
+		output.writeString(object);
+	}
+
+	@Override
+	protected String readValue(HistoryJournal.Input input, boolean removed) throws IOException {
+		return input.readString();
 	}
 
 	@Override
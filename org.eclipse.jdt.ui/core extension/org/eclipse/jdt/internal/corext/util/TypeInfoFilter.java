@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -171,10 +171,21 @@ public class TypeInfoFilter {
 	}
 
 	private boolean matchesName(TypeNameMatch type) {
+		return matchesName(type.getSimpleTypeName());
+	}
+
+	/**
+	 * Tells whether the name pattern matches the given simple type name.
+	 *
+	 * @param simpleTypeName the simple type name
+	 * @return <code>true</code> if the name matches
+	 * @since 3.18
+	 */
+	public boolean matchesName(String simpleTypeName) {
 		if (fText.length() == 0) {
 			return true; //empty pattern matches all names
 		}
-		return fNameMatcher.matches(type.getSimpleTypeName());
+		return fNameMatcher.matches(simpleTypeName);
 	}
 
 	private boolean matchesPackage(TypeNameMatch type) {
@@ -190,9 +201,20 @@ public class TypeInfoFilter {
 	}
 
 	private boolean matchesModifiers(TypeNameMatch type) {
+		return matchesModifiers(type.getModifiers());
+	}
+
+	/**
+	 * Tells whether types with the given modifiers are of the element kind of this filter.
+	 *
+	 * @param typeModifiers the modifiers of a type
+	 * @return <code>true</code> if the type kind matches
+	 * @since 3.18
+	 */
+	public boolean matchesModifiers(int typeModifiers) {
 		if (fElementKind == IJavaSearchConstants.TYPE)
 			return true;
-		int modifiers= type.getModifiers() & TYPE_MODIFIERS;
+		int modifiers= typeModifiers & TYPE_MODIFIERS;
 		switch (fElementKind) {
 			case IJavaSearchConstants.CLASS:
 				return modifiers == 0;
@@ -0,0 +1,980 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Index of the names of all types on the class paths of the Java projects in the workspace, used by
+ * the open type dialog.
+ * <p>
+ * The types are sorted by their simple names ignoring case, so that prefix and camel case patterns
+ * only visit the types starting with the same letters. The index is stored in the state location
+ * of the plug-in and memory-mapped when it is loaded. Package fragment roots are re-indexed with
+ * the search engine when Java element deltas report changes in them, when they are added to a class
+ * path, and, for archives, when their time stamps differ from the stored ones. Types of re-indexed
+ * roots are kept in memory until the index is written again.
+ * </p>
+ * <p>
+ * A mapped file cannot be deleted or replaced on some platforms until the mapping has been garbage
+ * collected, so every write creates a new generation of the file with an increasing number in its
+ * name. Older generations are deleted when the index is loaded, which fails silently while they are
+ * still mapped; they are deleted by a later load then.
+ * </p>
+ * <p>
+ * File format: magic (int), version (int), the number of roots (int) and for each root its key,
+ * handle identifier (modified UTF-8) and time stamp (long), the number of packages (int) and their
+ * names (modified UTF-8), the number of types (int), the size of the character area (int), the
+ * table of types and the character area. A type consists of the offsets (int) of its simple name,
+ * enclosing type names and compilation unit name in the character area, the index of its package
+ * (int), the index of its root (int) and its modifiers (int). Offsets are -1 if the type has no
+ * enclosing type or is a binary type. Strings in the character area consist of their length
+ * (unsigned short) and characters.
+ * </p>
+ *
+ * @since 3.18
+ */
+public final class TypeNameIndex {
+
+	/**
+	 * A package fragment root whose types are indexed.
+	 */
+	private static final class RootInfo {
+
+		/** The path and name of the root */
+		final String fKey;
+
+		/** The handle identifier of the root in one of the projects that reference it */
+		String fHandle;
+
+		/** The time stamp of the indexed archive, or {@link TypeNameIndex#UNKNOWN_STAMP} */
+		long fStamp= UNKNOWN_STAMP;
+
+		/** <code>true</code> if the types of the root in the stored index are valid */
+		boolean fInBase;
+
+		/** <code>true</code> if the root has to be re-indexed */
+		boolean fDirty;
+
+		/** <code>true</code> if the root is not on any class path */
+		boolean fRemoved;
+
+		private IPackageFragmentRoot fRoot;
+
+		RootInfo(String key, String handle) {
+			fKey= key;
+			fHandle= handle;
+		}
+
+		IPackageFragmentRoot getRoot() {
+			if (fRoot == null)
+				fRoot= (IPackageFragmentRoot) JavaCore.create(fHandle);
+			return fRoot;
+		}
+
+		void setRoot(IPackageFragmentRoot root) {
+			fRoot= root;
+			fHandle= root.getHandleIdentifier();
+		}
+
+		boolean isValid(boolean inBase) {
+			return !fRemoved && (!inBase || fInBase);
+		}
+	}
+
+	/**
+	 * A type of the index.
+	 */
+	private static final class Entry {
+
+		final String fName;
+
+		final String fEnclosingNames;
+
+		final String fContainerName;
+
+		final String fPackageName;
+
+		final RootInfo fRootInfo;
+
+		final int fModifiers;
+
+		Entry(String name, String enclosingNames, String containerName, String packageName, RootInfo rootInfo, int modifiers) {
+			fName= name;
+			fEnclosingNames= enclosingNames;
+			fContainerName= containerName;
+			fPackageName= packageName;
+			fRootInfo= rootInfo;
+			fModifiers= modifiers;
+		}
+	}
+
+	/**
+	 * The stored index.
+	 */
+	private static final class Base {
+
+		final MappedByteBuffer fBuffer;
+
+		final RootInfo[] fRoots;
+
+		final String[] fPackages;
+
+		final int fCount;
+
+		final int fTable;
+
+		final int fCharacters;
+
+		Base(MappedByteBuffer buffer, RootInfo[] roots, String[] packages, int count, int table) {
+			fBuffer= buffer;
+			fRoots= roots;
+			fPackages= packages;
+			fCount= count;
+			fTable= table;
+			fCharacters= table + count * RECORD_SIZE;
+		}
+
+		int getInt(int index, int field) {
+			return fBuffer.getInt(fTable + index * RECORD_SIZE + field);
+		}
+
+		String getString(int offset) {
+			if (offset < 0)
+				return null;
+			int position= fCharacters + offset;
+			char[] chars= new char[fBuffer.getChar(position)];
+			for (int i= 0; i < chars.length; i++)
+				chars[i]= fBuffer.getChar(position + 2 + 2 * i);
+			return new String(chars);
+		}
+
+		/**
+		 * Compares the simple name of a type with a lower case prefix.
+		 *
+		 * @return a negative value if the name is less than the prefix, 0 if it starts with the
+		 *         prefix, and a positive value otherwise
+		 */
+		int compareToPrefix(int index, String prefix) {
+			int position= fCharacters + getInt(index, NAME);
+			int length= fBuffer.getChar(position);
+			for (int i= 0; i < prefix.length(); i++) {
+				if (i == length)
+					return -1;
+				int difference= toLowerCase(fBuffer.getChar(position + 2 + 2 * i)) - prefix.charAt(i);
+				if (difference != 0)
+					return difference;
+			}
+			return 0;
+		}
+
+		Entry getEntry(int index) {
+			return new Entry(getString(getInt(index, NAME)), getString(getInt(index, ENCLOSING)), getString(getInt(index, CONTAINER)),
+					fPackages[getInt(index, PACKAGE)], fRoots[getInt(index, ROOT)], getInt(index, MODIFIERS));
+		}
+	}
+
+	/** Compares entries by their simple names, ignoring case */
+	private static final Comparator<Entry> ENTRY_COMPARATOR= new Comparator<Entry>() {
+		@Override
+		public int compare(Entry first, Entry second) {
+			return compareIgnoreCase(first.fName, second.fName);
+		}
+	};
+
+	private static final String FILE_PREFIX= "TypeNameIndex."; //$NON-NLS-1$
+
+	private static final String FILE_SUFFIX= ".bin"; //$NON-NLS-1$
+
+	private static final String TEMPORARY_SUFFIX= ".tmp"; //$NON-NLS-1$
+
+	/** The magic number of the index file */
+	private static final int MAGIC= 0x4A544E49;
+
+	/** The version of the index file format */
+	private static final int VERSION= 1;
+
+	/** Offsets of the fields of a type in the table */
+	private static final int NAME= 0, ENCLOSING= 4, CONTAINER= 8, PACKAGE= 12, ROOT= 16, MODIFIERS= 20;
+
+	private static final int RECORD_SIZE= 24;
+
+	/** The time stamp of roots whose changes cannot be detected from outside the workbench */
+	private static final long UNKNOWN_STAMP= -1;
+
+	/** The number of types kept in memory above which the index is written and mapped again */
+	private static final int COMPACTION_THRESHOLD= 20000;
+
+	/** The interval in types in which searches check for cancellation */
+	private static final int CANCEL_CHECK_INTERVAL= 1000;
+
+	private static TypeNameIndex fgDefault;
+
+	/**
+	 * Returns the type name index of the workspace.
+	 *
+	 * @return the type name index
+	 */
+	public static synchronized TypeNameIndex getDefault() {
+		if (fgDefault == null)
+			fgDefault= new TypeNameIndex(JavaPlugin.getDefault().getStateLocation().toFile());
+		return fgDefault;
+	}
+
+	/**
+	 * Stores the index if it has changed and stops tracking changes.
+	 */
+	public static synchronized void shutdown() {
+		if (fgDefault == null)
+			return;
+		fgDefault.dispose();
+		fgDefault= null;
+	}
+
+	private final IElementChangedListener fDeltaListener;
+
+	/** The directory of the index files */
+	private final File fDirectory;
+
+	/** The generation of the newest index file, or 0 if there is none */
+	private long fGeneration;
+
+	/** The roots by their keys */
+	private final Map<String, RootInfo> fRoots= new LinkedHashMap<>();
+
+	/** The stored index, or <code>null</code> if there is none */
+	private Base fBase;
+
+	/** The types that are not in the stored index, sorted by {@link #ENTRY_COMPARATOR} */
+	private List<Entry> fEntries= new ArrayList<>();
+
+	/** <code>true</code> if the index differs from the stored one */
+	private boolean fModified;
+
+	private boolean fLoaded;
+
+	/** Set when the class path of a project or the set of projects may have changed */
+	private volatile boolean fRootsChanged= true;
+
+	/**
+	 * The keys of the roots reported as changed by Java element deltas. The delta listener does not
+	 * lock the index, since updates of the index wait for the indexer of the search engine.
+	 */
+	private final Set<String> fChangedRoots= ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Creates an index that is stored in the given directory. The index of the workspace is
+	 * returned by {@link #getDefault()}; other instances must be disposed by their creators.
+	 *
+	 * @param directory the directory of the index files
+	 */
+	public TypeNameIndex(File directory) {
+		fDirectory= directory;
+		fDeltaListener= new IElementChangedListener() {
+			@Override
+			public void elementChanged(ElementChangedEvent event) {
+				processDelta(event.getDelta());
+			}
+		};
+		JavaCore.addElementChangedListener(fDeltaListener, ElementChangedEvent.POST_CHANGE);
+	}
+
+	/**
+	 * Re-indexes the package fragment roots that have changed.
+	 *
+	 * @param monitor the progress monitor, can be <code>null</code>
+	 * @throws JavaModelException if the search engine fails
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	public void update(IProgressMonitor monitor) throws JavaModelException {
+		SubMonitor subMonitor= SubMonitor.convert(monitor, 10);
+		final Map<String, RootInfo> dirty= new HashMap<>();
+		List<IJavaElement> scopeRoots= new ArrayList<>();
+		synchronized (this) {
+			if (!fLoaded) {
+				fLoaded= true;
+				load();
+			}
+			if (fRootsChanged) {
+				fRootsChanged= false;
+				updateRoots();
+			}
+			for (Iterator<String> iter= fChangedRoots.iterator(); iter.hasNext();) {
+				RootInfo info= fRoots.get(iter.next());
+				iter.remove();
+				if (info != null)
+					info.fDirty= true;
+			}
+			for (Iterator<RootInfo> iter= fRoots.values().iterator(); iter.hasNext();) {
+				RootInfo info= iter.next();
+				if (info.fDirty && !info.fRemoved) {
+					dirty.put(info.fKey, info);
+					scopeRoots.add(info.getRoot());
+				}
+			}
+		}
+		subMonitor.worked(1);
+		if (dirty.isEmpty())
+			return;
+
+		// take the stamps before searching, so that changes during the search are detected later
+		Map<String, Long> stamps= new HashMap<>();
+		for (Iterator<RootInfo> iter= dirty.values().iterator(); iter.hasNext();) {
+			RootInfo info= iter.next();
+			stamps.put(info.fKey, Long.valueOf(getStamp(info.getRoot())));
+		}
+
+		// the search waits for the indexer, do not block searches of the index meanwhile
+		final List<Entry> entries= new ArrayList<>();
+		IJavaSearchScope scope= SearchEngine.createJavaSearchScope(scopeRoots.toArray(new IJavaElement[scopeRoots.size()]));
+		new SearchEngine().searchAllTypeNames(null, SearchPattern.R_PREFIX_MATCH, null, SearchPattern.R_PREFIX_MATCH, IJavaSearchConstants.TYPE, scope,
+				new TypeNameMatchRequestor() {
+					@Override
+					public void acceptTypeNameMatch(TypeNameMatch match) {
+						RootInfo info= dirty.get(getKey(match.getPackageFragmentRoot()));
+						if (info != null)
+							entries.add(createEntry(match, info));
+					}
+				}, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, subMonitor.split(9));
+
+		merge(dirty, stamps, entries);
+	}
+
+	/**
+	 * Replaces the types of re-indexed roots.
+	 *
+	 * @param dirty the re-indexed roots by their keys
+	 * @param stamps the time stamps of the re-indexed roots by their keys
+	 * @param entries the types found in the re-indexed roots
+	 */
+	private synchronized void merge(Map<String, RootInfo> dirty, Map<String, Long> stamps, List<Entry> entries) {
+		// roots that have been replaced by writing the index or removed from the class paths meanwhile stay dirty
+		Set<String> updated= new HashSet<>();
+		for (Iterator<RootInfo> iter= dirty.values().iterator(); iter.hasNext();) {
+			RootInfo info= iter.next();
+			if (fRoots.get(info.fKey) != info || info.fRemoved)
+				continue;
+			info.fDirty= false;
+			info.fInBase= false;
+			info.fStamp= stamps.get(info.fKey).longValue();
+			updated.add(info.fKey);
+		}
+		if (updated.isEmpty())
+			return;
+
+		List<Entry> merged= new ArrayList<>(entries.size() + fEntries.size());
+		for (Iterator<Entry> iter= entries.iterator(); iter.hasNext();) {
+			Entry entry= iter.next();
+			if (updated.contains(entry.fRootInfo.fKey))
+				merged.add(entry);
+		}
+		for (Iterator<Entry> iter= fEntries.iterator(); iter.hasNext();) {
+			Entry entry= iter.next();
+			if (!entry.fRootInfo.fRemoved && !updated.contains(entry.fRootInfo.fKey))
+				merged.add(entry);
+		}
+		Collections.sort(merged, ENTRY_COMPARATOR);
+		fEntries= merged;
+		fModified= true;
+		if (fEntries.size() > COMPACTION_THRESHOLD)
+			save();
+	}
+
+	/**
+	 * Reports the types accepted by the given filter. Types of primary working copies with unsaved
+	 * changes are reported from the working copies.
+	 *
+	 * @param filter the filter
+	 * @param requestor the requestor to report the types to
+	 * @param monitor the progress monitor, can be <code>null</code>
+	 * @throws JavaModelException if the index cannot be updated
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	public void search(TypeInfoFilter filter, TypeNameMatchRequestor requestor, IProgressMonitor monitor) throws JavaModelException {
+		SubMonitor subMonitor= SubMonitor.convert(monitor, 10);
+		update(subMonitor.split(5));
+
+		Set<String> workingCopies= new HashSet<>();
+		ICompilationUnit[] units= JavaCore.getWorkingCopies(null);
+		for (int i= 0; i < units.length; i++) {
+			ICompilationUnit unit= units[i];
+			if (!unit.hasUnsavedChanges())
+				continue;
+			IPackageFragment pack= (IPackageFragment) unit.getParent();
+			workingCopies.add(getContainerKey(getKey((IPackageFragmentRoot) pack.getParent()), pack.getElementName(), unit.getElementName()));
+			IType[] types= unit.getAllTypes();
+			for (int j= 0; j < types.length; j++)
+				report(filter, requestor, types[j], types[j].getFlags());
+		}
+		search(filter, requestor, workingCopies, subMonitor);
+		subMonitor.done();
+	}
+
+	private synchronized void search(TypeInfoFilter filter, TypeNameMatchRequestor requestor, Set<String> workingCopies, IProgressMonitor monitor) {
+		String prefix= getCandidatePrefix(filter);
+		int visited= 0;
+		Base base= fBase;
+		if (base != null) {
+			for (int i= findFirst(base, prefix); i < base.fCount && base.compareToPrefix(i, prefix) == 0; i++) {
+				if (++visited % CANCEL_CHECK_INTERVAL == 0)
+					checkCanceled(monitor);
+				if (!base.fRoots[base.getInt(i, ROOT)].isValid(true) || !filter.matchesModifiers(base.getInt(i, MODIFIERS)))
+					continue;
+				if (!filter.matchesName(base.getString(base.getInt(i, NAME))))
+					continue;
+				report(filter, requestor, base.getEntry(i), workingCopies);
+			}
+		}
+		for (int i= findFirst(fEntries, prefix); i < fEntries.size() && startsWithIgnoreCase(fEntries.get(i).fName, prefix); i++) {
+			if (++visited % CANCEL_CHECK_INTERVAL == 0)
+				checkCanceled(monitor);
+			Entry entry= fEntries.get(i);
+			if (entry.fRootInfo.isValid(false) && filter.matchesModifiers(entry.fModifiers) && filter.matchesName(entry.fName))
+				report(filter, requestor, entry, workingCopies);
+		}
+	}
+
+	private void report(TypeInfoFilter filter, TypeNameMatchRequestor requestor, Entry entry, Set<String> workingCopies) {
+		if (entry.fContainerName != null && workingCopies.contains(getContainerKey(entry.fRootInfo.fKey, entry.fPackageName, entry.fContainerName)))
+			return;
+		IType type= createType(entry);
+		if (type != null)
+			report(filter, requestor, type, entry.fModifiers);
+	}
+
+	private static void report(TypeInfoFilter filter, TypeNameMatchRequestor requestor, IType type, int modifiers) {
+		TypeNameMatch match= SearchEngine.createTypeNameMatch(type, modifiers);
+		if (filter.matchesHistoryElement(match))
+			requestor.acceptTypeNameMatch(match);
+	}
+
+	private static IType createType(Entry entry) {
+		IPackageFragmentRoot root= entry.fRootInfo.getRoot();
+		if (root == null)
+			return null;
+		IPackageFragment pack= root.getPackageFragment(entry.fPackageName);
+		if (entry.fContainerName == null) {
+			String binaryName= entry.fEnclosingNames == null ? entry.fName : entry.fEnclosingNames.replace('.', '$') + '$' + entry.fName;
+			return pack.getOrdinaryClassFile(binaryName + ".class").getType(); //$NON-NLS-1$
+		}
+		ICompilationUnit unit= pack.getCompilationUnit(entry.fContainerName);
+		if (entry.fEnclosingNames == null)
+			return unit.getType(entry.fName);
+		String[] enclosingNames= entry.fEnclosingNames.split("\\."); //$NON-NLS-1$
+		IType type= unit.getType(enclosingNames[0]);
+		for (int i= 1; i < enclosingNames.length; i++)
+			type= type.getType(enclosingNames[i]);
+		return type.getType(entry.fName);
+	}
+
+	private static Entry createEntry(TypeNameMatch match, RootInfo info) {
+		String name= match.getSimpleTypeName();
+		String qualifiedName= match.getTypeQualifiedName();
+		String enclosingNames= qualifiedName.length() > name.length() ? qualifiedName.substring(0, qualifiedName.length() - name.length() - 1) : null;
+		ICompilationUnit unit= match.getType().getCompilationUnit();
+		String containerName= unit != null ? unit.getElementName() : null;
+		return new Entry(name, enclosingNames, containerName, match.getPackageName(), info, match.getModifiers());
+	}
+
+	/**
+	 * Returns a lower case prefix of the simple names of all types matched by the filter.
+	 *
+	 * @param filter the filter
+	 * @return the prefix
+	 */
+	private static String getCandidatePrefix(TypeInfoFilter filter) {
+		String pattern= filter.getNamePattern();
+		switch (filter.getSearchFlags()) {
+			case SearchPattern.R_PATTERN_MATCH:
+				for (int i= 0; i < pattern.length(); i++) {
+					char c= pattern.charAt(i);
+					if (c == '*' || c == '?') {
+						pattern= pattern.substring(0, i);
+						break;
+					}
+				}
+				break;
+			case SearchPattern.R_CAMELCASE_MATCH:
+			case SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH:
+				// camel case patterns only fix the first character
+				if (pattern.length() > 1)
+					pattern= pattern.substring(0, 1);
+				break;
+			default:
+				break;
+		}
+		StringBuilder prefix= new StringBuilder(pattern.length());
+		for (int i= 0; i < pattern.length(); i++)
+			prefix.append(toLowerCase(pattern.charAt(i)));
+		return prefix.toString();
+	}
+
+	private static int findFirst(Base base, String prefix) {
+		int low= 0;
+		int high= base.fCount;
+		while (low < high) {
+			int middle= (low + high) >>> 1;
+			if (base.compareToPrefix(middle, prefix) < 0)
+				low= middle + 1;
+			else
+				high= middle;
+		}
+		return low;
+	}
+
+	private static int findFirst(List<Entry> entries, String prefix) {
+		int low= 0;
+		int high= entries.size();
+		while (low < high) {
+			int middle= (low + high) >>> 1;
+			if (compareIgnoreCase(entries.get(middle).fName, prefix) < 0)
+				low= middle + 1;
+			else
+				high= middle;
+		}
+		return low;
+	}
+
+	private static void checkCanceled(IProgressMonitor monitor) {
+		if (monitor.isCanceled())
+			throw new OperationCanceledException();
+	}
+
+	private static char toLowerCase(char c) {
+		return Character.toLowerCase(c);
+	}
+
+	private static int compareIgnoreCase(String first, String second) {
+		int length= Math.min(first.length(), second.length());
+		for (int i= 0; i < length; i++) {
+			int difference= toLowerCase(first.charAt(i)) - toLowerCase(second.charAt(i));
+			if (difference != 0)
+				return difference;
+		}
+		return first.length() - second.length();
+	}
+
+	private static boolean startsWithIgnoreCase(String name, String prefix) {
+		if (name.length() < prefix.length())
+			return false;
+		for (int i= 0; i < prefix.length(); i++) {
+			if (toLowerCase(name.charAt(i)) != prefix.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private static String getKey(IPackageFragmentRoot root) {
+		// all modules of a JRT system library share the same path
+		return root.getPath().toString() + '!' + root.getElementName();
+	}
+
+	private static String getContainerKey(String rootKey, String packageName, String containerName) {
+		return rootKey + '/' + packageName + '/' + containerName;
+	}
+
+	private static long getStamp(IPackageFragmentRoot root) {
+		if (root == null || !root.isArchive())
+			return UNKNOWN_STAMP;
+		File file;
+		IResource resource= root.getResource();
+		if (resource != null) {
+			IPath location= resource.getLocation();
+			if (location == null)
+				return UNKNOWN_STAMP;
+			file= location.toFile();
+		} else {
+			file= root.getPath().toFile();
+		}
+		long lastModified= file.lastModified();
+		if (lastModified == 0)
+			return UNKNOWN_STAMP;
+		return lastModified * 31 + file.length();
+	}
+
+	/**
+	 * Synchronizes the roots with the class paths of the Java projects.
+	 */
+	private void updateRoots() {
+		Map<String, IPackageFragmentRoot> current= new LinkedHashMap<>();
+		try {
+			IJavaProject[] projects= JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects();
+			for (int i= 0; i < projects.length; i++) {
+				try {
+					IPackageFragmentRoot[] roots= projects[i].getAllPackageFragmentRoots();
+					for (int j= 0; j < roots.length; j++) {
+						String key= getKey(roots[j]);
+						if (!current.containsKey(key))
+							current.put(key, roots[j]);
+					}
+				} catch (JavaModelException e) {
+					// closed or broken project, its roots are not searched either
+				}
+			}
+		} catch (JavaModelException e) {
+			JavaPlugin.log(e);
+			return;
+		}
+
+		for (Iterator<RootInfo> iter= fRoots.values().iterator(); iter.hasNext();) {
+			RootInfo info= iter.next();
+			if (!current.containsKey(info.fKey) && !info.fRemoved) {
+				info.fRemoved= true;
+				fModified= true;
+			}
+		}
+		for (Iterator<Map.Entry<String, IPackageFragmentRoot>> iter= current.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, IPackageFragmentRoot> entry= iter.next();
+			RootInfo info= fRoots.get(entry.getKey());
+			if (info == null) {
+				info= new RootInfo(entry.getKey(), entry.getValue().getHandleIdentifier());
+				info.fDirty= true;
+				fRoots.put(info.fKey, info);
+				continue;
+			}
+			// the project of the stored handle may have been removed
+			info.setRoot(entry.getValue());
+			if (info.fRemoved) {
+				info.fRemoved= false;
+				info.fDirty= true;
+			} else if (info.fStamp != UNKNOWN_STAMP && info.fStamp != getStamp(info.getRoot())) {
+				info.fDirty= true;
+			}
+		}
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		int flags= delta.getFlags();
+		boolean isAddedOrRemoved= delta.getKind() != IJavaElementDelta.CHANGED;
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				processChildrenDelta(delta);
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (isAddedOrRemoved || (flags & (IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED | IJavaElementDelta.F_CLASSPATH_CHANGED
+						| IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0) {
+					fRootsChanged= true;
+				}
+				processChildrenDelta(delta);
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (isAddedOrRemoved || (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH)) != 0) {
+					fRootsChanged= true;
+				} else if ((flags & IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED) != 0 || hasTypeChanges(delta)) {
+					fChangedRoots.add(getKey((IPackageFragmentRoot) element));
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void processChildrenDelta(IJavaElementDelta delta) {
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++)
+			processDelta(children[i]);
+	}
+
+	/**
+	 * Tells whether a delta below a package fragment root may add or remove types.
+	 *
+	 * @param delta the delta
+	 * @return <code>true</code> if the saved types in the root may have changed
+	 */
+	private static boolean hasTypeChanges(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.COMPILATION_UNIT:
+				if (!JavaModelUtil.isPrimary((ICompilationUnit) element))
+					return false;
+				if (delta.getKind() != IJavaElementDelta.CHANGED)
+					return true;
+				// changes of working copies are reported from the working copies
+				return (delta.getFlags() & IJavaElementDelta.F_CONTENT) != 0 && (delta.getFlags() & IJavaElementDelta.F_PRIMARY_WORKING_COPY) == 0;
+			case IJavaElement.CLASS_FILE:
+				return true;
+			default:
+				if (delta.getKind() != IJavaElementDelta.CHANGED)
+					return true;
+				IJavaElementDelta[] children= delta.getAffectedChildren();
+				for (int i= 0; i < children.length; i++) {
+					if (hasTypeChanges(children[i]))
+						return true;
+				}
+				return false;
+		}
+	}
+
+	private File getFile(long generation, String suffix) {
+		return new File(fDirectory, FILE_PREFIX + generation + suffix);
+	}
+
+	/**
+	 * Returns the generation of an index file.
+	 *
+	 * @param name the name of the file
+	 * @param suffix the suffix of index files or of temporary files
+	 * @return the generation, or 0 if the name is not the one of a generation
+	 */
+	private static long getGeneration(String name, String suffix) {
+		if (!name.startsWith(FILE_PREFIX) || !name.endsWith(suffix))
+			return 0;
+		try {
+			return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - suffix.length()));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Maps the newest index file and deletes the older ones.
+	 */
+	private void load() {
+		String[] names= fDirectory.list();
+		if (names == null)
+			return;
+		long newest= 0;
+		for (int i= 0; i < names.length; i++)
+			newest= Math.max(newest, getGeneration(names[i], FILE_SUFFIX));
+		fGeneration= newest;
+		for (int i= 0; i < names.length; i++) {
+			long generation= getGeneration(names[i], FILE_SUFFIX);
+			if (generation != 0 && generation < newest || getGeneration(names[i], TEMPORARY_SUFFIX) != 0)
+				new File(fDirectory, names[i]).delete();
+		}
+		if (newest == 0)
+			return;
+
+		try (RandomAccessFile stream= new RandomAccessFile(getFile(newest, FILE_SUFFIX), "r")) { //$NON-NLS-1$
+			if (stream.readInt() != MAGIC || stream.readInt() != VERSION)
+				return;
+			RootInfo[] roots= new RootInfo[stream.readInt()];
+			for (int i= 0; i < roots.length; i++) {
+				roots[i]= new RootInfo(stream.readUTF(), stream.readUTF());
+				roots[i].fStamp= stream.readLong();
+				roots[i].fInBase= true;
+				// changes of source folders and class folders are not detected while the workbench is not running
+				roots[i].fDirty= roots[i].fStamp == UNKNOWN_STAMP;
+			}
+			String[] packages= new String[stream.readInt()];
+			for (int i= 0; i < packages.length; i++)
+				packages[i]= stream.readUTF();
+			int count= stream.readInt();
+			int characters= stream.readInt();
+			int table= (int) stream.getFilePointer();
+			if (count < 0 || characters < 0 || (long) table + (long) count * RECORD_SIZE + characters != stream.length())
+				return;
+			MappedByteBuffer buffer= stream.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, stream.length());
+			fBase= new Base(buffer, roots, packages, count, table);
+			fRoots.clear();
+			for (int i= 0; i < roots.length; i++)
+				fRoots.put(roots[i].fKey, roots[i]);
+		} catch (IOException | BufferUnderflowException e) {
+			JavaPlugin.log(e);
+		}
+	}
+
+	/**
+	 * Writes the index to a new generation of the file and maps it.
+	 */
+	private void save() {
+		List<RootInfo> roots= new ArrayList<>();
+		Map<RootInfo, Integer> rootIndexes= new HashMap<>();
+		for (Iterator<RootInfo> iter= fRoots.values().iterator(); iter.hasNext();) {
+			RootInfo info= iter.next();
+			if (!info.fRemoved) {
+				rootIndexes.put(info, Integer.valueOf(roots.size()));
+				roots.add(info);
+			}
+		}
+		List<String> packages= new ArrayList<>();
+		Map<String, Integer> packageIndexes= new HashMap<>();
+		List<Entry> entries= getValidEntries();
+
+		long generation= fGeneration + 1;
+		File temporary= getFile(generation, TEMPORARY_SUFFIX);
+		try {
+			ByteArrayOutputStream table= new ByteArrayOutputStream(entries.size() * RECORD_SIZE);
+			DataOutputStream tableOut= new DataOutputStream(table);
+			ByteArrayOutputStream characters= new ByteArrayOutputStream();
+			DataOutputStream charactersOut= new DataOutputStream(characters);
+			for (Iterator<Entry> iter= entries.iterator(); iter.hasNext();) {
+				Entry entry= iter.next();
+				Integer packageIndex= packageIndexes.get(entry.fPackageName);
+				if (packageIndex == null) {
+					packageIndex= Integer.valueOf(packages.size());
+					packageIndexes.put(entry.fPackageName, packageIndex);
+					packages.add(entry.fPackageName);
+				}
+				tableOut.writeInt(writeString(charactersOut, entry.fName));
+				tableOut.writeInt(writeString(charactersOut, entry.fEnclosingNames));
+				tableOut.writeInt(writeString(charactersOut, entry.fContainerName));
+				tableOut.writeInt(packageIndex.intValue());
+				tableOut.writeInt(rootIndexes.get(entry.fRootInfo).intValue());
+				tableOut.writeInt(entry.fModifiers);
+			}
+
+			fDirectory.mkdirs();
+			try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(roots.size());
+				for (Iterator<RootInfo> iter= roots.iterator(); iter.hasNext();) {
+					RootInfo info= iter.next();
+					out.writeUTF(info.fKey);
+					out.writeUTF(info.fHandle);
+					out.writeLong(info.fDirty ? UNKNOWN_STAMP : info.fStamp);
+				}
+				out.writeInt(packages.size());
+				for (Iterator<String> iter= packages.iterator(); iter.hasNext();)
+					out.writeUTF(iter.next());
+				out.writeInt(entries.size());
+				out.writeInt(characters.size());
+				table.writeTo(out);
+				characters.writeTo(out);
+			}
+			// the mapped file of the current generation is not touched
+			if (!temporary.renameTo(getFile(generation, FILE_SUFFIX))) {
+				temporary.delete();
+				return;
+			}
+		} catch (IOException e) {
+			temporary.delete();
+			JavaPlugin.log(e);
+			return;
+		}
+
+		Map<String, RootInfo> current= new LinkedHashMap<>(fRoots);
+		Base previousBase= fBase;
+		List<Entry> previousEntries= fEntries;
+		fBase= null;
+		fEntries= new ArrayList<>();
+		fModified= false;
+		load();
+		if (fBase == null) {
+			// the written file cannot be read, keep the index in memory
+			fGeneration= Math.max(fGeneration, generation);
+			fBase= previousBase;
+			fEntries= previousEntries;
+			fModified= true;
+			fRoots.clear();
+			fRoots.putAll(current);
+			return;
+		}
+		// keep the state of roots that are not stored, e.g. the dirty flags of source folders
+		for (Iterator<RootInfo> iter= current.values().iterator(); iter.hasNext();) {
+			RootInfo info= iter.next();
+			RootInfo loaded= fRoots.get(info.fKey);
+			if (loaded == null) {
+				fRoots.put(info.fKey, info);
+			} else {
+				loaded.fDirty= info.fDirty;
+				loaded.fStamp= info.fStamp;
+			}
+		}
+	}
+
+	/**
+	 * @return the types of all roots that are on a class path, sorted by {@link #ENTRY_COMPARATOR}
+	 */
+	private List<Entry> getValidEntries() {
+		List<Entry> entries= new ArrayList<>();
+		Base base= fBase;
+		int i= 0;
+		int j= 0;
+		int count= base != null ? base.fCount : 0;
+		while (i < count || j < fEntries.size()) {
+			Entry entry;
+			if (j == fEntries.size() || i < count && compareIgnoreCase(base.getString(base.getInt(i, NAME)), fEntries.get(j).fName) <= 0) {
+				entry= base.fRoots[base.getInt(i, ROOT)].isValid(true) ? base.getEntry(i) : null;
+				i++;
+			} else {
+				entry= fEntries.get(j).fRootInfo.isValid(false) ? fEntries.get(j) : null;
+				j++;
+			}
+			if (entry != null)
+				entries.add(entry);
+		}
+		return entries;
+	}
+
+	private static int writeString(DataOutputStream out, String string) throws IOException {
+		if (string == null)
+			return -1;
+		int offset= out.size();
+		int length= Math.min(string.length(), 0xFFFF);
+		out.writeChar(length);
+		for (int i= 0; i < length; i++)
+			out.writeChar(string.charAt(i));
+		return offset;
+	}
+
+	/**
+	 * Stores the index if it has changed and stops tracking changes.
+	 */
+	public synchronized void dispose() {
+		JavaCore.removeElementChangedListener(fDeltaListener);
+		if (fModified)
+			save();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -50,6 +50,24 @@ import org.eclipse.jdt.internal.corext.util.SearchUtils;
  */
 public class RefactoringSearchEngine {
 
+	/**
+	 * Receives the results of a streaming search, see
+	 * {@link RefactoringSearchEngine#search(SearchPattern, WorkingCopyOwner, IJavaSearchScope, CollectingSearchRequestor, IProgressMonitor, RefactoringStatus, ISearchResultGroupCollector)}.
+	 *
+	 * @since 3.18
+	 */
+	public interface ISearchResultGroupCollector {
+
+		/**
+		 * Accepts the matches in a compilation unit. Called from a single thread at a time,
+		 * which is not the thread performing the search.
+		 *
+		 * @param group the matches in a compilation unit
+		 * @throws CoreException to abort the search
+		 */
+		void accept(SearchResultGroup group) throws CoreException;
+	}
+
 	private RefactoringSearchEngine(){
 		//no instances
 	}
@@ -139,6 +157,32 @@ public class RefactoringSearchEngine {
 		return internalSearch(owner != null ? new SearchEngine(owner) : new SearchEngine(), pattern, scope, requestor, monitor, status);
 	}
 
+	/**
+	 * Performs a search and passes the resulting {@link SearchMatch}es grouped by compilation unit
+	 * to the given collector while the search is still running. A group is passed as soon as the
+	 * search engine has finished the compilation unit. The search waits while the collector
+	 * falls behind by more than a few groups, so that the matches do not accumulate in memory.
+	 * <p>
+	 * The matches are removed from the given requestor once they have been grouped.
+	 * </p>
+	 *
+	 * @param pattern the search pattern
+	 * @param owner the working copy owner, or <code>null</code>
+	 * @param scope the search scope
+	 * @param requestor the requestor that filters the matches
+	 * @param monitor the progress monitor
+	 * @param status an error is added here if inaccurate or non-cu matches have been found
+	 * @param collector the collector of the groups
+	 * @throws CoreException when the search or the collector failed
+	 * @since 3.18
+	 */
+	public static void search(SearchPattern pattern, WorkingCopyOwner owner, IJavaSearchScope scope, CollectingSearchRequestor requestor,
+			IProgressMonitor monitor, RefactoringStatus status, ISearchResultGroupCollector collector) throws CoreException {
+		SearchResultGroupStream stream= new SearchResultGroupStream(requestor, collector, monitor);
+		stream.search(owner != null ? new SearchEngine(owner) : new SearchEngine(), pattern, scope);
+		addStatusErrors(status, stream.hasPotentialMatches(), stream.hasNonCuMatches());
+	}
+
 	//TODO: throw CoreException
 	private static SearchResultGroup[] internalSearch(SearchEngine searchEngine, SearchPattern pattern, IJavaSearchScope scope,
 			CollectingSearchRequestor requestor, IProgressMonitor monitor, RefactoringStatus status) throws JavaModelException {
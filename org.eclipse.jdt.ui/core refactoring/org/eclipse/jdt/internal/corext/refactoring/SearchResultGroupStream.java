@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.SearchRequestor;
+
+import org.eclipse.jdt.internal.corext.refactoring.RefactoringSearchEngine.ISearchResultGroupCollector;
+import org.eclipse.jdt.internal.corext.util.SearchUtils;
+
+/**
+ * Groups the matches accepted by a {@link CollectingSearchRequestor} by resource and passes each
+ * group to a {@link ISearchResultGroupCollector} as soon as the search engine has reported the
+ * last match in the resource.
+ * <p>
+ * The search runs in the calling thread, the collector in a consumer thread that is taken from a
+ * pool shared by all searches. At most {@link #BUFFER_SIZE} groups are buffered between them; the
+ * search waits while the buffer is full. Matches collected by the requestor are removed from it once they have been grouped.
+ * </p>
+ *
+ * @since 3.18
+ */
+final class SearchResultGroupStream extends SearchRequestor {
+
+	/** The maximal number of groups waiting to be collected */
+	static final int BUFFER_SIZE= 32;
+
+	/** The interval in milliseconds in which a waiting search checks for cancellation */
+	private static final long POLL_INTERVAL= 100;
+
+	/** Marks the end of the stream */
+	private static final SearchResultGroup END= new SearchResultGroup(null, new SearchMatch[0]);
+
+	/** The pool of consumer threads, or <code>null</code> until the first search */
+	private static ExecutorService fgExecutor;
+
+	private final CollectingSearchRequestor fRequestor;
+
+	private final ISearchResultGroupCollector fCollector;
+
+	private final IProgressMonitor fMonitor;
+
+	private final BlockingQueue<SearchResultGroup> fQueue= new ArrayBlockingQueue<>(BUFFER_SIZE);
+
+	/** The failure of the collector, or <code>null</code> */
+	private volatile Exception fFailure;
+
+	/** The resource of the current group */
+	private IResource fResource;
+
+	/** The matches of the current group */
+	private List<SearchMatch> fMatches= new ArrayList<>();
+
+	private boolean fHasPotentialMatches= false;
+
+	private boolean fHasNonCuMatches= false;
+
+	SearchResultGroupStream(CollectingSearchRequestor requestor, ISearchResultGroupCollector collector, IProgressMonitor monitor) {
+		fRequestor= requestor;
+		fCollector= collector;
+		fMonitor= monitor;
+	}
+
+	/**
+	 * Performs the search and returns after all groups have been collected.
+	 *
+	 * @param engine the search engine
+	 * @param pattern the search pattern
+	 * @param scope the search scope
+	 * @throws CoreException if the search or the collector failed
+	 */
+	void search(SearchEngine engine, SearchPattern pattern, IJavaSearchScope scope) throws CoreException {
+		Future<Void> consumer= getExecutor().submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				try {
+					consume();
+				} catch (CoreException | RuntimeException e) {
+					fFailure= e;
+					throw e;
+				}
+				return null;
+			}
+		});
+		try {
+			engine.search(pattern, SearchUtils.getDefaultSearchParticipants(), scope, this, fMonitor);
+			flush();
+			put(END);
+			waitFor(consumer);
+		} finally {
+			// stops a consumer waiting for a group if the search failed
+			consumer.cancel(true);
+		}
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (fgExecutor == null) {
+			fgExecutor= Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "Refactoring Search Result Collector"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return fgExecutor;
+	}
+
+	boolean hasPotentialMatches() {
+		return fHasPotentialMatches;
+	}
+
+	boolean hasNonCuMatches() {
+		return fHasNonCuMatches;
+	}
+
+	@Override
+	public void beginReporting() {
+		fRequestor.beginReporting();
+	}
+
+	@Override
+	public void enterParticipant(SearchParticipant participant) {
+		fRequestor.enterParticipant(participant);
+	}
+
+	@Override
+	public void acceptSearchMatch(SearchMatch match) throws CoreException {
+		fRequestor.acceptSearchMatch(match);
+		List<SearchMatch> collected= fRequestor.getResults();
+		for (int i= 0; i < collected.size(); i++)
+			add(collected.get(i));
+		collected.clear();
+	}
+
+	@Override
+	public void exitParticipant(SearchParticipant participant) {
+		fRequestor.exitParticipant(participant);
+	}
+
+	@Override
+	public void endReporting() {
+		fRequestor.endReporting();
+	}
+
+	private void add(SearchMatch match) throws CoreException {
+		if (match.getAccuracy() == SearchMatch.A_INACCURATE)
+			fHasPotentialMatches= true;
+		IResource resource= match.getResource();
+		if (resource != fResource && (resource == null || !resource.equals(fResource))) {
+			flush();
+			fResource= resource;
+		}
+		fMatches.add(match);
+	}
+
+	private void flush() throws CoreException {
+		if (fMatches.isEmpty())
+			return;
+		if (JavaCore.create(fResource) instanceof ICompilationUnit) {
+			put(new SearchResultGroup(fResource, fMatches.toArray(new SearchMatch[fMatches.size()])));
+		} else {
+			fHasNonCuMatches= true;
+		}
+		fMatches= new ArrayList<>();
+	}
+
+	private void put(SearchResultGroup group) throws CoreException {
+		try {
+			while (!fQueue.offer(group, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+				checkFailure();
+				if (fMonitor != null && fMonitor.isCanceled())
+					throw new OperationCanceledException();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() throws CoreException {
+		Exception failure= fFailure;
+		if (failure instanceof CoreException)
+			throw (CoreException) failure;
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+	}
+
+	private void consume() throws CoreException, InterruptedException {
+		while (true) {
+			SearchResultGroup group= fQueue.take();
+			if (group == END)
+				return;
+			fCollector.accept(group);
+		}
+	}
+
+	private void waitFor(Future<Void> consumer) throws CoreException {
+		try {
+			consumer.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof CoreException)
+				throw (CoreException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		}
+	}
+}
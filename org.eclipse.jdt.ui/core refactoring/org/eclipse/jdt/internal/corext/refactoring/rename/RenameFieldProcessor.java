@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -72,6 +72,7 @@ import org.eclipse.jdt.internal.corext.refactoring.RefactoringAvailabilityTester
 import org.eclipse.jdt.internal.corext.refactoring.RefactoringCoreMessages;
 import org.eclipse.jdt.internal.corext.refactoring.RefactoringScopeFactory;
 import org.eclipse.jdt.internal.corext.refactoring.RefactoringSearchEngine;
+import org.eclipse.jdt.internal.corext.refactoring.RefactoringSearchEngine.ISearchResultGroupCollector;
 import org.eclipse.jdt.internal.corext.refactoring.SearchResultGroup;
 import org.eclipse.jdt.internal.corext.refactoring.base.ReferencesInBinaryContext;
 import org.eclipse.jdt.internal.corext.refactoring.changes.DynamicValidationRefactoringChange;
@@ -812,25 +813,27 @@ public class RenameFieldProcessor extends JavaRenameProcessor implements IRefere
 		addAccessorOccurrences(pm, getSetter(), RefactoringCoreMessages.RenameFieldRefactoring_Update_setter_occurrence, getNewSetterName(), status);
 	}
 
-	private void addAccessorOccurrences(IProgressMonitor pm, IMethod accessor, String editName, String newAccessorName, RefactoringStatus status) throws CoreException {
+	private void addAccessorOccurrences(IProgressMonitor pm, IMethod accessor, final String editName, final String newAccessorName, RefactoringStatus status) throws CoreException {
 		Assert.isTrue(accessor.exists());
 
 		IJavaSearchScope scope= RefactoringScopeFactory.create(accessor);
 		SearchPattern pattern= SearchPattern.createPattern(accessor, IJavaSearchConstants.ALL_OCCURRENCES, SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
-		SearchResultGroup[] groupedResults= RefactoringSearchEngine.search(
-			pattern, scope, new MethodOccurenceCollector(accessor.getElementName()), pm, status);
-
-		for (int i= 0; i < groupedResults.length; i++) {
-			ICompilationUnit cu= groupedResults[i].getCompilationUnit();
-			if (cu == null)
-				continue;
-			SearchMatch[] results= groupedResults[i].getSearchResults();
-			for (int j= 0; j < results.length; j++){
-				SearchMatch searchResult= results[j];
-				TextEdit edit= new ReplaceEdit(searchResult.getOffset(), searchResult.getLength(), newAccessorName);
-				addTextEdit(fChangeManager.get(cu), editName, edit);
-			}
-		}
+		// create the edits of each compilation unit while the search continues
+		RefactoringSearchEngine.search(pattern, null, scope, new MethodOccurenceCollector(accessor.getElementName()), pm, status,
+			new ISearchResultGroupCollector() {
+				@Override
+				public void accept(SearchResultGroup group) {
+					ICompilationUnit cu= group.getCompilationUnit();
+					if (cu == null)
+						return;
+					SearchMatch[] results= group.getSearchResults();
+					for (int j= 0; j < results.length; j++){
+						SearchMatch searchResult= results[j];
+						TextEdit edit= new ReplaceEdit(searchResult.getOffset(), searchResult.getLength(), newAccessorName);
+						addTextEdit(fChangeManager.get(cu), editName, edit);
+					}
+				}
+			});
 	}
 
 	private void addTextMatches(IProgressMonitor pm) throws CoreException {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,11 +15,10 @@ package org.eclipse.jdt.internal.corext.refactoring.rename;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -51,86 +50,46 @@ import org.eclipse.jdt.internal.corext.refactoring.RefactoringScopeFactory;
 import org.eclipse.jdt.internal.corext.refactoring.base.ReferencesInBinaryContext;
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
 import org.eclipse.jdt.internal.corext.util.SearchUtils;
-
+import org.eclipse.jdt.internal.corext.util.SuperTypeHierarchyCache;
+
+/**
+ * Finds the methods which have to be renamed together with a method, i.e. the method and all
+ * methods overriding or overridden by it, including methods which are related through a type
+ * inheriting two of them.
+ * <p>
+ * Declaring types are identified by compact integer ids in the order of the declarations, the
+ * ripple is computed by a union-find over these ids. Type hierarchies of the primary working
+ * copies are shared between successive searches through the {@link TypeHierarchyStore}.
+ * </p>
+ */
 public class RippleMethodFinder2 {
 
 	private final IMethod fMethod;
 	private List<IMethod> fDeclarations;
 	private ITypeHierarchy fHierarchy;
-	private Map<IType, IMethod> fTypeToMethod;
-	private Set<IType> fRootTypes;
-	private MultiMap<IType, IType> fRootReps;
-	private Map<IType, ITypeHierarchy> fRootHierarchies;
-	private UnionFind fUnionFind;
+
+	/** Maps the declaring types of the declarations to their ids */
+	private Map<IType, Integer> fTypeIds;
+	/** The declaring types, by id */
+	private IType[] fTypes;
+	/** The declarations, by id of their declaring type */
+	private IMethod[] fMethods;
+	/** The union-find parents, by type id */
+	private int[] fParents;
+	/** The ids of the types which do not override a declaration of a supertype */
+	private BitSet fRootTypes;
+	/** The ids of the types whose supertypes have already been united with them */
+	private BitSet fUnitedTypes;
+	/** The first root type of each representative, linked by {@link #fNextRoot} */
+	private int[] fFirstRoot;
+	private int[] fNextRoot;
+	/** The type hierarchies of the root types, by id */
+	private ITypeHierarchy[] fRootHierarchies;
 
 	private final boolean fExcludeBinaries;
 	private final ReferencesInBinaryContext fBinaryRefs;
 	private Map<IMethod, SearchMatch> fDeclarationToMatch;
 
-	private static class MultiMap<K, V> {
-		HashMap<K, Collection<V>> fImplementation= new HashMap<>();
-
-		public void put(K key, V value) {
-			Collection<V> collection= fImplementation.get(key);
-			if (collection == null) {
-				collection= new HashSet<>();
-				fImplementation.put(key, collection);
-			}
-			collection.add(value);
-		}
-
-		public Collection<V> get(K key) {
-			return fImplementation.get(key);
-		}
-	}
-	private static class UnionFind {
-		HashMap<IType, IType> fElementToRepresentative= new HashMap<>();
-
-		public void init(IType type) {
-			fElementToRepresentative.put(type, type);
-		}
-
-		//path compression:
-		public IType find(IType element) {
-			IType root= element;
-			IType rep= fElementToRepresentative.get(root);
-			while (rep != null && ! rep.equals(root)) {
-				root= rep;
-				rep= fElementToRepresentative.get(root);
-			}
-			if (rep == null)
-				return null;
-
-			rep= fElementToRepresentative.get(element);
-			while (! rep.equals(root)) {
-				IType temp= element;
-				element= rep;
-				fElementToRepresentative.put(temp, root);
-				rep= fElementToRepresentative.get(element);
-			}
-			return root;
-		}
-
-//		//straightforward:
-//		public IType find(IType element) {
-//			IType current= element;
-//			IType rep= (IType) fElementToRepresentative.get(current);
-//			while (rep != null && ! rep.equals(current)) {
-//				current= rep;
-//				rep= (IType) fElementToRepresentative.get(current);
-//			}
-//			if (rep == null)
-//				return null;
-//			else
-//				return current;
-//		}
-
-		public void union(IType rep1, IType rep2) {
-			fElementToRepresentative.put(rep1, rep2);
-		}
-	}
-
-
 	private RippleMethodFinder2(IMethod method, boolean excludeBinaries){
 		fMethod= method;
 		fExcludeBinaries= excludeBinaries;
@@ -204,31 +163,36 @@ public class RippleMethodFinder2 {
 
 		fHierarchy= null;
 		fRootTypes= null;
-
-		Map<IType, List<IType>> partitioning= new HashMap<>();
-		for (Iterator<IType> iter= fTypeToMethod.keySet().iterator(); iter.hasNext();) {
-			IType type= iter.next();
-			IType rep= fUnionFind.find(type);
-			List<IType> types= partitioning.get(rep);
-			if (types == null)
-				types= new ArrayList<>();
-			types.add(type);
-			partitioning.put(rep, types);
+		fUnitedTypes= null;
+
+		// partitions as linked lists of type ids in ascending order
+		int typeCount= fTypes.length;
+		int[] firstMember= new int[typeCount];
+		int[] nextMember= new int[typeCount];
+		Arrays.fill(firstMember, -1);
+		int partitionCount= 0;
+		for (int id= typeCount - 1; id >= 0; id--) {
+			int rep= find(id);
+			if (firstMember[rep] < 0)
+				partitionCount++;
+			nextMember[id]= firstMember[rep];
+			firstMember[rep]= id;
 		}
-		Assert.isTrue(partitioning.size() > 0);
-		if (partitioning.size() == 1)
+		Assert.isTrue(partitionCount > 0);
+		if (partitionCount == 1)
 			return fDeclarations.toArray(new IMethod[fDeclarations.size()]);
 
 		//Multiple partitions; must look out for nasty marriage cases
 		//(types inheriting method from two ancestors, but without redeclaring it).
-		IType methodTypeRep= fUnionFind.find(fMethod.getDeclaringType());
-		List<IType> relatedTypes= partitioning.get(methodTypeRep);
+		IType methodType= fMethod.getDeclaringType();
+		int methodTypeRep= find(getTypeId(methodType));
+		BitSet relatedTypes= new BitSet(typeCount);
 		boolean hasRelatedInterfaces= false;
 		List<IMethod> relatedMethods= new ArrayList<>();
-		for (Iterator<IType> iter= relatedTypes.iterator(); iter.hasNext();) {
-			IType relatedType= iter.next();
-			relatedMethods.add(fTypeToMethod.get(relatedType));
-			if (relatedType.isInterface())
+		for (int id= firstMember[methodTypeRep]; id >= 0; id= nextMember[id]) {
+			relatedTypes.set(id);
+			relatedMethods.add(fMethods[id]);
+			if (fTypes[id].isInterface())
 				hasRelatedInterfaces= true;
 		}
 
@@ -236,19 +200,19 @@ public class RippleMethodFinder2 {
 		//Definition: An alien type is a type that is not a related type. The set of
 		// alien types diminishes as new types become related (a.k.a marry a relatedType).
 
-		Set<IMethod> alienDeclarations= new LinkedHashSet<>(fDeclarations);
-		fDeclarations= null;
-		alienDeclarations.removeAll(relatedMethods);
-		Set<IType> alienTypes= new LinkedHashSet<>();
+		BitSet alienTypes= new BitSet(typeCount);
 		boolean hasAlienInterfaces= false;
-		for (Iterator<IMethod> iter= alienDeclarations.iterator(); iter.hasNext();) {
-			IMethod alienDeclaration= iter.next();
-			IType alienType= alienDeclaration.getDeclaringType();
-			alienTypes.add(alienType);
-			if (alienType.isInterface())
+		for (Iterator<IMethod> iter= fDeclarations.iterator(); iter.hasNext();) {
+			IMethod declaration= iter.next();
+			int id= getTypeId(declaration.getDeclaringType());
+			if (relatedTypes.get(id) && declaration.equals(fMethods[id]))
+				continue;
+			alienTypes.set(id);
+			if (fTypes[id].isInterface())
 				hasAlienInterfaces= true;
 		}
-		if (alienTypes.size() == 0) //no nasty marriage scenarios without types to marry with...
+		fDeclarations= null;
+		if (alienTypes.isEmpty()) //no nasty marriage scenarios without types to marry with...
 			return toArray(relatedMethods);
 		if (! hasRelatedInterfaces && ! hasAlienInterfaces) //no nasty marriage scenarios without interfaces...
 			return toArray(relatedMethods);
@@ -259,8 +223,7 @@ public class RippleMethodFinder2 {
 		 * If not, we cannot have married alien types, so we can skip building type hierarchies for the alien types.
 		 */
 		checkCanceled(pm);
-		IType methodType= fMethod.getDeclaringType();
-		ITypeHierarchy methodHierarchy= hierarchy(pm, owner, fUnionFind.find(methodType));
+		ITypeHierarchy methodHierarchy= hierarchy(pm, owner, fTypes[methodTypeRep]);
 		IType[] methodTypeSubtypes= methodHierarchy.getAllSubtypes(methodType);
 		// don't spend time on this check, unless we have a small hierarchy for the type under rename and a lot of search matches
 		if (methodTypeSubtypes.length <= numberOfSearchMatches / 10) {
@@ -272,23 +235,23 @@ public class RippleMethodFinder2 {
 
 		//find all subtypes of related types:
 		HashSet<IType> relatedSubTypes= new HashSet<>();
-		List<IType> relatedTypesToProcess= new ArrayList<>(relatedTypes);
-		while (relatedTypesToProcess.size() > 0) {
+		BitSet relatedTypesToProcess= relatedTypes;
+		while (! relatedTypesToProcess.isEmpty()) {
 			//TODO: would only need subtype hierarchies of all top-of-ripple relatedTypesToProcess
-			for (Iterator<IType> iter= relatedTypesToProcess.iterator(); iter.hasNext();) {
+			for (int id= relatedTypesToProcess.nextSetBit(0); id >= 0; id= relatedTypesToProcess.nextSetBit(id + 1)) {
 				checkCanceled(pm);
-				IType relatedType= iter.next();
+				IType relatedType= fTypes[id];
 				ITypeHierarchy hierarchy= hierarchy(pm, owner, relatedType);
 				IType[] allSubTypes= hierarchy.getAllSubtypes(relatedType);
 				relatedSubTypes.addAll(Arrays.asList(allSubTypes));
 			}
 			relatedTypesToProcess.clear(); //processed; make sure loop terminates
 
-			HashSet<IType> marriedAlienTypeReps= new HashSet<>();
-			for (Iterator<IType> iter= alienTypes.iterator(); iter.hasNext();) {
+			BitSet marriedAlienTypeReps= new BitSet(typeCount);
+			for (int id= alienTypes.nextSetBit(0); id >= 0; id= alienTypes.nextSetBit(id + 1)) {
 				checkCanceled(pm);
-				IType alienType= iter.next();
-				IMethod alienMethod= fTypeToMethod.get(alienType);
+				IType alienType= fTypes[id];
+				IMethod alienMethod= fMethods[id];
 				ITypeHierarchy hierarchy= hierarchy(pm, owner, alienType);
 				IType[] allSubtypes= hierarchy.getAllSubtypes(alienType);
 
@@ -296,7 +259,7 @@ public class RippleMethodFinder2 {
 					IType subtype= allSubtypes[i];
 					if (relatedSubTypes.contains(subtype)) {
 						if (JavaModelUtil.isVisibleInHierarchy(alienMethod, subtype.getPackageFragment())) {
-							marriedAlienTypeReps.add(fUnionFind.find(alienType));
+							marriedAlienTypeReps.set(find(id));
 						} else {
 							// not overridden
 						}
@@ -304,25 +267,25 @@ public class RippleMethodFinder2 {
 				}
 			}
 
-			if (marriedAlienTypeReps.size() == 0)
+			if (marriedAlienTypeReps.isEmpty())
 				return toArray(relatedMethods);
 
-			for (Iterator<IType> iter= marriedAlienTypeReps.iterator(); iter.hasNext();) {
-				IType marriedAlienTypeRep= iter.next();
-				List<IType> marriedAlienTypes= partitioning.get(marriedAlienTypeRep);
-				for (Iterator<IType> iterator= marriedAlienTypes.iterator(); iterator.hasNext();) {
-					IType marriedAlienInterfaceType= iterator.next();
-					relatedMethods.add(fTypeToMethod.get(marriedAlienInterfaceType));
+			for (int rep= marriedAlienTypeReps.nextSetBit(0); rep >= 0; rep= marriedAlienTypeReps.nextSetBit(rep + 1)) {
+				for (int id= firstMember[rep]; id >= 0; id= nextMember[id]) {
+					relatedMethods.add(fMethods[id]);
+					alienTypes.clear(id); //not alien any more
+					relatedTypesToProcess.set(id); //process freshly married types again
 				}
-				alienTypes.removeAll(marriedAlienTypes); //not alien any more
-				relatedTypesToProcess.addAll(marriedAlienTypes); //process freshly married types again
 			}
 		}
 
-		fRootReps= null;
+		fFirstRoot= null;
+		fNextRoot= null;
 		fRootHierarchies= null;
-		fTypeToMethod= null;
-		fUnionFind= null;
+		fTypeIds= null;
+		fTypes= null;
+		fMethods= null;
+		fParents= null;
 
 		return toArray(relatedMethods);
 	}
@@ -345,7 +308,10 @@ public class RippleMethodFinder2 {
 
 		for (IType methodTypeSubtype : methodTypeSubtypes) {
 			checkCanceled(pm);
-			ITypeHierarchy subtypeHierarchy= methodTypeSubtype.newTypeHierarchy(owner, pm);
+			// only the supertypes are needed
+			ITypeHierarchy subtypeHierarchy= owner == null
+					? SuperTypeHierarchyCache.getTypeHierarchy(methodTypeSubtype, pm)
+					: methodTypeSubtype.newSupertypeHierarchy(owner, pm);
 			IType[] subtypeSuperTypes= subtypeHierarchy.getAllSupertypes(methodTypeSubtype);
 			for (IType subtypeSuperType : subtypeSuperTypes) {
 				checkCanceled(pm);
@@ -391,20 +357,18 @@ public class RippleMethodFinder2 {
 			throws JavaModelException {
 		ITypeHierarchy hierarchy= getCachedHierarchy(type, owner, new SubProgressMonitor(pm, 1));
 		if (hierarchy == null)
-			hierarchy= type.newTypeHierarchy(owner, new SubProgressMonitor(pm, 1));
+			hierarchy= newTypeHierarchy(type, owner, new SubProgressMonitor(pm, 1));
 		return hierarchy;
 	}
 
 	private ITypeHierarchy getCachedHierarchy(IType type, WorkingCopyOwner owner, IProgressMonitor monitor) throws JavaModelException {
-		IType rep= fUnionFind.find(type);
-		if (rep != null) {
-			Collection<IType> collection= fRootReps.get(rep);
-			for (Iterator<IType> iter= collection.iterator(); iter.hasNext();) {
-				IType root= iter.next();
-				ITypeHierarchy hierarchy= fRootHierarchies.get(root);
+		int id= getTypeId(type);
+		if (id >= 0) {
+			for (int root= fFirstRoot[find(id)]; root >= 0; root= fNextRoot[root]) {
+				ITypeHierarchy hierarchy= fRootHierarchies[root];
 				if (hierarchy == null) {
-					hierarchy= root.newTypeHierarchy(owner, new SubProgressMonitor(monitor, 1));
-					fRootHierarchies.put(root, hierarchy);
+					hierarchy= newTypeHierarchy(fTypes[root], owner, new SubProgressMonitor(monitor, 1));
+					fRootHierarchies[root]= hierarchy;
 				}
 				if (hierarchy.contains(type))
 					return hierarchy;
@@ -413,6 +377,22 @@ public class RippleMethodFinder2 {
 		return null;
 	}
 
+	/**
+	 * Returns a type hierarchy containing all subtypes of the given type. Hierarchies of the
+	 * primary working copies are taken from the {@link TypeHierarchyStore}.
+	 *
+	 * @param type the type
+	 * @param owner the working copy owner, or <code>null</code> for the primary working copies
+	 * @param monitor the progress monitor
+	 * @return the type hierarchy
+	 * @throws JavaModelException if the hierarchy cannot be created
+	 */
+	private static ITypeHierarchy newTypeHierarchy(IType type, WorkingCopyOwner owner, IProgressMonitor monitor) throws JavaModelException {
+		if (owner == null)
+			return TypeHierarchyStore.getDefault().getHierarchy(type, monitor);
+		return type.newTypeHierarchy(owner, monitor);
+	}
+
 	private void findAllDeclarations(IProgressMonitor monitor, WorkingCopyOwner owner) throws CoreException {
 		fDeclarations= new ArrayList<>();
 
@@ -461,51 +441,89 @@ public class RippleMethodFinder2 {
 	}
 
 	private void createTypeToMethod() {
-		fTypeToMethod= new HashMap<>();
+		fTypeIds= new HashMap<>();
+		List<IType> types= new ArrayList<>();
+		List<IMethod> methods= new ArrayList<>();
 		for (Iterator<IMethod> iter= fDeclarations.iterator(); iter.hasNext();) {
 			IMethod declaration= iter.next();
-			fTypeToMethod.put(declaration.getDeclaringType(), declaration);
+			IType type= declaration.getDeclaringType();
+			Integer id= fTypeIds.get(type);
+			if (id == null) {
+				fTypeIds.put(type, Integer.valueOf(types.size()));
+				types.add(type);
+				methods.add(declaration);
+			} else {
+				methods.set(id.intValue(), declaration);
+			}
 		}
+		fTypes= types.toArray(new IType[types.size()]);
+		fMethods= methods.toArray(new IMethod[methods.size()]);
+	}
+
+	private int getTypeId(IType type) {
+		Integer id= fTypeIds.get(type);
+		return id != null ? id.intValue() : -1;
 	}
 
 	private void createUnionFind() throws JavaModelException {
-		fRootTypes= new HashSet<>(fTypeToMethod.keySet());
-		fUnionFind= new UnionFind();
-		for (Iterator<IType> iter= fTypeToMethod.keySet().iterator(); iter.hasNext();) {
-			IType type= iter.next();
-			fUnionFind.init(type);
+		int typeCount= fTypes.length;
+		fParents= new int[typeCount];
+		for (int id= 0; id < typeCount; id++)
+			fParents[id]= id;
+		fRootTypes= new BitSet(typeCount);
+		fRootTypes.set(0, typeCount);
+		fUnitedTypes= new BitSet(typeCount);
+		for (int id= 0; id < typeCount; id++) {
+			if (! fUnitedTypes.get(id))
+				uniteWithSupertypes(id);
 		}
-		for (Iterator<IType> iter= fTypeToMethod.keySet().iterator(); iter.hasNext();) {
-			IType type= iter.next();
-			uniteWithSupertypes(type, type);
+		fFirstRoot= new int[typeCount];
+		fNextRoot= new int[typeCount];
+		Arrays.fill(fFirstRoot, -1);
+		for (int id= fRootTypes.nextSetBit(0); id >= 0; id= fRootTypes.nextSetBit(id + 1)) {
+			int rep= find(id);
+			fNextRoot[id]= fFirstRoot[rep];
+			fFirstRoot[rep]= id;
 		}
-		fRootReps= new MultiMap<>();
-		for (Iterator<IType> iter= fRootTypes.iterator(); iter.hasNext();) {
-			IType type= iter.next();
-			IType rep= fUnionFind.find(type);
-			if (rep != null)
-				fRootReps.put(rep, type);
+		fRootHierarchies= new ITypeHierarchy[typeCount];
+	}
+
+	//path compression:
+	private int find(int id) {
+		int root= id;
+		while (fParents[root] != root)
+			root= fParents[root];
+		while (fParents[id] != root) {
+			int next= fParents[id];
+			fParents[id]= root;
+			id= next;
 		}
-		fRootHierarchies= new HashMap<>();
+		return root;
+	}
+
+	private void uniteWithSupertypes(int anchor) throws JavaModelException {
+		fUnitedTypes.set(anchor);
+		uniteWithSupertypes(anchor, fTypes[anchor]);
 	}
 
-	private void uniteWithSupertypes(IType anchor, IType type) throws JavaModelException {
+	private void uniteWithSupertypes(int anchor, IType type) throws JavaModelException {
 		IType[] supertypes= fHierarchy.getSupertypes(type);
 		for (int i= 0; i < supertypes.length; i++) {
 			IType supertype= supertypes[i];
-			IType superRep= fUnionFind.find(supertype);
-			if (superRep == null) {
+			int superId= getTypeId(supertype);
+			if (superId < 0) {
 				//Type doesn't declare method, but maybe supertypes?
 				uniteWithSupertypes(anchor, supertype);
 			} else {
 				//check whether method in supertype is really overridden:
-				IMember superMethod= fTypeToMethod.get(supertype);
-				if (JavaModelUtil.isVisibleInHierarchy(superMethod, anchor.getPackageFragment())) {
-					IType rep= fUnionFind.find(anchor);
-					fUnionFind.union(rep, superRep);
+				IMember superMethod= fMethods[superId];
+				if (JavaModelUtil.isVisibleInHierarchy(superMethod, fTypes[anchor].getPackageFragment())) {
+					fParents[find(anchor)]= find(superId);
 					// current type is no root anymore
-					fRootTypes.remove(anchor);
-					uniteWithSupertypes(supertype, supertype);
+					fRootTypes.clear(anchor);
+					// uniting is independent of the anchor, so each supertype is processed only once
+					if (! fUnitedTypes.get(superId))
+						uniteWithSupertypes(superId);
 				} else {
 					//Not overridden -> overriding chain ends here.
 				}
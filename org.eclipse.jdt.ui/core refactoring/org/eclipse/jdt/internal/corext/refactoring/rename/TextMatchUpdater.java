@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,9 +15,24 @@ package org.eclipse.jdt.internal.corext.refactoring.rename;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
@@ -40,6 +55,7 @@ import org.eclipse.ltk.core.refactoring.GroupCategorySet;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaModelStatusConstants;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.search.IJavaSearchScope;
@@ -51,6 +67,7 @@ import org.eclipse.jdt.internal.corext.refactoring.changes.TextChangeCompatibili
 import org.eclipse.jdt.internal.corext.refactoring.rename.RefactoringScanner.TextMatch;
 import org.eclipse.jdt.internal.corext.refactoring.tagging.ITextUpdating;
 import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
+import org.eclipse.jdt.internal.corext.util.Messages;
 
 class TextMatchUpdater {
 
@@ -61,15 +78,49 @@ class TextMatchUpdater {
 			RefactoringCoreMessages.TextMatchUpdater_textualMatches_name,
 			RefactoringCoreMessages.TextMatchUpdater_textualMatches_description));
 
+	/**
+	 * The minimal number of compilation units a worker thread has to scan. Smaller
+	 * batches do not pay off the cost of an additional thread.
+	 */
+	private static final int MIN_UNITS_PER_WORKER= 50;
+
+	/**
+	 * The interval in milliseconds in which the progress is updated while workers scan.
+	 */
+	private static final long PROGRESS_INTERVAL= 200;
+
+	/**
+	 * The maximal number of worker threads, shared by all concurrent updates.
+	 */
+	private static final int MAX_WORKERS= Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The time in seconds after which idle worker threads terminate.
+	 */
+	private static final long WORKER_KEEP_ALIVE= 60;
+
+	private static ExecutorService fgExecutor;
+
+	private static final Comparator<TextMatch> START_POSITION_COMPARATOR= new Comparator<TextMatch>() {
+		@Override
+		public int compare(TextMatch first, TextMatch second) {
+			return first.getStartPosition() - second.getStartPosition();
+		}
+	};
+
 	private final IJavaSearchScope fScope;
 	private final TextChangeManager fManager;
 	private final SearchResultGroup[] fReferences;
 	private final boolean fOnlyQualified;
 
-	private final RefactoringScanner fScanner;
+	private final String fCurrentName;
+	private final String fCurrentQualifier;
 	private final String fNewName;
 	private final int fCurrentNameLength;
 
+	/** The number of scanned compilation units reported to the progress monitor */
+	private int fReportedUnits;
+
 	private TextMatchUpdater(TextChangeManager manager, IJavaSearchScope scope, String currentName, String currentQualifier, String newName, SearchResultGroup[] references, boolean onlyQualified){
 		Assert.isNotNull(manager);
 		Assert.isNotNull(scope);
@@ -79,9 +130,10 @@ class TextMatchUpdater {
 		fReferences= references;
 		fOnlyQualified= onlyQualified;
 
+		fCurrentName= currentName;
+		fCurrentQualifier= currentQualifier;
 		fNewName= newName;
 		fCurrentNameLength= currentName.length();
-		fScanner= new RefactoringScanner(currentName, currentQualifier);
 	}
 
 	static void perform(IProgressMonitor pm, IJavaSearchScope scope, String currentName, String currentQualifier, String newName, TextChangeManager manager, SearchResultGroup[] references, boolean onlyQualified) throws JavaModelException{
@@ -96,13 +148,19 @@ class TextMatchUpdater {
 		try{
 			IProject[] projectsInScope= getProjectsInScope();
 
-			pm.beginTask("", projectsInScope.length); //$NON-NLS-1$
+			pm.beginTask("", 10 * projectsInScope.length); //$NON-NLS-1$
 
+			List<ICompilationUnit> units= new ArrayList<>();
+			IProgressMonitor collectMonitor= new SubProgressMonitor(pm, projectsInScope.length);
+			collectMonitor.beginTask("", projectsInScope.length); //$NON-NLS-1$
 			for (int i =0 ; i < projectsInScope.length; i++){
 				if (pm.isCanceled())
 					throw new OperationCanceledException();
-				addTextMatches(projectsInScope[i], new SubProgressMonitor(pm, 1));
+				addCompilationUnits(projectsInScope[i], units, new SubProgressMonitor(collectMonitor, 1));
 			}
+			collectMonitor.done();
+
+			addTextMatches(units, new SubProgressMonitor(pm, 9 * projectsInScope.length));
 		} finally{
 			pm.done();
 		}
@@ -123,7 +181,7 @@ class TextMatchUpdater {
 		return projectsInScope.toArray(new IProject[projectsInScope.size()]);
 	}
 
-	private void addTextMatches(IResource resource, IProgressMonitor pm) throws JavaModelException{
+	private void addCompilationUnits(IResource resource, List<ICompilationUnit> units, IProgressMonitor pm) throws JavaModelException{
 		try{
 			String task= RefactoringCoreMessages.TextMatchUpdater_searching + resource.getFullPath();
 			if (resource instanceof IFile){
@@ -135,7 +193,7 @@ class TextMatchUpdater {
 					return;
 				if (! fScope.encloses(element))
 					return;
-				addCuTextMatches((ICompilationUnit) element);
+				units.add((ICompilationUnit) element);
 
 			} else if (resource instanceof IContainer){
 				IResource[] members= ((IContainer) resource).members();
@@ -145,7 +203,7 @@ class TextMatchUpdater {
 					if (pm.isCanceled())
 						throw new OperationCanceledException();
 
-					addTextMatches(members[i], new SubProgressMonitor(pm, 1));
+					addCompilationUnits(members[i], units, new SubProgressMonitor(pm, 1));
 				}
 			}
 		} catch (JavaModelException e){
@@ -157,15 +215,166 @@ class TextMatchUpdater {
 		}
 	}
 
-	private void addCuTextMatches(ICompilationUnit cu) throws JavaModelException{
-		fScanner.scan(cu);
-		Set<TextMatch> matches= fScanner.getMatches(); //Set of TextMatch
+	/**
+	 * Scans the given compilation units and adds the text updates to the change manager.
+	 * The units are scanned by the threads of a bounded pool shared by all updates, with a
+	 * scanner each, and the updates are added in the order of the units such that the result
+	 * does not depend on thread scheduling.
+	 *
+	 * @param units the compilation units to scan
+	 * @param pm the progress monitor
+	 * @throws JavaModelException if the buffer of a compilation unit cannot be read
+	 */
+	private void addTextMatches(final List<ICompilationUnit> units, final IProgressMonitor pm) throws JavaModelException {
+		pm.beginTask("", units.size()); //$NON-NLS-1$
+		try {
+			final AtomicReferenceArray<List<TextMatch>> results= new AtomicReferenceArray<>(units.size());
+			final AtomicInteger next= new AtomicInteger();
+			final AtomicInteger scanned= new AtomicInteger();
+			long startTime= System.currentTimeMillis();
+
+			int workers= Math.min(MAX_WORKERS, units.size() / MIN_UNITS_PER_WORKER);
+			if (workers <= 1) {
+				RefactoringScanner scanner= new RefactoringScanner(fCurrentName, fCurrentQualifier);
+				for (int i= 0; i < units.size(); i++) {
+					if (pm.isCanceled())
+						throw new OperationCanceledException();
+					results.set(i, scan(scanner, units.get(i)));
+					updateProgress(pm, scanned.incrementAndGet(), units.size(), startTime);
+				}
+			} else {
+				ExecutorService executor= getExecutor();
+				// set when the scan is abandoned, e.g. because another worker failed
+				final AtomicBoolean aborted= new AtomicBoolean();
+				List<Future<Void>> futures= new ArrayList<>(workers);
+				try {
+					for (int w= 0; w < workers; w++) {
+						futures.add(executor.submit(new Callable<Void>() {
+							@Override
+							public Void call() throws JavaModelException {
+								RefactoringScanner scanner= new RefactoringScanner(fCurrentName, fCurrentQualifier);
+								for (int i= next.getAndIncrement(); i < units.size(); i= next.getAndIncrement()) {
+									if (pm.isCanceled() || aborted.get() || Thread.currentThread().isInterrupted())
+										throw new OperationCanceledException();
+									try {
+										results.set(i, scan(scanner, units.get(i)));
+									} catch (JavaModelException | RuntimeException e) {
+										// the other workers need not scan on
+										aborted.set(true);
+										throw e;
+									}
+									scanned.incrementAndGet();
+								}
+								return null;
+							}
+						}));
+					}
+					ExecutionException failure= null;
+					for (Iterator<Future<Void>> iter= futures.iterator(); iter.hasNext();) {
+						Future<Void> future= iter.next();
+						while (true) {
+							try {
+								future.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+								break;
+							} catch (TimeoutException e) {
+								updateProgress(pm, scanned.get(), units.size(), startTime);
+							} catch (ExecutionException e) {
+								// workers stopped by the failure of another worker report a cancellation
+								if (failure == null || failure.getCause() instanceof OperationCanceledException)
+									failure= e;
+								break;
+							}
+						}
+					}
+					if (failure != null)
+						throw failure;
+					updateProgress(pm, scanned.get(), units.size(), startTime);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new OperationCanceledException();
+				} catch (ExecutionException e) {
+					Throwable cause= e.getCause();
+					if (cause instanceof JavaModelException)
+						throw (JavaModelException) cause;
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw new JavaModelException(e, IJavaModelStatusConstants.INVALID_CONTENTS);
+				} finally {
+					aborted.set(true);
+					// the threads are shared, stop the workers which are still queued or running
+					for (int i= 0; i < futures.size(); i++)
+						futures.get(i).cancel(true);
+				}
+			}
+
+			if (pm.isCanceled())
+				throw new OperationCanceledException();
+			for (int i= 0; i < units.size(); i++) {
+				List<TextMatch> matches= results.get(i);
+				if (matches != null)
+					addTextUpdates(units.get(i), matches);
+			}
+		} finally {
+			pm.done();
+		}
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (fgExecutor == null) {
+			ThreadPoolExecutor executor= new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS, WORKER_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "Refactoring Text Match Scanner"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			executor.allowCoreThreadTimeOut(true);
+			fgExecutor= executor;
+		}
+		return fgExecutor;
+	}
+
+	/**
+	 * Scans a compilation unit for text matches which are not references.
+	 *
+	 * @param scanner the scanner to use, not shared with other threads
+	 * @param cu the compilation unit
+	 * @return the text matches ordered by start position, or <code>null</code> if there are none
+	 * @throws JavaModelException if the buffer cannot be read
+	 */
+	private List<TextMatch> scan(RefactoringScanner scanner, ICompilationUnit cu) throws JavaModelException {
+		scanner.scan(cu);
+		Set<TextMatch> matches= scanner.getMatches(); //Set of TextMatch
 		if (matches.size() == 0)
-			return;
+			return null;
 
 		removeReferences(cu, matches);
-		if (matches.size() != 0)
-			addTextUpdates(cu, matches);
+		if (matches.size() == 0)
+			return null;
+
+		List<TextMatch> result= new ArrayList<>(matches);
+		Collections.sort(result, START_POSITION_COMPARATOR);
+		return result;
+	}
+
+	/**
+	 * Reports the scanned compilation units and the throughput. Must be called in the thread
+	 * which owns the progress monitor.
+	 *
+	 * @param pm the progress monitor
+	 * @param scanned the number of scanned compilation units
+	 * @param total the total number of compilation units
+	 * @param startTime the time the scan started
+	 */
+	private void updateProgress(IProgressMonitor pm, int scanned, int total, long startTime) {
+		long elapsed= System.currentTimeMillis() - startTime;
+		String throughput= elapsed > 0 ? String.valueOf(Math.round(scanned * 1000.0 / elapsed)) : "-"; //$NON-NLS-1$
+		pm.subTask(Messages.format(RefactoringCoreMessages.TextMatchUpdater_scanning, new Object[] { Integer.valueOf(scanned), Integer.valueOf(total), throughput }));
+		pm.worked(scanned - fReportedUnits);
+		fReportedUnits= scanned;
 	}
 
 	private void removeReferences(ICompilationUnit cu, Set<TextMatch> matches) {
@@ -190,7 +399,7 @@ class TextMatchUpdater {
 		}
 	}
 
-	private void addTextUpdates(ICompilationUnit cu, Set<TextMatch> matches) {
+	private void addTextUpdates(ICompilationUnit cu, List<TextMatch> matches) {
 		for (Iterator<TextMatch> resultIter= matches.iterator(); resultIter.hasNext();){
 			TextMatch match= resultIter.next();
 			if (!match.isQualified() && fOnlyQualified)
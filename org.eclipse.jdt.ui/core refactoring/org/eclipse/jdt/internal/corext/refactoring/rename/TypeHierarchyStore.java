@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.rename;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Shares the type hierarchies of the primary working copies built by successive ripple method
+ * searches.
+ * <p>
+ * A stored hierarchy answers requests for its focus type and all its subtypes, since their
+ * subtype hierarchies are complete. Hierarchies are removed as soon as they change, and the least
+ * recently used ones when the total number of their types exceeds the limit.
+ * </p>
+ * <p>
+ * Hierarchies are built outside of the lock. A hierarchy listens to changes before it is stored, and
+ * it is not stored if a Java element delta has been fired since it started to be built.
+ * </p>
+ *
+ * @since 3.18
+ */
+final class TypeHierarchyStore {
+
+	/**
+	 * A stored hierarchy.
+	 */
+	private final class Entry implements ITypeHierarchyChangedListener {
+
+		/** Whether the hierarchy has changed, guarded by the store */
+		private boolean fChanged= false;
+
+		private final ITypeHierarchy fHierarchy;
+
+		private final IType[] fCoveredTypes;
+
+		private final int fWeight;
+
+		Entry(ITypeHierarchy hierarchy) {
+			fHierarchy= hierarchy;
+			IType[] subtypes= hierarchy.getAllSubtypes(hierarchy.getType());
+			fCoveredTypes= new IType[subtypes.length + 1];
+			fCoveredTypes[0]= hierarchy.getType();
+			System.arraycopy(subtypes, 0, fCoveredTypes, 1, subtypes.length);
+			fWeight= Math.max(1, hierarchy.getAllTypes().length);
+		}
+
+		@Override
+		public void typeHierarchyChanged(ITypeHierarchy typeHierarchy) {
+			synchronized (TypeHierarchyStore.this) {
+				fChanged= true;
+				remove(this);
+			}
+		}
+	}
+
+	/** The maximal total number of types in all stored hierarchies */
+	private static final int MAX_WEIGHT= 50000;
+
+	/** The maximal number of stored hierarchies */
+	private static final int MAX_ENTRIES= 20;
+
+	private static final TypeHierarchyStore fgDefault= new TypeHierarchyStore();
+
+	/**
+	 * Returns the shared hierarchy store.
+	 *
+	 * @return the shared hierarchy store
+	 */
+	static TypeHierarchyStore getDefault() {
+		return fgDefault;
+	}
+
+	/** The stored hierarchies, in access order */
+	private final Set<Entry> fEntries= new LinkedHashSet<>();
+
+	/** Maps each covered type to the most recently stored hierarchy covering it */
+	private final Map<IType, Entry> fTypeIndex= new HashMap<>();
+
+	/** The total number of types in all stored hierarchies */
+	private int fWeight= 0;
+
+	/** The number of Java element deltas fired so far */
+	private long fGeneration= 0;
+
+	private TypeHierarchyStore() {
+		JavaCore.addElementChangedListener(new IElementChangedListener() {
+			@Override
+			public void elementChanged(ElementChangedEvent event) {
+				synchronized (TypeHierarchyStore.this) {
+					fGeneration++;
+				}
+			}
+		}, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+	}
+
+	/**
+	 * Returns a type hierarchy of the primary working copies which contains all subtypes of the
+	 * given type. The hierarchy is built if no stored hierarchy covers the type.
+	 *
+	 * @param type the type
+	 * @param monitor the progress monitor
+	 * @return the type hierarchy, which may be focused on a supertype of <code>type</code>
+	 * @throws JavaModelException if the hierarchy cannot be built
+	 */
+	ITypeHierarchy getHierarchy(IType type, IProgressMonitor monitor) throws JavaModelException {
+		long generation;
+		synchronized (this) {
+			ITypeHierarchy hierarchy= find(type);
+			if (hierarchy != null)
+				return hierarchy;
+			generation= fGeneration;
+		}
+		// build outside of the lock, concurrent requests for the same type are rare
+		ITypeHierarchy hierarchy= type.newTypeHierarchy(monitor);
+		Entry entry= new Entry(hierarchy);
+		hierarchy.addTypeHierarchyChangedListener(entry);
+		if (!add(entry, generation))
+			hierarchy.removeTypeHierarchyChangedListener(entry);
+		return hierarchy;
+	}
+
+	/**
+	 * Returns the stored hierarchy focused on the given type or on one of its supertypes.
+	 *
+	 * @param type the type
+	 * @return the hierarchy, or <code>null</code> if no stored hierarchy covers the type
+	 */
+	synchronized ITypeHierarchy find(IType type) {
+		Entry entry= fTypeIndex.get(type);
+		if (entry == null)
+			return null;
+		if (!entry.fHierarchy.exists()) {
+			remove(entry);
+			return null;
+		}
+		fEntries.remove(entry);
+		fEntries.add(entry);
+		return entry.fHierarchy;
+	}
+
+	/**
+	 * Stores a hierarchy that listens to its changes.
+	 *
+	 * @param entry the entry of the hierarchy
+	 * @param generation the number of deltas fired before the hierarchy was built
+	 * @return <code>false</code> if the hierarchy may be outdated and has not been stored
+	 */
+	private synchronized boolean add(Entry entry, long generation) {
+		if (entry.fChanged || generation != fGeneration)
+			return false;
+		fEntries.add(entry);
+		fWeight+= entry.fWeight;
+		for (int i= 0; i < entry.fCoveredTypes.length; i++)
+			fTypeIndex.put(entry.fCoveredTypes[i], entry);
+
+		// remove the least recently used entries, but always keep the new one
+		for (Iterator<Entry> iter= fEntries.iterator(); iter.hasNext() && (fWeight > MAX_WEIGHT || fEntries.size() > MAX_ENTRIES);) {
+			Entry oldest= iter.next();
+			if (oldest != entry) {
+				iter.remove();
+				dispose(oldest);
+			}
+		}
+		return true;
+	}
+
+	private boolean remove(Entry entry) {
+		if (!fEntries.remove(entry))
+			return false;
+		dispose(entry);
+		return true;
+	}
+
+	private void dispose(Entry entry) {
+		fWeight-= entry.fWeight;
+		for (int i= 0; i < entry.fCoveredTypes.length; i++) {
+			IType type= entry.fCoveredTypes[i];
+			if (fTypeIndex.get(type) == entry)
+				fTypeIndex.remove(type);
+		}
+		entry.fHierarchy.removeTypeHierarchyChangedListener(entry);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -177,6 +177,9 @@ public abstract class SuperTypeRefactoringProcessor extends RefactoringProcessor
 	/** The type bindings to import */
 	protected final Set<ITypeBinding> fTypeBindings= new HashSet<>();
 
+	/** The type environment shared by the constraint solving of this refactoring, or <code>null</code> */
+	private TypeEnvironment fTypeEnvironment= null;
+
 	/**
 	 * The type occurrences (element type:
 	 * <code>&lt;ICompilationUnit, Collection&lt;IDeclaredConstraintVariable&gt;&gt;</code>)
@@ -1130,7 +1133,9 @@ public abstract class SuperTypeRefactoringProcessor extends RefactoringProcessor
 		Assert.isNotNull(monitor);
 		Assert.isNotNull(status);
 		int level= 3;
-		TypeEnvironment environment= new TypeEnvironment();
+		if (fTypeEnvironment == null)
+			fTypeEnvironment= new TypeEnvironment();
+		TypeEnvironment environment= fTypeEnvironment;
 		final SuperTypeConstraintsModel model= new SuperTypeConstraintsModel(environment, environment.create(subBinding), environment.create(superBinding));
 		final SuperTypeConstraintsCreator creator= new SuperTypeConstraintsCreator(model, fInstanceOf);
 		try {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@
 package org.eclipse.jdt.internal.ui.callhierarchy;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.swt.widgets.Display;
 
@@ -65,6 +66,10 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
 
     private DeferredTreeContentManager fManager;
     private CallHierarchyViewPart fPart;
+    /**
+     * The number of jobs fetching children, which may run in parallel.
+     */
+    private final AtomicInteger fFetchCount= new AtomicInteger();
 
     private class MethodWrapperRunnable implements IRunnableWithProgress {
         private MethodWrapper fMethodWrapper;
@@ -469,7 +474,7 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
      *
      */
     public void doneFetching() {
-        if (fPart != null) {
+        if (fFetchCount.decrementAndGet() == 0 && fPart != null) {
             fPart.setCancelEnabled(false);
         }
     }
@@ -478,7 +483,7 @@ public class CallHierarchyContentProvider implements ITreeContentProvider {
      *
      */
     public void startFetching() {
-        if (fPart != null) {
+        if (fFetchCount.getAndIncrement() == 0 && fPart != null) {
             fPart.setCancelEnabled(true);
         }
     }
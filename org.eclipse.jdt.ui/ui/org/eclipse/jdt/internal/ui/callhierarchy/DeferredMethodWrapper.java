@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -24,15 +24,22 @@ import org.eclipse.ui.progress.IDeferredWorkbenchAdapter;
 import org.eclipse.ui.progress.IElementCollector;
 
 import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
+import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper.ICallCollector;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 
 public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter implements IDeferredWorkbenchAdapter {
+    /**
+     * The maximal number of jobs fetching children in parallel.
+     */
+    private static final int MAX_PARALLEL_FETCHES= Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
     private final CallHierarchyContentProvider fProvider;
 
     /**
      * A simple job scheduling rule for serializing jobs that shouldn't be run
-     * concurrently.
+     * concurrently. The members are distributed over {@link #MAX_PARALLEL_FETCHES}
+     * rules, so jobs fetching the children of the same member never run in parallel.
      */
     private class BatchSimilarSchedulingRule implements ISchedulingRule {
         public String id;
@@ -66,16 +73,22 @@ public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter impleme
         this.fProvider = provider;
     }
 
-    private Object getCalls(IProgressMonitor monitor) {
-        return getMethodWrapper().getCalls(monitor);
+    private Object getCalls(IProgressMonitor monitor, ICallCollector collector) {
+        return getMethodWrapper().getCalls(monitor, collector);
     }
 
     @Override
-	public void fetchDeferredChildren(Object object, IElementCollector collector, IProgressMonitor monitor) {
+	public void fetchDeferredChildren(Object object, final IElementCollector collector, final IProgressMonitor monitor) {
     	final DeferredMethodWrapper deferredMethodWrapper= (DeferredMethodWrapper)object;
     	try {
             fProvider.startFetching();
-            collector.add((Object[]) deferredMethodWrapper.getCalls(monitor), monitor);
+            // the calls are added to the viewer while they are found
+            deferredMethodWrapper.getCalls(monitor, new ICallCollector() {
+				@Override
+				public void add(MethodWrapper[] calls) {
+					collector.add(calls, monitor);
+				}
+			});
             collector.done();
         } catch (OperationCanceledException e) {
         	final MethodWrapper methodWrapper= deferredMethodWrapper.getMethodWrapper();
@@ -103,7 +116,8 @@ public class DeferredMethodWrapper extends MethodWrapperWorkbenchAdapter impleme
 
     @Override
 	public ISchedulingRule getRule(Object o) {
-        return new BatchSimilarSchedulingRule("org.eclipse.jdt.ui.callhierarchy.methodwrapper"); //$NON-NLS-1$
+        int slot= Math.floorMod(((DeferredMethodWrapper) o).getMethodWrapper().getMember().getHandleIdentifier().hashCode(), MAX_PARALLEL_FETCHES);
+        return new BatchSimilarSchedulingRule("org.eclipse.jdt.ui.callhierarchy.methodwrapper:" + slot); //$NON-NLS-1$
     }
 
     @Override
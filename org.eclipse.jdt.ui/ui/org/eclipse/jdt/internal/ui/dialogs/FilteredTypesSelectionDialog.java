@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -81,14 +81,12 @@ import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaConventions;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jdt.core.WorkingCopyOwner;
 import org.eclipse.jdt.core.search.IJavaSearchConstants;
 import org.eclipse.jdt.core.search.IJavaSearchScope;
 import org.eclipse.jdt.core.search.SearchEngine;
 import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.search.TypeNameMatch;
 import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
-import org.eclipse.jdt.core.search.TypeNameRequestor;
 
 import org.eclipse.jdt.internal.corext.util.CollectionsUtil;
 import org.eclipse.jdt.internal.corext.util.Messages;
@@ -97,6 +95,7 @@ import org.eclipse.jdt.internal.corext.util.Strings;
 import org.eclipse.jdt.internal.corext.util.TypeFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoRequestorAdapter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 
 import org.eclipse.jdt.launching.IVMInstall;
 import org.eclipse.jdt.launching.IVMInstallType;
@@ -475,31 +474,17 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 	protected void fillContentProvider(AbstractContentProvider provider, ItemsFilter itemsFilter, IProgressMonitor progressMonitor) throws CoreException {
 		TypeItemsFilter typeSearchFilter= (TypeItemsFilter) itemsFilter;
 		TypeSearchRequestor requestor= new TypeSearchRequestor(provider, typeSearchFilter);
-		SearchEngine engine= new SearchEngine((WorkingCopyOwner) null);
-		String packPattern= typeSearchFilter.getPackagePattern();
 		progressMonitor.setTaskName(JavaUIMessages.FilteredTypesSelectionDialog_searchJob_taskName);
 
 		/*
 		 * Setting the filter into match everything mode avoids filtering twice
-		 * by the same pattern (the search engine only provides filtered
-		 * matches). For the case when the pattern is a camel case pattern with
-		 * a terminator, the filter is not set to match everything mode because
-		 * jdt.core's SearchPattern does not support that case.
+		 * by the same pattern (the type name index only provides filtered
+		 * matches).
 		 */
-		String typePattern= typeSearchFilter.getNamePattern();
-		int matchRule= typeSearchFilter.getMatchRule();
 		typeSearchFilter.setMatchEverythingMode(true);
 
 		try {
-			engine.searchAllTypeNames(packPattern == null ? null : packPattern.toCharArray(),
-					typeSearchFilter.getPackageFlags(),
-					typePattern.toCharArray(),
-					matchRule,
-					typeSearchFilter.getElementKind(),
-					typeSearchFilter.getSearchScope(),
-					requestor,
-					IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
-					progressMonitor);
+			TypeNameIndex.getDefault().search(typeSearchFilter.fTypeInfoFilter, requestor, progressMonitor);
 		} finally {
 			typeSearchFilter.setMatchEverythingMode(false);
 		}
@@ -576,17 +561,8 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 		}
 		private void refreshSearchIndices(IProgressMonitor monitor) throws InvocationTargetException {
 			try {
-				new SearchEngine().searchAllTypeNames(
-						null,
-						0,
-						// make sure we search a concrete name. This is faster according to Kent
-						"_______________".toCharArray(), //$NON-NLS-1$
-						SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE,
-						IJavaSearchConstants.ENUM,
-						SearchEngine.createWorkspaceScope(),
-						new TypeNameRequestor() { /* dummy */},
-						IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
-						monitor);
+				// only queries the search engine for package fragment roots that changed since the index was stored
+				TypeNameIndex.getDefault().update(monitor);
 			} catch (JavaModelException e) {
 				throw new InvocationTargetException(e);
 			}
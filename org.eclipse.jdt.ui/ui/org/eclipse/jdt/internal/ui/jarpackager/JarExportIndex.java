@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.jarpackager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.jdt.ui.jarpackager.JarPackageData;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * The paths, sizes and content digests of the entries of an exported JAR file. The index of a JAR
+ * file is stored in the plug-in state location, together with the size and time stamp of the JAR
+ * file and the export options that affect the entries. It is only valid as long as the JAR file and
+ * the options are unchanged.
+ *
+ * @since 3.18
+ */
+public final class JarExportIndex {
+
+	private static final int MAGIC= 0x4A455849;
+
+	private static final int VERSION= 1;
+
+	private static final String INDEX_DIRECTORY= "jarExportIndex"; //$NON-NLS-1$
+
+	private static final String DIGEST_ALGORITHM= "SHA-1"; //$NON-NLS-1$
+
+	/**
+	 * An entry of the index.
+	 */
+	private static final class IndexEntry {
+
+		final long fSize;
+
+		/** The digest of the content, or <code>null</code> for directories */
+		final byte[] fDigest;
+
+		IndexEntry(long size, byte[] digest) {
+			fSize= size;
+			fDigest= digest;
+		}
+	}
+
+	private final String fOptions;
+
+	private final Map<String, IndexEntry> fEntries= new LinkedHashMap<>();
+
+	/**
+	 * Creates an empty index.
+	 *
+	 * @param options the export options, see {@link #getOptions(JarPackageData)}
+	 */
+	public JarExportIndex(String options) {
+		fOptions= options;
+	}
+
+	/**
+	 * Returns the export options that affect the entries of a JAR file. The contents of the
+	 * entries, including the manifest, are compared by their digests. Whether there is a manifest
+	 * is part of the options, since the manifest must be the first entry.
+	 *
+	 * @param jarPackage the JAR package
+	 * @return the options
+	 */
+	public static String getOptions(JarPackageData jarPackage) {
+		boolean manifest= jarPackage.usesManifest() && jarPackage.areGeneratedFilesExported();
+		return jarPackage.getJarBuilder().getId() + '\n' + jarPackage.isCompressed() + '\n' + jarPackage.areDirectoryEntriesIncluded() + '\n' + manifest;
+	}
+
+	/**
+	 * Returns the file in which the index of a JAR file is stored.
+	 *
+	 * @param jarFile the JAR file
+	 * @return the index file
+	 */
+	public static File getIndexFile(File jarFile) {
+		String path= jarFile.getAbsolutePath();
+		File directory= JavaPlugin.getDefault().getStateLocation().append(INDEX_DIRECTORY).toFile();
+		return new File(directory, Integer.toHexString(path.hashCode()) + Integer.toHexString(path.length()) + ".idx"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Creates the digest that is used to compare the contents of entries.
+	 *
+	 * @return a new message digest
+	 */
+	public static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every Java platform supports SHA-1
+		}
+	}
+
+	/**
+	 * Reads the index of a JAR file.
+	 *
+	 * @param indexFile the index file
+	 * @param jarFile the JAR file
+	 * @param options the current export options
+	 * @return the index, or <code>null</code> if there is no index that is valid for the JAR file
+	 *         and the options
+	 */
+	public static JarExportIndex read(File indexFile, File jarFile, String options) {
+		if (!indexFile.isFile() || !jarFile.isFile())
+			return null;
+		try (DataInputStream input= new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION || !options.equals(input.readUTF()))
+				return null;
+			if (input.readLong() != jarFile.length() || input.readLong() != jarFile.lastModified())
+				return null;
+			JarExportIndex index= new JarExportIndex(options);
+			int count= input.readInt();
+			for (int i= 0; i < count; i++) {
+				String path= input.readUTF();
+				long size= input.readLong();
+				int digestLength= input.readUnsignedByte();
+				byte[] digest= null;
+				if (digestLength > 0) {
+					digest= new byte[digestLength];
+					input.readFully(digest);
+				}
+				index.fEntries.put(path, new IndexEntry(size, digest));
+			}
+			return index;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes this index for a JAR file.
+	 *
+	 * @param indexFile the index file
+	 * @param jarFile the JAR file, which must not change afterwards
+	 * @throws IOException if the index cannot be written
+	 */
+	public void write(File indexFile, File jarFile) throws IOException {
+		indexFile.getParentFile().mkdirs();
+		try (DataOutputStream output= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeUTF(fOptions);
+			output.writeLong(jarFile.length());
+			output.writeLong(jarFile.lastModified());
+			output.writeInt(fEntries.size());
+			for (Iterator<Entry<String, IndexEntry>> iter= fEntries.entrySet().iterator(); iter.hasNext();) {
+				Entry<String, IndexEntry> entry= iter.next();
+				output.writeUTF(entry.getKey());
+				output.writeLong(entry.getValue().fSize);
+				byte[] digest= entry.getValue().fDigest;
+				if (digest != null) {
+					output.writeByte(digest.length);
+					output.write(digest);
+				} else {
+					output.writeByte(0);
+				}
+			}
+		} catch (IOException e) {
+			indexFile.delete();
+			throw e;
+		}
+	}
+
+	/**
+	 * Adds an entry.
+	 *
+	 * @param path the path of the entry
+	 * @param size the size of the content
+	 * @param digest the digest of the content, or <code>null</code> for a directory
+	 */
+	public void put(String path, long size, byte[] digest) {
+		fEntries.put(path, new IndexEntry(size, digest));
+	}
+
+	/**
+	 * @param path the path of an entry
+	 * @return <code>true</code> if the index contains the entry
+	 */
+	public boolean contains(String path) {
+		return fEntries.containsKey(path);
+	}
+
+	/**
+	 * Tells whether the index contains an entry with the given content.
+	 *
+	 * @param path the path of the entry
+	 * @param size the size of the content
+	 * @param digest the digest of the content
+	 * @return <code>true</code> if the entry is unchanged
+	 */
+	public boolean isUnchanged(String path, long size, byte[] digest) {
+		IndexEntry entry= fEntries.get(path);
+		return entry != null && entry.fSize == size && Arrays.equals(entry.fDigest, digest);
+	}
+
+	/**
+	 * @return the paths of the entries
+	 */
+	public Set<String> getPaths() {
+		return fEntries.keySet();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -121,6 +121,8 @@ public class JarFileExportOperation extends WorkspaceModifyOperation implements
 	private MessageMultiStatus fStatus;
 	private StandardJavaElementContentProvider fJavaElementContentProvider;
 	private boolean fFilesSaved;
+	/** The time in milliseconds spent writing the content of archives in the current run */
+	private long fArchiveTime;
 
 	/**
 	 * Creates an instance of this class.
@@ -400,7 +402,9 @@ public class JarFileExportOperation extends WorkspaceModifyOperation implements
 			ZipFile jarFile= null;
 			try {
 				jarFile= JarPackagerUtil.getArchiveFile(root.getPath());
+				long start= System.currentTimeMillis();
 				fJarBuilder.writeArchive(jarFile, progressMonitor);
+				fArchiveTime+= System.currentTimeMillis() - start;
 			} catch (CoreException e) {
 				addWarning(Messages.format(JarPackagerMessages.JarFileExportOperation_OpenZipFileError_message, new Object[] { JavaElementLabels.getElementLabel(root, JavaElementLabels.ALL_DEFAULT), e.getLocalizedMessage() }), e);
 			} finally {
@@ -1001,10 +1005,14 @@ public class JarFileExportOperation extends WorkspaceModifyOperation implements
 	}
 
 	private void singleRun(IProgressMonitor progressMonitor) throws InvocationTargetException, InterruptedException {
+		long start= System.currentTimeMillis();
+		long[] phaseEnds= new long[5];
+		fArchiveTime= 0;
 		try {
 			if (!preconditionsOK())
 				throw new InvocationTargetException(null, JarPackagerMessages.JarFileExportOperation_jarCreationFailedSeeDetails);
 			int totalWork= countSelectedElements();
+			phaseEnds[0]= System.currentTimeMillis();
 			if (fJarPackage.areGeneratedFilesExported()
 				&& ((!isAutoBuilding() && fJarPackage.isBuildingIfNeeded())
 					|| (isAutoBuilding() && fFilesSaved))) {
@@ -1015,15 +1023,19 @@ public class JarFileExportOperation extends WorkspaceModifyOperation implements
 				buildProjects(subProgressMonitor);
 			} else
 				progressMonitor.beginTask("", totalWork); //$NON-NLS-1$
+			phaseEnds[1]= System.currentTimeMillis();
 
 			fJarBuilder = fJarPackage.getJarBuilder();
 			fJarBuilder.open(fJarPackage, fParentShell, fStatus);
+			phaseEnds[2]= System.currentTimeMillis();
 
 			exportSelectedElements(progressMonitor);
+			phaseEnds[3]= System.currentTimeMillis();
 			if (getStatus().getSeverity() != IStatus.ERROR) {
 				progressMonitor.subTask(JarPackagerMessages.JarFileExportOperation_savingFiles);
 				saveFiles();
 			}
+			phaseEnds[4]= System.currentTimeMillis();
 		} catch (CoreException ex) {
 			addToStatus(ex);
 		} finally {
@@ -1034,9 +1046,26 @@ public class JarFileExportOperation extends WorkspaceModifyOperation implements
 				addToStatus(ex);
 			}
 			progressMonitor.done();
+			if (JavaPlugin.DEBUG_JAR_EXPORT)
+				printTimings(start, phaseEnds);
 		}
 	}
 
+	private void printTimings(long start, long[] phaseEnds) {
+		String[] phases= { "count", "build", "open", "export", "save" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		StringBuffer buf= new StringBuffer("JAR Export ").append(fJarPackage.getAbsoluteJarLocation()).append(':'); //$NON-NLS-1$
+		long phaseStart= start;
+		for (int i= 0; i < phases.length && phaseEnds[i] != 0; i++) {
+			buf.append(' ').append(phases[i]).append('=').append(phaseEnds[i] - phaseStart).append("ms"); //$NON-NLS-1$
+			if (i == 3)
+				buf.append(" (archives=").append(fArchiveTime).append("ms)"); //$NON-NLS-1$ //$NON-NLS-2$
+			phaseStart= phaseEnds[i];
+		}
+		buf.append(" close=").append(System.currentTimeMillis() - phaseStart).append("ms"); //$NON-NLS-1$ //$NON-NLS-2$
+		// logged, so the timings are also available when the workbench was not started from a console
+		JavaPlugin.log(new Status(IStatus.INFO, JavaPlugin.getPluginId(), IStatus.OK, buf.toString(), null));
+	}
+
 	private boolean preconditionsOK() {
 		if (!fJarPackage.areGeneratedFilesExported() && !fJarPackage.areJavaFilesExported()) {
 			addError(JarPackagerMessages.JarFileExportOperation_noExportTypeChosen, null);
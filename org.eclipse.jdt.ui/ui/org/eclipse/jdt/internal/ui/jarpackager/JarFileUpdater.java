@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.jarpackager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Updates the entries of an existing JAR file through the zip file system of the platform. When the
+ * updater is closed, the JAR file is replaced: the entries that have not been written are copied
+ * from the previous JAR file without being decompressed, written entries are compressed.
+ * <p>
+ * The parent directories of new entries are added as directory entries.
+ * </p>
+ *
+ * @since 3.18
+ */
+public final class JarFileUpdater {
+
+	private final FileSystem fFileSystem;
+
+	/**
+	 * Opens a JAR file for updating.
+	 *
+	 * @param jarFile the existing JAR file
+	 * @throws IOException if the JAR file cannot be opened
+	 */
+	public JarFileUpdater(File jarFile) throws IOException {
+		fFileSystem= FileSystems.newFileSystem(jarFile.toPath(), (ClassLoader) null);
+	}
+
+	/**
+	 * Adds or replaces a file entry.
+	 *
+	 * @param name the name of the entry
+	 * @param content the content
+	 * @param time the modification time in milliseconds
+	 * @throws IOException if the entry cannot be written
+	 */
+	public void writeEntry(String name, byte[] content, long time) throws IOException {
+		Path path= fFileSystem.getPath(name);
+		Path parent= path.getParent();
+		if (parent != null)
+			Files.createDirectories(parent);
+		Files.write(path, content);
+		Files.setLastModifiedTime(path, FileTime.fromMillis(time));
+	}
+
+	/**
+	 * Adds a directory entry, unless the directory exists.
+	 *
+	 * @param name the name of the entry, ending with a slash
+	 * @param time the modification time in milliseconds
+	 * @throws IOException if the entry cannot be written
+	 */
+	public void writeDirectory(String name, long time) throws IOException {
+		Path path= fFileSystem.getPath(name);
+		if (!Files.isDirectory(path)) {
+			Files.createDirectories(path);
+			Files.setLastModifiedTime(path, FileTime.fromMillis(time));
+		}
+	}
+
+	/**
+	 * Removes the entries that are not to be kept. Directories that are not kept are removed once
+	 * they are empty.
+	 *
+	 * @param keep the names of the entries to keep, the names of directories end with a slash
+	 * @throws IOException if an entry cannot be removed
+	 */
+	public void removeEntries(final Set<String> keep) throws IOException {
+		final Path root= fFileSystem.getPath("/"); //$NON-NLS-1$
+		final List<Path> removed= new ArrayList<>();
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if (!keep.contains(getName(file)))
+					removed.add(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				if (exc != null)
+					throw exc;
+				// visited after the contained entries, which are removed first
+				if (!dir.equals(root) && !keep.contains(getName(dir) + '/'))
+					removed.add(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		for (Iterator<Path> iter= removed.iterator(); iter.hasNext();) {
+			Path path= iter.next();
+			if (!Files.isDirectory(path))
+				Files.delete(path);
+			else if (isEmpty(path))
+				Files.deleteIfExists(path); // directories without an entry of their own do not exist
+		}
+	}
+
+	private static String getName(Path path) {
+		String name= path.toString();
+		if (name.startsWith("/")) //$NON-NLS-1$
+			name= name.substring(1);
+		if (name.endsWith("/")) //$NON-NLS-1$
+			name= name.substring(0, name.length() - 1);
+		return name;
+	}
+
+	private static boolean isEmpty(Path directory) throws IOException {
+		try (DirectoryStream<Path> children= Files.newDirectoryStream(directory)) {
+			return !children.iterator().hasNext();
+		}
+	}
+
+	/**
+	 * Writes the updated JAR file.
+	 *
+	 * @throws IOException if the JAR file cannot be written
+	 */
+	public void close() throws IOException {
+		fFileSystem.close();
+	}
+}
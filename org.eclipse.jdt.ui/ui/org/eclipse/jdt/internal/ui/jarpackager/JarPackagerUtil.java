@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,10 +15,14 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.jarpackager;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -72,6 +76,16 @@ public final class JarPackagerUtil {
 	private static final String META_INF_ENTRY= "META-INF"; //$NON-NLS-1$
 	private static final String REFACTORINGS_ENTRY= META_INF_ENTRY + "/REFACTORINGS.XML"; //$NON-NLS-1$
 
+	/**
+	 * The size of the buffers through which the content of entries is copied.
+	 */
+	public static final int BUFFER_SIZE= 64 * 1024;
+
+	/**
+	 * The maximum size of the content that is read only once to calculate the crc of a stored entry.
+	 */
+	public static final int MAX_BUFFERED_CONTENT_SIZE= 1024 * 1024;
+
 	private JarPackagerUtil() {
 		// Do nothing
 	}
@@ -284,6 +298,79 @@ public final class JarPackagerUtil {
 		entry.setCrc(crc.getValue());
 	}
 
+	/**
+	 * Reads the content of a stream, calculates its crc and size and updates the entry. This
+	 * avoids reading the content twice for small stored entries.
+	 *
+	 * @param entry the jar entry to update
+	 * @param stream the input stream, which is closed
+	 * @param buffer a shared buffer to store temporary data
+	 * @return the content
+	 * @throws IOException if an input/output error occurs
+	 */
+	public static byte[] readContentAndCalculateCrc(final ZipEntry entry, final InputStream stream, final byte[] buffer) throws IOException {
+		ByteArrayOutputStream content= new ByteArrayOutputStream();
+		final CRC32 crc= new CRC32();
+		int count;
+		try {
+			while ((count= stream.read(buffer, 0, buffer.length)) != -1) {
+				crc.update(buffer, 0, count);
+				content.write(buffer, 0, count);
+			}
+		} finally {
+			try {
+				stream.close();
+			} catch (IOException exception) {
+				// Do nothing
+			}
+		}
+		entry.setSize(content.size());
+		entry.setCrc(crc.getValue());
+		return content.toByteArray();
+	}
+
+	/**
+	 * Calculates the crc and size of a file and updates the entry. The file is read through a file
+	 * channel.
+	 *
+	 * @param entry the jar entry to update
+	 * @param file the file
+	 * @throws IOException if an input/output error occurs
+	 */
+	public static void calculateCrcAndSize(final ZipEntry entry, final File file) throws IOException {
+		final CRC32 crc= new CRC32();
+		ByteBuffer buffer= ByteBuffer.allocate(BUFFER_SIZE);
+		long size= 0;
+		try (FileChannel channel= FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				size+= buffer.remaining();
+				crc.update(buffer);
+				buffer.clear();
+			}
+		}
+		entry.setSize(size);
+		entry.setCrc(crc.getValue());
+	}
+
+	/**
+	 * Copies a file. The content is transferred between file channels, without copying it through
+	 * the Java heap where the platform supports it.
+	 *
+	 * @param source the file to copy
+	 * @param destination the file to create or overwrite
+	 * @throws IOException if an input/output error occurs
+	 */
+	public static void copyFile(File source, File destination) throws IOException {
+		try (FileChannel in= FileChannel.open(source.toPath(), StandardOpenOption.READ);
+				FileChannel out= FileChannel.open(destination.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size= in.size();
+			long position= 0;
+			while (position < size)
+				position+= in.transferTo(position, size - position, out);
+		}
+	}
+
 	/**
 	 * Opens the archive file at the given location.<br>
 	 * <em>Note: It is the caller's responsibility to close the returned
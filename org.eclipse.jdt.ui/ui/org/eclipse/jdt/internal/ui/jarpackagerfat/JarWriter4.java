@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.jarpackagerfat;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -94,6 +95,26 @@ public class JarWriter4 extends JarWriter3 {
 		addEntry(newEntry, is);
 	}
 
+	/**
+	 * Adds an entry that is stored without compression, even if the JAR is compressed. Used for
+	 * content that is already compressed, like nested archives.
+	 *
+	 * @param entry the entry, with the size and crc of the content
+	 * @param is the content, which is closed
+	 * @param path the path of the entry
+	 * @throws IOException if an I/O error has occurred
+	 */
+	public void addStoredEntryStream(ZipEntry entry, InputStream is, String path) throws IOException {
+		if (fJarPackage.areDirectoryEntriesIncluded())
+			addDirectories(path);
+		JarEntry newEntry= new JarEntry(path.replace(File.separatorChar, '/'));
+		newEntry.setMethod(ZipEntry.STORED);
+		newEntry.setSize(entry.getSize());
+		newEntry.setCrc(entry.getCrc());
+		newEntry.setTime(System.currentTimeMillis());
+		addEntry(newEntry, is);
+	}
+
 	public void write(File file, IPath destinationPath) throws CoreException {
 		try {
 			addFile(file, destinationPath);
@@ -116,15 +137,23 @@ public class JarWriter4 extends JarWriter3 {
 
 		JarEntry newEntry= new JarEntry(path.toString().replace(File.separatorChar, '/'));
 
-		if (fJarPackage.isCompressed())
+		InputStream contentStream;
+		if (fJarPackage.isCompressed()) {
 			newEntry.setMethod(ZipEntry.DEFLATED);
 			// Entry is filled automatically.
-		else {
+			contentStream= new FileInputStream(file);
+		} else {
 			newEntry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(newEntry, new FileInputStream(file), new byte[4096]);
+			if (file.length() <= JarPackagerUtil.MAX_BUFFERED_CONTENT_SIZE) {
+				// read small files only once
+				contentStream= new ByteArrayInputStream(JarPackagerUtil.readContentAndCalculateCrc(newEntry, new FileInputStream(file), new byte[JarPackagerUtil.BUFFER_SIZE]));
+			} else {
+				JarPackagerUtil.calculateCrcAndSize(newEntry, file);
+				contentStream= new FileInputStream(file);
+			}
 		}
 
 		newEntry.setTime(file.lastModified());
-		addEntry(newEntry, new FileInputStream(file));
+		addEntry(newEntry, contentStream);
 	}
 }
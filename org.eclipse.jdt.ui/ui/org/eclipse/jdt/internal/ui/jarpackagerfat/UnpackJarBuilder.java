@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,12 +16,7 @@
 package org.eclipse.jdt.internal.ui.jarpackagerfat;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -168,32 +163,10 @@ public class UnpackJarBuilder extends FatJarBuilder {
 	}
 
 	private void copyFile(File src, File dest) {
-		InputStream in= null;
-		OutputStream out= null;
 		try {
-			in= new FileInputStream(src);
-			out= new FileOutputStream(dest);
-			byte[] buf= new byte[4096];
-			int cnt= in.read(buf);
-			while (cnt > 0) {
-				out.write(buf, 0, cnt);
-				cnt= in.read(buf);
-			}
-		} catch (RuntimeException e) {
-			throw new RuntimeException(e);
-		} catch (FileNotFoundException e) {
-			throw new RuntimeException(e);
+			JarPackagerUtil.copyFile(src, dest);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
-		} finally {
-			try {
-				out.close();
-			} catch (IOException ignore) {
-			}
-			try {
-				in.close();
-			} catch (IOException ignore) {
-			}
 		}
 	}
 	
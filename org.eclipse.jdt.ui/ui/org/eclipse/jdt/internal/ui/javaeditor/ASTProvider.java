@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -25,6 +25,7 @@ import org.eclipse.jdt.core.ITypeRoot;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.manipulation.CoreASTProvider;
 
+import org.eclipse.jdt.internal.core.manipulation.ASTCache;
 import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
 
 import org.eclipse.jdt.ui.JavaUI;
@@ -34,7 +35,8 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
 
 /**
  * Provides a shared AST for clients. The shared AST is
- * the AST of the active Java editor's input element.
+ * the AST of the active Java editor's input element. ASTs of
+ * recently used elements are shared through the {@link ASTCache}.
  *
  * @since 3.0
  */
@@ -241,10 +243,10 @@ public final class ASTProvider implements IASTSharedValues {
 	 * cached by this AST provided.
 	 *
 	 * @param ast the compilation unit AST
-	 * @return <code>true</code> if the given AST is the cached one
+	 * @return <code>true</code> if the given AST is a cached one
 	 */
 	public boolean isCached(CompilationUnit ast) {
-		return ast != null && INSTANCE.getCachedAST() == ast;
+		return ast != null && (INSTANCE.getCachedAST() == ast || ASTCache.getDefault().isCached(ast));
 	}
 
 	/**
@@ -269,6 +271,7 @@ public final class ASTProvider implements IASTSharedValues {
 		fActivationListener= null;
 
 		INSTANCE.disposeAST();
+		ASTCache.getDefault().clear();
 		INSTANCE.waitLockNotifyAll();
 
 	}
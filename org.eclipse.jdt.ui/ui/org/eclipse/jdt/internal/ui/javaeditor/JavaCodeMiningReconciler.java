@@ -15,6 +15,7 @@ package org.eclipse.jdt.internal.ui.javaeditor;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
+import org.eclipse.jface.text.IViewportListener;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.text.source.ISourceViewerExtension5;
 
@@ -34,6 +35,12 @@ public class JavaCodeMiningReconciler implements IJavaReconcilingListener {
 	/** The source viewer this Java code mining reconciler is installed on */
 	private ISourceViewerExtension5 fSourceViewer;
 
+	/** Stores the visible region for the code minings that are computed after a reconcile */
+	private IViewportListener fViewportListener;
+
+	/** The viewer on which the viewport listener is installed, or <code>null</code> */
+	private ISourceViewer fViewportViewer;
+
 	@Override
 	public void reconciled(CompilationUnit ast, boolean forced, IProgressMonitor progressMonitor) {
 		JavaElementCodeMiningProvider.markReconciledViewer(fSourceViewer);
@@ -63,6 +70,15 @@ public class JavaCodeMiningReconciler implements IJavaReconcilingListener {
 		if (fEditor instanceof CompilationUnitEditor) {
 			((CompilationUnitEditor) fEditor).addReconcileListener(this);
 		}
+		fViewportViewer= sourceViewer;
+		fViewportListener= new IViewportListener() {
+			@Override
+			public void viewportChanged(int verticalOffset) {
+				JavaElementCodeMiningProvider.updateVisibleRegion(sourceViewer);
+			}
+		};
+		sourceViewer.addViewportListener(fViewportListener);
+		JavaElementCodeMiningProvider.updateVisibleRegion(sourceViewer);
 		fSourceViewer.updateCodeMinings();
 	}
 
@@ -74,6 +90,11 @@ public class JavaCodeMiningReconciler implements IJavaReconcilingListener {
 		if (fEditor instanceof CompilationUnitEditor) {
 			((CompilationUnitEditor) fEditor).removeReconcileListener(this);
 		}
+		if (fViewportViewer != null) {
+			fViewportViewer.removeViewportListener(fViewportListener);
+			fViewportViewer= null;
+			fViewportListener= null;
+		}
 		fEditor= null;
 		fSourceViewer= null;
 	}
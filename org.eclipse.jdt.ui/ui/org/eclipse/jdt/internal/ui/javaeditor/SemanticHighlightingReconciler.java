@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,17 +15,23 @@
 package org.eclipse.jdt.internal.ui.javaeditor;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.PerformanceStats;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.jface.text.ITextInputListener;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.TextPresentation;
@@ -36,14 +42,18 @@ import org.eclipse.ui.IWorkbenchPartSite;
 import org.eclipse.jdt.core.ITypeRoot;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ConstructorInvocation;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SimpleType;
 import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
-import org.eclipse.jdt.core.manipulation.SharedASTProviderCore;
+import org.eclipse.jdt.core.manipulation.CoreASTProvider;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightingManager.HighlightedPosition;
@@ -207,6 +217,66 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		}
 	}
 
+	/**
+	 * Tracks the document regions changed since the last reconcile.
+	 *
+	 * @since 3.18
+	 */
+	private class DirtyRegionTracker implements IDocumentListener, ITextInputListener {
+
+		/*
+		 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+		 */
+		@Override
+		public void documentAboutToBeChanged(DocumentEvent event) {
+			// Do nothing
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+		 */
+		@Override
+		public void documentChanged(DocumentEvent event) {
+			String text= event.getText();
+			addDirtyRegion(event.getOffset(), event.getLength(), text != null ? text.length() : 0);
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.ITextInputListener#inputDocumentAboutToBeChanged(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IDocument)
+		 */
+		@Override
+		public void inputDocumentAboutToBeChanged(IDocument oldInput, IDocument newInput) {
+			if (oldInput != null)
+				oldInput.removeDocumentListener(this);
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.ITextInputListener#inputDocumentChanged(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IDocument)
+		 */
+		@Override
+		public void inputDocumentChanged(IDocument oldInput, IDocument newInput) {
+			if (newInput != null)
+				newInput.addDocumentListener(this);
+			markDocumentDirty();
+		}
+	}
+
+	/**
+	 * Performance event for a reconcile, the context tells whether it was incremental.
+	 * @since 3.18
+	 */
+	private static final String PERFORMANCE_EVENT= JavaPlugin.getPluginId() + "/perf/javaeditor/SemanticHighlightingReconciler"; //$NON-NLS-1$
+	/**
+	 * <code>true</code> if reconciles are measured.
+	 * @since 3.18
+	 */
+	private static final boolean MEASURE_PERFORMANCE= PerformanceStats.isEnabled(PERFORMANCE_EVENT);
+	/**
+	 * Maximum number of separately tracked dirty regions, more changes are reconciled with the whole AST.
+	 * @since 3.18
+	 */
+	private static final int MAX_DIRTY_REGIONS= 32;
+
 	/** Position collector */
 	private PositionCollector fCollector= new PositionCollector();
 
@@ -257,12 +327,64 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 */
 	private Highlighting fJobDeprecatedMemberHighlighting;
 
+	/**
+	 * The dirty region tracker, or <code>null</code> if changes are not tracked.
+	 * @since 3.18
+	 */
+	private DirtyRegionTracker fDirtyRegionTracker;
+	/**
+	 * Dirty region lock.
+	 * @since 3.18
+	 */
+	private final Object fDirtyRegionLock= new Object();
+	/**
+	 * Document regions changed since the last call to {@link #aboutToBeReconciled()}.
+	 * @since 3.18
+	 */
+	private List<Position> fDirtyRegions= new ArrayList<>();
+	/**
+	 * <code>true</code> if the whole document is dirty.
+	 * @since 3.18
+	 */
+	private boolean fIsDirty= true;
+	/**
+	 * Document regions changed before the upcoming reconcile.
+	 * @since 3.18
+	 */
+	private List<Position> fReconcileRegions= new ArrayList<>();
+	/**
+	 * <code>true</code> if the upcoming reconcile has to reconcile the whole AST.
+	 * @since 3.18
+	 */
+	private boolean fIsReconcileAll= false;
+	/**
+	 * All dirty regions that are updated on document changes, including the ones of reconciles
+	 * whose presentation update has not been applied yet. Compared by identity.
+	 * @since 3.18
+	 */
+	private final Set<Position> fTrackedRegions= Collections.newSetFromMap(new IdentityHashMap<Position, Boolean>());
+	/**
+	 * Duration of the last reconcile in milliseconds.
+	 * @since 3.18
+	 */
+	private volatile long fLastReconcileTime;
+	/**
+	 * <code>true</code> if the last reconcile was limited to the changed members.
+	 * @since 3.18
+	 */
+	private volatile boolean fIsLastReconcileIncremental;
+
 	/*
 	 * @see org.eclipse.jdt.internal.ui.text.java.IJavaReconcilingListener#aboutToBeReconciled()
 	 */
 	@Override
 	public void aboutToBeReconciled() {
-		// Do nothing
+		synchronized (fDirtyRegionLock) {
+			fReconcileRegions.addAll(fDirtyRegions);
+			fDirtyRegions= new ArrayList<>();
+			fIsReconcileAll|= fIsDirty;
+			fIsDirty= false;
+		}
 	}
 
 	/*
@@ -281,6 +403,18 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		fJobSemanticHighlightings= fSemanticHighlightings;
 		fJobHighlightings= fHighlightings;
 
+		long start= System.currentTimeMillis();
+		List<Position> regions;
+		boolean reconcileAll;
+		synchronized (fDirtyRegionLock) {
+			regions= fReconcileRegions;
+			reconcileAll= fIsReconcileAll || fDirtyRegionTracker == null;
+			fReconcileRegions= new ArrayList<>();
+			fIsReconcileAll= false;
+		}
+		boolean isDone= false;
+		PerformanceStats stats= null;
+
 		try {
 			if (fJobPresenter == null || fJobSemanticHighlightings == null || fJobHighlightings == null)
 				return;
@@ -290,11 +424,17 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (ast == null || fJobPresenter.isCanceled())
 				return;
 
-			ASTNode[] subtrees= getAffectedSubtrees(ast);
+			ASTNode[] subtrees= getAffectedSubtrees(ast, regions, reconcileAll);
 			if (subtrees.length == 0)
 				return;
 
-			startReconcilingPositions();
+			boolean isIncremental= subtrees[0] != ast;
+			if (MEASURE_PERFORMANCE) {
+				stats= PerformanceStats.getStats(PERFORMANCE_EVENT, this);
+				stats.startRun(isIncremental ? "incremental" : "full"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+
+			startReconcilingPositions(subtrees, isIncremental);
 
 			if (!fJobPresenter.isCanceled()) {
 				fJobDeprecatedMemberHighlighting= null;
@@ -312,11 +452,23 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (!fJobPresenter.isCanceled())
 				textPresentation= fJobPresenter.createPresentation(fAddedPositions, fRemovedPositions);
 
-			if (!fJobPresenter.isCanceled())
-				updatePresentation(textPresentation, fAddedPositions, fRemovedPositions);
+			if (!fJobPresenter.isCanceled()) {
+				if (fAddedPositions.isEmpty() && fRemovedPositions.isEmpty())
+					releaseDirtyRegions(regions);
+				else
+					updatePresentation(textPresentation, fAddedPositions, fRemovedPositions, regions, reconcileAll);
+				isDone= true;
+			}
 
 			stopReconcilingPositions();
+
+			fLastReconcileTime= System.currentTimeMillis() - start;
+			fIsLastReconcileIncremental= isIncremental;
 		} finally {
+			if (stats != null)
+				stats.endRun();
+			if (!isDone)
+				restoreDirtyRegions(regions, reconcileAll);
 			fJobPresenter= null;
 			fJobSemanticHighlightings= null;
 			fJobHighlightings= null;
@@ -328,19 +480,75 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	}
 
 	/**
-	 * @param node Root node
+	 * Returns the subtrees that may be affected by the document changes in the given regions.
+	 * <p>
+	 * Changes confined to the bodies of methods and initializers cannot change any binding
+	 * outside of that body, so only the bodies containing the changes have to be reconciled.
+	 * All other changes may have distant effects and the whole AST is returned.
+	 * </p>
+	 *
+	 * @param ast the AST
+	 * @param regions the changed document regions
+	 * @param reconcileAll <code>true</code> if the whole AST has to be reconciled
 	 * @return Array of subtrees that may be affected by past document changes
 	 */
-	private ASTNode[] getAffectedSubtrees(ASTNode node) {
-		// TODO: only return nodes which are affected by document changes - would require an 'anchor' concept for taking distant effects into account
-		return new ASTNode[] { node };
+	private ASTNode[] getAffectedSubtrees(CompilationUnit ast, List<Position> regions, boolean reconcileAll) {
+		List<ASTNode> subtrees= new ArrayList<>();
+		if (!reconcileAll && !regions.isEmpty()) {
+			synchronized (fDirtyRegionLock) {
+				for (int i= 0, n= regions.size(); i < n; i++) {
+					Position region= regions.get(i);
+					ASTNode body= getEnclosingBody(ast, region.getOffset(), region.getLength());
+					if (body == null) {
+						subtrees.clear();
+						break;
+					}
+					if (!subtrees.contains(body))
+						subtrees.add(body);
+				}
+			}
+		}
+		if (subtrees.isEmpty())
+			return new ASTNode[] { ast };
+		return subtrees.toArray(new ASTNode[subtrees.size()]);
+	}
+
+	/**
+	 * Returns the outermost method or initializer body strictly containing the given range.
+	 *
+	 * @param ast the AST
+	 * @param offset the range offset
+	 * @param length the range length
+	 * @return the body or <code>null</code> if the range is not inside a body
+	 * @since 3.18
+	 */
+	private static ASTNode getEnclosingBody(CompilationUnit ast, int offset, int length) {
+		ASTNode body= null;
+		ASTNode node= NodeFinder.perform(ast, offset, length);
+		while (node != null) {
+			if (node instanceof Block && (node.getLocationInParent() == MethodDeclaration.BODY_PROPERTY || node.getLocationInParent() == Initializer.BODY_PROPERTY)) {
+				int start= node.getStartPosition();
+				if (start < offset && offset + length < start + node.getLength())
+					body= node;
+			}
+			node= node.getParent();
+		}
+		return body;
 	}
 
 	/**
 	 * Start reconciling positions.
+	 *
+	 * @param subtrees the AST subtrees to reconcile
+	 * @param isIncremental <code>true</code> if only the positions in the subtrees are reconciled
 	 */
-	private void startReconcilingPositions() {
-		fJobPresenter.addAllPositions(fRemovedPositions);
+	private void startReconcilingPositions(ASTNode[] subtrees, boolean isIncremental) {
+		if (isIncremental) {
+			for (int i= 0, n= subtrees.length; i < n; i++)
+				fJobPresenter.addAllPositions(fRemovedPositions, subtrees[i].getStartPosition(), subtrees[i].getLength());
+		} else {
+			fJobPresenter.addAllPositions(fRemovedPositions);
+		}
 		fNOfRemovedPositions= fRemovedPositions.size();
 	}
 
@@ -373,10 +581,25 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @param addedPositions the added positions
 	 * @param removedPositions the removed positions
 	 */
-	private void updatePresentation(TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions) {
-		Runnable runnable= fJobPresenter.createUpdateRunnable(textPresentation, addedPositions, removedPositions);
-		if (runnable == null)
+	private void updatePresentation(TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions, final List<Position> regions, final boolean reconcileAll) {
+		final SemanticHighlightingPresenter presenter= fJobPresenter;
+		final Runnable update= presenter.createUpdateRunnable(textPresentation, addedPositions, removedPositions);
+		if (update == null) {
+			restoreDirtyRegions(regions, reconcileAll);
 			return;
+		}
+		Runnable runnable= new Runnable() {
+			@Override
+			public void run() {
+				// the update is dropped if the document has changed in the meantime
+				if (presenter.isCanceled()) {
+					restoreDirtyRegions(regions, reconcileAll);
+				} else {
+					update.run();
+					releaseDirtyRegions(regions);
+				}
+			}
+		};
 
 		JavaEditor editor= fEditor;
 		if (editor == null)
@@ -423,6 +646,11 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		fSourceViewer= sourceViewer;
 
 		if (fEditor instanceof CompilationUnitEditor) {
+			fDirtyRegionTracker= new DirtyRegionTracker();
+			fSourceViewer.addTextInputListener(fDirtyRegionTracker);
+			IDocument document= fSourceViewer.getDocument();
+			if (document != null)
+				document.addDocumentListener(fDirtyRegionTracker);
 			((CompilationUnitEditor)fEditor).addReconcileListener(this);
 		} else if (fEditor == null) {
 			fSourceViewer.addTextInputListener(this);
@@ -445,6 +673,17 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			fEditor= null;
 		}
 
+		if (fDirtyRegionTracker != null) {
+			fSourceViewer.removeTextInputListener(fDirtyRegionTracker);
+			IDocument document= fSourceViewer.getDocument();
+			if (document != null)
+				document.removeDocumentListener(fDirtyRegionTracker);
+			synchronized (fDirtyRegionLock) {
+				fDirtyRegionTracker= null;
+				fTrackedRegions.clear();
+			}
+		}
+
 		fSourceViewer= null;
 		fSemanticHighlightings= null;
 		fHighlightings= null;
@@ -478,8 +717,15 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 						}
 						if (monitor.isCanceled())
 							return Status.CANCEL_STATUS;
-						CompilationUnit ast= SharedASTProviderCore.getAST(element, SharedASTProviderCore.WAIT_YES, monitor);
-						reconciled(ast, false, monitor);
+						// keep the AST in the cache while it is used, the editor may not be active
+						CoreASTProvider astProvider= CoreASTProvider.getInstance();
+						CompilationUnit ast= astProvider.acquireAST(element, CoreASTProvider.WAIT_YES, monitor);
+						try {
+							aboutToBeReconciled();
+							reconciled(ast, false, monitor);
+						} finally {
+							astProvider.releaseAST(ast);
+						}
 						synchronized (fJobLock) {
 							// allow the job to be gc'ed
 							if (fJob == this)
@@ -523,6 +769,132 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @since 3.2
 	 */
 	public void refresh() {
+		markDocumentDirty();
 		scheduleJob();
 	}
+
+	/**
+	 * Returns the duration of the last reconcile.
+	 *
+	 * @return the duration of the last reconcile in milliseconds
+	 * @since 3.18
+	 */
+	public long getLastReconcileTime() {
+		return fLastReconcileTime;
+	}
+
+	/**
+	 * Tells whether the last reconcile was limited to the changed members.
+	 *
+	 * @return <code>true</code> if the last reconcile was incremental
+	 * @since 3.18
+	 */
+	public boolean isLastReconcileIncremental() {
+		return fIsLastReconcileIncremental;
+	}
+
+	/**
+	 * Marks the given range of the document as changed, the regions of
+	 * all pending reconciles are updated accordingly.
+	 * <p>
+	 * NOTE: Called from the UI thread.
+	 * </p>
+	 *
+	 * @param offset the offset of the change
+	 * @param length the length of the replaced text
+	 * @param textLength the length of the inserted text
+	 * @since 3.18
+	 */
+	private void addDirtyRegion(int offset, int length, int textLength) {
+		synchronized (fDirtyRegionLock) {
+			int delta= textLength - length;
+			for (Position region : fTrackedRegions) {
+				int start= region.getOffset();
+				int end= start + region.getLength();
+				if (start >= offset + length) {
+					region.setOffset(start + delta);
+				} else if (end > offset) {
+					start= Math.min(start, offset);
+					end= Math.max(end + delta, offset + textLength);
+					region.setOffset(start);
+					region.setLength(end - start);
+				}
+			}
+			if (fIsDirty)
+				return;
+
+			int start= offset;
+			int end= offset + textLength;
+			for (int i= fDirtyRegions.size() - 1; i >= 0; i--) {
+				Position region= fDirtyRegions.get(i);
+				if (region.getOffset() <= end && start <= region.getOffset() + region.getLength()) {
+					start= Math.min(start, region.getOffset());
+					end= Math.max(end, region.getOffset() + region.getLength());
+					fDirtyRegions.remove(i);
+					fTrackedRegions.remove(region);
+				}
+			}
+			if (fDirtyRegions.size() < MAX_DIRTY_REGIONS) {
+				Position region= new Position(start, end - start);
+				fDirtyRegions.add(region);
+				fTrackedRegions.add(region);
+			} else {
+				markDocumentDirty();
+			}
+		}
+	}
+
+	/**
+	 * Marks the whole document as changed.
+	 *
+	 * @since 3.18
+	 */
+	private void markDocumentDirty() {
+		synchronized (fDirtyRegionLock) {
+			untrackDirtyRegions(fDirtyRegions);
+			fDirtyRegions= new ArrayList<>();
+			fIsDirty= true;
+		}
+	}
+
+	/**
+	 * Hands the dirty regions of an unsuccessful reconcile to the next reconcile.
+	 *
+	 * @param regions the dirty regions of the reconcile
+	 * @param reconcileAll <code>true</code> if the reconcile had to reconcile the whole AST
+	 * @since 3.18
+	 */
+	private void restoreDirtyRegions(List<Position> regions, boolean reconcileAll) {
+		synchronized (fDirtyRegionLock) {
+			if (fIsDirty || reconcileAll || fDirtyRegions.size() + regions.size() > MAX_DIRTY_REGIONS) {
+				untrackDirtyRegions(regions);
+				markDocumentDirty();
+			} else {
+				fDirtyRegions.addAll(regions);
+			}
+		}
+	}
+
+	/**
+	 * Stops tracking the dirty regions of a successful reconcile.
+	 *
+	 * @param regions the dirty regions of the reconcile
+	 * @since 3.18
+	 */
+	private void releaseDirtyRegions(List<Position> regions) {
+		synchronized (fDirtyRegionLock) {
+			untrackDirtyRegions(regions);
+		}
+	}
+
+	/**
+	 * Stops updating the given dirty regions on document changes.
+	 *
+	 * @param regions the dirty regions
+	 * @since 3.18
+	 */
+	private void untrackDirtyRegions(List<Position> regions) {
+		for (int i= 0, n= regions.size(); i < n; i++)
+			fTrackedRegions.remove(regions.get(i));
+	}
 }
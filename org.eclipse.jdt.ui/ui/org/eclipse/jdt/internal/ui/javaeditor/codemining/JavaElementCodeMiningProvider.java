@@ -14,13 +14,20 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.swt.custom.StyledText;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.codemining.AbstractCodeMiningProvider;
 import org.eclipse.jface.text.codemining.ICodeMining;
 import org.eclipse.jface.text.source.ISourceViewerExtension5;
@@ -56,6 +63,12 @@ public class JavaElementCodeMiningProvider extends AbstractCodeMiningProvider {
 	 */
 	private static final Set<ISourceViewerExtension5> reconciledViewers = new HashSet<>();
 
+	/**
+	 * Stores the visible regions of the viewers, taken in the UI thread for the code minings that
+	 * are requested in other threads.
+	 */
+	private static final Map<ITextViewer, IRegion> visibleRegions= new ConcurrentHashMap<>();
+
 	private final boolean showAtLeastOne;
 
 	private final boolean showReferences;
@@ -93,6 +106,7 @@ public class JavaElementCodeMiningProvider extends AbstractCodeMiningProvider {
 				return CompletableFuture.completedFuture(Collections.emptyList());
 			}
 		}
+		IRegion visibleRegion= getVisibleRegion(viewer);
 		return CompletableFuture.supplyAsync(() -> {
 			monitor.isCanceled();
 			ITextEditor textEditor= super.getAdapter(ITextEditor.class);
@@ -103,7 +117,7 @@ public class JavaElementCodeMiningProvider extends AbstractCodeMiningProvider {
 			try {
 				IJavaElement[] elements= unit.getChildren();
 				List<ICodeMining> minings= new ArrayList<>(elements.length);
-				collectMinings(unit, textEditor, unit.getChildren(), minings, viewer, monitor);
+				collectMinings(unit, textEditor, unit.getChildren(), minings, viewer, visibleRegion, monitor);
 				monitor.isCanceled();
 				return minings;
 			} catch (JavaModelException e) {
@@ -121,11 +135,13 @@ public class JavaElementCodeMiningProvider extends AbstractCodeMiningProvider {
 	 * @param elements the java elements to track
 	 * @param minings the current list of minings to update
 	 * @param viewer the viewer
+	 * @param visibleRegion the region of the document that is visible in the viewer, or
+	 *            <code>null</code> if unknown
 	 * @param monitor the monitor
 	 * @throws JavaModelException thrown when java model error
 	 */
 	private void collectMinings(ITypeRoot unit, ITextEditor textEditor, IJavaElement[] elements,
-			List<ICodeMining> minings, ITextViewer viewer, IProgressMonitor monitor) throws JavaModelException {
+			List<ICodeMining> minings, ITextViewer viewer, IRegion visibleRegion, IProgressMonitor monitor) throws JavaModelException {
 
 		// Only Java editor is supported, see bug 541811
 		if(!(textEditor instanceof JavaEditor)) {
@@ -142,7 +158,7 @@ public class JavaElementCodeMiningProvider extends AbstractCodeMiningProvider {
 				return;
 			}
 			if (element.getElementType() == IJavaElement.TYPE) {
-				collectMinings(unit, textEditor, ((IType) element).getChildren(), minings, viewer, monitor);
+				collectMinings(unit, textEditor, ((IType) element).getChildren(), minings, viewer, visibleRegion, monitor);
 			} else if (!(element.getElementType() == IJavaElement.METHOD || element.getElementType() == IJavaElement.FIELD)) {
 				continue;
 			}
@@ -152,8 +168,10 @@ public class JavaElementCodeMiningProvider extends AbstractCodeMiningProvider {
 							|| (showReferencesOnMethods && (element.getElementType() == IJavaElement.METHOD)) // Show references on methods
 							|| (showReferencesOnFields && (element.getElementType() == IJavaElement.FIELD)) // Show references on fields
 					) {
-						minings.add(new JavaReferenceCodeMining(element, (JavaEditor) textEditor, viewer.getDocument(),
-								this, showAtLeastOne));
+						JavaReferenceCodeMining mining= new JavaReferenceCodeMining(element, (JavaEditor) textEditor, viewer.getDocument(),
+								this, showAtLeastOne);
+						mining.setVisible(visibleRegion != null && isInRegion(mining.getPosition(), visibleRegion));
+						minings.add(mining);
 					}
 				} catch (BadLocationException e) {
 					// Should never occur
@@ -175,6 +193,51 @@ public class JavaElementCodeMiningProvider extends AbstractCodeMiningProvider {
 		}
 	}
 
+	/**
+	 * Returns the region of the document that is visible in the viewer. Outside the UI thread, the
+	 * region last stored by {@link #updateVisibleRegion(ITextViewer)} is returned.
+	 *
+	 * @param viewer the viewer
+	 * @return the visible region, or <code>null</code> if unknown
+	 */
+	private static IRegion getVisibleRegion(ITextViewer viewer) {
+		StyledText textWidget= viewer.getTextWidget();
+		if (textWidget == null || textWidget.isDisposed()) {
+			return null;
+		}
+		if (textWidget.getDisplay().getThread() != Thread.currentThread()) {
+			return visibleRegions.get(viewer);
+		}
+		return computeVisibleRegion(viewer);
+	}
+
+	/**
+	 * Stores the region of the document that is currently visible in the viewer. Must be called in
+	 * the UI thread.
+	 *
+	 * @param viewer the viewer
+	 */
+	public static void updateVisibleRegion(ITextViewer viewer) {
+		StyledText textWidget= viewer.getTextWidget();
+		IRegion region= textWidget == null || textWidget.isDisposed() ? null : computeVisibleRegion(viewer);
+		if (region != null) {
+			visibleRegions.put(viewer, region);
+		} else {
+			visibleRegions.remove(viewer);
+		}
+	}
+
+	private static IRegion computeVisibleRegion(ITextViewer viewer) {
+		int start= viewer.getTopIndexStartOffset();
+		int end= viewer.getBottomIndexEndOffset();
+		return end < start ? null : new Region(start, end - start);
+	}
+
+	private static boolean isInRegion(Position position, IRegion region) {
+		return position.getOffset() + position.getLength() >= region.getOffset()
+				&& position.getOffset() <= region.getOffset() + region.getLength();
+	}
+
 	/**
 	 * Marks the content of the viewer is reconciled with AST. This is
 	 * required for the code minings to be computed.
@@ -193,5 +256,8 @@ public class JavaElementCodeMiningProvider extends AbstractCodeMiningProvider {
 	 */
 	public static void discardViewer(ISourceViewerExtension5 viewer) {
 		reconciledViewers.remove(viewer);
+		if (viewer instanceof ITextViewer) {
+			visibleRegions.remove(viewer);
+		}
 	}
 }
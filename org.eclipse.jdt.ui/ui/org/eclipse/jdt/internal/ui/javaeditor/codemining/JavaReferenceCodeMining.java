@@ -12,12 +12,10 @@ package org.eclipse.jdt.internal.ui.javaeditor.codemining;
 
 import java.text.MessageFormat;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import org.eclipse.swt.events.MouseEvent;
 
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 
 import org.eclipse.jface.text.BadLocationException;
@@ -27,18 +25,10 @@ import org.eclipse.jface.text.codemining.ICodeMiningProvider;
 
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jdt.core.search.IJavaSearchConstants;
-import org.eclipse.jdt.core.search.IJavaSearchScope;
-import org.eclipse.jdt.core.search.SearchEngine;
-import org.eclipse.jdt.core.search.SearchMatch;
-import org.eclipse.jdt.core.search.SearchParticipant;
-import org.eclipse.jdt.core.search.SearchPattern;
-import org.eclipse.jdt.core.search.SearchRequestor;
 
 import org.eclipse.jdt.ui.actions.FindReferencesAction;
 
 import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
-import org.eclipse.jdt.internal.ui.search.JavaSearchScopeFactory;
 
 /**
  * Java reference code mining.
@@ -53,6 +43,8 @@ public class JavaReferenceCodeMining extends AbstractJavaElementLineHeaderCodeMi
 
 	private Consumer<MouseEvent> action;
 
+	private boolean visible;
+
 	public JavaReferenceCodeMining(IJavaElement element, JavaEditor editor, IDocument document,
 			ICodeMiningProvider provider, boolean showReferencesAtLeastOne)
 			throws JavaModelException, BadLocationException {
@@ -61,26 +53,34 @@ public class JavaReferenceCodeMining extends AbstractJavaElementLineHeaderCodeMi
 		this.showReferencesAtLeastOne= showReferencesAtLeastOne;
 	}
 
+	/**
+	 * Marks the element of this mining as visible in the viewer, so that its references are counted
+	 * before the ones of other elements.
+	 *
+	 * @param visible <code>true</code> if the element is visible
+	 */
+	void setVisible(boolean visible) {
+		this.visible= visible;
+	}
+
 	@SuppressWarnings("boxing")
 	@Override
 	protected CompletableFuture<Void> doResolve(ITextViewer viewer, IProgressMonitor monitor) {
-		return CompletableFuture.runAsync(() -> {
-			try {
-				monitor.isCanceled();
-				IJavaElement element = super.getElement();
-				long refCount= countReferences(element, monitor);
-				monitor.isCanceled();
-				action= refCount > 0 ? e -> new FindReferencesAction(editor).run(element) : null;
-				if (refCount == 0 && showReferencesAtLeastOne) {
-					super.setLabel(""); //$NON-NLS-1$
-				} else {
-					super.setLabel(MessageFormat.format(JavaCodeMiningMessages.JavaReferenceCodeMining_label, refCount));
-				}
-			} catch (JavaModelException e) {
-				// Should never occur
-			} catch (CoreException e) {
-				// Should never occur
+		IJavaElement element= super.getElement();
+		if (element == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return JavaReferenceCounter.getDefault().countReferences(element, visible, monitor).handle((refCount, error) -> {
+			if (error != null || monitor.isCanceled()) {
+				return null;
 			}
+			action= refCount > 0 ? e -> new FindReferencesAction(editor).run(element) : null;
+			if (refCount == 0 && showReferencesAtLeastOne) {
+				super.setLabel(""); //$NON-NLS-1$
+			} else {
+				super.setLabel(MessageFormat.format(JavaCodeMiningMessages.JavaReferenceCodeMining_label, refCount));
+			}
+			return null;
 		});
 	}
 
@@ -88,55 +88,4 @@ public class JavaReferenceCodeMining extends AbstractJavaElementLineHeaderCodeMi
 	public Consumer<MouseEvent> getAction() {
 		return action;
 	}
-
-	/**
-	 * Return the number of references for the given java element.
-	 * 
-	 * @param element the java element.
-	 * @param monitor the monitor
-	 * @return he number of references for the given java element.
-	 * @throws JavaModelException throws when java error.
-	 * @throws CoreException throws when java error.
-	 */
-	private static long countReferences(IJavaElement element, IProgressMonitor monitor)
-			throws JavaModelException, CoreException {
-		if (element == null) {
-			return 0;
-		}
-		final AtomicLong count= new AtomicLong(0);
-		SearchPattern pattern= SearchPattern.createPattern(element, IJavaSearchConstants.REFERENCES);
-		SearchEngine engine= new SearchEngine();
-		engine.search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() },
-				createSearchScope(element), new SearchRequestor() {
-
-					@Override
-					public void acceptSearchMatch(SearchMatch match) throws CoreException {
-						Object o= match.getElement();
-						if (o instanceof IJavaElement) {
-							IJavaElement e= (IJavaElement)o;
-							if (e.getAncestor(IJavaElement.COMPILATION_UNIT) != null
-									|| e.getAncestor(IJavaElement.CLASS_FILE) != null) {
-								count.incrementAndGet();
-							}
-						}
-					}
-				}, monitor);
-
-		return count.get();
-	}
-
-	/**
-	 * Create Java workspace scope.
-	 * 
-	 * @param element IJavaElement to search references for
-	 * 
-	 * @return the Java workspace scope.
-	 * @throws JavaModelException when java error.
-	 */
-	private static IJavaSearchScope createSearchScope(IJavaElement element) throws JavaModelException {
-		JavaSearchScopeFactory factory= JavaSearchScopeFactory.getInstance();
-		boolean isInsideJRE = factory.isInsideJRE(element);
-		IJavaSearchScope scope= factory.createWorkspaceScope(isInsideJRE);
-		return scope;
-	}
 }
@@ -0,0 +1,479 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.javaeditor.codemining;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.Flags;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.SearchRequestor;
+
+import org.eclipse.jdt.internal.ui.search.JavaSearchScopeFactory;
+
+/**
+ * Counts the references of Java elements for the references code minings of all editors.
+ * <p>
+ * The searches run on a small dedicated pool of threads, so that opening an editor with many
+ * members doesn't occupy the common pool with one search per member. Pending searches for elements
+ * that are visible in an editor run before the others. Concurrent requests for the same element
+ * share one search.
+ * </p>
+ * <p>
+ * Counts are cached until a Java element delta may change them: a changed compilation unit
+ * invalidates the counts of the elements that were referenced in the unit before or whose name
+ * appears in the unit now; classpath and archive changes invalidate all counts. The cache keeps the
+ * counts of the most recently used elements. The references to private members are only searched
+ * in the compilation unit or class file that declares them.
+ * </p>
+ * <p>
+ * A search is cancelled when the monitors of all code minings waiting for it have been cancelled,
+ * e.g. because the editor has been closed or the minings have been requested again.
+ * </p>
+ *
+ * @since 3.18
+ */
+public final class JavaReferenceCounter implements IElementChangedListener {
+
+	/** The number of threads that search references */
+	private static final int SEARCH_THREADS= 2;
+
+	/** The maximum number of cached counts */
+	private static final int MAX_COUNTS= 5000;
+
+	private static JavaReferenceCounter fgInstance;
+
+	/**
+	 * A cached reference count.
+	 */
+	private static final class Count {
+
+		final long fCount;
+
+		/** The paths of the resources that contain the references */
+		final Set<IPath> fLocations;
+
+		Count(long count, Set<IPath> locations) {
+			fCount= count;
+			fLocations= locations;
+		}
+	}
+
+	/**
+	 * A pending search for the references of an element.
+	 */
+	private final class Request implements Runnable, Comparable<Request> {
+
+		final IJavaElement fElement;
+
+		final CompletableFuture<Long> fResult= new CompletableFuture<>();
+
+		/** The order in which the requests have been made */
+		final long fSequence;
+
+		/** Guarded by the counter */
+		boolean fVisible;
+
+		/** Guarded by the counter */
+		boolean fStarted;
+
+		/** The monitors of the code minings waiting for the count */
+		final List<IProgressMonitor> fMonitors= new CopyOnWriteArrayList<>();
+
+		/** The monitor of the search, cancelled when no code mining waits for the count any more */
+		final IProgressMonitor fMonitor= new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return super.isCanceled() || isAbandoned();
+			}
+		};
+
+		Request(IJavaElement element, boolean visible) {
+			fElement= element;
+			fVisible= visible;
+			fSequence= fRequestSequence.incrementAndGet();
+		}
+
+		boolean isAbandoned() {
+			for (Iterator<IProgressMonitor> iter= fMonitors.iterator(); iter.hasNext();) {
+				if (!iter.next().isCanceled())
+					return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int compareTo(Request other) {
+			if (fVisible != other.fVisible)
+				return fVisible ? -1 : 1;
+			return Long.compare(fSequence, other.fSequence);
+		}
+
+		@Override
+		public void run() {
+			long generation;
+			synchronized (JavaReferenceCounter.this) {
+				fStarted= true;
+				generation= fGeneration.get();
+			}
+			try {
+				if (fMonitor.isCanceled())
+					throw new OperationCanceledException();
+				Count count= search(fElement, fMonitor);
+				synchronized (JavaReferenceCounter.this) {
+					if (generation == fGeneration.get())
+						putCount(fElement, count);
+					fPending.remove(fElement, this);
+				}
+				fResult.complete(Long.valueOf(count.fCount));
+			} catch (CoreException | RuntimeException e) {
+				synchronized (JavaReferenceCounter.this) {
+					fPending.remove(fElement, this);
+				}
+				fResult.completeExceptionally(e);
+			}
+		}
+	}
+
+	/** The cached counts in access order, guarded by the map */
+	private final Map<IJavaElement, Count> fCounts= new LinkedHashMap<IJavaElement, Count>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IJavaElement, Count> eldest) {
+			return size() > MAX_COUNTS;
+		}
+	};
+
+	/**
+	 * The requests that have been queued or are running, guarded by <code>this</code>. Running
+	 * requests are removed when counts are invalidated, their results may be outdated.
+	 */
+	private final Map<IJavaElement, Request> fPending= new HashMap<>();
+
+	/** Incremented whenever counts are invalidated, so that outdated results are not cached */
+	private final AtomicLong fGeneration= new AtomicLong();
+
+	private final AtomicLong fRequestSequence= new AtomicLong();
+
+	private final ThreadPoolExecutor fExecutor;
+
+	private JavaReferenceCounter() {
+		fExecutor= new ThreadPoolExecutor(SEARCH_THREADS, SEARCH_THREADS, 1, TimeUnit.MINUTES, new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread= new Thread(runnable, "Java Reference Code Mining"); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		fExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Returns the shared reference counter.
+	 *
+	 * @return the reference counter
+	 */
+	public static synchronized JavaReferenceCounter getDefault() {
+		if (fgInstance == null) {
+			fgInstance= new JavaReferenceCounter();
+			JavaCore.addElementChangedListener(fgInstance, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		}
+		return fgInstance;
+	}
+
+	/**
+	 * Stops listening to Java element changes and cancels the pending searches.
+	 */
+	public static synchronized void shutdown() {
+		if (fgInstance != null) {
+			JavaCore.removeElementChangedListener(fgInstance);
+			fgInstance.cancelAll();
+			fgInstance.fExecutor.shutdownNow();
+			fgInstance= null;
+		}
+	}
+
+	private synchronized void cancelAll() {
+		for (Iterator<Request> iter= fPending.values().iterator(); iter.hasNext();)
+			iter.next().fMonitor.setCanceled(true);
+	}
+
+	/**
+	 * Returns the number of references to the given element. The result is either taken from the
+	 * cache or computed in the background.
+	 *
+	 * @param element the element
+	 * @param visible <code>true</code> if the element is shown in an editor, so that its references
+	 *            are counted before the ones of other elements
+	 * @param monitor the monitor of the code mining, the search is cancelled when the monitors of
+	 *            all code minings waiting for it are cancelled; can be <code>null</code>
+	 * @return the number of references in compilation units and class files
+	 */
+	public CompletableFuture<Long> countReferences(IJavaElement element, boolean visible, IProgressMonitor monitor) {
+		Count count= getCount(element);
+		if (count != null)
+			return CompletableFuture.completedFuture(Long.valueOf(count.fCount));
+		synchronized (this) {
+			Request request= fPending.get(element);
+			if (request == null) {
+				request= new Request(element, visible);
+				request.fMonitors.add(monitor != null ? monitor : new NullProgressMonitor());
+				fPending.put(element, request);
+				fExecutor.execute(request);
+				return request.fResult;
+			}
+			request.fMonitors.add(monitor != null ? monitor : new NullProgressMonitor());
+			if (visible && !request.fVisible && fExecutor.getQueue().remove(request)) {
+				request.fVisible= true;
+				fExecutor.execute(request);
+			}
+			return request.fResult;
+		}
+	}
+
+	private Count getCount(IJavaElement element) {
+		synchronized (fCounts) {
+			return fCounts.get(element);
+		}
+	}
+
+	private void putCount(IJavaElement element, Count count) {
+		synchronized (fCounts) {
+			fCounts.put(element, count);
+		}
+	}
+
+	@Override
+	public void elementChanged(ElementChangedEvent event) {
+		boolean isEmpty;
+		synchronized (fCounts) {
+			isEmpty= fCounts.isEmpty();
+		}
+		if (isEmpty) {
+			// nothing to invalidate, but running searches may have missed the change
+			synchronized (this) {
+				fGeneration.incrementAndGet();
+				removeStartedRequests();
+			}
+			return;
+		}
+		List<ICompilationUnit> units= new ArrayList<>();
+		if (!collectChangedUnits(event.getDelta(), units)) {
+			invalidateAll();
+			return;
+		}
+		for (Iterator<ICompilationUnit> iter= units.iterator(); iter.hasNext();) {
+			invalidate(iter.next());
+		}
+	}
+
+	/**
+	 * Collects the compilation units that have changed.
+	 *
+	 * @param delta the delta
+	 * @param units the list to which the changed units are added
+	 * @return <code>false</code> if all counts may have changed
+	 */
+	private static boolean collectChangedUnits(IJavaElementDelta delta, List<ICompilationUnit> units) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+			case IJavaElement.JAVA_PROJECT:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED)
+					return false;
+				int flags= IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED
+						| IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+						| IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+						| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED;
+				if ((delta.getFlags() & flags) != 0)
+					return false;
+				IJavaElementDelta[] children= delta.getAffectedChildren();
+				for (int i= 0; i < children.length; i++) {
+					if (!collectChangedUnits(children[i], units))
+						return false;
+				}
+				return true;
+			case IJavaElement.COMPILATION_UNIT:
+				units.add((ICompilationUnit) element);
+				return true;
+			case IJavaElement.CLASS_FILE:
+				return false;
+			default:
+				return true;
+		}
+	}
+
+	private synchronized void invalidateAll() {
+		fGeneration.incrementAndGet();
+		synchronized (fCounts) {
+			fCounts.clear();
+		}
+		removeStartedRequests();
+	}
+
+	private void removeStartedRequests() {
+		for (Iterator<Request> iter= fPending.values().iterator(); iter.hasNext();) {
+			if (iter.next().fStarted)
+				iter.remove();
+		}
+	}
+
+	/**
+	 * Invalidates the counts that may have been changed by a change of the given unit: references
+	 * may have been removed from the unit, or added to it. An added reference contains the name of
+	 * the referenced element.
+	 *
+	 * @param unit the changed unit
+	 */
+	private void invalidate(ICompilationUnit unit) {
+		String source= null;
+		if (unit.exists()) {
+			try {
+				source= unit.getSource();
+			} catch (JavaModelException e) {
+				invalidateAll();
+				return;
+			}
+		}
+		// searches that started before are not cached; counts cached from now on are up to date
+		synchronized (this) {
+			fGeneration.incrementAndGet();
+			removeStartedRequests();
+		}
+		List<Entry<IJavaElement, Count>> entries;
+		synchronized (fCounts) {
+			entries= new ArrayList<>(fCounts.entrySet());
+		}
+		Set<String> identifiers= source != null ? getIdentifiers(source) : Collections.<String> emptySet();
+		IPath path= unit.getPath();
+		for (Iterator<Entry<IJavaElement, Count>> iter= entries.iterator(); iter.hasNext();) {
+			Entry<IJavaElement, Count> entry= iter.next();
+			if (entry.getValue().fLocations.contains(path) || identifiers.contains(entry.getKey().getElementName())) {
+				synchronized (fCounts) {
+					fCounts.remove(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the Java identifiers in the given source, including the ones in comments and strings.
+	 *
+	 * @param source the source
+	 * @return the identifiers
+	 */
+	private static Set<String> getIdentifiers(String source) {
+		Set<String> identifiers= new HashSet<>();
+		int length= source.length();
+		int i= 0;
+		while (i < length) {
+			if (!Character.isJavaIdentifierStart(source.charAt(i))) {
+				i++;
+				continue;
+			}
+			int start= i++;
+			while (i < length && Character.isJavaIdentifierPart(source.charAt(i)))
+				i++;
+			identifiers.add(source.substring(start, i));
+		}
+		return identifiers;
+	}
+
+	private static Count search(IJavaElement element, IProgressMonitor monitor) throws CoreException {
+		SearchPattern pattern= SearchPattern.createPattern(element, IJavaSearchConstants.REFERENCES);
+		if (pattern == null)
+			return new Count(0, Collections.<IPath> emptySet());
+		final long[] count= { 0 };
+		final Set<IPath> locations= new HashSet<>();
+		new SearchEngine().search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() },
+				createSearchScope(element), new SearchRequestor() {
+
+					@Override
+					public void acceptSearchMatch(SearchMatch match) throws CoreException {
+						Object o= match.getElement();
+						if (o instanceof IJavaElement) {
+							IJavaElement e= (IJavaElement) o;
+							if (e.getAncestor(IJavaElement.COMPILATION_UNIT) != null
+									|| e.getAncestor(IJavaElement.CLASS_FILE) != null) {
+								count[0]++;
+								IResource resource= match.getResource();
+								if (resource != null)
+									locations.add(resource.getFullPath());
+							}
+						}
+					}
+				}, monitor);
+		return new Count(count[0], locations);
+	}
+
+	/**
+	 * Creates the scope in which the references of an element can occur.
+	 *
+	 * @param element the element to search references for
+	 * @return the declaring compilation unit or class file for private members, the workspace
+	 *         otherwise
+	 * @throws JavaModelException when java error.
+	 */
+	private static IJavaSearchScope createSearchScope(IJavaElement element) throws JavaModelException {
+		if (element instanceof IMember) {
+			IMember member= (IMember) element;
+			ITypeRoot typeRoot= member.getTypeRoot();
+			if (typeRoot != null && Flags.isPrivate(member.getFlags()))
+				return SearchEngine.createJavaSearchScope(new IJavaElement[] { typeRoot });
+		}
+		JavaSearchScopeFactory factory= JavaSearchScopeFactory.getInstance();
+		return factory.createWorkspaceScope(factory.isInsideJRE(element));
+	}
+}
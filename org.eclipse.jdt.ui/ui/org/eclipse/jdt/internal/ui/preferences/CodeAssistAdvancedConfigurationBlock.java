@@ -92,12 +92,14 @@ final class CodeAssistAdvancedConfigurationBlock extends OptionsConfigurationBlo
 	private static final Key PREF_EXCLUDED_CATEGORIES= getJDTUIKey(PreferenceConstants.CODEASSIST_EXCLUDED_CATEGORIES);
 	private static final Key PREF_CATEGORY_ORDER= getJDTUIKey(PreferenceConstants.CODEASSIST_CATEGORY_ORDER);
 	private static final Key PREF_CODEASSIST_TIMEOUT_FOR_PARAMETER_NAME_FROM_ATTACHED_JAVADOC= getJDTCoreKey(JavaCore.TIMEOUT_FOR_PARAMETER_NAME_FROM_ATTACHED_JAVADOC);
+	private static final Key PREF_CODEASSIST_LATENCY_BUDGET= getJDTUIKey(PreferenceConstants.CODEASSIST_LATENCY_BUDGET);
 
 	private static Key[] getAllKeys() {
 		return new Key[] {
 				PREF_EXCLUDED_CATEGORIES,
 				PREF_CATEGORY_ORDER,
-				PREF_CODEASSIST_TIMEOUT_FOR_PARAMETER_NAME_FROM_ATTACHED_JAVADOC
+				PREF_CODEASSIST_TIMEOUT_FOR_PARAMETER_NAME_FROM_ATTACHED_JAVADOC,
+				PREF_CODEASSIST_LATENCY_BUDGET
 		};
 	}
 
@@ -391,6 +393,7 @@ final class CodeAssistAdvancedConfigurationBlock extends OptionsConfigurationBlo
         createFiller(composite, columns);
 
 		createParameterTimeoutControl(composite, columns);
+		createLatencyBudgetControl(composite, columns);
 
 		updateControls();
 		if (fModel.elements.size() > 0) {
@@ -615,6 +618,20 @@ final class CodeAssistAdvancedConfigurationBlock extends OptionsConfigurationBlo
 
 	}
 
+	private void createLatencyBudgetControl(Composite composite, int h_span) {
+		Composite budgetComposite= new Composite(composite, SWT.NONE);
+		GridLayout layout= new GridLayout(4, false);
+		layout.marginWidth= 0;
+		layout.marginHeight= 0;
+		budgetComposite.setLayout(layout);
+		GridData gd= new GridData(GridData.FILL, GridData.FILL, true, false, h_span, 1);
+		budgetComposite.setLayoutData(gd);
+
+		PixelConverter pixelConverter= new PixelConverter(composite);
+		String str= PreferencesMessages.CodeAssistAdvancedConfigurationBlock_latencyBudget;
+		addTextField(budgetComposite, str, PREF_CODEASSIST_LATENCY_BUDGET, 0, pixelConverter.convertWidthInCharsToPixels(7));
+	}
+
 	private void handleTableSelection() {
 		ModelElement item= getSelectedItem();
 		if (item != null) {
@@ -684,7 +701,7 @@ final class CodeAssistAdvancedConfigurationBlock extends OptionsConfigurationBlo
 	 */
 	@Override
 	protected void validateSettings(Key changedKey, String oldValue, String newValue) {
-		if (changedKey == PREF_CODEASSIST_TIMEOUT_FOR_PARAMETER_NAME_FROM_ATTACHED_JAVADOC) {
+		if (changedKey == PREF_CODEASSIST_TIMEOUT_FOR_PARAMETER_NAME_FROM_ATTACHED_JAVADOC || changedKey == PREF_CODEASSIST_LATENCY_BUDGET) {
 			final StatusInfo status= new StatusInfo();
 			if (newValue.length() == 0)
 				status.setError(PreferencesMessages.CodeAssistAdvancedConfigurationBlock_parameterNameFromAttachedJavadoc_timeout_emptyInput);
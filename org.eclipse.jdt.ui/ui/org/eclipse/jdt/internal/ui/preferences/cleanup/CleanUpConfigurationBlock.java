@@ -52,6 +52,7 @@ import org.eclipse.jdt.internal.ui.preferences.formatter.ProfileManager;
 import org.eclipse.jdt.internal.ui.preferences.formatter.ProfileManager.CustomProfile;
 import org.eclipse.jdt.internal.ui.preferences.formatter.ProfileManager.Profile;
 import org.eclipse.jdt.internal.ui.preferences.formatter.ProfileStore;
+import org.eclipse.jdt.internal.ui.wizards.dialogfields.ComboDialogField;
 import org.eclipse.jdt.internal.ui.wizards.dialogfields.DialogField;
 import org.eclipse.jdt.internal.ui.wizards.dialogfields.IDialogFieldListener;
 import org.eclipse.jdt.internal.ui.wizards.dialogfields.SelectionButtonDialogField;
@@ -67,6 +68,7 @@ public class CleanUpConfigurationBlock extends ProfileConfigurationBlock {
 
 	private final IScopeContext fCurrContext;
 	private SelectionButtonDialogField fShowCleanUpWizardDialogField;
+	private ComboDialogField fParallelismDialogField;
 	private CleanUpProfileManager fProfileManager;
 	private ProfileStore fProfileStore;
 
@@ -201,9 +203,49 @@ public class CleanUpConfigurationBlock extends ProfileConfigurationBlock {
             }
 	    });
 
+	    fParallelismDialogField= new ComboDialogField(SWT.READ_ONLY);
+	    fParallelismDialogField.setLabelText(CleanUpMessages.CleanUpConfigurationBlock_Parallelism_label);
+	    int parallelism= node.getInt(CleanUpConstants.CLEANUP_PARALLELISM, getDefaultParallelism());
+	    fParallelismDialogField.setItems(getParallelismItems(parallelism));
+	    fParallelismDialogField.selectItem(String.valueOf(parallelism));
+	    fParallelismDialogField.doFillIntoGrid(composite, 5);
+	    fParallelismDialogField.setDialogFieldListener(new IDialogFieldListener() {
+			@Override
+			public void dialogFieldChanged(DialogField field) {
+				doSetParallelism(Integer.parseInt(fParallelismDialogField.getText()));
+			}
+	    });
+
 		return composite;
 	}
 
+	private static int getDefaultParallelism() {
+		return DefaultScope.INSTANCE.getNode(JavaUI.ID_PLUGIN).getInt(CleanUpConstants.CLEANUP_PARALLELISM, 1);
+	}
+
+	/**
+	 * Returns the choices for the number of parsing threads, up to the number of processors.
+	 *
+	 * @param parallelism the current number of threads, which is always a choice
+	 * @return the choices
+	 */
+	private static String[] getParallelismItems(int parallelism) {
+		int max= Math.max(Math.max(parallelism, 1), Runtime.getRuntime().availableProcessors());
+		String[] items= new String[max];
+		for (int i= 0; i < max; i++) {
+			items[i]= String.valueOf(i + 1);
+		}
+		return items;
+	}
+
+	private void doSetParallelism(int parallelism) {
+		IEclipsePreferences preferences= fCurrContext.getNode(JavaUI.ID_PLUGIN);
+		if (parallelism == getDefaultParallelism())
+			preferences.remove(CleanUpConstants.CLEANUP_PARALLELISM);
+		else
+			preferences.putInt(CleanUpConstants.CLEANUP_PARALLELISM, parallelism);
+	}
+
 	private void doShowCleanUpWizard(boolean showWizard) {
 		IEclipsePreferences preferences= fCurrContext.getNode(JavaUI.ID_PLUGIN);
 		if (preferences.get(CleanUpConstants.SHOW_CLEAN_UP_WIZARD, null) != null &&
@@ -229,6 +271,9 @@ public class CleanUpConfigurationBlock extends ProfileConfigurationBlock {
 				doShowCleanUpWizard(fShowCleanUpWizardDialogField.isSelected());
             }
 	    });
+
+		fCurrContext.getNode(JavaUI.ID_PLUGIN).remove(CleanUpConstants.CLEANUP_PARALLELISM);
+		fParallelismDialogField.selectItem(String.valueOf(getDefaultParallelism()));
 	}
 
 	@Override
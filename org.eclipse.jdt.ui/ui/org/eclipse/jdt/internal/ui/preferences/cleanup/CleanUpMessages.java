@@ -21,6 +21,7 @@ public class CleanUpMessages extends NLS {
 
 	public static String CleanUpConfigurationBlock_SelectedCleanUps_label;
 	public static String CleanUpConfigurationBlock_ShowCleanUpWizard_checkBoxLabel;
+	public static String CleanUpConfigurationBlock_Parallelism_label;
 
 	public static String CleanUpModifyDialog_SelectOne_Error;
 	public static String CleanUpModifyDialog_XofYSelected_Label;
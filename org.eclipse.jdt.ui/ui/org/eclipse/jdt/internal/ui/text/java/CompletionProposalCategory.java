@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -31,6 +31,7 @@ import org.eclipse.core.expressions.ExpressionTagNames;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IContributor;
 import org.eclipse.core.runtime.IExtension;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
@@ -276,6 +277,29 @@ public final class CompletionProposalCategory {
 		return false;
 	}
 
+	/**
+	 * Returns <code>true</code> if the category contains computers in the given partition and all of
+	 * them are contributed by other plug-ins than JDT UI, <code>false</code> otherwise.
+	 *
+	 * @param partition the partition
+	 * @return <code>true</code> if the category only contains computers of other plug-ins,
+	 *         <code>false</code> otherwise
+	 * @since 3.18
+	 */
+	boolean hasOnlyExternalComputers(String partition) {
+		boolean hasComputers= false;
+		List<CompletionProposalComputerDescriptor> descriptors= fRegistry.getProposalComputerDescriptors(partition);
+		for (CompletionProposalComputerDescriptor desc : descriptors) {
+			if (desc.getCategory() == this) {
+				IContributor contributor= desc.getContributor();
+				if (contributor == null || JavaPlugin.getPluginId().equals(contributor.getName()))
+					return false;
+				hasComputers= true;
+			}
+		}
+		return hasComputers;
+	}
+
 	/**
 	 * @return sortOrder
 	 */
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.java;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+
+import org.eclipse.jdt.ui.PreferenceConstants;
+import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
+import org.eclipse.jdt.ui.text.java.JavaContentAssistInvocationContext;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Computes the completion proposals of categories in background threads while the content assist
+ * processor computes the other categories. The results of all categories of one invocation must
+ * arrive within the latency budget; the results of late categories are dropped and their
+ * computation is cancelled.
+ * <p>
+ * Only categories whose computers are all contributed by other plug-ins are computed in the
+ * background (see {@link CompletionProposalCategory#hasOnlyExternalComputers(String)}), the
+ * computers of JDT UI expect to be called in the UI thread. A category is never computed twice at
+ * the same time: while the computation of an earlier invocation is still running, the category is
+ * treated as late.
+ * </p>
+ * <p>
+ * Before the first category is started, the core completion context of a
+ * {@link JavaContentAssistInvocationContext} is computed in the calling thread. The computers in
+ * the background then read the cached context instead of running code completion while the
+ * calling thread computes the other categories.
+ * </p>
+ * <p>
+ * The latency budget in milliseconds is set by the preference
+ * {@link PreferenceConstants#CODEASSIST_LATENCY_BUDGET}. The default 0 computes all categories
+ * sequentially in the calling thread.
+ * </p>
+ *
+ * @since 3.18
+ */
+final class CompletionProposalCategoryExecutor {
+
+	/** The interval in milliseconds in which a waiting processor checks for cancellation */
+	private static final long POLL_INTERVAL= 50;
+
+	/** The categories that are being computed in the background */
+	private static final Set<CompletionProposalCategory> fgRunning= ConcurrentHashMap.newKeySet();
+
+	private static ExecutorService fgExecutor;
+
+	/**
+	 * The background computation of a category.
+	 */
+	private final class Computation implements Callable<List<ICompletionProposal>> {
+
+		private final CompletionProposalCategory fCategory;
+
+		private final IProgressMonitor fMonitor= new NullProgressMonitor();
+
+		/** The pending result, or <code>null</code> if the category has not been started */
+		private Future<List<ICompletionProposal>> fResult;
+
+		Computation(CompletionProposalCategory category) {
+			fCategory= category;
+		}
+
+		@Override
+		public List<ICompletionProposal> call() {
+			try {
+				return fCategory.computeCompletionProposals(fContext, fPartition, new SubProgressMonitor(fMonitor, 1));
+			} finally {
+				fgRunning.remove(fCategory);
+			}
+		}
+	}
+
+	private final ContentAssistInvocationContext fContext;
+
+	private final String fPartition;
+
+	/** The time in milliseconds at which the results of all categories must have arrived */
+	private final long fDeadline;
+
+	private final Map<CompletionProposalCategory, Computation> fComputations= new HashMap<>();
+
+	/**
+	 * Tells whether categories are computed in the background.
+	 *
+	 * @return <code>true</code> if a latency budget is set
+	 */
+	static boolean isEnabled() {
+		return getLatencyBudget() > 0;
+	}
+
+	/**
+	 * @return the latency budget in milliseconds, or 0 if categories are not computed in the background
+	 */
+	private static long getLatencyBudget() {
+		return Math.max(0, PreferenceConstants.getPreferenceStore().getInt(PreferenceConstants.CODEASSIST_LATENCY_BUDGET));
+	}
+
+	/**
+	 * Creates an executor for one content assist invocation. The latency budget starts now.
+	 *
+	 * @param context the invocation context passed on to the computers
+	 * @param partition the partition type where the invocation occurred
+	 */
+	CompletionProposalCategoryExecutor(ContentAssistInvocationContext context, String partition) {
+		fContext= context;
+		fPartition= partition;
+		fDeadline= System.currentTimeMillis() + getLatencyBudget();
+	}
+
+	/**
+	 * Starts to compute the proposals of a category in the background, unless the category is still
+	 * being computed for an earlier invocation.
+	 *
+	 * @param category the category
+	 */
+	void submit(CompletionProposalCategory category) {
+		if (fComputations.isEmpty() && fContext instanceof JavaContentAssistInvocationContext)
+			((JavaContentAssistInvocationContext) fContext).getCoreContext();
+		Computation computation= new Computation(category);
+		fComputations.put(category, computation);
+		if (fgRunning.add(category))
+			computation.fResult= getExecutor().submit(computation);
+	}
+
+	/**
+	 * Tells whether a category has been submitted to this executor.
+	 *
+	 * @param category the category
+	 * @return <code>true</code> if the category is computed by this executor
+	 */
+	boolean isSubmitted(CompletionProposalCategory category) {
+		return fComputations.containsKey(category);
+	}
+
+	/**
+	 * Waits for the proposals of a submitted category until they arrive, the latency budget is
+	 * used up, or the given monitor is cancelled. A computation that does not deliver in time is
+	 * cancelled.
+	 *
+	 * @param category the submitted category
+	 * @param monitor the monitor of the content assist processor
+	 * @return the proposals of the category, or <code>null</code> if they did not arrive in time
+	 */
+	List<ICompletionProposal> getProposals(CompletionProposalCategory category, IProgressMonitor monitor) {
+		Computation computation= fComputations.get(category);
+		if (computation == null || computation.fResult == null)
+			return null;
+		try {
+			long remaining= fDeadline - System.currentTimeMillis();
+			while (remaining > 0 && !monitor.isCanceled()) {
+				try {
+					return computation.fResult.get(Math.min(remaining, POLL_INTERVAL), TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					remaining= fDeadline - System.currentTimeMillis();
+				}
+			}
+			if (computation.fResult.isDone())
+				return computation.fResult.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			JavaPlugin.log(e.getCause());
+			return null;
+		}
+		computation.fMonitor.setCanceled(true);
+		if (JavaPlugin.DEBUG_RESULT_COLLECTOR)
+			System.err.println("Code Assist (late):\t" + category.getId()); //$NON-NLS-1$
+		return null;
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (fgExecutor == null) {
+			fgExecutor= Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "Content Assist Computer"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return fgExecutor;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 IBM Corporation and others.
+ * Copyright (c) 2005, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -82,7 +82,8 @@ final class CompletionProposalComputerDescriptor {
 	 * Independently of the {@link PerformanceStats} service, any operation that takes longer than
 	 * {@value} milliseconds will be flagged as an violation. This timeout does not apply to the
 	 * first invocation, as it may take longer due to plug-in initialization etc. See also
-	 * {@link #fIsReportingDelay}.
+	 * {@link #fIsReportingDelay}. The durations of all proposal computations are recorded in
+	 * {@link #fLatency}.
 	 */
 	private static final long MAX_DELAY= 5000;
 
@@ -130,8 +131,11 @@ final class CompletionProposalComputerDescriptor {
 	 * longer due to plug-in activation and initialization.
 	 */
 	private boolean fIsReportingDelay= false;
-	/** The start of the last operation. */
-	private long fStart;
+	/**
+	 * The durations of the proposal computations of this extension.
+	 * @since 3.18
+	 */
+	private final LatencyHistogram fLatency= new LatencyHistogram();
 	/**
 	 * Tells whether we tried to load the computer.
 	 * @since 3.4
@@ -332,9 +336,11 @@ final class CompletionProposalComputerDescriptor {
 				return Collections.emptyList();
 
 			try {
+				long start= System.currentTimeMillis();
 				PerformanceStats stats= startMeter(context, computer);
 				List<ICompletionProposal> proposals= computer.computeCompletionProposals(context, monitor);
-				stopMeter(stats, COMPUTE_COMPLETION_PROPOSALS);
+				stopMeter(stats, COMPUTE_COMPLETION_PROPOSALS, start);
+				fLatency.record(System.currentTimeMillis() - start);
 
 				if (proposals != null) {
 					fLastError= computer.getErrorMessage();
@@ -379,9 +385,10 @@ final class CompletionProposalComputerDescriptor {
 			if (computer == null) // not active yet
 				return Collections.emptyList();
 
+			long start= System.currentTimeMillis();
 			PerformanceStats stats= startMeter(context, computer);
 			List<IContextInformation> proposals= computer.computeContextInformation(context, monitor);
-			stopMeter(stats, COMPUTE_CONTEXT_INFORMATION);
+			stopMeter(stats, COMPUTE_CONTEXT_INFORMATION, start);
 
 			if (proposals != null) {
 				fLastError= computer.getErrorMessage();
@@ -422,9 +429,10 @@ final class CompletionProposalComputerDescriptor {
 			if (computer == null) // not active yet
 				return;
 
+			long start= System.currentTimeMillis();
 			PerformanceStats stats= startMeter(SESSION_STARTED, computer);
 			computer.sessionStarted();
-			stopMeter(stats, SESSION_ENDED);
+			stopMeter(stats, SESSION_ENDED, start);
 
 			return;
 		} catch (InvalidRegistryObjectException x) {
@@ -455,9 +463,10 @@ final class CompletionProposalComputerDescriptor {
 			if (computer == null) // not active yet
 				return;
 
+			long start= System.currentTimeMillis();
 			PerformanceStats stats= startMeter(SESSION_ENDED, computer);
 			computer.sessionEnded();
-			stopMeter(stats, SESSION_ENDED);
+			stopMeter(stats, SESSION_ENDED, start);
 
 			return;
 		} catch (InvalidRegistryObjectException x) {
@@ -480,14 +489,10 @@ final class CompletionProposalComputerDescriptor {
 			stats= null;
 		}
 
-		if (fIsReportingDelay) {
-			fStart= System.currentTimeMillis();
-		}
-
 		return stats;
 	}
 
-	private void stopMeter(final PerformanceStats stats, String operation) {
+	private void stopMeter(final PerformanceStats stats, String operation, long start) {
 		if (MEASURE_PERFORMANCE) {
 			stats.endRun();
 			if (stats.isFailure()) {
@@ -499,7 +504,7 @@ final class CompletionProposalComputerDescriptor {
 
 		if (fIsReportingDelay) {
 			long current= System.currentTimeMillis();
-			if (current - fStart > MAX_DELAY) {
+			if (current - start > MAX_DELAY) {
 				IStatus status= createPerformanceStatus(operation);
 				fRegistry.informUser(this, status);
 			}
@@ -569,6 +574,16 @@ final class CompletionProposalComputerDescriptor {
 		return fLastError;
 	}
 
+	/**
+	 * Returns the durations of the proposal computations of the described extension.
+	 *
+	 * @return the latency histogram of the described extension
+	 * @since 3.18
+	 */
+	LatencyHistogram getLatencyHistogram() {
+		return fLatency;
+	}
+
 	/**
 	 * Returns the contributor of the described extension.
 	 *
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -31,6 +31,7 @@ import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Link;
 
 import org.eclipse.core.runtime.CoreException;
@@ -427,13 +428,27 @@ public final class CompletionProposalComputerRegistry {
 	}
 
 	/**
-	 * Log the status and inform the user about a misbehaving extension.
+	 * Log the status and inform the user about a misbehaving extension. May be called in a
+	 * background thread, see {@link CompletionProposalCategoryExecutor}.
 	 *
 	 * @param descriptor the descriptor of the misbehaving extension
 	 * @param status a status object that will be logged
 	 */
-	void informUser(CompletionProposalComputerDescriptor descriptor, IStatus status) {
+	void informUser(final CompletionProposalComputerDescriptor descriptor, final IStatus status) {
 		JavaPlugin.log(status);
+		if (Display.getCurrent() == null) {
+			Display.getDefault().asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					openErrorDialog(descriptor, status);
+				}
+			});
+		} else {
+			openErrorDialog(descriptor, status);
+		}
+	}
+
+	private void openErrorDialog(CompletionProposalComputerDescriptor descriptor, IStatus status) {
         String title= JavaTextMessages.CompletionProposalComputerRegistry_error_dialog_title;
         CompletionProposalCategory category= descriptor.getCategory();
         IContributor culprit= descriptor.getContributor();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -59,6 +59,8 @@ import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.JavaModelException;
 
+import org.eclipse.jdt.internal.corext.util.HistoryJournal;
+
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.JavaUIException;
 import org.eclipse.jdt.internal.ui.JavaUIStatus;
@@ -188,7 +190,7 @@ public final class ContentAssistHistory {
 			}
 		}
 
-		private JavaUIException createException(Exception e, String message) {
+		private static JavaUIException createException(Exception e, String message) {
 			return new JavaUIException(JavaUIStatus.createError(IStatus.ERROR, message, e));
 		}
 	}
@@ -327,6 +329,11 @@ public final class ContentAssistHistory {
 	private static final int DEFAULT_TRACKED_LHS= 100;
 	private static final int DEFAULT_TRACKED_RHS= 10;
 
+	/** Journal record of the maximum numbers of tracked types, written first */
+	private static final byte RECORD_LIMITS= 1;
+	/** Journal record of a remembered right hand side for a left hand side */
+	private static final byte RECORD_REMEMBERED= 2;
+
 	private static final Set<String> UNCACHEABLE;
 	static {
 		Set<String> uncacheable= new HashSet<>();
@@ -340,6 +347,16 @@ public final class ContentAssistHistory {
 	private final LinkedHashMap<String, MRUSet<String>> fLHSCache;
 	private final int fMaxLHS;
 	private final int fMaxRHS;
+	/**
+	 * The left and right hand sides remembered since the history was last stored, alternating.
+	 * @since 3.18
+	 */
+	private final List<String> fChanges= new ArrayList<>();
+	/**
+	 * Tells whether the next store must write the complete history.
+	 * @since 3.18
+	 */
+	private boolean fNeedsSnapshot= false;
 
 	/**
 	 * Creates a new history.
@@ -432,8 +449,22 @@ public final class ContentAssistHistory {
 
 	private void rememberInternal(IType lhs, String rhsQualifiedName) throws JavaModelException {
 		String lhsQualifiedName= lhs.getFullyQualifiedName();
-		if (isCacheableLHS(lhs, lhsQualifiedName))
+		if (isCacheableLHS(lhs, lhsQualifiedName)) {
 			getCache(lhsQualifiedName).add(rhsQualifiedName);
+			recordChange(lhsQualifiedName, rhsQualifiedName);
+		}
+	}
+
+	private void recordChange(String lhs, String rhs) {
+		if (fNeedsSnapshot)
+			return;
+		if (fChanges.size() >= 2 * fMaxLHS * fMaxRHS) {
+			fChanges.clear();
+			fNeedsSnapshot= true;
+			return;
+		}
+		fChanges.add(lhs);
+		fChanges.add(rhs);
 	}
 
 	private boolean isCacheableLHS(IType type, String qualifiedName) throws JavaModelException {
@@ -473,6 +504,100 @@ public final class ContentAssistHistory {
 		preferences.setValue(key, writer.toString());
 	}
 
+	/**
+	 * Stores the history into the given journal. Only the types remembered since the history has
+	 * been loaded from or stored into the journal are appended, unless the journal needs to be
+	 * compacted.
+	 *
+	 * @param history the history to store
+	 * @param journal the journal to store the history into
+	 * @throws CoreException if the journal cannot be written
+	 * @see #load(HistoryJournal) on how to restore a history stored by this method
+	 * @since 3.18
+	 */
+	public static void store(ContentAssistHistory history, HistoryJournal journal) throws CoreException {
+		int snapshotRecords= 1;
+		for (Iterator<MRUSet<String>> it= history.fLHSCache.values().iterator(); it.hasNext();)
+			snapshotRecords+= it.next().size();
+		boolean snapshot= history.fNeedsSnapshot || journal.needsCompaction(snapshotRecords, history.fChanges.size() / 2);
+		if (!snapshot && history.fChanges.isEmpty())
+			return;
+		try {
+			HistoryJournal.Output output= journal.createOutput(snapshot);
+			if (snapshot) {
+				output.begin(RECORD_LIMITS);
+				output.writeInt(history.fMaxLHS);
+				output.writeInt(history.fMaxRHS);
+				output.end();
+				for (Iterator<Entry<String, MRUSet<String>>> it= history.fLHSCache.entrySet().iterator(); it.hasNext();) {
+					Entry<String, MRUSet<String>> entry= it.next();
+					for (Iterator<String> rhsIterator= entry.getValue().iterator(); rhsIterator.hasNext();)
+						writeRemembered(output, entry.getKey(), rhsIterator.next());
+				}
+			} else {
+				for (Iterator<String> it= history.fChanges.iterator(); it.hasNext();)
+					writeRemembered(output, it.next(), it.next());
+			}
+			journal.write(output);
+		} catch (IOException e) {
+			history.fNeedsSnapshot= true;
+			throw ReaderWriter.createException(e, JavaTextMessages.ContentAssistHistory_serialize_error);
+		}
+		history.fChanges.clear();
+		history.fNeedsSnapshot= false;
+	}
+
+	private static void writeRemembered(HistoryJournal.Output output, String lhs, String rhs) throws IOException {
+		output.begin(RECORD_REMEMBERED);
+		output.writeString(lhs);
+		output.writeString(rhs);
+		output.end();
+	}
+
+	/**
+	 * Loads a history from a journal.
+	 *
+	 * @param journal the journal to replay
+	 * @return the deserialized history, or <code>null</code> if the journal is not in a format
+	 *         known to this version
+	 * @throws CoreException if the journal cannot be read
+	 * @see #store(ContentAssistHistory, HistoryJournal) on how to store a history such that it can
+	 *      be read by this method
+	 * @since 3.18
+	 */
+	public static ContentAssistHistory load(HistoryJournal journal) throws CoreException {
+		final ContentAssistHistory[] history= new ContentAssistHistory[1];
+		try {
+			boolean isJournal= journal.read(new HistoryJournal.RecordReader() {
+				@Override
+				public void read(byte kind, HistoryJournal.Input input) throws IOException {
+					switch (kind) {
+						case RECORD_LIMITS:
+							int maxLHS= input.readInt();
+							int maxRHS= input.readInt();
+							history[0]= new ContentAssistHistory(maxLHS > 0 ? maxLHS : DEFAULT_TRACKED_LHS, maxRHS > 0 ? maxRHS : DEFAULT_TRACKED_RHS);
+							break;
+						case RECORD_REMEMBERED:
+							String lhs= input.readString();
+							String rhs= input.readString();
+							if (history[0] == null)
+								history[0]= new ContentAssistHistory();
+							if (lhs != null && rhs != null)
+								history[0].getCache(lhs).add(rhs);
+							break;
+						default:
+							break;
+					}
+				}
+			});
+			if (!isJournal)
+				return null;
+		} catch (IOException e) {
+			throw ReaderWriter.createException(e, JavaTextMessages.ContentAssistHistory_deserialize_error);
+		}
+		return history[0] != null ? history[0] : new ContentAssistHistory();
+	}
+
 	/**
 	 * Loads a history from an XML encoded preference value.
 	 *
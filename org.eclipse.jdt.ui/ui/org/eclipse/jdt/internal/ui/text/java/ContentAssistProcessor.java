@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,9 +19,11 @@ package org.eclipse.jdt.internal.ui.text.java;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.swt.SWT;
@@ -307,6 +309,11 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 			System.err.println("Code Assist (setup):\t" + (setup - start) ); //$NON-NLS-1$
 			System.err.println("Code Assist (collect):\t" + (collect - setup) ); //$NON-NLS-1$
 			System.err.println("Code Assist (sort):\t" + (filter - collect) ); //$NON-NLS-1$
+			for (CompletionProposalComputerDescriptor desc : fComputerRegistry.getProposalComputerDescriptors(fPartition)) {
+				LatencyHistogram latency= desc.getLatencyHistogram();
+				if (latency.getTotalCount() > 0)
+					System.err.println("Code Assist (" + desc.getId() + "):\t" + latency); //$NON-NLS-1$ //$NON-NLS-2$
+			}
 		}
 
 		return result;
@@ -319,19 +326,49 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 
 	/**
 	 * Collects the proposals.
+	 * <p>
+	 * If a latency budget is set, the categories of other plug-ins are computed in the background
+	 * while the categories of JDT UI are computed in the calling thread. The proposals are merged
+	 * in category order; categories that do not deliver within the budget are left out.
+	 * </p>
 	 *
 	 * @param viewer the text viewer
 	 * @param offset the offset
 	 * @param monitor the progress monitor
 	 * @param context the code assist invocation context
 	 * @return the list of proposals
+	 * @see CompletionProposalCategoryExecutor
 	 */
 	private List<ICompletionProposal> collectProposals(ITextViewer viewer, int offset, IProgressMonitor monitor, ContentAssistInvocationContext context) {
 		boolean needsSortingAfterFiltering= false;
 		List<ICompletionProposal> proposals= new ArrayList<>();
 		List<CompletionProposalCategory> providers= getCategories();
+		CompletionProposalCategoryExecutor executor= null;
+		Map<CompletionProposalCategory, List<ICompletionProposal>> results= null;
+		if (CompletionProposalCategoryExecutor.isEnabled()) {
+			executor= new CompletionProposalCategoryExecutor(context, fPartition);
+			for (CompletionProposalCategory cat : providers) {
+				if (cat.hasOnlyExternalComputers(fPartition))
+					executor.submit(cat);
+			}
+			results= new HashMap<>();
+			for (CompletionProposalCategory cat : providers) {
+				if (!executor.isSubmitted(cat))
+					results.put(cat, cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1)));
+			}
+		}
 		for (CompletionProposalCategory cat : providers) {
-			List<ICompletionProposal> computed= cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1));
+			List<ICompletionProposal> computed;
+			if (executor == null) {
+				computed= cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1));
+			} else if (executor.isSubmitted(cat)) {
+				computed= executor.getProposals(cat, monitor);
+				monitor.worked(1);
+				if (computed == null)
+					continue;
+			} else {
+				computed= results.get(cat);
+			}
 			proposals.addAll(computed);
 			needsSortingAfterFiltering= needsSortingAfterFiltering || (cat.isSortingAfterFilteringNeeded() && !computed.isEmpty());
 			if (fErrorMessage == null)
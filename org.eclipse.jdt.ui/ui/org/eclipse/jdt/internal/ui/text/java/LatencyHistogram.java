@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.java;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the durations of an operation in buckets of exponentially growing size. Durations may be
+ * recorded from any thread.
+ *
+ * @since 3.18
+ */
+final class LatencyHistogram {
+
+	/** The upper bounds (inclusive) of the buckets in milliseconds, except for the last bucket */
+	private static final long[] UPPER_BOUNDS= { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
+
+	/** The counts per bucket, the last bucket counts the durations beyond all bounds */
+	private final AtomicLongArray fCounts= new AtomicLongArray(UPPER_BOUNDS.length + 1);
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param millis the duration in milliseconds
+	 */
+	void record(long millis) {
+		int bucket= 0;
+		while (bucket < UPPER_BOUNDS.length && millis > UPPER_BOUNDS[bucket])
+			bucket++;
+		fCounts.incrementAndGet(bucket);
+	}
+
+	/**
+	 * @return the number of buckets
+	 */
+	int getBucketCount() {
+		return fCounts.length();
+	}
+
+	/**
+	 * Returns the inclusive upper bound of a bucket.
+	 *
+	 * @param bucket the bucket index
+	 * @return the upper bound in milliseconds, or {@link Long#MAX_VALUE} for the last bucket
+	 */
+	long getUpperBound(int bucket) {
+		return bucket < UPPER_BOUNDS.length ? UPPER_BOUNDS[bucket] : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the number of durations recorded in a bucket.
+	 *
+	 * @param bucket the bucket index
+	 * @return the number of durations
+	 */
+	long getCount(int bucket) {
+		return fCounts.get(bucket);
+	}
+
+	/**
+	 * @return the number of recorded durations
+	 */
+	long getTotalCount() {
+		long total= 0;
+		for (int i= 0; i < fCounts.length(); i++)
+			total+= fCounts.get(i);
+		return total;
+	}
+
+	/**
+	 * Returns an upper bound of the given fraction of the recorded durations.
+	 *
+	 * @param fraction the fraction in [0,&nbsp;1]
+	 * @return the upper bound of the first bucket up to which the given fraction of durations has
+	 *         been recorded, {@link Long#MAX_VALUE} if that is the last bucket, or 0 if no durations
+	 *         have been recorded
+	 */
+	long getPercentile(double fraction) {
+		long total= getTotalCount();
+		if (total == 0)
+			return 0;
+		long threshold= (long) Math.ceil(fraction * total);
+		long count= 0;
+		for (int i= 0; i < fCounts.length(); i++) {
+			count+= fCounts.get(i);
+			if (count >= threshold)
+				return getUpperBound(i);
+		}
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer buf= new StringBuffer();
+		for (int i= 0; i < fCounts.length(); i++) {
+			long count= fCounts.get(i);
+			if (count == 0)
+				continue;
+			if (buf.length() > 0)
+				buf.append(", "); //$NON-NLS-1$
+			if (i < UPPER_BOUNDS.length)
+				buf.append("<=").append(UPPER_BOUNDS[i]); //$NON-NLS-1$
+			else
+				buf.append('>').append(UPPER_BOUNDS[UPPER_BOUNDS.length - 1]);
+			buf.append("ms: ").append(count); //$NON-NLS-1$
+		}
+		return buf.toString();
+	}
+}
@@ -0,0 +1,446 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.javadoc;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaModelException;
+
+import org.eclipse.jdt.internal.corext.javadoc.JavaDocLocations;
+import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Caches the attached Javadoc of library elements.
+ * <p>
+ * {@link IJavaElement#getAttachedJavadoc(org.eclipse.core.runtime.IProgressMonitor)} opens and
+ * scans the Javadoc page of the declaring type for every request. For libraries whose Javadoc is
+ * attached from a local archive or folder, the extracted documentation is written to an index file
+ * per library in the plug-in state location. The index maps the binding keys of the members to the
+ * offsets of their documentation, which is read from a memory mapped view of the file. An index is
+ * discarded when the Javadoc archive or folder changes. The most recently used documentation is also
+ * kept in memory, for all libraries.
+ * </p>
+ *
+ * @since 3.18
+ */
+public final class AttachedJavadocIndex {
+
+	private static final int MAGIC= 0x4A444958;
+
+	private static final int VERSION= 1;
+
+	/** The length of a record without documentation */
+	private static final int NO_JAVADOC= -1;
+
+	private static final int HTML_CACHE_SIZE= 100;
+
+	/**
+	 * Records appended behind the mapped region are read from the file until this many bytes,
+	 * or a quarter of the mapped region, are not mapped. Then the whole file is mapped again.
+	 */
+	private static final int MIN_UNMAPPED_LENGTH= 64 * 1024;
+
+	private static final String INDEX_DIRECTORY= "javadocIndex"; //$NON-NLS-1$
+
+	/** The opened indices by library id, guarded by itself */
+	private static final Map<String, Library> fgLibraries= new HashMap<>();
+
+	/** The most recently used documentation by library id and binding key, guarded by itself */
+	private static final Map<String, String> fgHTMLCache= new LinkedHashMap<String, String>(HTML_CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > HTML_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * The index of one library.
+	 * <p>
+	 * Public for tests only, clients use {@link AttachedJavadocIndex#getAttachedJavadoc(IJavaElement)}.
+	 * </p>
+	 */
+	public static final class Library {
+
+		private final String fId;
+
+		private final File fIndexFile;
+
+		/** The local Javadoc archive or folder */
+		private final File fJavadoc;
+
+		private long fStamp;
+
+		/** The offsets of the records by binding key, or <code>null</code> if not read yet */
+		private Map<String, Integer> fOffsets;
+
+		/** The length of the complete records in the index file */
+		private long fLength;
+
+		private MappedByteBuffer fMapped;
+
+		/** <code>false</code> if the index file must not be changed in this session */
+		private boolean fWritable= true;
+
+		/**
+		 * Creates the index of a library.
+		 *
+		 * @param id the id of the library, stored in the index file
+		 * @param indexFile the index file
+		 * @param javadoc the local Javadoc archive or folder
+		 */
+		public Library(String id, File indexFile, File javadoc) {
+			fId= id;
+			fIndexFile= indexFile;
+			fJavadoc= javadoc;
+			fStamp= computeStamp(javadoc);
+		}
+
+		/**
+		 * Returns the key of the documentation cache entries of this library, which changes
+		 * whenever the Javadoc is changed.
+		 *
+		 * @return the cache key prefix
+		 */
+		synchronized String getCacheKeyPrefix() {
+			long stamp= computeStamp(fJavadoc);
+			if (stamp != fStamp) {
+				// the index file is mapped and cannot be truncated now, it is rewritten in the next session
+				fStamp= stamp;
+				fOffsets= new HashMap<>();
+				fMapped= null;
+				fWritable= false;
+			}
+			return fId + '\n' + fStamp + '\n';
+		}
+
+		/**
+		 * Returns the attached Javadoc of an element from the index, or extracts it and adds it to
+		 * the index.
+		 *
+		 * @param key the key of the element in the index
+		 * @param element the element
+		 * @return the extracted Javadoc, or <code>null</code> if none
+		 * @throws JavaModelException if the Javadoc cannot be accessed
+		 */
+		public String getJavadoc(String key, IJavaElement element) throws JavaModelException {
+			synchronized (this) {
+				if (fOffsets == null)
+					open();
+				Integer offset= fOffsets.get(key);
+				if (offset != null) {
+					try {
+						return read(offset.intValue());
+					} catch (IOException e) {
+						JavaPlugin.log(e);
+						fOffsets.clear();
+						fWritable= false;
+					}
+				}
+			}
+			// extracting the Javadoc may access the network, don't block the other elements of the library
+			String javadoc= element.getAttachedJavadoc(null);
+			synchronized (this) {
+				if (fWritable && !fOffsets.containsKey(key)) {
+					try {
+						append(key, javadoc);
+					} catch (IOException e) {
+						JavaPlugin.log(e);
+						fWritable= false;
+					}
+				}
+			}
+			return javadoc;
+		}
+
+		private void open() {
+			fOffsets= new HashMap<>();
+			fLength= 0;
+			if (fIndexFile.exists()) {
+				try (DataInputStream input= new DataInputStream(new BufferedInputStream(new FileInputStream(fIndexFile)))) {
+					byte[] id= fId.getBytes(StandardCharsets.UTF_8);
+					if (input.readInt() == MAGIC && input.readInt() == VERSION && input.readInt() == id.length) {
+						byte[] storedId= new byte[id.length];
+						input.readFully(storedId);
+						if (Arrays.equals(id, storedId) && input.readLong() == fStamp)
+							readRecords(input, 20 + id.length);
+					}
+				} catch (EOFException e) {
+					// keep the complete records
+				} catch (IOException | RuntimeException e) {
+					JavaPlugin.log(e);
+					fOffsets.clear();
+					fLength= 0;
+				}
+			}
+			if (fLength > 0 && fIndexFile.length() > fLength) {
+				// cut off an incomplete record while the file is not mapped yet, a mapped file cannot be truncated on all platforms
+				try (RandomAccessFile file= new RandomAccessFile(fIndexFile, "rw")) { //$NON-NLS-1$
+					file.setLength(fLength);
+				} catch (IOException e) {
+					JavaPlugin.log(e);
+					fWritable= false;
+				}
+			}
+			if (fLength == 0) {
+				fIndexFile.getParentFile().mkdirs();
+				try (RandomAccessFile file= new RandomAccessFile(fIndexFile, "rw")) { //$NON-NLS-1$
+					file.setLength(0);
+					file.writeInt(MAGIC);
+					file.writeInt(VERSION);
+					byte[] id= fId.getBytes(StandardCharsets.UTF_8);
+					file.writeInt(id.length);
+					file.write(id);
+					file.writeLong(fStamp);
+					fLength= file.length();
+				} catch (IOException e) {
+					JavaPlugin.log(e);
+					fWritable= false;
+				}
+			}
+		}
+
+		private void readRecords(DataInputStream input, long headerLength) throws IOException {
+			long fileLength= fIndexFile.length();
+			fLength= headerLength;
+			while (fLength + 8 <= fileLength) {
+				int keyLength= input.readInt();
+				if (keyLength < 0 || fLength + 8 + keyLength > fileLength)
+					break; // incomplete record
+				byte[] key= new byte[keyLength];
+				input.readFully(key);
+				int length= input.readInt();
+				long end= fLength + 8 + keyLength + Math.max(length, 0);
+				if (length < NO_JAVADOC || end > fileLength || end > Integer.MAX_VALUE)
+					break; // incomplete record
+				if (length > 0 && input.skipBytes(length) != length)
+					break;
+				fOffsets.put(new String(key, StandardCharsets.UTF_8), Integer.valueOf((int) (fLength + 4 + keyLength)));
+				fLength= end;
+			}
+		}
+
+		private String read(int offset) throws IOException {
+			if (fMapped == null || offset + 4 > fMapped.limit() && fLength - fMapped.limit() >= Math.max(MIN_UNMAPPED_LENGTH, fMapped.limit() / 4)) {
+				// the previous mappings are released when they are garbage collected, so don't remap for every appended record
+				try (RandomAccessFile file= new RandomAccessFile(fIndexFile, "r")) { //$NON-NLS-1$
+					fMapped= file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, fLength);
+				}
+			}
+			byte[] bytes;
+			if (offset + 4 <= fMapped.limit()) {
+				ByteBuffer buffer= fMapped.duplicate();
+				buffer.position(offset);
+				int length= buffer.getInt();
+				if (length == NO_JAVADOC)
+					return null;
+				bytes= new byte[length];
+				buffer.get(bytes);
+			} else {
+				// a record appended behind the mapped region
+				try (RandomAccessFile file= new RandomAccessFile(fIndexFile, "r")) { //$NON-NLS-1$
+					file.seek(offset);
+					int length= file.readInt();
+					if (length == NO_JAVADOC)
+						return null;
+					bytes= new byte[length];
+					file.readFully(bytes);
+				}
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Returns the length of the mapped region of the index file. Used for testing.
+		 *
+		 * @return the mapped length, or 0 if the index file is not mapped
+		 */
+		public synchronized int getMappedLength() {
+			return fMapped != null ? fMapped.limit() : 0;
+		}
+
+		private void append(String key, String javadoc) throws IOException {
+			byte[] keyBytes= key.getBytes(StandardCharsets.UTF_8);
+			byte[] javadocBytes= javadoc != null ? javadoc.getBytes(StandardCharsets.UTF_8) : null;
+			long end= fLength + 8 + keyBytes.length + (javadocBytes != null ? javadocBytes.length : 0);
+			if (end > Integer.MAX_VALUE) {
+				fWritable= false;
+				return;
+			}
+			ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+			DataOutputStream record= new DataOutputStream(bytes);
+			record.writeInt(keyBytes.length);
+			record.write(keyBytes);
+			if (javadocBytes != null) {
+				record.writeInt(javadocBytes.length);
+				record.write(javadocBytes);
+			} else {
+				record.writeInt(NO_JAVADOC);
+			}
+			// the file may be mapped, only write behind the mapped records
+			try (RandomAccessFile file= new RandomAccessFile(fIndexFile, "rw")) { //$NON-NLS-1$
+				ByteBuffer buffer= ByteBuffer.wrap(bytes.toByteArray());
+				long position= fLength;
+				FileChannel channel= file.getChannel();
+				while (buffer.hasRemaining())
+					position+= channel.write(buffer, position);
+			}
+			fOffsets.put(key, Integer.valueOf((int) (fLength + 4 + keyBytes.length)));
+			fLength= end;
+		}
+	}
+
+	private AttachedJavadocIndex() {
+	}
+
+	/**
+	 * Returns the attached Javadoc of an element, like
+	 * {@link IJavaElement#getAttachedJavadoc(org.eclipse.core.runtime.IProgressMonitor)}.
+	 *
+	 * @param element the element
+	 * @return the extracted Javadoc from the attached Javadoc, or <code>null</code> if none
+	 * @throws JavaModelException if the Javadoc cannot be accessed
+	 */
+	public static String getAttachedJavadoc(IJavaElement element) throws JavaModelException {
+		String key= getKey(element);
+		Library library= key != null ? getLibrary(element) : null;
+		if (library == null)
+			return element.getAttachedJavadoc(null);
+
+		String cacheKey= library.getCacheKeyPrefix() + key;
+		synchronized (fgHTMLCache) {
+			if (fgHTMLCache.containsKey(cacheKey))
+				return fgHTMLCache.get(cacheKey);
+		}
+		String javadoc= library.getJavadoc(key, element);
+		synchronized (fgHTMLCache) {
+			fgHTMLCache.put(cacheKey, javadoc);
+		}
+		return javadoc;
+	}
+
+	/**
+	 * Returns the key of an element in the index of its library.
+	 *
+	 * @param element the element
+	 * @return the binding key of members, a key built from the name of packages, or
+	 *         <code>null</code> if the Javadoc of the element is not cached
+	 */
+	private static String getKey(IJavaElement element) {
+		if (element instanceof IMember)
+			return ((IMember) element).getKey();
+		if (element instanceof IPackageFragment)
+			return "package " + element.getElementName(); //$NON-NLS-1$
+		return null;
+	}
+
+	/**
+	 * Returns the index of the library of an element.
+	 *
+	 * @param element the element
+	 * @return the index, or <code>null</code> if the element is not in a library with Javadoc
+	 *         attached from a local archive or folder
+	 * @throws JavaModelException if the classpath of the library cannot be accessed
+	 */
+	private static Library getLibrary(IJavaElement element) throws JavaModelException {
+		IPackageFragmentRoot root= JavaModelUtil.getPackageFragmentRoot(element);
+		if (root == null || root.getKind() != IPackageFragmentRoot.K_BINARY)
+			return null;
+		URL location= JavaDocLocations.getJavadocBaseLocation(element);
+		if (location == null)
+			return null;
+		File javadoc= getLocalFile(location);
+		if (javadoc == null)
+			return null;
+		String id= root.getPath().toString() + '\n' + location.toExternalForm();
+		synchronized (fgLibraries) {
+			Library library= fgLibraries.get(id);
+			if (library == null) {
+				File directory= JavaPlugin.getDefault().getStateLocation().append(INDEX_DIRECTORY).toFile();
+				String fileName= Integer.toHexString(id.hashCode()) + Integer.toHexString(id.length()) + ".idx"; //$NON-NLS-1$
+				library= new Library(id, new File(directory, fileName), javadoc);
+				fgLibraries.put(id, library);
+			}
+			return library;
+		}
+	}
+
+	/**
+	 * Returns the local archive or folder of a Javadoc location.
+	 *
+	 * @param location a Javadoc location
+	 * @return the archive or folder, or <code>null</code> if the location is not local
+	 */
+	private static File getLocalFile(URL location) {
+		if ("jar".equals(location.getProtocol())) { //$NON-NLS-1$
+			String spec= location.getFile();
+			int separator= spec.indexOf("!/"); //$NON-NLS-1$
+			try {
+				location= new URL(separator != -1 ? spec.substring(0, separator) : spec);
+			} catch (MalformedURLException e) {
+				return null;
+			}
+		}
+		if (!"file".equals(location.getProtocol())) //$NON-NLS-1$
+			return null;
+		File file;
+		try {
+			file= new File(location.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			file= new File(location.getFile());
+		}
+		return file.exists() ? file : null;
+	}
+
+	/**
+	 * Computes a stamp that changes when Javadoc is generated again.
+	 *
+	 * @param javadoc the Javadoc archive or folder
+	 * @return the stamp
+	 */
+	private static long computeStamp(File javadoc) {
+		long stamp= javadoc.lastModified() + 31 * javadoc.length();
+		if (javadoc.isDirectory()) {
+			stamp= 31 * stamp + new File(javadoc, "package-list").lastModified(); //$NON-NLS-1$
+			stamp= 31 * stamp + new File(javadoc, "element-list").lastModified(); //$NON-NLS-1$
+		}
+		return stamp;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,7 @@
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -21,16 +22,20 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.MalformedInputException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.eclipse.core.runtime.IStatus;
@@ -128,6 +133,13 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	/** The mapping from phonetic hashes to word lists */
 	private final Map<ByteArrayWrapper, Object> fHashBuckets= new HashMap<>(getInitialSize(), LOAD_FACTOR);
 
+	/**
+	 * The memory-mapped index of the word list, or <code>null</code> if the words are held in
+	 * {@link #fHashBuckets}
+	 * @since 3.18
+	 */
+	private volatile PhoneticHashIndex fIndex;
+
 	/** The phonetic hash provider */
 	private IPhoneticHashProvider fHashProvider= new DefaultPhoneticHashProvider();
 
@@ -155,6 +167,19 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return 32;
 	}
 
+	/**
+	 * Returns the file to store the memory-mapped index of the word list in. The index is built
+	 * when the word list is loaded for the first time and mapped instead of loading the word list
+	 * as long as the word list does not change. Words added with {@link #hashWord(String)} after
+	 * loading are held in memory.
+	 *
+	 * @return the index file, or <code>null</code> if the word list is held in memory
+	 * @since 3.18
+	 */
+	protected File getIndexFile() {
+		return null;
+	}
+
 	/**
 	 * Returns all candidates with the same phonetic hash.
 	 *
@@ -170,7 +195,22 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			JavaPlugin.log(e);
 			return null;
 		}
-		return fHashBuckets.get(hashBytes);
+		Object candidates= fHashBuckets.get(hashBytes);
+		PhoneticHashIndex index= fIndex;
+		if (index == null)
+			return candidates;
+		List<byte[]> indexed= index.getWords(hashBytes.byteArray);
+		if (indexed == null)
+			return candidates;
+		ArrayList<byte[]> result= new ArrayList<>(indexed);
+		if (candidates instanceof byte[]) {
+			result.add((byte[]) candidates);
+		} else if (candidates != null) {
+			@SuppressWarnings("unchecked")
+			ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+			result.addAll(candidateList);
+		}
+		return result;
 	}
 
 	/**
@@ -328,7 +368,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @since 3.3
 	 */
 	protected boolean isEmpty() {
-		return fHashBuckets.size() == 0;
+		PhoneticHashIndex index= fIndex;
+		return fHashBuckets.size() == 0 && (index == null || index.size() == 0);
 	}
 
 	/**
@@ -590,7 +631,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 	@Override
 	public synchronized final boolean isLoaded() {
-		return fLoaded || fHashBuckets.size() > 0;
+		return fLoaded || fHashBuckets.size() > 0 || fIndex != null;
 	}
 
 	/**
@@ -605,6 +646,12 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		 if (!fMustLoad)
 			 return fLoaded;
 
+		File indexFile= getIndexFile();
+		if (url != null && indexFile != null && openIndex(indexFile, url, false)) {
+			fMustLoad= false;
+			return true;
+		}
+
 		if (url != null) {
 			InputStream stream= null;
 			int line= 0;
@@ -641,6 +688,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 						if (doRead)
 							hashWord(word);
 					}
+					if (indexFile != null)
+						openIndex(indexFile, url, true);
 					return true;
 				}
 			} catch (FileNotFoundException ex) {
@@ -673,6 +722,64 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return false;
 	}
 
+	/**
+	 * Opens the memory-mapped index of the given word list. If requested, the index is built
+	 * from the words held in memory first, which are released once the index is open.
+	 *
+	 * @param file the index file
+	 * @param url the URL of the word list
+	 * @param build <code>true</code> to build the index from the loaded words
+	 * @return <code>true</code> iff the index could be opened
+	 * @since 3.18
+	 */
+	private boolean openIndex(File file, URL url, boolean build) {
+		try {
+			String key= url.toExternalForm() + '|' + getEncoding() + '|' + fHashProvider.getClass().getName();
+			long stamp= getStamp(url);
+			if (build) {
+				List<byte[]> hashes= new ArrayList<>(fHashBuckets.size());
+				List<List<byte[]>> words= new ArrayList<>(fHashBuckets.size());
+				for (Iterator<Entry<ByteArrayWrapper, Object>> iterator= fHashBuckets.entrySet().iterator(); iterator.hasNext();) {
+					Entry<ByteArrayWrapper, Object> entry= iterator.next();
+					hashes.add(entry.getKey().byteArray);
+					if (entry.getValue() instanceof byte[]) {
+						words.add(Collections.singletonList((byte[]) entry.getValue()));
+					} else {
+						@SuppressWarnings("unchecked")
+						List<byte[]> bucket= (List<byte[]>) entry.getValue();
+						words.add(bucket);
+					}
+				}
+				PhoneticHashIndex.write(file, key, stamp, hashes, words);
+			}
+			PhoneticHashIndex index= PhoneticHashIndex.open(file, key, stamp);
+			if (index == null)
+				return false;
+			fIndex= index;
+			fHashBuckets.clear();
+			return true;
+		} catch (IOException e) {
+			if (build)
+				JavaPlugin.log(e);
+			return false;
+		}
+	}
+
+	/**
+	 * Returns a stamp which changes whenever the word list at the given URL changes.
+	 *
+	 * @param url the URL of the word list
+	 * @return the stamp
+	 * @throws IOException if the word list cannot be accessed
+	 * @since 3.18
+	 */
+	private static long getStamp(URL url) throws IOException {
+		URLConnection connection= url.openConnection();
+		try (InputStream stream= connection.getInputStream()) {
+			return connection.getLastModified() * 31 + connection.getContentLengthLong();
+		}
+	}
+
 	/**
 	 * Compacts the dictionary.
 	 *
@@ -712,6 +819,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		fLoaded= false;
 		fMustLoad= true;
 		fHashBuckets.clear();
+		fIndex= null;
 	}
 
 	@Override
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Read-only mapping from phonetic hashes to words, stored in a memory-mapped file.
+ * <p>
+ * File format: magic (int), version (int), key (modified UTF-8), stamp (long), number of
+ * buckets (int), followed by the offsets (int) of the buckets sorted by hash and the buckets.
+ * A bucket consists of the length (unsigned short) and bytes of the hash, the number of words
+ * (int) and for each word its length (unsigned short) and bytes. Offsets are relative to the
+ * end of the offset table. Hashes and words are UTF-8 encoded.
+ * </p>
+ *
+ * @since 3.18
+ */
+final class PhoneticHashIndex {
+
+	/** The magic number of the index file */
+	private static final int MAGIC= 0x4A535044;
+
+	/** The version of the index file format */
+	private static final int VERSION= 1;
+
+	/** The maximal length of hashes and words in bytes */
+	private static final int MAX_LENGTH= 0xFFFF;
+
+	/** Compares byte arrays as unsigned bytes */
+	private static final Comparator<byte[]> BYTES_COMPARATOR= new Comparator<byte[]>() {
+		@Override
+		public int compare(byte[] first, byte[] second) {
+			int length= Math.min(first.length, second.length);
+			for (int index= 0; index < length; index++) {
+				int difference= (first[index] & 0xFF) - (second[index] & 0xFF);
+				if (difference != 0)
+					return difference;
+			}
+			return first.length - second.length;
+		}
+	};
+
+	/**
+	 * Opens the index stored in the given file.
+	 *
+	 * @param file the index file
+	 * @param key the key of the word list the index has been built from
+	 * @param stamp the stamp of the word list the index has been built from
+	 * @return the index, or <code>null</code> if the file does not exist, does not match key and
+	 *         stamp, or is truncated
+	 * @throws IOException if the file cannot be read
+	 */
+	static PhoneticHashIndex open(File file, String key, long stamp) throws IOException {
+		if (!file.isFile())
+			return null;
+		final MappedByteBuffer buffer;
+		try (RandomAccessFile stream= new RandomAccessFile(file, "r")) { //$NON-NLS-1$
+			if (stream.readInt() != MAGIC || stream.readInt() != VERSION || !key.equals(stream.readUTF()) || stream.readLong() != stamp)
+				return null;
+			buffer= stream.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, stream.length());
+		}
+		try {
+			buffer.position(2 * 4);
+			int keyLength= buffer.getShort() & 0xFFFF;
+			buffer.position(buffer.position() + keyLength + 8);
+			int buckets= buffer.getInt();
+			int offsets= buffer.position();
+			if (buckets < 0 || offsets + 4L * buckets > buffer.limit())
+				return null;
+			int data= offsets + 4 * buckets;
+			// the last bucket must end with the file
+			if (buckets > 0 && getBucketEnd(buffer, data + buffer.getInt(data - 4)) != buffer.limit())
+				return null;
+			return new PhoneticHashIndex(buffer, offsets, buckets, data);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			return null;
+		}
+	}
+
+	private static int getBucketEnd(ByteBuffer buffer, int bucket) {
+		int position= bucket + 2 + (buffer.getShort(bucket) & 0xFFFF);
+		int count= buffer.getInt(position);
+		position+= 4;
+		for (int word= 0; word < count; word++)
+			position+= 2 + (buffer.getShort(position) & 0xFFFF);
+		return position;
+	}
+
+	/**
+	 * Writes an index file.
+	 *
+	 * @param file the index file
+	 * @param key the key of the word list
+	 * @param stamp the stamp of the word list
+	 * @param hashes the UTF-8 encoded hashes
+	 * @param words the UTF-8 encoded words of each hash
+	 * @throws IOException if the file cannot be written
+	 */
+	static void write(File file, String key, long stamp, List<byte[]> hashes, List<List<byte[]>> words) throws IOException {
+		final Integer[] order= new Integer[hashes.size()];
+		for (int index= 0; index < order.length; index++)
+			order[index]= Integer.valueOf(index);
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer first, Integer second) {
+				return BYTES_COMPARATOR.compare(hashes.get(first.intValue()), hashes.get(second.intValue()));
+			}
+		});
+
+		file.getParentFile().mkdirs();
+		File temporary= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		try (DataOutputStream output= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeUTF(key);
+			output.writeLong(stamp);
+			output.writeInt(order.length);
+			int offset= 0;
+			for (int index= 0; index < order.length; index++) {
+				output.writeInt(offset);
+				offset+= getBucketSize(hashes.get(order[index].intValue()), words.get(order[index].intValue()));
+			}
+			for (int index= 0; index < order.length; index++) {
+				byte[] hash= hashes.get(order[index].intValue());
+				List<byte[]> bucket= words.get(order[index].intValue());
+				output.writeShort(Math.min(hash.length, MAX_LENGTH));
+				output.write(hash, 0, Math.min(hash.length, MAX_LENGTH));
+				output.writeInt(bucket.size());
+				for (int word= 0; word < bucket.size(); word++) {
+					byte[] bytes= bucket.get(word);
+					output.writeShort(Math.min(bytes.length, MAX_LENGTH));
+					output.write(bytes, 0, Math.min(bytes.length, MAX_LENGTH));
+				}
+			}
+		}
+		if (file.exists() && !file.delete() || !temporary.renameTo(file)) {
+			temporary.delete();
+			throw new IOException("Cannot replace " + file); //$NON-NLS-1$
+		}
+	}
+
+	private static int getBucketSize(byte[] hash, List<byte[]> bucket) {
+		int size= 2 + Math.min(hash.length, MAX_LENGTH) + 4;
+		for (int word= 0; word < bucket.size(); word++)
+			size+= 2 + Math.min(bucket.get(word).length, MAX_LENGTH);
+		return size;
+	}
+
+	/** The mapped file, only accessed with absolute operations */
+	private final ByteBuffer fBuffer;
+
+	/** The position of the offset table */
+	private final int fOffsets;
+
+	/** The number of buckets */
+	private final int fBuckets;
+
+	/** The position of the first bucket */
+	private final int fData;
+
+	private PhoneticHashIndex(ByteBuffer buffer, int offsets, int buckets, int data) {
+		fBuffer= buffer;
+		fOffsets= offsets;
+		fBuckets= buckets;
+		fData= data;
+	}
+
+	/**
+	 * Returns the number of hashes in this index.
+	 *
+	 * @return the number of hashes
+	 */
+	int size() {
+		return fBuckets;
+	}
+
+	/**
+	 * Returns the words with the given hash.
+	 *
+	 * @param hash the UTF-8 encoded hash
+	 * @return the UTF-8 encoded words, or <code>null</code> if there are none
+	 */
+	List<byte[]> getWords(byte[] hash) {
+		int low= 0;
+		int high= fBuckets - 1;
+		while (low <= high) {
+			int middle= (low + high) >>> 1;
+			int bucket= fData + fBuffer.getInt(fOffsets + 4 * middle);
+			int comparison= compareHash(bucket, hash);
+			if (comparison < 0) {
+				low= middle + 1;
+			} else if (comparison > 0) {
+				high= middle - 1;
+			} else {
+				int position= bucket + 2 + (fBuffer.getShort(bucket) & 0xFFFF);
+				int count= fBuffer.getInt(position);
+				position+= 4;
+				List<byte[]> words= new ArrayList<>(count);
+				for (int word= 0; word < count; word++) {
+					byte[] bytes= new byte[fBuffer.getShort(position) & 0xFFFF];
+					position+= 2;
+					for (int index= 0; index < bytes.length; index++)
+						bytes[index]= fBuffer.get(position + index);
+					position+= bytes.length;
+					words.add(bytes);
+				}
+				return words;
+			}
+		}
+		return null;
+	}
+
+	private int compareHash(int bucket, byte[] hash) {
+		int length= fBuffer.getShort(bucket) & 0xFFFF;
+		int common= Math.min(length, hash.length);
+		for (int index= 0; index < common; index++) {
+			int difference= (fBuffer.get(bucket + 2 + index) & 0xFF) - (hash[index] & 0xFF);
+			if (difference != 0)
+				return difference;
+		}
+		return length - hash.length;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,16 +14,23 @@
 package org.eclipse.jdt.internal.ui.viewsupport;
 
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.swt.widgets.Display;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IMarkerDelta;
@@ -50,6 +57,16 @@ import org.eclipse.jdt.internal.ui.javaeditor.CompilationUnitAnnotationModelEven
  * Listens to resource deltas and filters for marker changes of type IMarker.PROBLEM
  * Viewers showing error ticks should register as listener to
  * this type.
+ * <p>
+ * Marker changes are collected for {@link #COALESCE_DELAY} milliseconds and then processed in a
+ * background job. The job keeps the maximal problem severity of each resource with problem markers
+ * and, for each folder and project, the number of resources with each severity in its subtree and
+ * among its direct members. A change of the severity of a resource updates the numbers of its
+ * parents, and only the containers whose maximal severities changed are reported.
+ * Changed files are always reported, since the problems of their members may have moved. The
+ * listeners are notified in the UI thread with at most {@link #SLICE_SIZE} resources at a time,
+ * yielding the UI thread between the slices.
+ * </p>
  */
 public class ProblemMarkerManager implements IResourceChangeListener, IAnnotationModelListener , IAnnotationModelListenerExtension {
 
@@ -70,7 +87,8 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 			if (res instanceof IProject && delta.getKind() == IResourceDelta.CHANGED) {
 				IProject project= (IProject) res;
 				if (!project.isAccessible()) {
-					// only track open Java projects
+					// only track open Java projects, the severities of a closed project are dropped
+					fChangedElements.add(project);
 					return false;
 				}
 			}
@@ -81,10 +99,8 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 		private void checkInvalidate(IResourceDelta delta, IResource resource) {
 			int kind= delta.getKind();
 			if (kind == IResourceDelta.REMOVED || kind == IResourceDelta.ADDED || (kind == IResourceDelta.CHANGED && isErrorDelta(delta))) {
-				// invalidate the resource and all parents
-				while (resource.getType() != IResource.ROOT && fChangedElements.add(resource)) {
-					resource= resource.getParent();
-				}
+				// the parents are invalidated when their severities are updated
+				fChangedElements.add(resource);
 			}
 		}
 
@@ -107,17 +123,67 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 		}
 	}
 
+	/**
+	 * The time in milliseconds during which marker changes are collected before they are processed.
+	 * @since 3.18
+	 */
+	private static final long COALESCE_DELAY= 100;
+
+	/**
+	 * The maximal number of resources passed to the listeners in one run of the UI job.
+	 * @since 3.18
+	 */
+	private static final int SLICE_SIZE= 500;
+
 	private ListenerList<IProblemChangedListener> fListeners;
 
+	/**
+	 * Resources with marker changes that have not been processed by the aggregator job yet.
+	 * @since 3.18
+	 */
+	private Set<IResource> fResourcesToAggregate;
 	private Set<IResource> fResourcesWithMarkerChanges;
 	private Set<IResource> fResourcesWithAnnotationChanges;
 
+	/**
+	 * The maximal problem severities of the resources that have problem markers, only accessed by
+	 * the aggregator job.
+	 * @since 3.18
+	 */
+	private final Map<IResource, Integer> fSeverities;
+
+	/**
+	 * The number of resources with each problem severity in the subtree and among the direct
+	 * members of folders and projects, see {@link #getCount(int, boolean)}. Only accessed by the
+	 * aggregator job.
+	 * @since 3.18
+	 */
+	private final Map<IResource, int[]> fContainerSeverities;
+
+	/**
+	 * Incremented when nobody listens any more, so that the severities are computed again.
+	 * @since 3.18
+	 */
+	private final AtomicInteger fListenerGeneration;
+
+	/**
+	 * The listener generation for which the severities have been computed, or -1.
+	 * @since 3.18
+	 */
+	private int fSeveritiesGeneration;
+
 	private UIJob fNotifierJob;
+	private Job fAggregatorJob;
 
 	public ProblemMarkerManager() {
 		fListeners= new ListenerList<>();
-		fResourcesWithMarkerChanges= new HashSet<>();
-		fResourcesWithAnnotationChanges= new HashSet<>();
+		fResourcesToAggregate= new HashSet<>();
+		fResourcesWithMarkerChanges= new LinkedHashSet<>();
+		fResourcesWithAnnotationChanges= new LinkedHashSet<>();
+		fSeverities= new HashMap<>();
+		fContainerSeverities= new HashMap<>();
+		fListenerGeneration= new AtomicInteger();
+		fSeveritiesGeneration= -1;
 	}
 
 	/*
@@ -138,19 +204,206 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 		if (!changedElements.isEmpty()) {
 			boolean hasChanges= false;
 			synchronized (this) {
-				if (fResourcesWithMarkerChanges.isEmpty()) {
-					fResourcesWithMarkerChanges= changedElements;
+				if (fResourcesToAggregate.isEmpty()) {
+					fResourcesToAggregate= changedElements;
 					hasChanges= true;
 				} else {
-					hasChanges= fResourcesWithMarkerChanges.addAll(changedElements);
+					hasChanges= fResourcesToAggregate.addAll(changedElements);
 				}
 			}
 			if (hasChanges) {
-				fireChanges();
+				scheduleAggregation();
+			}
+		}
+	}
+
+	private synchronized void scheduleAggregation() {
+		if (fAggregatorJob == null) {
+			fAggregatorJob= new Job(JavaUIMessages.ProblemMarkerManager_problem_marker_update_job_description) {
+				@Override
+				protected IStatus run(IProgressMonitor monitor) {
+					aggregate();
+					return Status.OK_STATUS;
+				}
+			};
+			fAggregatorJob.setSystem(true);
+			fAggregatorJob.setPriority(Job.DECORATE);
+		}
+		// a pending schedule is not postponed, so the changes of the delay are coalesced
+		fAggregatorJob.schedule(COALESCE_DELAY);
+	}
+
+	/**
+	 * Updates the severities of the changed resources and passes the resources to report on to the
+	 * UI job.
+	 */
+	private void aggregate() {
+		Set<IResource> resources;
+		synchronized (this) {
+			resources= fResourcesToAggregate;
+			fResourcesToAggregate= new HashSet<>();
+		}
+		Set<IResource> changedElements= new LinkedHashSet<>();
+		int generation= fListenerGeneration.get();
+		boolean initialize= generation != fSeveritiesGeneration;
+		if (initialize) {
+			initializeSeverities();
+			fSeveritiesGeneration= generation;
+		}
+		for (Iterator<IResource> iter= resources.iterator(); iter.hasNext();) {
+			IResource resource= iter.next();
+			if (resource.getType() == IResource.FILE) {
+				changedElements.add(resource);
+			} else if (!resource.isAccessible()) {
+				removeSeverities(resource.getFullPath(), changedElements);
+				changedElements.add(resource);
+			}
+			updateSeverity(resource, getSeverity(resource), changedElements);
+			if (initialize) {
+				// the severities reported before are unknown
+				for (IResource parent= resource.getParent(); parent.getType() != IResource.ROOT; parent= parent.getParent())
+					changedElements.add(parent);
+			}
+		}
+		if (changedElements.isEmpty())
+			return;
+		synchronized (this) {
+			fResourcesWithMarkerChanges.addAll(changedElements);
+		}
+		fireChanges();
+	}
+
+	private void initializeSeverities() {
+		fSeverities.clear();
+		fContainerSeverities.clear();
+		IMarker[] markers;
+		try {
+			markers= JavaPlugin.getWorkspace().getRoot().findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE);
+		} catch (CoreException e) {
+			JavaPlugin.log(e);
+			return;
+		}
+		Map<IResource, Integer> severities= new HashMap<>();
+		for (int i= 0; i < markers.length; i++) {
+			IResource resource= markers[i].getResource();
+			int severity= Math.min(markers[i].getAttribute(IMarker.SEVERITY, -1), IMarker.SEVERITY_ERROR);
+			Integer previous= severities.get(resource);
+			if (severity >= 0 && (previous == null || previous.intValue() < severity))
+				severities.put(resource, Integer.valueOf(severity));
+		}
+		for (Iterator<Map.Entry<IResource, Integer>> iter= severities.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<IResource, Integer> entry= iter.next();
+			updateSeverity(entry.getKey(), entry.getValue().intValue(), null);
+		}
+	}
+
+	/**
+	 * Returns the maximal severity of the problem markers on the resource, without its members.
+	 *
+	 * @param resource the resource
+	 * @return the severity, or -1 if the resource has no problem markers
+	 */
+	private static int getSeverity(IResource resource) {
+		if (!resource.isAccessible())
+			return -1;
+		try {
+			return Math.min(resource.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_ZERO), IMarker.SEVERITY_ERROR);
+		} catch (CoreException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Removes the severities of the resources in a container that is no longer accessible.
+	 *
+	 * @param path the path of the container
+	 * @param changedElements the set to which the containers with changed severities are added
+	 */
+	private void removeSeverities(IPath path, Set<IResource> changedElements) {
+		IResource[] resources= fSeverities.keySet().toArray(new IResource[fSeverities.size()]);
+		for (int i= 0; i < resources.length; i++) {
+			if (path.isPrefixOf(resources[i].getFullPath()))
+				updateSeverity(resources[i], -1, changedElements);
+		}
+	}
+
+	/**
+	 * Sets the severity of a resource and updates the numbers of its parents.
+	 *
+	 * @param resource the resource
+	 * @param severity the maximal severity of the problem markers on the resource, without its
+	 *            members, or -1
+	 * @param changedElements the set to which the containers with changed severities are added, or
+	 *            <code>null</code>
+	 */
+	private void updateSeverity(IResource resource, int severity, Set<IResource> changedElements) {
+		Integer previous= severity >= 0 ? fSeverities.put(resource, Integer.valueOf(severity)) : fSeverities.remove(resource);
+		int oldSeverity= previous != null ? previous.intValue() : -1;
+		if (oldSeverity == severity)
+			return;
+		IResource directParent= resource.getParent();
+		for (IResource container= resource; container.getType() != IResource.ROOT; container= container.getParent()) {
+			if (container.getType() == IResource.FILE)
+				continue;
+			int[] counts= fContainerSeverities.get(container);
+			if (counts == null) {
+				counts= new int[6];
+				fContainerSeverities.put(container, counts);
 			}
+			int before= getCombinedSeverity(counts);
+			boolean isDirect= container.equals(resource) || container.equals(directParent);
+			if (oldSeverity >= 0) {
+				counts[getCount(oldSeverity, false)]--;
+				if (isDirect)
+					counts[getCount(oldSeverity, true)]--;
+			}
+			if (severity >= 0) {
+				counts[getCount(severity, false)]++;
+				if (isDirect)
+					counts[getCount(severity, true)]++;
+			}
+			int after= getCombinedSeverity(counts);
+			if (after == -1)
+				fContainerSeverities.remove(container);
+			if (before != after && changedElements != null)
+				changedElements.add(container);
 		}
 	}
 
+	/**
+	 * Returns the index of a number in the arrays of {@link #fContainerSeverities}.
+	 *
+	 * @param severity the severity
+	 * @param direct <code>true</code> for the number of the direct members and the container
+	 *            itself, <code>false</code> for the number in the subtree
+	 * @return the index
+	 */
+	private static int getCount(int severity, boolean direct) {
+		return direct ? 3 + severity : severity;
+	}
+
+	/**
+	 * Combines the maximal problem severities of a container and of its direct members, which are
+	 * shown for packages in the flat layout.
+	 *
+	 * @param counts the numbers of resources with each severity
+	 * @return the combined severities, or -1 if there are no problems
+	 */
+	private static int getCombinedSeverity(int[] counts) {
+		int all= getMaxSeverity(counts, false);
+		if (all == -1)
+			return -1;
+		return (all + 1) * 4 + getMaxSeverity(counts, true) + 1;
+	}
+
+	private static int getMaxSeverity(int[] counts, boolean direct) {
+		for (int severity= IMarker.SEVERITY_ERROR; severity >= IMarker.SEVERITY_INFO; severity--) {
+			if (counts[getCount(severity, direct)] > 0)
+				return severity;
+		}
+		return -1;
+	}
+
 	@Override
 	public void modelChanged(IAnnotationModel model) {
 		// no action
@@ -195,6 +448,8 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 		if (fListeners.isEmpty()) {
 			JavaPlugin.getWorkspace().removeResourceChangeListener(this);
 			JavaPlugin.getDefault().getCompilationUnitDocumentProvider().removeGlobalAnnotationModelListener(this);
+			// severities are not tracked while nobody listens
+			fListenerGeneration.incrementAndGet();
 		}
 	}
 
@@ -220,20 +475,17 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 	}
 
 	/**
-	 * Notify all IProblemChangedListener. Must be called in the display thread.
+	 * Notify all IProblemChangedListener of the next slice of changed resources. Must be called in
+	 * the display thread.
 	 */
 	private void runPendingUpdates() {
-		IResource[] markerResources= null;
-		IResource[] annotationResources= null;
+		IResource[] markerResources;
+		IResource[] annotationResources;
+		boolean hasMore;
 		synchronized (this) {
-			if (!fResourcesWithMarkerChanges.isEmpty()) {
-				markerResources= fResourcesWithMarkerChanges.toArray(new IResource[fResourcesWithMarkerChanges.size()]);
-				fResourcesWithMarkerChanges.clear();
-			}
-			if (!fResourcesWithAnnotationChanges.isEmpty()) {
-				annotationResources= fResourcesWithAnnotationChanges.toArray(new IResource[fResourcesWithAnnotationChanges.size()]);
-				fResourcesWithAnnotationChanges.clear();
-			}
+			markerResources= takeSlice(fResourcesWithMarkerChanges, SLICE_SIZE);
+			annotationResources= takeSlice(fResourcesWithAnnotationChanges, SLICE_SIZE - (markerResources != null ? markerResources.length : 0));
+			hasMore= !fResourcesWithMarkerChanges.isEmpty() || !fResourcesWithAnnotationChanges.isEmpty();
 		}
 		for (IProblemChangedListener curr : fListeners) {
 			if (markerResources != null) {
@@ -243,6 +495,29 @@ public class ProblemMarkerManager implements IResourceChangeListener, IAnnotatio
 				curr.problemsChanged(annotationResources, false);
 			}
 		}
+		if (hasMore) {
+			fireChanges();
+		}
+	}
+
+	/**
+	 * Removes up to <code>count</code> resources from the given set.
+	 *
+	 * @param resources the resources
+	 * @param count the maximal number of resources to remove
+	 * @return the removed resources, or <code>null</code> if none have been removed
+	 */
+	private static IResource[] takeSlice(Set<IResource> resources, int count) {
+		int size= Math.min(resources.size(), count);
+		if (size <= 0)
+			return null;
+		IResource[] slice= new IResource[size];
+		Iterator<IResource> iter= resources.iterator();
+		for (int i= 0; i < size; i++) {
+			slice[i]= iter.next();
+			iter.remove();
+		}
+		return slice;
 	}
 
 }
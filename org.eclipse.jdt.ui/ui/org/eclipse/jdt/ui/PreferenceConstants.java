@@ -3361,6 +3361,19 @@ public class PreferenceConstants {
 	 */
 	public static final String CODEASSIST_CATEGORY_ORDER= "content_assist_category_order"; //$NON-NLS-1$
 
+	/**
+	 * A named preference that holds the time in milliseconds within which the proposal categories
+	 * contributed by other plug-ins must deliver their proposals. These categories are computed in
+	 * background threads, and the proposals of categories that take longer are not shown.
+	 * <p>
+	 * Value is of type <code>Integer</code>. The value 0 computes all categories one after the
+	 * other in the UI thread.
+	 * </p>
+	 *
+	 * @since 3.18
+	 */
+	public static final String CODEASSIST_LATENCY_BUDGET= "content_assist_latency_budget"; //$NON-NLS-1$
+
 	/**
 	 * A named preference that controls whether folding is enabled in the Java editor.
 	 * <p>
@@ -4038,6 +4051,7 @@ public class PreferenceConstants {
 		store.setDefault(PreferenceConstants.CODEASSIST_EXCLUDED_CATEGORIES, "org.eclipse.jdt.ui.textProposalCategory\0org.eclipse.jdt.ui.javaTypeProposalCategory\0org.eclipse.jdt.ui.javaNoTypeProposalCategory\0"); //$NON-NLS-1$
 		store.setDefault(PreferenceConstants.CODEASSIST_CATEGORY_ORDER, "org.eclipse.jdt.ui.spellingProposalCategory:65545\0org.eclipse.jdt.ui.javaTypeProposalCategory:65540\0org.eclipse.jdt.ui.javaNoTypeProposalCategory:65539\0org.eclipse.jdt.ui.textProposalCategory:65541\0org.eclipse.jdt.ui.javaAllProposalCategory:65542\0org.eclipse.jdt.ui.templateProposalCategory:2\0org.eclipse.jdt.ui.swtProposalCategory:3\0"); //$NON-NLS-1$
 		store.setDefault(PreferenceConstants.CODEASSIST_LRU_HISTORY, ""); //$NON-NLS-1$
+		store.setDefault(PreferenceConstants.CODEASSIST_LATENCY_BUDGET, 0);
 		store.setDefault(PreferenceConstants.CODEASSIST_SORTER, "org.eclipse.jdt.ui.RelevanceSorter"); //$NON-NLS-1$
 		store.setDefault(PreferenceConstants.CODEASSIST_FAVORITE_STATIC_MEMBERS, ""); //$NON-NLS-1$
 
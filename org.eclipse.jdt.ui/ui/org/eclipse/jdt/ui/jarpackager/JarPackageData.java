@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -134,6 +134,9 @@ public class JarPackageData {
 	// Add directory entries to the jar
 	private boolean fIncludeDirectoryEntries;
 
+	// Update the entries of the previously exported jar that have changed
+	private boolean fIncrementalExport;
+
 	// Projects for which to store refactoring information
 	private IProject[] fRefactoringProjects= {};
 
@@ -1057,6 +1060,31 @@ public class JarPackageData {
 		fIncludeDirectoryEntries = includeDirectoryEntries;
 	}
 
+	/**
+	 * Tells whether the jar is updated incrementally. If the jar has been exported before with
+	 * the same description, only the entries whose content has changed are written again, the
+	 * other entries are copied from the previous jar without being decompressed.
+	 *
+	 * @return <code>true</code> if the jar is updated incrementally
+	 *
+	 * @since 3.18
+	 */
+	public boolean isIncrementalExport() {
+		return fIncrementalExport;
+	}
+
+	/**
+	 * Sets the option to update the jar incrementally.
+	 *
+	 * @param incrementalExport <code>true</code> to update the jar incrementally,
+	 *  <code>false</code> to write the complete jar
+	 *
+	 * @since 3.18
+	 */
+	public void setIncrementalExport(boolean incrementalExport) {
+		fIncrementalExport= incrementalExport;
+	}
+
 	/**
 	 * Returns the projects for which refactoring information should be stored.
 	 * <p>
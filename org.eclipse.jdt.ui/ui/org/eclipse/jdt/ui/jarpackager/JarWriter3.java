@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,8 @@ package org.eclipse.jdt.ui.jarpackager;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -25,6 +27,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -32,9 +35,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 
 import org.eclipse.swt.widgets.Shell;
 
@@ -62,6 +67,8 @@ import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
 import org.eclipse.jdt.internal.corext.util.Messages;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.jarpackager.JarExportIndex;
+import org.eclipse.jdt.internal.ui.jarpackager.JarFileUpdater;
 import org.eclipse.jdt.internal.ui.jarpackager.JarPackagerMessages;
 import org.eclipse.jdt.internal.ui.jarpackager.JarPackagerUtil;
 import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
@@ -84,6 +91,19 @@ public class JarWriter3 {
 
 	private JarPackageData fJarPackage;
 
+	/** The buffer through which the content of the entries is copied */
+	private final byte[] fBuffer= new byte[JarPackagerUtil.BUFFER_SIZE];
+
+	/** The index of the written entries, or <code>null</code> if the export is not incremental */
+	private JarExportIndex fIndex;
+
+	private JarExportIndex fPreviousIndex;
+
+	private File fIndexFile;
+
+	/** The updater of the previously exported JAR file, or <code>null</code> if the JAR file is rewritten */
+	private JarFileUpdater fUpdater;
+
 	/**
 	 * Creates an instance which is used to create a JAR based
 	 * on the given JarPackage.
@@ -104,11 +124,31 @@ public class JarWriter3 {
 			throw new OperationCanceledException();
 
 		try {
-			if (fJarPackage.usesManifest() && fJarPackage.areGeneratedFilesExported()) {
-				Manifest manifest= fJarPackage.getManifestProvider().create(fJarPackage);
-				fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile())), manifest);
+			File jarFile= fJarPackage.getAbsoluteJarLocation().toFile();
+			Manifest manifest= null;
+			if (fJarPackage.usesManifest() && fJarPackage.areGeneratedFilesExported())
+				manifest= fJarPackage.getManifestProvider().create(fJarPackage);
+			if (fJarPackage.isIncrementalExport())
+				openIncrementalExport(jarFile);
+			if (fUpdater != null) {
+				if (manifest != null) {
+					ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+					manifest.write(bytes);
+					JarEntry entry= new JarEntry(JarFile.MANIFEST_NAME);
+					entry.setTime(System.currentTimeMillis());
+					updateEntry(entry, bytes.toByteArray());
+				}
+				return;
+			}
+			if (manifest != null) {
+				fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(jarFile)), manifest);
+				if (fIndex != null) {
+					ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+					manifest.write(bytes);
+					fIndex.put(JarFile.MANIFEST_NAME, bytes.size(), JarExportIndex.createDigest().digest(bytes.toByteArray()));
+				}
 			} else
-				fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile())));
+				fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(jarFile)));
 			String comment= jarPackage.getComment();
 			if (comment != null)
 				fJarOutputStream.setComment(comment);
@@ -122,7 +162,67 @@ public class JarWriter3 {
 			throw JarPackagerUtil.createCoreException(exception.getLocalizedMessage(), exception);
 		}
 	}
-	
+
+	/**
+	 * Prepares an incremental export. The previously exported JAR file is updated if it is still
+	 * described by its index, otherwise it is rewritten and the index is recreated.
+	 *
+	 * @param jarFile the JAR file
+	 */
+	private void openIncrementalExport(File jarFile) {
+		// the comment and the refactoring history are not kept in the index
+		if (!fJarPackage.isCompressed() || fJarPackage.getComment() != null || fJarPackage.isRefactoringAware())
+			return;
+		String options= JarExportIndex.getOptions(fJarPackage);
+		fIndexFile= JarExportIndex.getIndexFile(jarFile);
+		fIndex= new JarExportIndex(options);
+		fPreviousIndex= JarExportIndex.read(fIndexFile, jarFile, options);
+		// the index is written again once the JAR file is complete
+		fIndexFile.delete();
+		if (fPreviousIndex != null) {
+			try {
+				fUpdater= new JarFileUpdater(jarFile);
+			} catch (IOException e) {
+				JavaPlugin.log(e);
+				fPreviousIndex= null;
+			}
+		}
+	}
+
+	/**
+	 * Writes an entry of the previously exported JAR file if its content has changed.
+	 *
+	 * @param entry the entry
+	 * @param content the content of the entry
+	 * @throws IOException if an I/O error has occurred
+	 */
+	private void updateEntry(JarEntry entry, byte[] content) throws IOException {
+		String name= entry.getName();
+		if (fIndex.contains(name))
+			throw new ZipException("duplicate entry: " + name); //$NON-NLS-1$ same message as java.util.zip.ZipOutputStream.putNextEntry(ZipEntry)
+		byte[] digest= JarExportIndex.createDigest().digest(content);
+		fIndex.put(name, content.length, digest);
+		if (!fPreviousIndex.isUnchanged(name, content.length, digest)) {
+			long time= entry.getTime();
+			fUpdater.writeEntry(name, content, time != -1 ? time : System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Writes a directory entry to the current archive.
+	 *
+	 * @param entry the directory entry
+	 * @throws IOException if an I/O error has occurred
+	 */
+	private void putDirectoryEntry(JarEntry entry) throws IOException {
+		if (fUpdater != null)
+			fUpdater.writeDirectory(entry.getName(), entry.getTime());
+		else
+			fJarOutputStream.putNextEntry(entry);
+		if (fIndex != null)
+			fIndex.put(entry.getName(), 0, null);
+	}
+
 	/**
 	 * Creates the directory entries for the given path and writes it to the current archive.
 	 * 
@@ -162,7 +262,7 @@ public class JarWriter3 {
 		}
 
 		for (int i= directories.size() - 1; i >= 0; --i) {
-			fJarOutputStream.putNextEntry(directories.get(i));
+			putDirectoryEntry(directories.get(i));
 		}
 	}
 
@@ -210,7 +310,7 @@ public class JarWriter3 {
 		}
 
 		for (int i= directories.size() - 1; i >= 0; --i) {
-			fJarOutputStream.putNextEntry(directories.get(i));
+			putDirectoryEntry(directories.get(i));
 		}
 	}
 
@@ -226,29 +326,37 @@ public class JarWriter3 {
 	 */
 	protected void addFile(IFile resource, IPath path) throws IOException, CoreException {
 		JarEntry newEntry= new JarEntry(path.toString().replace(File.separatorChar, '/'));
-		byte[] readBuffer= new byte[4096];
-
-		if (fJarPackage.isCompressed())
-			newEntry.setMethod(ZipEntry.DEFLATED);
-			// Entry is filled automatically.
-		else {
-			newEntry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(newEntry, resource.getContents(false), readBuffer);
-		}
 
 		long lastModified= System.currentTimeMillis();
+		long length= -1;
 		URI locationURI= resource.getLocationURI();
 		if (locationURI != null) {
 			IFileInfo info= EFS.getStore(locationURI).fetchInfo();
-			if (info.exists())
+			if (info.exists()) {
 				lastModified= info.getLastModified();
+				length= info.getLength();
+			}
+		}
+
+		InputStream contentStream;
+		if (fJarPackage.isCompressed()) {
+			newEntry.setMethod(ZipEntry.DEFLATED);
+			// Entry is filled automatically.
+			contentStream= resource.getContents(false);
+		} else {
+			newEntry.setMethod(ZipEntry.STORED);
+			if (length >= 0 && length <= JarPackagerUtil.MAX_BUFFERED_CONTENT_SIZE) {
+				// read small files only once
+				contentStream= new ByteArrayInputStream(JarPackagerUtil.readContentAndCalculateCrc(newEntry, resource.getContents(false), fBuffer));
+			} else {
+				JarPackagerUtil.calculateCrcAndSize(newEntry, resource.getContents(false), fBuffer);
+				contentStream= resource.getContents(false);
+			}
 		}
 
 		// Set modification time
 		newEntry.setTime(lastModified);
 
-		InputStream contentStream = resource.getContents(false);
-
 		addEntry(newEntry, contentStream);
 	}
 
@@ -264,12 +372,27 @@ public class JarWriter3 {
 	 * @since 3.4
 	 */
 	protected void addEntry(JarEntry entry, InputStream content) throws IOException {
-		byte[] readBuffer= new byte[4096];
 		try {
+			if (fUpdater != null) {
+				ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+				int count;
+				while ((count= content.read(fBuffer, 0, fBuffer.length)) != -1)
+					bytes.write(fBuffer, 0, count);
+				updateEntry(entry, bytes.toByteArray());
+				return;
+			}
 			fJarOutputStream.putNextEntry(entry);
+			MessageDigest digest= fIndex != null ? JarExportIndex.createDigest() : null;
+			long size= 0;
 			int count;
-			while ((count= content.read(readBuffer, 0, readBuffer.length)) != -1)
-				fJarOutputStream.write(readBuffer, 0, count);
+			while ((count= content.read(fBuffer, 0, fBuffer.length)) != -1) {
+				fJarOutputStream.write(fBuffer, 0, count);
+				if (digest != null)
+					digest.update(fBuffer, 0, count);
+				size+= count;
+			}
+			if (digest != null)
+				fIndex.put(entry.getName(), size, digest.digest());
 		} finally  {
 			if (content != null)
 				content.close();
@@ -386,13 +509,29 @@ public class JarWriter3 {
 	 *             used to return information in the status object.
 	 */
 	public void close() throws CoreException {
-		if (fJarOutputStream != null)
-			try {
+		if (fJarOutputStream == null && fUpdater == null)
+			return;
+		try {
+			if (fUpdater != null) {
+				fUpdater.removeEntries(fIndex.getPaths());
+				fUpdater.close();
+			} else
 				fJarOutputStream.close();
-				registerInWorkspaceIfNeeded();
-			} catch (IOException ex) {
-				throw JarPackagerUtil.createCoreException(ex.getLocalizedMessage(), ex);
-			}
+			if (fIndex != null)
+				writeIndex();
+			registerInWorkspaceIfNeeded();
+		} catch (IOException ex) {
+			throw JarPackagerUtil.createCoreException(ex.getLocalizedMessage(), ex);
+		}
+	}
+
+	private void writeIndex() {
+		try {
+			fIndex.write(fIndexFile, fJarPackage.getAbsoluteJarLocation().toFile());
+		} catch (IOException ex) {
+			// the next export rewrites the JAR file
+			JavaPlugin.log(ex);
+		}
 	}
 
 	private void registerInWorkspaceIfNeeded() {
@@ -465,12 +604,12 @@ public class JarWriter3 {
 		Assert.isNotNull(file);
 		Assert.isNotNull(path);
 		final JarEntry entry= new JarEntry(path.toString().replace(File.separatorChar, '/'));
-		byte[] buffer= new byte[4096];
+		byte[] buffer= fBuffer;
 		if (data.isCompressed())
 			entry.setMethod(ZipEntry.DEFLATED);
 		else {
 			entry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(entry, new BufferedInputStream(new FileInputStream(file)), buffer);
+			JarPackagerUtil.calculateCrcAndSize(entry, file);
 		}
 		entry.setTime(System.currentTimeMillis());
 		final InputStream stream= new BufferedInputStream(new FileInputStream(file));
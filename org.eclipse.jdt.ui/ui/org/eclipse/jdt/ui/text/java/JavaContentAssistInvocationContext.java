@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 IBM Corporation and others.
+ * Copyright (c) 2005, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -37,6 +37,12 @@ import org.eclipse.jdt.internal.ui.text.java.ContentAssistHistory.RHSHistory;
 /**
  * Describes the context of a content assist invocation in a Java editor.
  * <p>
+ * The context may be shared by computers that run in different threads. The values that need
+ * {@linkplain ICodeAssist#codeComplete(int, org.eclipse.jdt.core.CompletionRequestor) codeComplete}
+ * are computed before the context is passed to another thread; the cached values are published
+ * without locking, so that a computer in one thread never waits for a computer in another thread.
+ * </p>
+ * <p>
  * Clients may use but not subclass this class.
  * </p>
  *
@@ -48,16 +54,16 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	private final IEditorPart fEditor;
 
 	private IJavaProject fJavaProject;
-	private ICompilationUnit fCU= null;
-	private boolean fCUComputed= false;
+	private volatile ICompilationUnit fCU= null;
+	private volatile boolean fCUComputed= false;
 
-	private CompletionProposalLabelProvider fLabelProvider;
-	private CompletionProposalCollector fCollector;
-	private RHSHistory fRHSHistory;
-	private IType fType;
+	private volatile CompletionProposalLabelProvider fLabelProvider;
+	private volatile CompletionProposalCollector fCollector;
+	private volatile RHSHistory fRHSHistory;
+	private volatile IType fType;
 
-	private IJavaCompletionProposal[] fKeywordProposals= null;
-	private CompletionContext fCoreContext= null;
+	private volatile IJavaCompletionProposal[] fKeywordProposals= null;
+	private volatile CompletionContext fCoreContext= null;
 
 
 	/**
@@ -105,14 +111,15 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 */
 	public ICompilationUnit getCompilationUnit() {
 		if (!fCUComputed) {
-			fCUComputed= true;
-			if (fCollector != null)
-				fCU= fCollector.getCompilationUnit();
+			CompletionProposalCollector collector= fCollector;
+			if (collector != null)
+				fCU= collector.getCompilationUnit();
 			else {
 				IJavaElement je= EditorUtility.getEditorInputJavaElement(fEditor, false);
 				if (je instanceof ICompilationUnit)
 					fCU= (ICompilationUnit)je;
 			}
+			fCUComputed= true;
 		}
 		return fCU;
 	}
@@ -140,9 +147,10 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 */
 	public IJavaCompletionProposal[] getKeywordProposals() {
 		if (fKeywordProposals == null) {
-			if (fCollector != null && !fCollector.isIgnored(CompletionProposal.KEYWORD) && fCollector.getContext() != null) {
+			CompletionProposalCollector collector= fCollector;
+			if (collector != null && !collector.isIgnored(CompletionProposal.KEYWORD) && collector.getContext() != null) {
 				// use the existing collector if it exists, collects keywords, and has already been invoked
-				fKeywordProposals= fCollector.getKeywordCompletionProposals();
+				fKeywordProposals= collector.getKeywordCompletionProposals();
 			} else {
 				// otherwise, retrieve keywords ourselves
 				computeKeywordsAndContext();
@@ -164,8 +172,9 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 * @return the core completion context if available, <code>null</code> otherwise
 	 */
 	public CompletionContext getCoreContext() {
-		if (fCollector != null) {
-			CompletionContext context= fCollector.getContext();
+		CompletionProposalCollector collector= fCollector;
+		if (collector != null) {
+			CompletionContext context= collector.getContext();
 			if (context != null) {
 				if (fCoreContext == null)
 					fCoreContext= context;
@@ -255,8 +264,9 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 */
 	public CompletionProposalLabelProvider getLabelProvider() {
 		if (fLabelProvider == null) {
-			if (fCollector != null)
-				fLabelProvider= fCollector.getLabelProvider();
+			CompletionProposalCollector collector= fCollector;
+			if (collector != null)
+				fLabelProvider= collector.getLabelProvider();
 			else
 				fLabelProvider= new CompletionProposalLabelProvider();
 		}
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.history;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.core.refactoring.tests.FileSystemHelper;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryIndex;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryService;
+
+public class RefactoringHistoryIndexTests extends TestCase {
+
+	/** The magic number of the log file */
+	private static final int MAGIC= 0x52484958;
+
+	private IPath fLocation;
+
+	private IFileStore fHistory;
+
+	private File fLog;
+
+	@Override
+	protected void setUp() throws Exception {
+		fLocation= FileSystemHelper.getRandomLocation(FileSystemHelper.getTempDir());
+		fHistory= EFS.getLocalFileSystem().getStore(fLocation.append("history"));
+		fHistory.mkdir(EFS.NONE, null);
+		fLog= fLocation.append("log").append("history.index").toFile();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		EFS.getLocalFileSystem().getStore(fLocation).delete(EFS.NONE, null);
+	}
+
+	private void writeIndex(String folder, long[] stamps) throws Exception {
+		StringBuilder buffer= new StringBuilder();
+		for (int index= 0; index < stamps.length; index++)
+			buffer.append(stamps[index]).append('\t').append("Refactoring ").append(stamps[index]).append('\n');
+		File file= new File(fHistory.getFileStore(new Path(folder)).toLocalFile(EFS.NONE, null), RefactoringHistoryService.NAME_INDEX_FILE);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), buffer.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void deleteIndex(String folder) throws CoreException {
+		fHistory.getFileStore(new Path(folder)).getChild(RefactoringHistoryService.NAME_INDEX_FILE).delete(EFS.NONE, null);
+	}
+
+	private List<Long> read(IFileStore history, long start, long end) throws CoreException {
+		RefactoringHistoryIndex index= new RefactoringHistoryIndex(history, EFS.getLocalFileSystem().fromLocalFile(fLog));
+		List<RefactoringDescriptorProxy> proxies= new ArrayList<>();
+		index.readRefactoringDescriptorProxies(null, proxies, start, end, new NullProgressMonitor());
+		List<Long> stamps= new ArrayList<>();
+		for (int i= 0; i < proxies.size(); i++) {
+			RefactoringDescriptorProxy proxy= proxies.get(i);
+			assertEquals("Refactoring " + proxy.getTimeStamp(), proxy.getDescription());
+			stamps.add(Long.valueOf(proxy.getTimeStamp()));
+		}
+		Collections.sort(stamps);
+		return stamps;
+	}
+
+	private List<Long> read() throws CoreException {
+		return read(fHistory, 0, Long.MAX_VALUE);
+	}
+
+	private static List<Long> stamps(long... stamps) {
+		List<Long> list= new ArrayList<>();
+		for (int index= 0; index < stamps.length; index++)
+			list.add(Long.valueOf(stamps[index]));
+		return list;
+	}
+
+	private byte[] readLog() throws IOException {
+		return Files.readAllBytes(fLog.toPath());
+	}
+
+	private void assertValidLog() throws IOException {
+		try (DataInputStream input= new DataInputStream(new FileInputStream(fLog))) {
+			assertEquals(MAGIC, input.readInt());
+		}
+	}
+
+	public void testReadRange() throws Exception {
+		writeIndex("2019/01", new long[] { 10, 20, 30 });
+		writeIndex("2019/02", new long[] { 40, 50 });
+		assertEquals(stamps(10, 20, 30, 40, 50), read());
+		assertEquals(stamps(20, 30, 40), read(fHistory, 20, 40));
+		assertEquals(stamps(), read(fHistory, 60, 70));
+		assertValidLog();
+	}
+
+	public void testChangedFolderIsAppended() throws Exception {
+		writeIndex("2019/01", new long[] { 10, 20 });
+		writeIndex("2019/02", new long[] { 40 });
+		assertEquals(stamps(10, 20, 40), read());
+		byte[] before= readLog();
+
+		writeIndex("2019/02", new long[] { 40, 50, 60 });
+		assertEquals(stamps(10, 20, 40, 50, 60), read());
+		byte[] after= readLog();
+		assertTrue(after.length > before.length);
+		assertTrue(Arrays.equals(before, Arrays.copyOf(after, before.length)));
+
+		// an unchanged history does not touch the log
+		assertEquals(stamps(10, 20, 40, 50, 60), read());
+		assertTrue(Arrays.equals(after, readLog()));
+	}
+
+	public void testRemovedFolderIsPruned() throws Exception {
+		writeIndex("2019/01", new long[] { 10 });
+		writeIndex("2019/02", new long[] { 40 });
+		assertEquals(stamps(10, 40), read());
+
+		deleteIndex("2019/02");
+		assertEquals(stamps(10), read());
+		// the removal has been logged
+		assertEquals(stamps(10), read());
+
+		writeIndex("2019/02", new long[] { 50 });
+		assertEquals(stamps(10, 50), read());
+	}
+
+	public void testInvalidLogIsRebuilt() throws Exception {
+		writeIndex("2019/01", new long[] { 10, 20 });
+		fLog.getParentFile().mkdirs();
+		Files.write(fLog.toPath(), "not a log".getBytes(StandardCharsets.UTF_8));
+		assertEquals(stamps(10, 20), read());
+		assertValidLog();
+	}
+
+	public void testTruncatedLogIsRebuilt() throws Exception {
+		writeIndex("2019/01", new long[] { 10, 20 });
+		writeIndex("2019/02", new long[] { 40 });
+		assertEquals(stamps(10, 20, 40), read());
+		byte[] log= readLog();
+		Files.write(fLog.toPath(), Arrays.copyOf(log, log.length - 3));
+		assertEquals(stamps(10, 20, 40), read());
+		assertValidLog();
+		assertEquals(stamps(10, 20, 40), read());
+	}
+
+	public void testLogOfOtherHistoryIsDiscarded() throws Exception {
+		writeIndex("2019/01", new long[] { 10, 20 });
+		assertEquals(stamps(10, 20), read());
+
+		IFileStore other= EFS.getLocalFileSystem().getStore(fLocation.append("other"));
+		other.getFileStore(new Path("2019/03")).mkdir(EFS.NONE, null);
+		assertEquals(stamps(), read(other, 0, Long.MAX_VALUE));
+		assertEquals(stamps(10, 20), read());
+	}
+
+	public void testLogIsCompacted() throws Exception {
+		writeIndex("2019/01", new long[] { 10 });
+		writeIndex("2019/02", new long[] { 40 });
+		assertEquals(stamps(10, 40), read());
+
+		int length= readLog().length;
+		boolean compacted= false;
+		List<Long> expected= stamps(10);
+		long[] current= new long[0];
+		for (int i= 0; i < 50; i++) {
+			current= Arrays.copyOf(current, current.length + 1);
+			current[current.length - 1]= 100 + i;
+			writeIndex("2019/02", current);
+			expected.add(Long.valueOf(100 + i));
+			assertEquals(expected, read());
+			int next= readLog().length;
+			if (next < length)
+				compacted= true;
+			length= next;
+		}
+		assertTrue(compacted);
+		assertValidLog();
+		assertEquals(expected, read());
+	}
+}
@@ -0,0 +1,507 @@
+/*******************************************************************************
+ * Copyright (c) 2019 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.IRefactoringCoreStatusCodes;
+import org.eclipse.ltk.core.refactoring.RefactoringCore;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+
+/**
+ * Compact index over the index files of a refactoring history.
+ * <p>
+ * The history itself stays in the folder tree of XML and index files managed by
+ * {@link RefactoringHistoryManager}, since project histories are shared. This index
+ * keeps the entries of every index file together with the time stamp and length of
+ * the file in an append-only log in the plug-in state location. Reading the history
+ * only re-reads index files that changed since they were logged, and answers time
+ * range queries from the sorted entries of each folder. A missing or unreadable log
+ * is rebuilt from the folder tree.
+ * </p>
+ * <p>
+ * The folder tree is only walked on the first query. Afterwards only the folders
+ * reported by {@link #changed(IFileStore)} are checked again. The history manager
+ * reports the index files it writes and removes, and the history service reports
+ * changes of shared project histories from resource deltas. Indexes of closed or
+ * deleted projects are discarded with {@link #discard(IFileStore)}.
+ * </p>
+ * <p>
+ * Log format: magic (int), version (int), history store URI (string), followed by
+ * folder records: folder path (string), last modified (long), length (long),
+ * entry count (int) and per entry the time stamp (long) and the description (string).
+ * Records of a folder supersede earlier records of the same folder, a negative length
+ * marks a removed folder. Strings are written as UTF-8 length (int) and bytes.
+ * </p>
+ *
+ * @since 3.10
+ */
+public final class RefactoringHistoryIndex {
+
+	/** The entries of a single history index file */
+	private static final class FolderEntry {
+
+		private final long fLastModified;
+
+		private final long fLength;
+
+		/** The time stamps, in ascending order */
+		private final long[] fStamps;
+
+		private final String[] fDescriptions;
+
+		FolderEntry(long lastModified, long length, long[] stamps, String[] descriptions) {
+			fLastModified= lastModified;
+			fLength= length;
+			fStamps= stamps;
+			fDescriptions= descriptions;
+		}
+
+		boolean isUpToDate(IFileInfo info) {
+			return info.getLastModified() == fLastModified && info.getLength() == fLength;
+		}
+
+		void addProxies(String project, Collection<RefactoringDescriptorProxy> collection, long start, long end) {
+			if (fStamps.length == 0 || fStamps[0] > end || fStamps[fStamps.length - 1] < start)
+				return;
+			int index= Arrays.binarySearch(fStamps, start);
+			if (index < 0)
+				index= -index - 1;
+			while (index > 0 && fStamps[index - 1] == start)
+				index--;
+			for (; index < fStamps.length && fStamps[index] <= end; index++)
+				collection.add(new DefaultRefactoringDescriptorProxy(fDescriptions[index], project, fStamps[index]));
+		}
+	}
+
+	/** The magic number of the log file */
+	private static final int MAGIC= 0x52484958;
+
+	/** The version of the log format */
+	private static final int VERSION= 1;
+
+	/** The name of the folder in the state location containing the logs */
+	private static final String NAME_INDEX_FOLDER= ".historyIndex"; //$NON-NLS-1$
+
+	/** The log is compacted if it holds more than this factor of superseded records */
+	private static final int COMPACTION_FACTOR= 2;
+
+	/** The indexes by history store */
+	private static final Map<IFileStore, RefactoringHistoryIndex> fgIndexes= new HashMap<>();
+
+	/**
+	 * Notes that the specified file store of a history has been written or removed.
+	 * The folder of the store is checked again on the next query of every index
+	 * containing it, and an index whose history is contained in the store is
+	 * checked completely.
+	 *
+	 * @param store
+	 *            the file store that changed
+	 */
+	static synchronized void changed(final IFileStore store) {
+		for (final Iterator<RefactoringHistoryIndex> iterator= fgIndexes.values().iterator(); iterator.hasNext();)
+			iterator.next().storeChanged(store);
+	}
+
+	/**
+	 * Discards the indexes of all histories contained in the specified file
+	 * store, e.g. because the project containing them has been closed or deleted.
+	 *
+	 * @param store
+	 *            the file store
+	 */
+	static synchronized void discard(final IFileStore store) {
+		for (final Iterator<IFileStore> iterator= fgIndexes.keySet().iterator(); iterator.hasNext();) {
+			final IFileStore history= iterator.next();
+			if (history.equals(store) || store.isParentOf(history))
+				iterator.remove();
+		}
+	}
+
+	/**
+	 * Returns the index of the specified history store.
+	 *
+	 * @param history
+	 *            the history store
+	 * @return the index, or <code>null</code> if no index can be maintained
+	 */
+	static synchronized RefactoringHistoryIndex getIndex(final IFileStore history) {
+		RefactoringHistoryIndex index= fgIndexes.get(history);
+		if (index == null) {
+			final RefactoringCorePlugin plugin= RefactoringCorePlugin.getDefault();
+			if (plugin == null)
+				return null;
+			final String uri= history.toURI().toString();
+			final IFileStore log= EFS.getLocalFileSystem().getStore(plugin.getStateLocation()).getChild(NAME_INDEX_FOLDER).getChild(Integer.toHexString(uri.hashCode()) + ".index"); //$NON-NLS-1$
+			index= new RefactoringHistoryIndex(history, log);
+			fgIndexes.put(history, index);
+		}
+		return index;
+	}
+
+	private static String readString(final DataInputStream input) throws IOException {
+		final byte[] bytes= new byte[input.readInt()];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(final DataOutputStream output, final String string) throws IOException {
+		final byte[] bytes= string.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static void writeRecord(final DataOutputStream output, final String path, final FolderEntry entry) throws IOException {
+		writeString(output, path);
+		if (entry == null) {
+			output.writeLong(0);
+			output.writeLong(-1);
+			output.writeInt(0);
+		} else {
+			output.writeLong(entry.fLastModified);
+			output.writeLong(entry.fLength);
+			output.writeInt(entry.fStamps.length);
+			for (int index= 0; index < entry.fStamps.length; index++) {
+				output.writeLong(entry.fStamps[index]);
+				writeString(output, entry.fDescriptions[index]);
+			}
+		}
+	}
+
+	/** The history store */
+	private final IFileStore fHistory;
+
+	/** The URI of the history store */
+	private final String fHistoryURI;
+
+	/** The log file */
+	private final IFileStore fLog;
+
+	/** The folder entries by path relative to the history store, or <code>null</code> if not loaded */
+	private Map<String, FolderEntry> fFolders= null;
+
+	/** The records appended since the last write, by folder path */
+	private final Map<String, FolderEntry> fPending= new HashMap<>();
+
+	/** The number of records in the log */
+	private int fRecords= 0;
+
+	/** Does the log have to be rewritten? */
+	private boolean fRewrite= false;
+
+	/** Does the whole folder tree have to be checked? */
+	private boolean fStale= true;
+
+	/** The paths of the folders to check, relative to the history store */
+	private final Set<String> fChanged= new HashSet<>();
+
+	/**
+	 * Creates a new refactoring history index. Indexes created by this
+	 * constructor are not notified about changes of the history.
+	 *
+	 * @param history
+	 *            the history store
+	 * @param log
+	 *            the log file
+	 */
+	public RefactoringHistoryIndex(final IFileStore history, final IFileStore log) {
+		fHistory= history;
+		fHistoryURI= history.toURI().toString();
+		fLog= log;
+	}
+
+	/**
+	 * Reads the refactoring descriptor proxies of the history in the specified range.
+	 *
+	 * @param project
+	 *            the name of the project, or <code>null</code> for the
+	 *            workspace
+	 * @param collection
+	 *            the collection of proxies to fill in
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	public synchronized void readRefactoringDescriptorProxies(final String project, final Collection<RefactoringDescriptorProxy> collection, final long start, final long end, final IProgressMonitor monitor) throws CoreException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 10);
+			if (fFolders == null)
+				load();
+			monitor.worked(1);
+			if (fStale) {
+				fChanged.clear();
+				fChanged.add(""); //$NON-NLS-1$
+				fStale= false;
+			}
+			final IProgressMonitor subMonitor= new SubProgressMonitor(monitor, 8);
+			try {
+				subMonitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, fChanged.size());
+				for (final Iterator<String> iterator= fChanged.iterator(); iterator.hasNext();) {
+					refresh(iterator.next(), new SubProgressMonitor(subMonitor, 1));
+					iterator.remove();
+				}
+			} finally {
+				subMonitor.done();
+			}
+			for (final Iterator<FolderEntry> iterator= fFolders.values().iterator(); iterator.hasNext();)
+				iterator.next().addProxies(project, collection, start, end);
+			save();
+			monitor.worked(1);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Brings the folder entries below the specified path up to date, and removes the
+	 * entries of folders that no longer have an index file.
+	 *
+	 * @param path
+	 *            the path of the folder relative to the history store, or the empty
+	 *            string for the whole history
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	private void refresh(final String path, final IProgressMonitor monitor) throws CoreException {
+		final Set<String> visited= new HashSet<>();
+		final IFileStore store= path.length() == 0 ? fHistory : fHistory.getFileStore(new Path(path).makeRelative());
+		if (store.fetchInfo().isDirectory())
+			update(store, path, visited, monitor);
+		else
+			monitor.done();
+		for (final Iterator<String> iterator= fFolders.keySet().iterator(); iterator.hasNext();) {
+			final String current= iterator.next();
+			if ((path.length() == 0 || current.equals(path) || current.startsWith(path + IPath.SEPARATOR)) && !visited.contains(current)) {
+				// the folder has been removed
+				iterator.remove();
+				fPending.put(current, null);
+			}
+		}
+	}
+
+	/**
+	 * Records a change of the specified file store.
+	 *
+	 * @param store
+	 *            the file store that changed
+	 * @see #changed(IFileStore)
+	 */
+	private synchronized void storeChanged(final IFileStore store) {
+		if (store.equals(fHistory) || store.isParentOf(fHistory)) {
+			fStale= true;
+		} else if (fHistory.isParentOf(store)) {
+			IFileStore folder= store;
+			if (folder.getName().equalsIgnoreCase(RefactoringHistoryService.NAME_INDEX_FILE))
+				folder= folder.getParent();
+			final StringBuilder path= new StringBuilder();
+			for (; folder != null && !folder.equals(fHistory); folder= folder.getParent())
+				path.insert(0, folder.getName()).insert(0, IPath.SEPARATOR);
+			fChanged.add(path.toString());
+		}
+	}
+
+	/**
+	 * Brings the folder entries of the specified store and its children up to date.
+	 *
+	 * @param store
+	 *            the file store
+	 * @param path
+	 *            the path of the store relative to the history store
+	 * @param visited
+	 *            the paths of the folders with an index file
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	private void update(final IFileStore store, final String path, final Set<String> visited, final IProgressMonitor monitor) throws CoreException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 10);
+			final IFileStore[] stores= store.childStores(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			final IProgressMonitor subMonitor= new SubProgressMonitor(monitor, 9);
+			try {
+				subMonitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, stores.length);
+				for (int index= 0; index < stores.length; index++) {
+					final IFileStore child= stores[index];
+					final IFileInfo info= child.fetchInfo();
+					if (info.isDirectory()) {
+						update(child, path + IPath.SEPARATOR + child.getName(), visited, new SubProgressMonitor(subMonitor, 1));
+					} else {
+						if (info.exists() && child.getName().equalsIgnoreCase(RefactoringHistoryService.NAME_INDEX_FILE)) {
+							visited.add(path);
+							final FolderEntry entry= fFolders.get(path);
+							if (entry == null || !entry.isUpToDate(info)) {
+								final FolderEntry current= readFolder(child, info);
+								fFolders.put(path, current);
+								fPending.put(path, current);
+							}
+						}
+						subMonitor.worked(1);
+					}
+					if (monitor.isCanceled())
+						throw new OperationCanceledException();
+				}
+			} finally {
+				subMonitor.done();
+			}
+		} finally {
+			monitor.done();
+		}
+	}
+
+	private static FolderEntry readFolder(final IFileStore file, final IFileInfo info) throws CoreException {
+		try (InputStream stream= file.openInputStream(EFS.NONE, null)) {
+			final RefactoringDescriptorProxy[] proxies= RefactoringHistoryManager.readRefactoringDescriptorProxies(stream, null, 0, Long.MAX_VALUE);
+			RefactoringHistoryManager.sortRefactoringDescriptorsAscending(proxies);
+			final long[] stamps= new long[proxies.length];
+			final String[] descriptions= new String[proxies.length];
+			for (int index= 0; index < proxies.length; index++) {
+				stamps[index]= proxies[index].getTimeStamp();
+				descriptions[index]= proxies[index].getDescription();
+			}
+			return new FolderEntry(info.getLastModified(), info.getLength(), stamps, descriptions);
+		} catch (IOException exception) {
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCore.ID_PLUGIN, IRefactoringCoreStatusCodes.REFACTORING_HISTORY_IO_ERROR, exception.getLocalizedMessage(), exception));
+		}
+	}
+
+	/**
+	 * Loads the log. Truncated or foreign logs are discarded and rewritten
+	 * on the next save.
+	 */
+	private void load() {
+		fFolders= new HashMap<>();
+		fRecords= 0;
+		if (!fLog.fetchInfo().exists()) {
+			fRewrite= true;
+			return;
+		}
+		try (DataInputStream input= new DataInputStream(new BufferedInputStream(fLog.openInputStream(EFS.NONE, null)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION || !fHistoryURI.equals(readString(input))) {
+				fRewrite= true;
+				return;
+			}
+			while (true) {
+				final String path;
+				try {
+					path= readString(input);
+				} catch (EOFException exception) {
+					break;
+				}
+				final long lastModified= input.readLong();
+				final long length= input.readLong();
+				final int count= input.readInt();
+				final long[] stamps= new long[count];
+				final String[] descriptions= new String[count];
+				for (int index= 0; index < count; index++) {
+					stamps[index]= input.readLong();
+					descriptions[index]= readString(input);
+				}
+				if (length < 0)
+					fFolders.remove(path);
+				else
+					fFolders.put(path, new FolderEntry(lastModified, length, stamps, descriptions));
+				fRecords++;
+			}
+		} catch (EOFException exception) {
+			// truncated record, keep what has been read
+			fRewrite= true;
+		} catch (IOException exception) {
+			fFolders.clear();
+			fRewrite= true;
+		} catch (CoreException exception) {
+			fFolders.clear();
+			fRewrite= true;
+		}
+	}
+
+	/**
+	 * Appends the pending records to the log, or rewrites the log if it
+	 * is invalid or holds too many superseded records.
+	 */
+	private void save() {
+		if (!fRewrite && fPending.isEmpty())
+			return;
+		final boolean rewrite= fRewrite || fRecords + fPending.size() > COMPACTION_FACTOR * Math.max(16, fFolders.size());
+		try {
+			fLog.getParent().mkdir(EFS.NONE, null);
+			try (DataOutputStream output= new DataOutputStream(new BufferedOutputStream(fLog.openOutputStream(rewrite ? EFS.NONE : EFS.APPEND, null)))) {
+				if (rewrite) {
+					output.writeInt(MAGIC);
+					output.writeInt(VERSION);
+					writeString(output, fHistoryURI);
+					final List<String> paths= new ArrayList<>(fFolders.keySet());
+					for (int index= 0; index < paths.size(); index++)
+						writeRecord(output, paths.get(index), fFolders.get(paths.get(index)));
+					fRecords= paths.size();
+				} else {
+					for (final Iterator<Entry<String, FolderEntry>> iterator= fPending.entrySet().iterator(); iterator.hasNext();) {
+						final Entry<String, FolderEntry> entry= iterator.next();
+						writeRecord(output, entry.getKey(), entry.getValue());
+					}
+					fRecords+= fPending.size();
+				}
+			}
+			fRewrite= false;
+		} catch (IOException exception) {
+			fRewrite= true;
+			RefactoringCorePlugin.log(exception);
+		} catch (CoreException exception) {
+			fRewrite= true;
+			RefactoringCorePlugin.log(exception);
+		} finally {
+			fPending.clear();
+		}
+	}
+}
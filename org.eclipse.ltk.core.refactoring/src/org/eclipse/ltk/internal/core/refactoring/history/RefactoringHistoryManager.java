@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2019 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -363,6 +363,7 @@ public final class RefactoringHistoryManager {
 			}
 			final IFileStore parent= store.getParent();
 			store.delete(0, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			RefactoringHistoryIndex.changed(store);
 			removeIndexTree(parent, new SubProgressMonitor(monitor, 12, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), task);
 		} finally {
 			monitor.done();
@@ -544,6 +545,7 @@ public final class RefactoringHistoryManager {
 			output= new BufferedOutputStream(file.openOutputStream(flags, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)));
 			writeRefactoringDescriptorProxies(output, proxies);
 		} finally {
+			RefactoringHistoryIndex.changed(file);
 			monitor.done();
 			if (output != null) {
 				try {
@@ -967,10 +969,10 @@ public final class RefactoringHistoryManager {
 			final Set<RefactoringDescriptorProxy> set= new HashSet<>();
 			try {
 				if (fHistoryStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+					readIndexedDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80));
 				final IFileStore store= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation()).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER).getChild(RefactoringHistoryService.NAME_WORKSPACE_PROJECT);
 				if (store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(store, null, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+					readIndexedDescriptorProxies(store, null, set, start, end, new SubProgressMonitor(monitor, 80));
 			} catch (CoreException exception) {
 				RefactoringCorePlugin.log(exception);
 			}
@@ -982,6 +984,34 @@ public final class RefactoringHistoryManager {
 		}
 	}
 
+	/**
+	 * Reads refactoring descriptor proxies from the specified history store,
+	 * using the history index if available.
+	 *
+	 * @param store
+	 *            the history store
+	 * @param project
+	 *            the name of the project, or <code>null</code> for the
+	 *            workspace
+	 * @param collection
+	 *            the collection of proxies to fill in
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	private static void readIndexedDescriptorProxies(final IFileStore store, final String project, final Collection<RefactoringDescriptorProxy> collection, final long start, final long end, final IProgressMonitor monitor) throws CoreException {
+		final RefactoringHistoryIndex index= RefactoringHistoryIndex.getIndex(store);
+		if (index != null)
+			index.readRefactoringDescriptorProxies(project, collection, start, end, monitor);
+		else
+			readRefactoringDescriptorProxies(store, project, collection, start, end, monitor, RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+	}
+
 	/**
 	 * Removes refactoring descriptors from the managed history.
 	 * <p>
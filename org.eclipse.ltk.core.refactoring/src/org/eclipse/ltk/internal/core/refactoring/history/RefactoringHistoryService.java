@@ -51,6 +51,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
@@ -63,6 +64,7 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.resources.ProjectScope;
 import org.eclipse.core.resources.ResourcesPlugin;
 
@@ -259,6 +261,8 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 							destination.mkdir(EFS.NONE, new SubProgressMonitor(monitor, 20));
 							source.copy(destination, EFS.OVERWRITE, new SubProgressMonitor(monitor, 20));
 							source.delete(EFS.NONE, new SubProgressMonitor(monitor, 20));
+							RefactoringHistoryIndex.changed(source);
+							RefactoringHistoryIndex.changed(destination);
 						}
 					} else {
 						final IFileStore source= EFS.getStore(uri).getChild(NAME_HISTORY_FOLDER);
@@ -269,6 +273,8 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 							destination.mkdir(EFS.NONE, new SubProgressMonitor(monitor, 20));
 							source.copy(destination, EFS.OVERWRITE, new SubProgressMonitor(monitor, 20));
 							source.delete(EFS.NONE, new SubProgressMonitor(monitor, 20));
+							RefactoringHistoryIndex.changed(source);
+							RefactoringHistoryIndex.changed(destination);
 						}
 					}
 				} finally {
@@ -378,7 +384,7 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 					peformResourceChanged(event);
 				}
 			};
-			ResourcesPlugin.getWorkspace().addResourceChangeListener(fResourceListener, IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.POST_CHANGE);
+			ResourcesPlugin.getWorkspace().addResourceChangeListener(fResourceListener, IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE | IResourceChangeEvent.POST_CHANGE);
 		}
 	}
 
@@ -526,6 +532,7 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 			if (name.equals(NAME_WORKSPACE_PROJECT)) {
 				final IFileStore metaStore= stateStore.getChild(NAME_HISTORY_FOLDER).getChild(name);
 				metaStore.delete(EFS.NONE, new SubProgressMonitor(monitor, 100));
+				RefactoringHistoryIndex.discard(metaStore);
 			} else {
 				final URI uri= project.getLocationURI();
 				if (uri != null && project.isAccessible()) {
@@ -534,6 +541,8 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 						metaStore.delete(EFS.NONE, new SubProgressMonitor(monitor, 20));
 						final IFileStore projectStore= EFS.getStore(uri).getChild(NAME_HISTORY_FOLDER);
 						projectStore.delete(EFS.NONE, new SubProgressMonitor(monitor, 20));
+						RefactoringHistoryIndex.discard(metaStore);
+						RefactoringHistoryIndex.discard(projectStore);
 					} finally {
 						project.refreshLocal(IResource.DEPTH_INFINITE, new SubProgressMonitor(monitor, 60));
 					}
@@ -866,6 +875,8 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 				if (newStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 10, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
 					newStore.delete(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
 				oldStore.move(newStore, EFS.OVERWRITE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+				RefactoringHistoryIndex.discard(oldStore);
+				RefactoringHistoryIndex.changed(newStore);
 			}
 		} catch (CoreException exception) {
 			RefactoringCorePlugin.log(exception);
@@ -876,9 +887,15 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 
 	private void peformResourceChanged(final IResourceChangeEvent event) {
 		final int type= event.getType();
+		if ((type & (IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE)) != 0) {
+			final IResource resource= event.getResource();
+			if (resource != null && resource.getType() == IResource.PROJECT)
+				discardHistoryIndexes((IProject) resource);
+		}
 		if ((type & IResourceChangeEvent.POST_CHANGE) != 0) {
 			final IResourceDelta delta= event.getDelta();
 			if (delta != null) {
+				updateHistoryIndexes(delta);
 				final IResourceDelta[] deltas= delta.getAffectedChildren();
 				if (deltas.length == 2) {
 					final IPath toPath= deltas[0].getMovedToPath();
@@ -901,6 +918,60 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 		}
 	}
 
+	/**
+	 * Discards the history indexes of the specified project, which is about
+	 * to be closed or deleted.
+	 *
+	 * @param project
+	 *            the project
+	 */
+	private void discardHistoryIndexes(final IProject project) {
+		final RefactoringCorePlugin plugin= RefactoringCorePlugin.getDefault();
+		if (plugin != null)
+			RefactoringHistoryIndex.discard(EFS.getLocalFileSystem().getStore(plugin.getStateLocation()).getChild(NAME_HISTORY_FOLDER).getChild(project.getName()));
+		final URI uri= project.getLocationURI();
+		if (uri != null) {
+			try {
+				RefactoringHistoryIndex.discard(EFS.getStore(uri).getChild(NAME_HISTORY_FOLDER));
+			} catch (CoreException exception) {
+				RefactoringCorePlugin.log(exception);
+			}
+		}
+	}
+
+	/**
+	 * Reports changes of the shared refactoring histories of projects, e.g. by
+	 * a team update, to the history indexes.
+	 *
+	 * @param delta
+	 *            the workspace delta
+	 */
+	private void updateHistoryIndexes(final IResourceDelta delta) {
+		final IResourceDelta[] projects= delta.getAffectedChildren();
+		for (int index= 0; index < projects.length; index++) {
+			final IResourceDelta folder= projects[index].findMember(new Path(NAME_HISTORY_FOLDER));
+			if (folder == null)
+				continue;
+			try {
+				folder.accept(new IResourceDeltaVisitor() {
+
+					@Override
+					public boolean visit(final IResourceDelta current) throws CoreException {
+						final IResource resource= current.getResource();
+						if (resource.getType() == IResource.FILE && resource.getName().equalsIgnoreCase(NAME_INDEX_FILE)) {
+							final URI uri= resource.getLocationURI();
+							if (uri != null)
+								RefactoringHistoryIndex.changed(EFS.getStore(uri));
+						}
+						return true;
+					}
+				});
+			} catch (CoreException exception) {
+				RefactoringCorePlugin.log(exception);
+			}
+		}
+	}
+
 	private RefactoringDescriptor getRefactoringDescriptor(IUndoableOperation operation) {
 		if (operation instanceof TriggeredOperations) {
 			operation= ((TriggeredOperations) operation).getTriggeringOperation();